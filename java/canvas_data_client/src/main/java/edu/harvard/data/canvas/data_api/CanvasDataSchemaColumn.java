@@ -56,6 +56,7 @@ public class CanvasDataSchemaColumn extends DataSchemaColumn {
     this.snowflake = original.snowflake;
     this.seeAlso = original.seeAlso;
     this.sortKey = original.sortKey;
+    this.lowCardinality = original.lowCardinality;
   }
 
   @Override
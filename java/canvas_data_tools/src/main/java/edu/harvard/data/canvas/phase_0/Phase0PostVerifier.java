@@ -7,8 +7,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -38,6 +37,7 @@ import edu.harvard.data.VerificationException;
 import edu.harvard.data.Verifier;
 import edu.harvard.data.canvas.CanvasDataConfig;
 import edu.harvard.data.canvas.bindings.phase0.Phase0CanvasTable;
+import edu.harvard.data.io.RecordDecoder;
 
 public class Phase0PostVerifier implements Verifier {
 
@@ -157,7 +157,7 @@ class CanvasPhase0VerifierJob2 implements Callable<Long> {
       aws.getFile(awsFile, tmpFile);
       long errorCount = 0;
       if (tmpFile.length() > 0) {
-        final List<String> errors = verifyFile(table.getTableClass(), tmpFile);
+        final List<String> errors = verifyFile(table.getRecordDecoder(), tmpFile);
         if (!errors.isEmpty()) {
           errorCount += errors.size();
         }
@@ -171,15 +171,8 @@ class CanvasPhase0VerifierJob2 implements Callable<Long> {
 
   }
 
-  private <T extends DataTable> List<String> verifyFile(final Class<T> cls, final File tmpFile)
-      throws IOException, VerificationException {
-    Constructor<T> constructor;
-    try {
-      constructor = cls.getConstructor(TableFormat.class, CSVRecord.class);
-    } catch (NoSuchMethodException | SecurityException e) {
-      log.error("Failed to load constructor for class " + cls.getCanonicalName(), e);
-      throw new VerificationException(e);
-    }
+  private <T extends DataTable> List<String> verifyFile(final RecordDecoder<T> decoder,
+      final File tmpFile) throws IOException, VerificationException {
     final List<String> differences = new ArrayList<String>();
     int linesPrinted = 0;
     try (final BufferedReader in = getReaderForFile(tmpFile);) {
@@ -192,10 +185,9 @@ class CanvasPhase0VerifierJob2 implements Callable<Long> {
             .getRecords()) {
           T record;
           try {
-            record = constructor.newInstance(format, csvRecord);
-          } catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-              | InvocationTargetException e) {
-            log.error("Failed to create instance of " + cls.getCanonicalName(), e);
+            record = decoder.decode(format, csvRecord);
+          } catch (final ParseException | RuntimeException e) {
+            log.error("Failed to create instance of " + table.getTableClass().getCanonicalName(), e);
             log.info("File: " + tmpFile);
             log.info("Line: " + line);
             log.info("Record: " + csvRecord);
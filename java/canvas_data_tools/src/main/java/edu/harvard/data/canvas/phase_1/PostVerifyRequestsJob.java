@@ -7,8 +7,6 @@ import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
 
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -16,18 +14,15 @@ import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
-import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 import org.mortbay.log.Log;
 
 import edu.harvard.data.DataConfig;
 import edu.harvard.data.DataConfigurationException;
-import edu.harvard.data.FormatLibrary;
-import edu.harvard.data.FormatLibrary.Format;
 import edu.harvard.data.HadoopJob;
 import edu.harvard.data.NoInputDataException;
-import edu.harvard.data.TableFormat;
 import edu.harvard.data.canvas.bindings.phase1.Phase1Requests;
+import edu.harvard.data.io.DataTableInputFormat;
 
 /**
  * Wrapper class around the {@link PostVerifyRequestMapper} that configures a
@@ -48,7 +43,9 @@ public class PostVerifyRequestsJob extends HadoopJob {
     job.setMapOutputValueClass(LongWritable.class);
     job.setNumReduceTasks(0);
 
-    job.setInputFormatClass(TextInputFormat.class);
+    // Mappers receive records already parsed from the input lines.
+    job.setInputFormatClass(DataTableInputFormat.class);
+    DataTableInputFormat.setTableType(job, Phase1Requests.class);
     job.setOutputFormatClass(TextOutputFormat.class);
     final String inputDir = config.getHdfsDir(phase);
     final String verifyDir = config.getVerifyHdfsDir(phase);
@@ -71,10 +68,9 @@ public class PostVerifyRequestsJob extends HadoopJob {
  * Hadoop's map mechanism matches what we expected to see according to our
  * pre-calculated set of identifiers.
  */
-class PostVerifyRequestMapper extends Mapper<Object, Text, Text, LongWritable> {
+class PostVerifyRequestMapper extends Mapper<LongWritable, Phase1Requests, Text, LongWritable> {
 
   private final Map<String, String> interestingRequests;
-  private TableFormat format;
 
   public PostVerifyRequestMapper() {
     this.interestingRequests = new HashMap<String, String>();
@@ -83,8 +79,6 @@ class PostVerifyRequestMapper extends Mapper<Object, Text, Text, LongWritable> {
   @Override
   protected void setup(final Context context) throws IOException, InterruptedException {
     super.setup(context);
-    final Format formatName = Format.valueOf(context.getConfiguration().get("format"));
-    this.format = new FormatLibrary().getFormat(formatName);
     final FileSystem fs = FileSystem.get(context.getConfiguration());
     for (final URI uri : context.getCacheFiles()) {
       final Path path = new Path(uri.toString());
@@ -102,18 +96,14 @@ class PostVerifyRequestMapper extends Mapper<Object, Text, Text, LongWritable> {
   }
 
   @Override
-  public void map(final Object key, final Text value, final Context context)
+  public void map(final LongWritable key, final Phase1Requests request, final Context context)
       throws IOException, InterruptedException {
-    final CSVParser parser = CSVParser.parse(value.toString(), format.getCsvFormat());
-    for (final CSVRecord csvRecord : parser.getRecords()) {
-      final Phase1Requests request = new Phase1Requests(format, csvRecord);
-      if (interestingRequests.containsKey(request.getId())) {
-        final String researchId = interestingRequests.get(request.getId());
-        if (!request.getUserIdResearchUuid().equals(researchId)) {
-          throw new RuntimeException("Validation error: Expected to find research ID " + researchId
-              + ", but instead found " + request.getUserIdResearchUuid() + " in request "
-              + request.getId());
-        }
+    if (interestingRequests.containsKey(request.getId())) {
+      final String researchId = interestingRequests.get(request.getId());
+      if (!request.getUserIdResearchUuid().equals(researchId)) {
+        throw new RuntimeException("Validation error: Expected to find research ID " + researchId
+            + ", but instead found " + request.getUserIdResearchUuid() + " in request "
+            + request.getId());
       }
     }
   }
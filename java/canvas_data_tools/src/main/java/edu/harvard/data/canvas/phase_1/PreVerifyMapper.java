@@ -1,12 +1,8 @@
 package edu.harvard.data.canvas.phase_1;
 
 import java.io.IOException;
-import java.net.URI;
-import java.util.HashMap;
 import java.util.Map;
 
-import org.apache.hadoop.fs.FileSystem;
-import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper;
@@ -17,41 +13,32 @@ import edu.harvard.data.FormatLibrary;
 import edu.harvard.data.FormatLibrary.Format;
 import edu.harvard.data.TableFormat;
 import edu.harvard.data.identity.IdentifierType;
+import edu.harvard.data.identity.IdentityIndex;
 import edu.harvard.data.identity.IdentityMap;
-import edu.harvard.data.io.HdfsTableReader;
 
 /**
  * Common base class for all table-specific pre-verification mappers. This
  * abstract class just simplifies the common task of reading in an existing
- * identity map from HDFS.
+ * identity map from the Hadoop distributed cache (see
+ * {@link IdentityIndex#load}).
+ *
+ * @param <T>
+ *          the record type that the mapper reads, as delivered by
+ *          {@link edu.harvard.data.io.DataTableInputFormat}.
  */
-abstract class PreVerifyMapper extends Mapper<Object, Text, Text, LongWritable> {
+abstract class PreVerifyMapper<T> extends Mapper<LongWritable, T, Text, LongWritable> {
 
   private static final Logger log = LogManager.getLogger();
-  protected final Map<Long, IdentityMap> idByCanvasDataId;
+  protected Map<Long, IdentityMap> idByCanvasDataId;
   protected TableFormat format;
 
-  public PreVerifyMapper() {
-    this.idByCanvasDataId = new HashMap<Long, IdentityMap>();
-  }
-
   @Override
   protected void setup(final Context context) throws IOException, InterruptedException {
     super.setup(context);
     final Format formatName = Format.valueOf(context.getConfiguration().get("format"));
     this.format = new FormatLibrary().getFormat(formatName);
-    final FileSystem fs = FileSystem.get(context.getConfiguration());
-    if (context.getCacheFiles() != null) {
-      for (final URI uri : context.getCacheFiles()) {
-        log.info("Reading cache file " + uri);
-        final Path path = new Path(uri.toString());
-        try (HdfsTableReader<IdentityMap> in = new HdfsTableReader<IdentityMap>(IdentityMap.class,
-            format, fs, path)) {
-          for (final IdentityMap id : in) {
-            idByCanvasDataId.put((Long) id.get(IdentifierType.CanvasDataID), id);
-          }
-        }
-      }
-    }
+    this.idByCanvasDataId = IdentityIndex.load(context.getConfiguration(),
+        context.getCacheFiles(), format, IdentifierType.CanvasDataID);
+    log.info("Read " + idByCanvasDataId.size() + " identities");
   }
 }
@@ -4,14 +4,11 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
-import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -23,6 +20,7 @@ import edu.harvard.data.NoInputDataException;
 import edu.harvard.data.canvas.bindings.phase0.Phase0Requests;
 import edu.harvard.data.identity.IdentifierType;
 import edu.harvard.data.identity.IdentityMap;
+import edu.harvard.data.io.DataTableInputFormat;
 import edu.harvard.data.io.HdfsTableReader;
 
 /**
@@ -43,7 +41,9 @@ class PreVerifyRequestsJob extends HadoopJob {
     job.setMapOutputValueClass(LongWritable.class);
     job.setNumReduceTasks(0);
 
-    job.setInputFormatClass(TextInputFormat.class);
+    // Mappers receive records already parsed from the input lines.
+    job.setInputFormatClass(DataTableInputFormat.class);
+    DataTableInputFormat.setTableType(job, Phase0Requests.class);
     job.setOutputFormatClass(TextOutputFormat.class);
     final String inputDir = config.getHdfsDir(phase - 1);
     final String outputDir = config.getVerifyHdfsDir(phase);
@@ -62,14 +62,18 @@ class PreVerifyRequestsJob extends HadoopJob {
 // number of records, which could then crash the post-verify stage when it tries
 // to read them into memory. A safer implementation would limit the number of
 // results saved to files to avoid this.
-class PreVerifyRequestMapper extends PreVerifyMapper {
+class PreVerifyRequestMapper extends PreVerifyMapper<Phase0Requests> {
 
   private static final Logger log = LogManager.getLogger();
   private final Map<Long, IdentityMap> interestingPeople;
+  private final Text requestId;
+  private final LongWritable userId;
 
   public PreVerifyRequestMapper() {
     super();
     this.interestingPeople = new HashMap<Long, IdentityMap>();
+    this.requestId = new Text();
+    this.userId = new LongWritable();
   }
 
   @Override
@@ -88,14 +92,12 @@ class PreVerifyRequestMapper extends PreVerifyMapper {
   }
 
   @Override
-  public void map(final Object key, final Text value, final Context context)
+  public void map(final LongWritable key, final Phase0Requests request, final Context context)
       throws IOException, InterruptedException {
-    final CSVParser parser = CSVParser.parse(value.toString(), format.getCsvFormat());
-    for (final CSVRecord csvRecord : parser.getRecords()) {
-      final Phase0Requests request = new Phase0Requests(format, csvRecord);
-      if (request.getUserId() != null && interestingPeople.containsKey(request.getUserId())) {
-        context.write(new Text(request.getId()), new LongWritable(request.getUserId()));
-      }
+    if (request.getUserId() != null && interestingPeople.containsKey(request.getUserId())) {
+      requestId.set(request.getId());
+      userId.set(request.getUserId());
+      context.write(requestId, userId);
     }
   }
 }
@@ -19,6 +19,8 @@ import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
@@ -33,6 +35,10 @@ import edu.harvard.data.canvas.bindings.phase0.Phase0Requests;
 import edu.harvard.data.identity.IdentifierType;
 import edu.harvard.data.identity.IdentityMap;
 import edu.harvard.data.io.HdfsTableReader;
+import edu.harvard.data.io.ParallelTableReader;
+import edu.harvard.data.io.RecordDecoder;
+import edu.harvard.data.io.RecordDecoders;
+import edu.harvard.data.io.TableReader;
 import edu.harvard.data.io.TableWriter;
 
 // TODO: Add them most recently created users as interesting people, to make sure that new IDs are
@@ -75,9 +81,7 @@ public class VerificationPeople {
     final Long start = System.currentTimeMillis();
     people = new ArrayList<Long>();
 
-    for (final Path path : calculatePaths(inputDir + "/requests")) {
-      scanRequestTable(path);
-    }
+    scanRequestTables(calculatePaths(inputDir + "/requests"));
 
     selectPeople();
     final Long time = (System.currentTimeMillis() - start) / 1000;
@@ -100,13 +104,27 @@ public class VerificationPeople {
     }
   }
 
-  private void scanRequestTable(final Path path) throws IOException {
-    log.info("Scanning request table at path " + path);
-    try (HdfsTableReader<Phase0Requests> in = new HdfsTableReader<Phase0Requests>(
-        Phase0Requests.class, format, fs, path)) {
+  // Parse the sampled request files concurrently, one file per thread. The
+  // records are still processed in order on this thread, so processRequest
+  // does not need to be synchronized. Only the columns that processRequest
+  // reads are decoded.
+  private void scanRequestTables(final Set<Path> paths) throws IOException {
+    final RecordDecoder<Phase0Requests> decoder = RecordDecoders.project(Phase0Requests.DECODER,
+        "user_id", "web_application_controller", "web_application_action");
+    final List<TableReader<Phase0Requests>> readers = new ArrayList<TableReader<Phase0Requests>>();
+    for (final Path path : paths) {
+      log.info("Scanning request table at path " + path);
+      readers.add(new HdfsTableReader<Phase0Requests>(Phase0Requests.class, decoder, format, fs,
+          path));
+    }
+    final ExecutorService exec = Executors.newFixedThreadPool(readers.size());
+    try (ParallelTableReader<Phase0Requests> in = new ParallelTableReader<Phase0Requests>(readers,
+        exec, readers.size(), ParallelTableReader.DEFAULT_BUFFER_SIZE)) {
       for (final Phase0Requests request : in) {
         processRequest(request);
       }
+    } finally {
+      exec.shutdownNow();
     }
   }
 
@@ -1,22 +1,19 @@
 package edu.harvard.data.canvas.phase_2;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.util.HashSet;
 import java.util.Set;
 
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVPrinter;
-import org.apache.commons.csv.CSVRecord;
+import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
-import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 
 import edu.harvard.data.DataConfig;
 import edu.harvard.data.DataConfigurationException;
+import edu.harvard.data.DelimitedText;
 import edu.harvard.data.FormatLibrary;
 import edu.harvard.data.FormatLibrary.Format;
 import edu.harvard.data.HadoopJob;
@@ -25,6 +22,7 @@ import edu.harvard.data.TableFormat;
 import edu.harvard.data.canvas.CanvasDataConfig;
 import edu.harvard.data.canvas.bindings.phase1.Phase1Requests;
 import edu.harvard.data.canvas.bindings.phase2.Phase2Requests;
+import edu.harvard.data.io.DataTableInputFormat;
 
 public class RequestJob extends HadoopJob {
 
@@ -48,7 +46,9 @@ public class RequestJob extends HadoopJob {
     job.setMapOutputValueClass(NullWritable.class);
     job.setNumReduceTasks(0);
 
-    job.setInputFormatClass(TextInputFormat.class);
+    // Mappers receive records already parsed from the input lines.
+    job.setInputFormatClass(DataTableInputFormat.class);
+    DataTableInputFormat.setTableType(job, Phase1Requests.class);
     job.setOutputFormatClass(TextOutputFormat.class);
     final String inputDir = config.getHdfsDir(phase - 1);
     final String outputDir = config.getHdfsDir(phase);
@@ -57,8 +57,10 @@ public class RequestJob extends HadoopJob {
   }
 }
 
-class RequestMapper extends Mapper<Object, Text, Text, NullWritable> {
+class RequestMapper extends Mapper<LongWritable, Phase1Requests, Text, NullWritable> {
 
+  private final DelimitedText delimitedText = new DelimitedText();
+  private final Text csvText = new Text();
   private TableFormat format;
   private Set<String> adminResearchIds;
 
@@ -72,22 +74,14 @@ class RequestMapper extends Mapper<Object, Text, Text, NullWritable> {
   }
 
   @Override
-  public void map(final Object key, final Text value, final Context context)
+  public void map(final LongWritable key, final Phase1Requests request, final Context context)
       throws IOException, InterruptedException {
-    final CSVParser parser = CSVParser.parse(value.toString(), format.getCsvFormat());
-    for (final CSVRecord csvRecord : parser.getRecords()) {
-      final Phase1Requests request = new Phase1Requests(format, csvRecord);
-      if (request.getUserIdResearchUuid() == null
-          || (!adminResearchIds.contains(request.getUserIdResearchUuid()))) {
-        final Phase2Requests phase2 = new Phase2Requests(request);
+    if (request.getUserIdResearchUuid() == null
+        || (!adminResearchIds.contains(request.getUserIdResearchUuid()))) {
+      final Phase2Requests phase2 = new Phase2Requests(request);
 
-        final StringWriter writer = new StringWriter();
-        try (final CSVPrinter printer = new CSVPrinter(writer, format.getCsvFormat())) {
-          printer.printRecord(phase2.getFieldsAsList(format));
-        }
-        final Text csvText = new Text(writer.toString().trim());
-        context.write(csvText, NullWritable.get());
-      }
+      delimitedText.set(csvText, format, phase2);
+      context.write(csvText, NullWritable.get());
     }
   }
 }
@@ -7,13 +7,12 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
-import org.apache.commons.csv.CSVParser;
+import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
-import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 
 import edu.harvard.data.DataConfig;
@@ -27,6 +26,7 @@ import edu.harvard.data.TableFormat;
 import edu.harvard.data.canvas.CanvasDataConfig;
 import edu.harvard.data.canvas.bindings.phase2.Phase2Requests;
 import edu.harvard.data.canvas.bindings.phase3.Phase3Sessions;
+import edu.harvard.data.io.DataTableInputFormat;
 
 public class SessionsJob extends HadoopJob {
 
@@ -45,10 +45,13 @@ public class SessionsJob extends HadoopJob {
   @Override
   public Job getJob() throws IOException, NoInputDataException {
     final Job job = Job.getInstance(hadoopConf, "sessions-hadoop");
-    job.setInputFormatClass(TextInputFormat.class);
+    // Mappers receive records already parsed from the input lines.
+    job.setInputFormatClass(DataTableInputFormat.class);
+    DataTableInputFormat.setTableType(job, Phase2Requests.class);
     job.setMapperClass(SessionsMapper.class);
     job.setMapOutputKeyClass(Text.class);
-    job.setMapOutputValueClass(Text.class);
+    // Requests are shuffled in their binary Writable form.
+    job.setMapOutputValueClass(Phase2Requests.class);
     job.setReducerClass(SessionsReducer.class);
     job.setOutputKeyClass(Text.class);
     job.setOutputValueClass(NullWritable.class);
@@ -61,33 +64,18 @@ public class SessionsJob extends HadoopJob {
   }
 }
 
-class SessionsMapper extends Mapper<Object, Text, Text, Text> {
-
-  private TableFormat format;
-  private final HadoopUtilities hadoopUtils;
-
-  public SessionsMapper() {
-    this.hadoopUtils = new HadoopUtilities();
-  }
-
-  @Override
-  protected void setup(final Context context) {
-    final Format formatName = Format.valueOf(context.getConfiguration().get("format"));
-    this.format = new FormatLibrary().getFormat(formatName);
-  }
+class SessionsMapper extends Mapper<LongWritable, Phase2Requests, Text, Phase2Requests> {
 
   @Override
-  public void map(final Object key, final Text value, final Context context)
+  public void map(final LongWritable key, final Phase2Requests request, final Context context)
       throws IOException, InterruptedException {
-    final CSVParser parser = CSVParser.parse(value.toString(), format.getCsvFormat());
-    final Phase2Requests request = new Phase2Requests(format, parser.getRecords().get(0));
     if (request.getSessionId() != null) {
-      context.write(new Text(request.getSessionId()), hadoopUtils.recordToText(request, format));
+      context.write(new Text(request.getSessionId()), request);
     }
   }
 }
 
-class SessionsReducer extends Reducer<Text, Text, Text, NullWritable> {
+class SessionsReducer extends Reducer<Text, Phase2Requests, Text, NullWritable> {
 
   private TableFormat format;
   private final HadoopUtilities hadoopUtils;
@@ -103,7 +91,7 @@ class SessionsReducer extends Reducer<Text, Text, Text, NullWritable> {
   }
 
   @Override
-  public void reduce(final Text key, final Iterable<Text> values, final Context context)
+  public void reduce(final Text key, final Iterable<Phase2Requests> values, final Context context)
       throws IOException, InterruptedException {
     String userResearchId = null;
     Timestamp earliest = new Timestamp(Long.MAX_VALUE);
@@ -117,9 +105,9 @@ class SessionsReducer extends Reducer<Text, Text, Text, NullWritable> {
     final Set<Long> quizzes = new HashSet<Long>();
 
     final Map<String, Integer> ips = new HashMap<String, Integer>();
-    for (final Text value : values) {
-      final CSVParser parser = CSVParser.parse(value.toString(), format.getCsvFormat());
-      final Phase2Requests request = new Phase2Requests(format, parser.getRecords().get(0));
+    // Hadoop reuses the same request object for each value, so only immutable
+    // field values may be kept between iterations.
+    for (final Phase2Requests request : values) {
       requestCount++;
       if (request.getUrl() != null) {
         urls.add(request.getUrl());
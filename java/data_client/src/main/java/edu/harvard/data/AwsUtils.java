@@ -16,7 +16,6 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.LogManager;
@@ -26,15 +25,18 @@ import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3Client;
 import com.amazonaws.services.s3.model.CopyObjectRequest;
 import com.amazonaws.services.s3.model.DeleteObjectRequest;
-import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectId;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
+import edu.harvard.data.io.BlockGzipInputStream;
+import edu.harvard.data.io.ContentChecksum;
+import edu.harvard.data.io.RangedS3InputStream;
 import edu.harvard.data.schema.redshift.RedshiftSchema;
 
 // TODO: Convert RuntimeExceptions to checked.
@@ -42,6 +44,10 @@ public class AwsUtils {
 
   private static final Logger log = LogManager.getLogger();
 
+  private static final String MD5_METADATA = "md5";
+  private static final String CRC32C_METADATA = "crc32c";
+  private static final String ROWS_METADATA = "rows";
+
   private final AmazonS3Client client;
   private final ObjectMapper jsonMapper;
 
@@ -189,24 +195,65 @@ public class AwsUtils {
       throws IOException {
     log.debug("Downloading " + objId + " to " + file);
     file.getParentFile().mkdirs();
-    final InputStream in = getInputStream(objId, gunzip);
-    final OutputStream out = new FileOutputStream(file);
-    IOUtils.copy(in, out);
+    try (final InputStream in = getInputStream(objId, gunzip);
+        final OutputStream out = new FileOutputStream(file)) {
+      IOUtils.copy(in, out);
+    }
   }
 
+  // The object is read through a RangedS3InputStream, so a connection that is
+  // reset part way through a large download is resumed rather than failing the
+  // whole read. GZIPInputStream can stop after the first member of a
+  // multi-member file when the S3 stream has no data available between network
+  // reads, so gzip objects are read with BlockGzipInputStream, which reads
+  // every member.
   public InputStream getInputStream(final S3ObjectId objId, final boolean gunzip)
       throws IOException {
-    final S3Object obj = client.getObject(new GetObjectRequest(objId.getBucket(), objId.getKey()));
-    InputStream in = obj.getObjectContent();
+    InputStream in = new RangedS3InputStream(client, objId);
     if (gunzip) {
-      in = new GZIPInputStream(in);
+      in = new BlockGzipInputStream(in);
     }
     return in;
   }
 
-  public void putFile(final S3ObjectId objId, final File file) throws IOException {
-    log.debug("Uploading " + file + " to " + objId);
-    client.putObject(objId.getBucket(), objId.getKey(), file);
+  public ContentChecksum putFile(final S3ObjectId objId, final File file) throws IOException {
+    return putFile(objId, file, ContentChecksum.forFile(file));
+  }
+
+  // Upload a file along with checksums that were computed as it was written.
+  // The MD5 is sent as the Content-MD5 header so that S3 rejects a corrupted
+  // upload, and all of the values are stored as user metadata so that they can
+  // be read back with getChecksum.
+  public ContentChecksum putFile(final S3ObjectId objId, final File file,
+      final ContentChecksum checksum) throws IOException {
+    log.debug("Uploading " + file + " to " + objId + " (" + checksum + ")");
+    if (file.length() != checksum.getLength()) {
+      throw new IOException("File " + file + " has length " + file.length()
+          + " but checksum is for " + checksum.getLength() + " bytes");
+    }
+    final ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentLength(checksum.getLength());
+    metadata.setContentMD5(checksum.getMd5Base64());
+    metadata.addUserMetadata(MD5_METADATA, checksum.getMd5());
+    metadata.addUserMetadata(CRC32C_METADATA, Long.toString(checksum.getCrc32c()));
+    metadata.addUserMetadata(ROWS_METADATA, Long.toString(checksum.getRows()));
+    client.putObject(new PutObjectRequest(objId.getBucket(), objId.getKey(), file)
+        .withMetadata(metadata));
+    return checksum;
+  }
+
+  // Read the checksums stored with an object by putFile, without downloading
+  // it. Returns null if the object was uploaded without them.
+  public ContentChecksum getChecksum(final S3ObjectId objId) {
+    final ObjectMetadata metadata = client.getObjectMetadata(objId.getBucket(), objId.getKey());
+    final String md5 = metadata.getUserMetaDataOf(MD5_METADATA);
+    final String crc32c = metadata.getUserMetaDataOf(CRC32C_METADATA);
+    final String rows = metadata.getUserMetaDataOf(ROWS_METADATA);
+    if (md5 == null || crc32c == null) {
+      return null;
+    }
+    return new ContentChecksum(md5, Long.parseLong(crc32c), metadata.getContentLength(),
+        rows == null ? ContentChecksum.UNKNOWN_ROWS : Long.parseLong(rows));
   }
 
   public void deleteKey(final S3ObjectId key) {
@@ -0,0 +1,66 @@
+package edu.harvard.data;
+
+/**
+ * Helper methods for working with strings that are held as a slice of a
+ * character buffer, such as the fields of a
+ * {@link edu.harvard.data.io.DelimitedTokenizer}.
+ * <P>
+ * These methods let callers look up a value without first copying it into a
+ * new {@code String}. They are used by {@link StringDictionary} and by the enum
+ * decoders emitted by the code generator.
+ */
+public class CharSlices {
+
+  private CharSlices() {
+  }
+
+  /**
+   * Compute the hash code of a slice of a buffer.
+   *
+   * @param buf
+   *          the buffer that holds the characters of the string.
+   * @param offset
+   *          the offset of the first character in {@code buf}.
+   * @param length
+   *          the number of characters in the string.
+   *
+   * @return the value that {@link String#hashCode} would return for a string
+   *         with the same characters as the slice.
+   */
+  public static int hash(final char[] buf, final int offset, final int length) {
+    int hash = 0;
+    final int end = offset + length;
+    for (int i = offset; i < end; i++) {
+      hash = 31 * hash + buf[i];
+    }
+    return hash;
+  }
+
+  /**
+   * Compare a string to a slice of a buffer.
+   *
+   * @param value
+   *          the string to compare.
+   * @param buf
+   *          the buffer that holds the characters of the slice.
+   * @param offset
+   *          the offset of the first character in {@code buf}.
+   * @param length
+   *          the number of characters in the slice.
+   *
+   * @return {@code true} if {@code value} has exactly the same characters as
+   *         the slice.
+   */
+  public static boolean matches(final String value, final char[] buf, final int offset,
+      final int length) {
+    if (value.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (value.charAt(i) != buf[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
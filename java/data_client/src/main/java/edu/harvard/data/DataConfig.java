@@ -22,6 +22,7 @@ import com.amazonaws.services.s3.model.S3ObjectId;
 
 import edu.harvard.data.FormatLibrary.Format;
 import edu.harvard.data.identity.IdentifierType;
+import edu.harvard.data.identity.IdentityIndex;
 
 /**
  * The DataConfig class is a central repository for all configuration settings
@@ -140,6 +141,8 @@ public class DataConfig {
   private final String redshiftStagingDir;
   private final String hdfsBase;
   private final String hdfsVerifyBase;
+  private final int outputPartitions;
+  private final long outputFileSizeBytes;
   private final String rapidScriptFile;
   private final String rapidRuntime;
   private final String rapidConfigFile;
@@ -214,6 +217,8 @@ public class DataConfig {
     this.datasetName = getConfigParameter("dataset_name", verify);
     this.pipelineFormat = Format.fromLabel(getConfigParameter("pipeline_format", verify));
     this.fulltextFormat = Format.fromLabel(getConfigParameter("fulltext_format", verify));
+    checkTextFormat("pipeline_format", pipelineFormat);
+    checkTextFormat("fulltext_format", fulltextFormat);
     this.dataPipelineRole = getConfigParameter("data_pipeline_role", verify);
     this.dataPipelineResourceRoleArn = getConfigParameter("data_pipeline_resource_role_arn",
         verify);
@@ -281,6 +286,14 @@ public class DataConfig {
     this.phase0SecurityGroup = getConfigParameter("phase_0_security_group", verify);
     this.phase0AvailabilityZoneGroup = getConfigParameter("phase_0_availability_zone_group",
         verify);
+    // Optional; by default each table is written to a single file.
+    final Integer partitions = getIntConfigParameter("output_partitions", false);
+    this.outputPartitions = partitions == null ? 1 : partitions;
+    if (outputPartitions < 1) {
+      throw new DataConfigurationException("output_partitions must be at least 1");
+    }
+    final Integer fileSizeMb = getIntConfigParameter("output_file_size_mb", false);
+    this.outputFileSizeBytes = fileSizeMb == null ? 0 : fileSizeMb * 1024L * 1024L;
     this.ec2GitDir = "/home/" + getPhase0HomeDir() + "/harvard-data-tools";
     this.ec2CodeDir = "/home/" + getPhase0HomeDir() + "/code";
     
@@ -414,6 +427,18 @@ public class DataConfig {
     }
   }
 
+  // Pipeline tables are read by Hadoop jobs through TextInputFormat, and the
+  // generated Hive and Redshift scripts declare delimited text tables, so a
+  // columnar format such as Parquet can only be used by tools that read and
+  // write tables directly through TableWriter and FileTableReader.
+  private void checkTextFormat(final String key, final Format format)
+      throws DataConfigurationException {
+    if (format != null && new FormatLibrary().getFormat(format).isColumnar()) {
+      throw new DataConfigurationException("Configuration parameter " + key + " is " + format
+          + ", but the pipeline only supports delimited text formats.");
+    }
+  }
+
   public String getRedshiftUrl() {
     return "jdbc:postgresql://" + redshiftServer + ":" + redshiftPort + "/" + redshiftDatabase;
   }
@@ -467,6 +492,12 @@ public class DataConfig {
     return getHdfsDir(1) + "/identity_map";
   }
 
+  // Identity indexes are kept outside the phase directories, whose contents
+  // are moved between phases and copied to Redshift.
+  public String getIdentityIndexPath(final int phase) {
+    return "/identity_index/phase_" + phase + IdentityIndex.EXTENSION;
+  }
+
   public String getPhase1TempIdMapOutput() {
     return "tempidentitymap";
   }
@@ -929,6 +960,18 @@ public class DataConfig {
     return identityLeaseLengthSeconds;
   }
 
+  // The number of files across which PartitionedTableWriter spreads a table;
+  // typically the number of slices in the Redshift cluster.
+  public int getOutputPartitions() {
+    return outputPartitions;
+  }
+
+  // The compressed size at which PartitionedTableWriter starts a new file, or
+  // zero if files should not be split by size.
+  public long getOutputFileSizeBytes() {
+    return outputFileSizeBytes;
+  }
+
   public FormatLibrary.Format getPipelineFormat() {
     return pipelineFormat;
   }
@@ -1,5 +1,6 @@
 package edu.harvard.data;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -10,4 +11,9 @@ public interface DataTable {
   List<String> getFieldNames();
   Map<String, Object> getFieldsAsMap();
 
+  // Write the fields in the same form as getFieldsAsList would produce through a
+  // CSVPrinter, using format.getDelimitedEncoder(). The record separator is not
+  // written.
+  void writeDelimited(final TableFormat format, final Appendable out) throws IOException;
+
 }
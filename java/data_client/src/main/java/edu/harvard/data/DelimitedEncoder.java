@@ -0,0 +1,291 @@
+package edu.harvard.data;
+
+import java.io.IOException;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.QuoteMode;
+
+/**
+ * Writes individual field values to an {@link Appendable}, applying the same
+ * delimiting, quoting and escaping rules as a {@link org.apache.commons.csv.CSVPrinter}
+ * configured with the same {@link CSVFormat}.
+ * <P>
+ * {@code CSVPrinter} requires each record to be packaged as a list of objects,
+ * and is typically created afresh for every record. This class instead lets
+ * generated {@link DataTable#writeDelimited} implementations write each field
+ * directly into a reusable buffer, so that encoding a record does not allocate
+ * any intermediate objects. Numeric values are appended without conversion to
+ * a {@code String} when the output is a {@link StringBuilder}.
+ * <P>
+ * Instances are obtained from {@link TableFormat#getDelimitedEncoder}. This
+ * class is immutable, and so is safe to share between threads.
+ */
+public final class DelimitedEncoder {
+
+  private static final char LF = '\n';
+  private static final char CR = '\r';
+  private static final char SP = ' ';
+  private static final char COMMENT = '#';
+
+  private final char delimiter;
+  private final Character quote;
+  private final Character escape;
+  private final QuoteMode quoteMode;
+  private final String nullString;
+  private final String recordSeparator;
+  private final boolean plainNumbers;
+
+  /**
+   * Create an encoder for a CSV format.
+   *
+   * @param csvFormat
+   *          the {@link CSVFormat} whose output this encoder should reproduce.
+   */
+  public DelimitedEncoder(final CSVFormat csvFormat) {
+    this.delimiter = csvFormat.getDelimiter();
+    this.quote = csvFormat.getQuoteCharacter();
+    this.escape = csvFormat.getEscapeCharacter();
+    this.quoteMode = csvFormat.getQuoteMode() == null ? QuoteMode.MINIMAL
+        : csvFormat.getQuoteMode();
+    this.nullString = csvFormat.getNullString() == null ? "" : csvFormat.getNullString();
+    this.recordSeparator = csvFormat.getRecordSeparator();
+    // Numbers can be appended directly as long as none of the characters that
+    // can appear in a number would need to be escaped or quoted.
+    this.plainNumbers = !(quote != null && quoteMode == QuoteMode.ALL)
+        && !isNumberChar(delimiter) && (quote == null || !isNumberChar(quote))
+        && (escape == null || !isNumberChar(escape));
+  }
+
+  private static boolean isAlphanumeric(final char c) {
+    return (c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+  }
+
+  private static boolean isNumberChar(final char c) {
+    return (c >= '0' && c <= '9') || "-+.EInfinityNa".indexOf(c) >= 0;
+  }
+
+  /**
+   * Write a text field.
+   *
+   * @param out
+   *          the {@link Appendable} to which the field should be written.
+   * @param value
+   *          the field value, or {@code null} to write the format's null
+   *          string.
+   * @param first
+   *          {@code true} if this is the first field in the record, in which
+   *          case no delimiter is written before it.
+   *
+   * @throws IOException
+   *           if an error occurs when writing to {@code out}.
+   */
+  public void write(final Appendable out, final CharSequence value, final boolean first)
+      throws IOException {
+    if (value == null) {
+      print(out, null, nullString, first);
+    } else {
+      print(out, value, value, first);
+    }
+  }
+
+  /**
+   * Write a numeric field.
+   *
+   * @param out
+   *          the {@link Appendable} to which the field should be written.
+   * @param value
+   *          the field value, or {@code null} to write the format's null
+   *          string.
+   * @param first
+   *          {@code true} if this is the first field in the record, in which
+   *          case no delimiter is written before it.
+   *
+   * @throws IOException
+   *           if an error occurs when writing to {@code out}.
+   */
+  public void write(final Appendable out, final Number value, final boolean first)
+      throws IOException {
+    if (value == null) {
+      print(out, null, nullString, first);
+      return;
+    }
+    if (!plainNumbers || (first && quote != null && quoteMode == QuoteMode.MINIMAL)) {
+      // A leading minus sign on the first field causes the value to be quoted.
+      print(out, value, value.toString(), first);
+      return;
+    }
+    if (!first) {
+      out.append(delimiter);
+    }
+    if (out instanceof StringBuilder) {
+      final StringBuilder builder = (StringBuilder) out;
+      if (value instanceof Long) {
+        builder.append(value.longValue());
+        return;
+      }
+      if (value instanceof Integer) {
+        builder.append(value.intValue());
+        return;
+      }
+      if (value instanceof Double) {
+        builder.append(value.doubleValue());
+        return;
+      }
+    }
+    out.append(value.toString());
+  }
+
+  /**
+   * Write a field of any other type, using the value's {@code toString} method.
+   *
+   * @param out
+   *          the {@link Appendable} to which the field should be written.
+   * @param value
+   *          the field value, or {@code null} to write the format's null
+   *          string.
+   * @param first
+   *          {@code true} if this is the first field in the record, in which
+   *          case no delimiter is written before it.
+   *
+   * @throws IOException
+   *           if an error occurs when writing to {@code out}.
+   */
+  public void write(final Appendable out, final Object value, final boolean first)
+      throws IOException {
+    if (value instanceof Number) {
+      write(out, (Number) value, first);
+    } else if (value == null) {
+      print(out, null, nullString, first);
+    } else {
+      print(out, value, value.toString(), first);
+    }
+  }
+
+  /**
+   * Write the format's record separator, if it has one.
+   *
+   * @param out
+   *          the {@link Appendable} to which the separator should be written.
+   *
+   * @throws IOException
+   *           if an error occurs when writing to {@code out}.
+   */
+  public void endRecord(final Appendable out) throws IOException {
+    if (recordSeparator != null) {
+      out.append(recordSeparator);
+    }
+  }
+
+  // The methods below follow the logic of CSVPrinter.print, printAndEscape and
+  // printAndQuote in commons-csv 1.1, so that output is byte-for-byte the same.
+  private void print(final Appendable out, final Object object, final CharSequence value,
+      final boolean first) throws IOException {
+    if (!first) {
+      out.append(delimiter);
+    }
+    if (quote != null) {
+      printAndQuote(out, object, value, first);
+    } else if (escape != null) {
+      printAndEscape(out, value);
+    } else {
+      out.append(value);
+    }
+  }
+
+  private void printAndEscape(final Appendable out, final CharSequence value)
+      throws IOException {
+    int start = 0;
+    int pos = 0;
+    final int end = value.length();
+    final char escapeChar = escape;
+    while (pos < end) {
+      char c = value.charAt(pos);
+      if (c == CR || c == LF || c == delimiter || c == escapeChar) {
+        if (pos > start) {
+          out.append(value, start, pos);
+        }
+        if (c == LF) {
+          c = 'n';
+        } else if (c == CR) {
+          c = 'r';
+        }
+        out.append(escapeChar);
+        out.append(c);
+        start = pos + 1;
+      }
+      pos++;
+    }
+    if (pos > start) {
+      out.append(value, start, pos);
+    }
+  }
+
+  private void printAndQuote(final Appendable out, final Object object, final CharSequence value,
+      final boolean newRecord) throws IOException {
+    boolean quoted = false;
+    int start = 0;
+    int pos = 0;
+    final int end = value.length();
+    final char quoteChar = quote;
+    switch (quoteMode) {
+    case ALL:
+      quoted = true;
+      break;
+    case NON_NUMERIC:
+      quoted = !(object instanceof Number);
+      break;
+    case NONE:
+      printAndEscape(out, value);
+      return;
+    case MINIMAL:
+      if (end <= 0) {
+        // An empty first field is quoted so that the line is not empty.
+        if (newRecord) {
+          quoted = true;
+        }
+      } else {
+        char c = value.charAt(pos);
+        if (newRecord && !isAlphanumeric(c)) {
+          quoted = true;
+        } else if (c <= COMMENT) {
+          quoted = true;
+        } else {
+          while (pos < end) {
+            c = value.charAt(pos);
+            if (c == LF || c == CR || c == quoteChar || c == delimiter) {
+              quoted = true;
+              break;
+            }
+            pos++;
+          }
+          if (!quoted) {
+            pos = end - 1;
+            c = value.charAt(pos);
+            if (c <= SP) {
+              quoted = true;
+            }
+          }
+        }
+      }
+      break;
+    default:
+      throw new IllegalStateException("Unexpected quote mode: " + quoteMode);
+    }
+    if (!quoted) {
+      out.append(value, start, end);
+      return;
+    }
+    out.append(quoteChar);
+    // Double any quote characters, resuming from the first character that
+    // caused the value to be quoted.
+    while (pos < end) {
+      if (value.charAt(pos) == quoteChar) {
+        out.append(value, start, pos + 1);
+        start = pos;
+      }
+      pos++;
+    }
+    out.append(value, start, pos);
+    out.append(quoteChar);
+  }
+}
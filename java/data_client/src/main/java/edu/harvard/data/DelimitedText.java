@@ -0,0 +1,122 @@
+package edu.harvard.data;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * Reusable buffer that encodes delimited records into Hadoop {@link Text}
+ * objects.
+ * <P>
+ * Map and reduce tasks that output delimited records traditionally format each
+ * record with a new {@code CSVPrinter} and {@code StringWriter}, then convert
+ * the resulting {@code String} to a new {@code Text}. This class instead writes
+ * the record's fields into an internal character buffer using
+ * {@link DataTable#writeDelimited}, and encodes the characters as UTF-8 into an
+ * internal byte buffer which is then copied into a caller-supplied
+ * {@code Text}. Once the buffers have grown to fit the largest record, encoding
+ * a record does not allocate any memory.
+ * <P>
+ * The record separator is not included in the output, and any line feed
+ * characters that appear in the record (for example inside a quoted field) are
+ * removed, so that each record forms a single line in a Hadoop text file.
+ * <P>
+ * This class is not thread-safe. Any access synchronization must be performed
+ * by the caller.
+ */
+public class DelimitedText {
+
+  private final StringBuilder chars;
+  private byte[] bytes;
+
+  public DelimitedText() {
+    this.chars = new StringBuilder();
+    this.bytes = new byte[256];
+  }
+
+  /**
+   * Encode a record into a {@link Text} object.
+   *
+   * @param text
+   *          the {@code Text} to be overwritten with the encoded record.
+   * @param format
+   *          the {@link TableFormat} that determines how the record is
+   *          delimited and escaped.
+   * @param record
+   *          the record to encode.
+   *
+   * @throws IOException
+   *           if the record cannot be encoded.
+   */
+  public void set(final Text text, final TableFormat format, final DataTable record)
+      throws IOException {
+    chars.setLength(0);
+    record.writeDelimited(format, chars);
+    encode(text);
+  }
+
+  /**
+   * Encode a list of field values into a {@link Text} object, formatting each
+   * value as a {@code CSVPrinter} would.
+   *
+   * @param text
+   *          the {@code Text} to be overwritten with the encoded record.
+   * @param format
+   *          the {@link TableFormat} that determines how the record is
+   *          delimited and escaped.
+   * @param fields
+   *          the values to encode, in column order.
+   *
+   * @throws IOException
+   *           if the fields cannot be encoded.
+   */
+  public void set(final Text text, final TableFormat format, final Object... fields)
+      throws IOException {
+    chars.setLength(0);
+    final DelimitedEncoder encoder = format.getDelimitedEncoder();
+    for (int i = 0; i < fields.length; i++) {
+      encoder.write(chars, fields[i], i == 0);
+    }
+    encode(text);
+  }
+
+  // Encode the character buffer as UTF-8, dropping line feeds. Unpaired
+  // surrogates are replaced with '?', as Text.set(String) would do.
+  private void encode(final Text text) {
+    final int length = chars.length();
+    ensureCapacity(length * 3);
+    int pos = 0;
+    for (int i = 0; i < length; i++) {
+      final char c = chars.charAt(i);
+      if (c == '\n') {
+        continue;
+      }
+      if (c < 0x80) {
+        bytes[pos++] = (byte) c;
+      } else if (c < 0x800) {
+        bytes[pos++] = (byte) (0xc0 | (c >> 6));
+        bytes[pos++] = (byte) (0x80 | (c & 0x3f));
+      } else if (Character.isHighSurrogate(c) && i + 1 < length
+          && Character.isLowSurrogate(chars.charAt(i + 1))) {
+        final int cp = Character.toCodePoint(c, chars.charAt(++i));
+        bytes[pos++] = (byte) (0xf0 | (cp >> 18));
+        bytes[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+        bytes[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+        bytes[pos++] = (byte) (0x80 | (cp & 0x3f));
+      } else if (Character.isSurrogate(c)) {
+        bytes[pos++] = '?';
+      } else {
+        bytes[pos++] = (byte) (0xe0 | (c >> 12));
+        bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        bytes[pos++] = (byte) (0x80 | (c & 0x3f));
+      }
+    }
+    text.set(bytes, 0, pos);
+  }
+
+  private void ensureCapacity(final int capacity) {
+    if (bytes.length < capacity) {
+      bytes = new byte[Math.max(capacity, bytes.length * 2)];
+    }
+  }
+}
@@ -12,7 +12,9 @@ public class FormatLibrary {
             "matterhorn"), DecompressedMatterhorn("decompressed_matterhorn"), CompressedInternal(
                 "compressed_internal"), DecompressedInternal("decompressed_internal"), Mediasites(
                     "mediasites"), DecompressedMediasites("decompressed_mediasites"), Sis(
-                    		"sis"), DecompressedSis("decompressed_sis"), DecompressedRest("decompressed_rest");
+                    		"sis"), DecompressedSis("decompressed_sis"), DecompressedRest("decompressed_rest"), FastCompressedInternal(
+                        "fast_compressed_internal"), BlockCompressedInternal("block_compressed_internal"), Parquet(
+                            "parquet");
 
     private final String label;
 
@@ -52,6 +54,12 @@ public class FormatLibrary {
         return DecompressedInternal;
       case "decompressed_rest":
           return DecompressedRest;        
+      case "fast_compressed_internal":
+        return FastCompressedInternal;
+      case "block_compressed_internal":
+        return BlockCompressedInternal;
+      case "parquet":
+        return Parquet;
       default:
         return Format.valueOf(label);
       }
@@ -86,6 +94,12 @@ public class FormatLibrary {
       return createDecompressedInternalFormat();
     case DecompressedRest:
         return createDecompressedRestFormat();
+    case FastCompressedInternal:
+      return createFastCompressedInternalFormat();
+    case BlockCompressedInternal:
+      return createBlockCompressedInternalFormat();
+    case Parquet:
+      return createParquetFormat();
     default:
       throw new RuntimeException("Unknown format " + format);
     }
@@ -232,6 +246,48 @@ public class FormatLibrary {
     return format;
   }
 
+  // Same layout as CompressedInternal, but compressed quickly at the cost of
+  // some size. Intended for intermediate data that doesn't leave the pipeline.
+  private TableFormat createFastCompressedInternalFormat() {
+    final TableFormat format = new TableFormat(Format.FastCompressedInternal);
+    format.setTimestampFormat(new SimpleDateFormat(CANVAS_TIMESTAMP_FORMAT_STRING));
+    format.setDateFormat(new SimpleDateFormat(CANVAS_DATE_FORMAT_STRING));
+    format.setIncludeHeaders(false);
+    format.setEncoding(CANVAS_FILE_ENCODING);
+    format.setCsvFormat(INTERNAL_CSV_FORMAT);
+    format.setCompression(TableFormat.Compression.FastGzip);
+    return format;
+  }
+
+  // Same layout as CompressedInternal, written as block gzip so that Hadoop
+  // jobs using BlockGzipCodec can split large files.
+  private TableFormat createBlockCompressedInternalFormat() {
+    final TableFormat format = new TableFormat(Format.BlockCompressedInternal);
+    format.setTimestampFormat(new SimpleDateFormat(CANVAS_TIMESTAMP_FORMAT_STRING));
+    format.setDateFormat(new SimpleDateFormat(CANVAS_DATE_FORMAT_STRING));
+    format.setIncludeHeaders(false);
+    format.setEncoding(CANVAS_FILE_ENCODING);
+    format.setCsvFormat(INTERNAL_CSV_FORMAT);
+    format.setCompression(TableFormat.Compression.BlockGzip);
+    return format;
+  }
+
+  // Columnar Parquet files with gzip compressed pages, for tables that are
+  // queried a few columns at a time. Dates are stored as days in the date
+  // format's time zone, matching the day that the internal formats print.
+  // Not accepted as a pipeline format, since the Hadoop jobs read text input.
+  private TableFormat createParquetFormat() {
+    final TableFormat format = new TableFormat(Format.Parquet);
+    format.setTimestampFormat(new SimpleDateFormat(CANVAS_TIMESTAMP_FORMAT_STRING));
+    format.setDateFormat(new SimpleDateFormat(CANVAS_DATE_FORMAT_STRING));
+    format.setIncludeHeaders(false);
+    format.setEncoding(CANVAS_FILE_ENCODING);
+    format.setCsvFormat(INTERNAL_CSV_FORMAT);
+    format.setCompression(TableFormat.Compression.Gzip);
+    format.setColumnar(true);
+    return format;
+  }
+
   private TableFormat createDecompressedInternalFormat() {
     final TableFormat format = new TableFormat(Format.DecompressedInternal);
     format.setTimestampFormat(new SimpleDateFormat(CANVAS_TIMESTAMP_FORMAT_STRING));
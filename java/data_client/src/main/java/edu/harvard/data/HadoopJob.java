@@ -7,10 +7,14 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.Counters;
 import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.TaskCounter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import edu.harvard.data.io.BlockGzipCodec;
+
 public abstract class HadoopJob {
   private static final Logger log = LogManager.getLogger();
 
@@ -35,6 +39,11 @@ public abstract class HadoopJob {
     final TableFormat format = new FormatLibrary().getFormat(config.getPipelineFormat());
     hadoopConf.set("format", format.getFormat().toString());
     hadoopConf.set("config", config.getPaths());
+    // Lets block gzip inputs be split between mappers; see BlockGzipCodec.
+    // Other pipelines keep GzipCodec, so each .gz input gets a single split.
+    if (format.getCompression() == TableFormat.Compression.BlockGzip) {
+      BlockGzipCodec.register(hadoopConf);
+    }
   }
 
   public void runJob() throws IOException, DataConfigurationException {
@@ -56,6 +65,7 @@ public abstract class HadoopJob {
       //      job.submit();
       job.waitForCompletion(true);
       log.info("Job complete: " + job.getJobName());
+      logShuffleCounters(job);
     } catch (final ClassNotFoundException e) {
       throw new DataConfigurationException(e);
     } catch (final InterruptedException e) {
@@ -63,6 +73,22 @@ public abstract class HadoopJob {
     }
   }
 
+  // Summarize the cost of the shuffle, so that the effect of changes to the
+  // intermediate record format can be compared between runs.
+  private void logShuffleCounters(final Job job) throws IOException {
+    final Counters counters = job.getCounters();
+    if (counters == null) {
+      return;
+    }
+    log.info("Shuffle for " + job.getJobName() + ": "
+        + counters.findCounter(TaskCounter.MAP_OUTPUT_RECORDS).getValue() + " records, "
+        + counters.findCounter(TaskCounter.MAP_OUTPUT_BYTES).getValue() + " bytes serialized, "
+        + counters.findCounter(TaskCounter.MAP_OUTPUT_MATERIALIZED_BYTES).getValue()
+        + " bytes materialized, "
+        + counters.findCounter(TaskCounter.REDUCE_SHUFFLE_BYTES).getValue() + " bytes shuffled, "
+        + counters.findCounter(TaskCounter.CPU_MILLISECONDS).getValue() + " ms CPU");
+  }
+
   public void addCacheFile(final URI file) {
     this.cacheFiles.add(file);
   }
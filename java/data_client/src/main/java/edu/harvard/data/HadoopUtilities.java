@@ -1,12 +1,10 @@
 package edu.harvard.data;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.commons.csv.CSVPrinter;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
@@ -15,6 +13,7 @@ import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.logging.log4j.LogManager;
@@ -30,6 +29,15 @@ import edu.harvard.data.io.TableWriter;
 public class HadoopUtilities {
   private static final Logger log = LogManager.getLogger();
 
+  // Encoding buffers are kept per thread, since a HadoopUtilities instance may be
+  // shared.
+  private static final ThreadLocal<DelimitedText> delimitedText = new ThreadLocal<DelimitedText>() {
+    @Override
+    protected DelimitedText initialValue() {
+      return new DelimitedText();
+    }
+  };
+
   public void setPaths(final Job job, final URI hdfsService, final String in, final String out)
       throws IOException, NoInputDataException {
     final List<Path> files = listFiles(hdfsService, in);
@@ -78,20 +86,23 @@ public class HadoopUtilities {
   }
 
   public Text convertToText(final DataTable record, final TableFormat format) throws IOException {
-    final StringWriter writer = new StringWriter();
-    try (final CSVPrinter printer = new CSVPrinter(writer, format.getCsvFormat())) {
-      printer.printRecord(record.getFieldsAsList(format));
-    }
-    return new Text(writer.toString().replaceAll("\n", ""));
+    final Text text = new Text();
+    recordToText(record, format, text);
+    return text;
   }
 
   public Text recordToText(final DataTable record, final TableFormat format)
       throws IOException, InterruptedException {
-    final StringWriter writer = new StringWriter();
-    try (final CSVPrinter printer = new CSVPrinter(writer, format.getCsvFormat())) {
-      printer.printRecord(record.getFieldsAsList(format));
-    }
-    return new Text(writer.toString().replaceAll("\n", ""));
+    final Text text = new Text();
+    recordToText(record, format, text);
+    return text;
+  }
+
+  // Encode a record as a single delimited line, overwriting the contents of
+  // text. Callers that output many records should reuse a single Text object.
+  public void recordToText(final DataTable record, final TableFormat format, final Text text)
+      throws IOException {
+    delimitedText.get().set(text, format, record);
   }
 
   public TableFormat getFormat(final Reducer<?, ?, ?, ?>.Context context) {
@@ -102,6 +113,10 @@ public class HadoopUtilities {
     return parseFormat(context.getConfiguration().get("format"));
   }
 
+  public TableFormat getFormat(final Configuration conf) {
+    return parseFormat(conf.get("format"));
+  }
+
   public DataConfig getConfig(final Mapper<?, ?, ?, ?>.Context context)
       throws IOException, DataConfigurationException {
     final String configPathString = context.getConfiguration().get("config");
@@ -114,6 +129,21 @@ public class HadoopUtilities {
     return DataConfig.parseInputFiles(DataConfig.class, configPathString, true);
   }
 
+  // Publish the hit and miss counts of every StringDictionary used by this task
+  // as Hadoop counters, so that the hit rates for low cardinality columns show
+  // up in the job history.
+  public void reportDictionaryCounters(final TaskInputOutputContext<?, ?, ?, ?> context) {
+    for (final StringDictionary dictionary : StringDictionary.getDictionaries()) {
+      final long hits = dictionary.getHits();
+      final long misses = dictionary.getMisses();
+      if (hits + misses > 0) {
+        context.getCounter("StringDictionary", dictionary.getName() + " hits").increment(hits);
+        context.getCounter("StringDictionary", dictionary.getName() + " misses")
+        .increment(misses);
+      }
+    }
+  }
+
   private TableFormat parseFormat(final String formatString) {
     if (formatString == null) {
       throw new HadoopConfigurationException(
@@ -0,0 +1,243 @@
+package edu.harvard.data;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.text.ParseException;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Helper methods used by the {@code JSON_DECODER} constants of generated
+ * bindings, which read field values straight from a Jackson
+ * {@link JsonParser} rather than from a parsed {@code Map<String, Object>}.
+ * <P>
+ * Each method expects the parser to be positioned on the token for a field's
+ * value, and leaves it positioned on the last token of that value. The values
+ * produced match those stored by the bindings' {@code (TableFormat, Map)}
+ * constructors for the same input. Where the map constructors would fail with
+ * a {@code ClassCastException} on an unexpected type, these methods throw a
+ * {@link JsonParseException} that reports the location in the input.
+ */
+public class JsonFields {
+
+  private JsonFields() {
+  }
+
+  /**
+   * Read a value into a string field. As with {@code String.valueOf} on a
+   * parsed map value, JSON null becomes the string {@code "null"} and nested
+   * objects and arrays are converted to their {@code Map} or {@code List}
+   * string representation.
+   *
+   * @param parser
+   *          a parser positioned on a value token.
+   *
+   * @return the string value of the token.
+   *
+   * @throws IOException
+   *           if an error occurs when reading from the parser.
+   */
+  public static String readString(final JsonParser parser) throws IOException {
+    switch (parser.getCurrentToken()) {
+    case VALUE_STRING:
+      return parser.getText();
+    case VALUE_NUMBER_INT:
+      return parser.getNumberValue().toString();
+    case VALUE_NUMBER_FLOAT:
+      return String.valueOf(parser.getDoubleValue());
+    case VALUE_TRUE:
+      return "true";
+    case VALUE_FALSE:
+      return "false";
+    case START_OBJECT:
+    case START_ARRAY:
+      return String.valueOf(parser.readValueAs(Object.class));
+    default:
+      return "null";
+    }
+  }
+
+  /**
+   * Read the text of a string value, as used for enum fields.
+   *
+   * @param parser
+   *          a parser positioned on a value token.
+   *
+   * @return the string, or {@code null} if the value is JSON null.
+   *
+   * @throws IOException
+   *           if the value is not a string or null, or if an error occurs
+   *           when reading from the parser.
+   */
+  public static String readText(final JsonParser parser) throws IOException {
+    switch (parser.getCurrentToken()) {
+    case VALUE_STRING:
+      return parser.getText();
+    case VALUE_NULL:
+      return null;
+    default:
+      throw unexpected(parser, "a string");
+    }
+  }
+
+  /**
+   * Read a value into a {@code Long} field.
+   *
+   * @param parser
+   *          a parser positioned on a value token.
+   *
+   * @return the value, or {@code null} if the value is JSON null.
+   *
+   * @throws IOException
+   *           if the value is not an integer or null, or if an error occurs
+   *           when reading from the parser.
+   */
+  public static Long readLong(final JsonParser parser) throws IOException {
+    switch (parser.getCurrentToken()) {
+    case VALUE_NUMBER_INT:
+      return parser.getLongValue();
+    case VALUE_NULL:
+      return null;
+    default:
+      throw unexpected(parser, "an integer");
+    }
+  }
+
+  /**
+   * Read a value into an {@code Integer} field.
+   *
+   * @param parser
+   *          a parser positioned on a value token.
+   *
+   * @return the value, or {@code null} if the value is JSON null.
+   *
+   * @throws IOException
+   *           if the value is not an integer or null, or if an error occurs
+   *           when reading from the parser.
+   */
+  public static Integer readInteger(final JsonParser parser) throws IOException {
+    switch (parser.getCurrentToken()) {
+    case VALUE_NUMBER_INT:
+      return parser.getIntValue();
+    case VALUE_NULL:
+      return null;
+    default:
+      throw unexpected(parser, "an integer");
+    }
+  }
+
+  /**
+   * Read a value into a {@code Boolean} field. Integers are treated as true
+   * if they are non-zero.
+   *
+   * @param parser
+   *          a parser positioned on a value token.
+   *
+   * @return the value, or {@code null} if the value is JSON null.
+   *
+   * @throws IOException
+   *           if the value is not a boolean, integer or null, or if an error
+   *           occurs when reading from the parser.
+   */
+  public static Boolean readBoolean(final JsonParser parser) throws IOException {
+    switch (parser.getCurrentToken()) {
+    case VALUE_TRUE:
+      return true;
+    case VALUE_FALSE:
+      return false;
+    case VALUE_NUMBER_INT:
+      return parser.getIntValue() != 0;
+    case VALUE_NULL:
+      return null;
+    default:
+      throw unexpected(parser, "a boolean");
+    }
+  }
+
+  /**
+   * Read a value into a {@code Double} field. Integer values are widened.
+   *
+   * @param parser
+   *          a parser positioned on a value token.
+   *
+   * @return the value, or {@code null} if the value is JSON null.
+   *
+   * @throws IOException
+   *           if the value is not a number or null, or if an error occurs
+   *           when reading from the parser.
+   */
+  public static Double readDouble(final JsonParser parser) throws IOException {
+    switch (parser.getCurrentToken()) {
+    case VALUE_NUMBER_FLOAT:
+    case VALUE_NUMBER_INT:
+      return parser.getDoubleValue();
+    case VALUE_NULL:
+      return null;
+    default:
+      throw unexpected(parser, "a number");
+    }
+  }
+
+  /**
+   * Read a string value into a {@code Timestamp}, using the format's
+   * timestamp codec. This is used for date, datetime and timestamp fields.
+   *
+   * @param format
+   *          the {@link TableFormat} used to parse the timestamp.
+   * @param parser
+   *          a parser positioned on a value token.
+   *
+   * @return the parsed value, or {@code null} if the value is JSON null or an
+   *         empty string.
+   *
+   * @throws IOException
+   *           if the value is not a string or null, or if an error occurs
+   *           when reading from the parser.
+   * @throws ParseException
+   *           if the string can not be parsed by the format.
+   */
+  public static Timestamp readTimestamp(final TableFormat format, final JsonParser parser)
+      throws IOException, ParseException {
+    final String text = readText(parser);
+    if (text == null || text.length() == 0) {
+      return null;
+    }
+    return format.parseTimestamp(text);
+  }
+
+  /**
+   * Check that a nested value is an object, so that its fields can be read.
+   *
+   * @param parser
+   *          a parser positioned on a value token.
+   *
+   * @return true if the value is an object, or false if it is JSON null.
+   *
+   * @throws IOException
+   *           if the value is neither an object nor null.
+   */
+  public static boolean startObject(final JsonParser parser) throws IOException {
+    switch (parser.getCurrentToken()) {
+    case START_OBJECT:
+      return true;
+    case VALUE_NULL:
+      return false;
+    default:
+      throw unexpected(parser, "an object");
+    }
+  }
+
+  private static JsonParseException unexpected(final JsonParser parser, final String expected) {
+    final JsonToken token = parser.getCurrentToken();
+    String name;
+    try {
+      name = parser.getCurrentName();
+    } catch (final IOException e) {
+      name = null;
+    }
+    return new JsonParseException("Expected " + expected + " for field " + name + " but found "
+        + token, parser.getCurrentLocation());
+  }
+}
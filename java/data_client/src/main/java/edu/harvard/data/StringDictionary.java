@@ -0,0 +1,315 @@
+package edu.harvard.data;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Bounded dictionary that maps repeated string values to a single shared
+ * instance.
+ * <P>
+ * Some columns, such as request controllers and actions, HTTP methods or user
+ * agent fields, repeat a small set of values across millions of records.
+ * Generated bindings use a dictionary for each column that is marked as
+ * {@code low_cardinality} in the schema, so that every record holding the same
+ * value shares one {@code String}. When decoding from a
+ * {@link edu.harvard.data.io.DelimitedTokenizer}, a value that is already in
+ * the dictionary is found without creating a {@code String} at all.
+ * <P>
+ * Each thread has its own table, so lookups need no synchronization. A table
+ * stops accepting new values once it holds {@code capacity} entries; after
+ * that, unknown values are returned as new strings and are not retained. This
+ * keeps memory use bounded if a column turns out to have more distinct values
+ * than expected, at the cost of a lower hit rate.
+ * <P>
+ * Every dictionary counts its hits and misses across all threads. The counts
+ * are read without synchronization, so they may lag slightly behind lookups
+ * that are in progress on other threads. The table of a thread that has died
+ * is dropped the next time the counters are read or another thread starts
+ * using the dictionary, and its counts are kept in a running total, so that
+ * short-lived threads do not build up tables.
+ * <P>
+ * All dictionaries in a JVM are available through {@link #getDictionaries},
+ * so that jobs can log or report the counters when they finish. The registry
+ * holds weak references, so a dictionary that is no longer used, such as one
+ * held by an unloaded binding class, can still be garbage collected.
+ * <P>
+ * This class is thread-safe.
+ */
+public class StringDictionary {
+
+  /**
+   * The default maximum number of values held per thread.
+   */
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  // Guarded by the list's own lock.
+  private static final List<WeakReference<StringDictionary>> dictionaries =
+      new ArrayList<WeakReference<StringDictionary>>();
+
+  private final String name;
+  private final int capacity;
+  private final int tableSize;
+  private final ThreadLocal<Entries> entries;
+  // The tables of every thread that has used the dictionary and was alive when
+  // they were last pruned, along with the counts of the tables that have been
+  // dropped. All three are guarded by the list's lock.
+  private final List<Entries> threads;
+  private long retiredHits;
+  private long retiredMisses;
+
+  /**
+   * Create a dictionary with the default capacity.
+   *
+   * @param name
+   *          a name for the dictionary, typically the table and column whose
+   *          values it holds, used when reporting its counters.
+   */
+  public StringDictionary(final String name) {
+    this(name, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Create a dictionary.
+   *
+   * @param name
+   *          a name for the dictionary, typically the table and column whose
+   *          values it holds, used when reporting its counters.
+   * @param capacity
+   *          the maximum number of distinct values held by each thread.
+   *
+   * @throws IllegalArgumentException
+   *           if the capacity is not positive.
+   */
+  public StringDictionary(final String name, final int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    this.name = name;
+    this.capacity = capacity;
+    // Keep the open-addressed tables at most half full so that probe
+    // sequences stay short.
+    this.tableSize = Integer.highestOneBit(capacity) << 2;
+    this.threads = new ArrayList<Entries>();
+    this.entries = new ThreadLocal<Entries>() {
+      @Override
+      protected Entries initialValue() {
+        final Entries e = new Entries(tableSize, Thread.currentThread());
+        synchronized (threads) {
+          pruneThreads();
+          threads.add(e);
+        }
+        return e;
+      }
+    };
+    synchronized (dictionaries) {
+      pruneDictionaries();
+      dictionaries.add(new WeakReference<StringDictionary>(this));
+    }
+  }
+
+  /**
+   * @return every {@code StringDictionary} in this JVM that has not been
+   *         garbage collected, in order of creation.
+   */
+  public static List<StringDictionary> getDictionaries() {
+    final List<StringDictionary> live = new ArrayList<StringDictionary>();
+    synchronized (dictionaries) {
+      pruneDictionaries();
+      for (final WeakReference<StringDictionary> ref : dictionaries) {
+        final StringDictionary dictionary = ref.get();
+        if (dictionary != null) {
+          live.add(dictionary);
+        }
+      }
+    }
+    return live;
+  }
+
+  // Must be called with the lock on dictionaries held.
+  private static void pruneDictionaries() {
+    final Iterator<WeakReference<StringDictionary>> it = dictionaries.iterator();
+    while (it.hasNext()) {
+      if (it.next().get() == null) {
+        it.remove();
+      }
+    }
+  }
+
+  // Drop the tables of threads that have died, adding their counts to the
+  // retired totals. A thread's counters are final once isAlive has returned
+  // false, and that call makes its last writes visible here. Must be called
+  // with the lock on threads held.
+  private void pruneThreads() {
+    final Iterator<Entries> it = threads.iterator();
+    while (it.hasNext()) {
+      final Entries e = it.next();
+      final Thread owner = e.owner.get();
+      if (owner == null || !owner.isAlive()) {
+        retiredHits += e.hits;
+        retiredMisses += e.misses;
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Find the shared instance of a string.
+   *
+   * @param value
+   *          the string to look up.
+   *
+   * @return a string equal to {@code value}; either an instance already held
+   *         by the dictionary or {@code value} itself. Returns {@code null} if
+   *         {@code value} is {@code null}.
+   */
+  public String intern(final String value) {
+    if (value == null) {
+      return null;
+    }
+    final int hash = value.hashCode();
+    final Entries e = entries.get();
+    final int mask = e.values.length - 1;
+    int idx = spread(hash) & mask;
+    String existing;
+    while ((existing = e.values[idx]) != null) {
+      if (e.hashes[idx] == hash && existing.equals(value)) {
+        e.hits++;
+        return existing;
+      }
+      idx = (idx + 1) & mask;
+    }
+    e.misses++;
+    if (e.size < capacity) {
+      e.add(idx, hash, value);
+    }
+    return value;
+  }
+
+  /**
+   * Find the shared instance of a string held in a character buffer. If the
+   * value is already in the dictionary, no objects are created.
+   *
+   * @param buf
+   *          the buffer that holds the characters of the string.
+   * @param offset
+   *          the offset of the first character in {@code buf}.
+   * @param length
+   *          the number of characters in the string.
+   *
+   * @return a string with the same characters as the given slice of
+   *         {@code buf}.
+   */
+  public String intern(final char[] buf, final int offset, final int length) {
+    final int hash = CharSlices.hash(buf, offset, length);
+    final Entries e = entries.get();
+    final int mask = e.values.length - 1;
+    int idx = spread(hash) & mask;
+    String existing;
+    while ((existing = e.values[idx]) != null) {
+      if (e.hashes[idx] == hash && CharSlices.matches(existing, buf, offset, length)) {
+        e.hits++;
+        return existing;
+      }
+      idx = (idx + 1) & mask;
+    }
+    e.misses++;
+    final String value = new String(buf, offset, length);
+    if (e.size < capacity) {
+      e.add(idx, hash, value);
+    }
+    return value;
+  }
+
+  /**
+   * @return the name passed to the constructor.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the number of lookups, on any thread, that found an existing
+   *         value.
+   */
+  public long getHits() {
+    synchronized (threads) {
+      pruneThreads();
+      long hits = retiredHits;
+      for (final Entries e : threads) {
+        hits += e.hits;
+      }
+      return hits;
+    }
+  }
+
+  /**
+   * @return the number of lookups, on any thread, that did not find an
+   *         existing value.
+   */
+  public long getMisses() {
+    synchronized (threads) {
+      pruneThreads();
+      long misses = retiredMisses;
+      for (final Entries e : threads) {
+        misses += e.misses;
+      }
+      return misses;
+    }
+  }
+
+  // The number of per-thread tables currently held, for testing.
+  int getThreadCount() {
+    synchronized (threads) {
+      return threads.size();
+    }
+  }
+
+  /**
+   * @return the fraction of lookups that found an existing value, or zero if
+   *         there have been no lookups.
+   */
+  public double getHitRate() {
+    final long hits = getHits();
+    final long total = hits + getMisses();
+    return total == 0 ? 0.0 : (double) hits / total;
+  }
+
+  @Override
+  public String toString() {
+    final long hits = getHits();
+    final long misses = getMisses();
+    final long total = hits + misses;
+    final String rate = total == 0 ? "-" : String.format("%.1f%%", 100.0 * hits / total);
+    return name + ": " + hits + " hits, " + misses + " misses (" + rate + ")";
+  }
+
+  private static int spread(final int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  // Open-addressed hash table owned by a single thread. The counters are only
+  // written by the owning thread. The owner is held weakly so that the table
+  // does not keep a dead thread reachable.
+  private static class Entries {
+    final String[] values;
+    final int[] hashes;
+    final WeakReference<Thread> owner;
+    int size;
+    long hits;
+    long misses;
+
+    Entries(final int tableSize, final Thread owner) {
+      this.values = new String[tableSize];
+      this.hashes = new int[tableSize];
+      this.owner = new WeakReference<Thread>(owner);
+    }
+
+    void add(final int idx, final int hash, final String value) {
+      values[idx] = value;
+      hashes[idx] = hash;
+      size++;
+    }
+  }
+}
@@ -2,9 +2,12 @@ package edu.harvard.data;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 import com.amazonaws.services.s3.model.S3ObjectId;
 
+import edu.harvard.data.io.RecordDecoder;
+import edu.harvard.data.io.S3Prefetcher;
 import edu.harvard.data.io.TableReader;
 import edu.harvard.data.io.TableWriter;
 
@@ -14,6 +17,10 @@ public interface TableFactory {
 
   TableReader<? extends DataTable> getTableReader(String table, TableFormat format, AwsUtils aws, S3ObjectId obj, File tempDir) throws IOException;
 
+  TableReader<? extends DataTable> getTableReader(String table, TableFormat format, AwsUtils aws, List<S3ObjectId> objs, S3Prefetcher prefetcher, File tempDir) throws IOException;
+
   TableWriter<? extends DataTable> getTableWriter(String table, TableFormat format, File file) throws IOException;
 
+  RecordDecoder<? extends DataTable> getRecordDecoder(String table);
+
 }
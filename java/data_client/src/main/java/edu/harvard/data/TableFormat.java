@@ -1,7 +1,6 @@
 package edu.harvard.data;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -9,9 +8,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.sql.Timestamp;
 import java.text.DateFormat;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.zip.GZIPInputStream;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.csv.CSVFormat;
@@ -19,37 +19,120 @@ import org.apache.commons.csv.CSVFormat;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import edu.harvard.data.FormatLibrary.Format;
+import edu.harvard.data.io.BlockGzipInputStream;
+import edu.harvard.data.io.BlockGzipOutputStream;
+import edu.harvard.data.io.MappedFileInputStream;
+import edu.harvard.data.io.ParallelGzipOutputStream;
+import edu.harvard.data.io.ReadAheadFileInputStream;
+import edu.harvard.data.io.StreamCodec;
 
 public class TableFormat {
 
-  public enum Compression { None, Gzip };
+  // The built-in compression schemes. All of the gzip variants produce files
+  // that can be read by gunzip, Redshift and Hive, and they are all read with
+  // BlockGzipInputStream, which handles multi-member files.
+  //
+  // Gzip compresses 1MB blocks on a thread pool (see ParallelGzipOutputStream)
+  // and writes them as separate members, so that large phase-0 and phase
+  // output files are not limited to the speed of a single core.
+  // FastGzip trades some compression ratio for speed, and is intended for
+  // intermediate data that is written once and read soon afterwards.
+  // BlockGzip writes independent 64KB blocks (see BlockGzipOutputStream) so
+  // that Hadoop jobs can split large files between mappers.
+  public enum Compression implements StreamCodec {
+    None {
+      @Override
+      public String getExtension() {
+        return "";
+      }
 
-  private DateFormat timestampFormat;
-  private DateFormat dateFormat;
+      @Override
+      public OutputStream compress(final OutputStream out) {
+        return out;
+      }
+
+      @Override
+      public InputStream decompress(final InputStream in) {
+        return in;
+      }
+    },
+    Gzip {
+      @Override
+      public OutputStream compress(final OutputStream out) throws IOException {
+        return new ParallelGzipOutputStream(out);
+      }
+    },
+    FastGzip {
+      @Override
+      public OutputStream compress(final OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, GZIP_BUFFER_SIZE) {
+          {
+            def.setLevel(Deflater.BEST_SPEED);
+          }
+        };
+      }
+    },
+    BlockGzip {
+      @Override
+      public OutputStream compress(final OutputStream out) {
+        return new BlockGzipOutputStream(out);
+      }
+    };
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    @Override
+    public String getExtension() {
+      return ".gz";
+    }
+
+    @Override
+    public InputStream decompress(final InputStream in) throws IOException {
+      return new BlockGzipInputStream(in);
+    }
+  };
+
+  private TimestampCodec timestampCodec;
+  private TimestampCodec dateCodec;
   private boolean includeHeaders;
   private String encoding;
   private CSVFormat csvFormat;
   private Compression compression;
+  private StreamCodec codec;
+  private boolean columnar;
   private final Format format;
   private ObjectMapper jsonMapper;
+  private DelimitedEncoder delimitedEncoder;
 
   public TableFormat(final FormatLibrary.Format format) {
     this.format = format;
-    this.timestampFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm'Z'");
-    this.dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+    setTimestampFormat(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm'Z'"));
+    setDateFormat(new SimpleDateFormat("yyyy-MM-dd"));
     this.includeHeaders = true;
     this.encoding = "UTF-8";
     this.csvFormat = CSVFormat.DEFAULT;
-    this.compression = Compression.None;
+    setCompression(Compression.None);
     this.jsonMapper = new ObjectMapper();
   }
 
+  // DateFormat objects are not thread-safe, so these methods return a new
+  // copy on each call rather than the instance that the codecs use. Code that
+  // parses or formats values should use the methods below, which go through
+  // the thread-safe codecs without copying.
   public DateFormat getTimstampFormat() {
-    return timestampFormat;
+    return timestampCodec.getDateFormat();
   }
 
   public DateFormat getDateFormat() {
-    return dateFormat;
+    return dateCodec.getDateFormat();
+  }
+
+  public TimestampCodec getTimestampCodec() {
+    return timestampCodec;
+  }
+
+  public TimestampCodec getDateCodec() {
+    return dateCodec;
   }
 
   public String getEncoding() {
@@ -68,12 +151,23 @@ public class TableFormat {
     return compression;
   }
 
+  public StreamCodec getCodec() {
+    return codec;
+  }
+
+  // Columnar formats are written as Parquet files rather than delimited text;
+  // see TableWriter. The compression setting then applies to the pages within
+  // the file, and the CSV settings are ignored.
+  public boolean isColumnar() {
+    return columnar;
+  }
+
   public void setTimestampFormat(final DateFormat timestampFormat) {
-    this.timestampFormat = timestampFormat;
+    this.timestampCodec = new TimestampCodec(timestampFormat, true);
   }
 
   public void setDateFormat(final DateFormat dateFormat) {
-    this.dateFormat = dateFormat;
+    this.dateCodec = new TimestampCodec(dateFormat);
   }
 
   public void setIncludeHeaders(final boolean includeHeaders) {
@@ -86,10 +180,32 @@ public class TableFormat {
 
   public void setCsvFormat(final CSVFormat csvFormat) {
     this.csvFormat = csvFormat;
+    this.delimitedEncoder = null;
+  }
+
+  // The encoder is immutable, so it is safe if two threads race to create it.
+  public DelimitedEncoder getDelimitedEncoder() {
+    DelimitedEncoder encoder = delimitedEncoder;
+    if (encoder == null) {
+      encoder = new DelimitedEncoder(csvFormat);
+      delimitedEncoder = encoder;
+    }
+    return encoder;
   }
 
   public void setCompression(final Compression compression) {
     this.compression = compression;
+    this.codec = compression;
+  }
+
+  // Install a compression scheme other than the built-in ones. The value
+  // returned by getCompression is not changed.
+  public void setCodec(final StreamCodec codec) {
+    this.codec = codec;
+  }
+
+  public void setColumnar(final boolean columnar) {
+    this.columnar = columnar;
   }
 
   public ObjectMapper getJsonMapper() {
@@ -104,25 +220,22 @@ public class TableFormat {
     if (date == null) {
       return null;
     }
-    return dateFormat.format(date);
+    return dateCodec.format(date);
   }
 
   public String formatTimestamp(final Timestamp time) {
     if (time == null) {
       return null;
     }
-    final String timestamp = timestampFormat.format(time).toString();
-    return cleanTimestampString(timestamp);
+    return timestampCodec.format(time);
   }
 
-  public String cleanTimestampString(String ts) {
-    if (ts.endsWith(".000Z")) {
-      ts = ts.substring(0, ts.lastIndexOf(".")) + "Z";
-    }
-    if (ts.endsWith(".0")) {
-      ts = ts.substring(0, ts.lastIndexOf("."));
-    }
-    return ts;
+  public Date parseDate(final String date) throws ParseException {
+    return dateCodec.parse(date);
+  }
+
+  public Timestamp parseTimestamp(final String timestamp) throws ParseException {
+    return new Timestamp(timestampCodec.parse(timestamp).getTime());
   }
 
 
@@ -131,8 +244,12 @@ public class TableFormat {
   }
 
   public String getExtension() {
-    if (compression == Compression.Gzip) {
-      return ".gz";
+    if (columnar) {
+      return ".parquet";
+    }
+    final String extension = codec.getExtension();
+    if (!extension.isEmpty()) {
+      return extension;
     }
     if (csvFormat.getDelimiter() == '\t') {
       return ".tsv";
@@ -144,24 +261,42 @@ public class TableFormat {
   }
 
   public OutputStream getOutputStream(final File file) throws IOException {
-    switch (compression) {
-    case Gzip:
-      return new GZIPOutputStream(new FileOutputStream(file));
-    case None:
-      return new FileOutputStream(file);
-    default:
-      throw new RuntimeException("Unknown compression: " + compression);
+    return getOutputStream(new FileOutputStream(file));
+  }
+
+  // Wrap an open stream in this format's codec. Callers use this to place a
+  // stream, such as a ChecksumOutputStream, between the codec and the file. The
+  // stream is closed if the codec can not be created.
+  public OutputStream getOutputStream(final OutputStream out) throws IOException {
+    try {
+      return codec.compress(out);
+    } catch (final IOException | RuntimeException e) {
+      out.close();
+      throw e;
     }
   }
 
+  // Uncompressed files are memory-mapped, so that readers copy straight out of
+  // the page cache. Compressed files are read in large blocks on a background
+  // thread, overlapping the disk reads with decompression.
   public InputStream getInputStream(final File file) throws FileNotFoundException, IOException {
-    switch (getCompression()) {
-    case Gzip:
-      return new GZIPInputStream(new FileInputStream(file));
-    case None:
-      return new FileInputStream(file);
-    default:
-      throw new RuntimeException("Unknown compression format: " + getCompression());
+    final InputStream in;
+    if (codec == Compression.None) {
+      in = new MappedFileInputStream(file);
+    } else {
+      in = new ReadAheadFileInputStream(file);
+    }
+    try {
+      return codec.decompress(in);
+    } catch (final IOException | RuntimeException e) {
+      in.close();
+      throw e;
     }
   }
+
+  // Wrap a stream that was not opened from a local file (such as an S3 object
+  // or HDFS file stream) in the appropriate decompressor for this format.
+  public InputStream getInputStream(final InputStream in) throws IOException {
+    return codec.decompress(in);
+  }
 }
@@ -0,0 +1,467 @@
+package edu.harvard.data;
+
+import java.text.DateFormat;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Thread-safe replacement for a shared {@link DateFormat}, used by
+ * {@link TableFormat} to parse and format the timestamp and date fields of
+ * every record.
+ * <P>
+ * {@code SimpleDateFormat} keeps its working state in the instance, so sharing
+ * one between threads (as happens when a {@code TableFormat} is used by several
+ * Phase 0 tasks at once) silently corrupts values. It is also relatively slow,
+ * which matters when it is called for every row of a large table. This class
+ * wraps a template {@code DateFormat} and handles both problems:
+ * <ul>
+ * <li>The fixed layouts used by our Canvas and internal formats,
+ * {@code yyyy-MM-dd HH:mm:ss.SSS} and {@code yyyy-MM-dd}, and by our
+ * Matterhorn format, {@code yyyy-MM-dd'T'HH:mm:ssXXX}, are parsed and
+ * formatted by hand without creating a {@code Calendar}. Formatting works in
+ * any time zone. Matterhorn values carry their own offset, so they are parsed
+ * directly in any time zone; the other layouts are parsed directly when the
+ * template's time zone is UTC, which is the case on our EMR clusters.</li>
+ * <li>Formatted date/time prefixes are kept in a small cache keyed by epoch
+ * second (or day, for dates), since tables such as {@code requests} contain
+ * long runs of identical or near-identical timestamps.</li>
+ * <li>Any other pattern, and any value that the fast path does not handle
+ * (such as dates before 1970 or strings that rely on lenient parsing), is
+ * passed to a per-thread clone of the template.</li>
+ * </ul>
+ * The fast path produces exactly the same results as the template would.
+ * <P>
+ * A codec can also be asked to drop a zero fraction of a second, as
+ * {@link TableFormat} does for timestamps: a trailing {@code .000Z} is
+ * shortened to {@code Z} and a trailing {@code .0} is removed. The fixed
+ * layouts never produce or accept either suffix, so the trimming only applies
+ * to values that are passed to the template.
+ * <P>
+ * This class is thread-safe, so a single instance can be shared by all the
+ * threads that use a {@code TableFormat}.
+ */
+public final class TimestampCodec {
+
+  private static final String TIMESTAMP_LAYOUT = "yyyy-MM-dd HH:mm:ss.SSS";
+  private static final String DATE_LAYOUT = "yyyy-MM-dd";
+  private static final String ISO_LAYOUT = "yyyy-MM-dd'T'HH:mm:ssXXX";
+  private static final int TIMESTAMP_LENGTH = TIMESTAMP_LAYOUT.length();
+  private static final int DATE_LENGTH = DATE_LAYOUT.length();
+  private static final int PREFIX_LENGTH = "yyyy-MM-dd HH:mm:ss".length();
+  private static final int ISO_UTC_LENGTH = "yyyy-MM-ddTHH:mm:ssZ".length();
+  private static final int ISO_OFFSET_LENGTH = "yyyy-MM-ddTHH:mm:ss+hh:mm".length();
+  private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+  private static final long MILLIS_PER_SECOND = 1000L;
+  private static final int MILLIS_PER_MINUTE = 60 * 1000;
+  private static final long SECONDS_PER_DAY = 24L * 60 * 60;
+  // 10000-01-01T00:00:00Z; later values have more than four year digits.
+  private static final long MAX_MILLIS = 253402300800000L;
+  // Must be a power of two.
+  private static final int CACHE_SIZE = 1024;
+
+  private enum Layout {
+    Timestamp, Date, IsoOffset, Other
+  }
+
+  // Cache entries are immutable, so a thread that reads an entry that another
+  // thread has just written will always see a consistent key and value.
+  private static final class CacheEntry {
+    final long key;
+    final String text;
+
+    CacheEntry(final long key, final String text) {
+      this.key = key;
+      this.text = text;
+    }
+  }
+
+  private final DateFormat template;
+  private final ThreadLocal<DateFormat> formats;
+  private final Layout layout;
+  private final TimeZone timeZone;
+  private final boolean fastParse;
+  private final boolean trimZeroFraction;
+  private final CacheEntry[] cache;
+
+  /**
+   * Create a codec that behaves like a {@link DateFormat}.
+   *
+   * @param format
+   *          the template {@code DateFormat}. The codec works from a private
+   *          copy, so later changes to {@code format} have no effect.
+   */
+  public TimestampCodec(final DateFormat format) {
+    this(format, false);
+  }
+
+  /**
+   * Create a codec that behaves like a {@link DateFormat}, optionally dropping
+   * a zero fraction of a second.
+   *
+   * @param format
+   *          the template {@code DateFormat}. The codec works from a private
+   *          copy, so later changes to {@code format} have no effect.
+   * @param trimZeroFraction
+   *          if {@code true}, a trailing {@code .000Z} is shortened to
+   *          {@code Z} and a trailing {@code .0} is removed, both from
+   *          formatted values and from strings before they are parsed.
+   */
+  public TimestampCodec(final DateFormat format, final boolean trimZeroFraction) {
+    this.template = (DateFormat) format.clone();
+    this.formats = new ThreadLocal<DateFormat>() {
+      @Override
+      protected DateFormat initialValue() {
+        return (DateFormat) template.clone();
+      }
+    };
+    this.layout = getLayout(template);
+    this.timeZone = (TimeZone) template.getTimeZone().clone();
+    this.fastParse = layout == Layout.IsoOffset
+        || (layout != Layout.Other && timeZone.hasSameRules(UTC));
+    this.cache = new CacheEntry[CACHE_SIZE];
+    this.trimZeroFraction = trimZeroFraction;
+  }
+
+  // The fast path only applies to SimpleDateFormats that use one of the fixed
+  // layouts and that print numbers with ASCII digits.
+  private static Layout getLayout(final DateFormat format) {
+    if (!(format instanceof SimpleDateFormat)) {
+      return Layout.Other;
+    }
+    final NumberFormat numbers = format.getNumberFormat();
+    if (!(numbers instanceof DecimalFormat)
+        || ((DecimalFormat) numbers).getDecimalFormatSymbols().getZeroDigit() != '0') {
+      return Layout.Other;
+    }
+    final String pattern = ((SimpleDateFormat) format).toPattern();
+    if (pattern.equals(TIMESTAMP_LAYOUT)) {
+      return Layout.Timestamp;
+    }
+    if (pattern.equals(DATE_LAYOUT)) {
+      return Layout.Date;
+    }
+    if (pattern.equals(ISO_LAYOUT)) {
+      return Layout.IsoOffset;
+    }
+    return Layout.Other;
+  }
+
+  /**
+   * Get a copy of the template.
+   *
+   * @return a new {@code DateFormat} that behaves like the template. The copy
+   *         is not shared with the codec or with other callers.
+   */
+  public DateFormat getDateFormat() {
+    return (DateFormat) template.clone();
+  }
+
+  /**
+   * Get the time zone in which values are formatted and parsed.
+   *
+   * @return a copy of the template's {@code TimeZone}.
+   */
+  public TimeZone getTimeZone() {
+    return (TimeZone) timeZone.clone();
+  }
+
+  /**
+   * Format a date or timestamp.
+   *
+   * @param date
+   *          the value to format.
+   * @return the same string that the template's {@code format} method would
+   *         return, with any zero fraction trimmed if the codec was created to
+   *         do so.
+   */
+  public String format(final Date date) {
+    if (layout != Layout.Other) {
+      final long millis = date.getTime();
+      final int offset = timeZone.getOffset(millis);
+      final long local = millis + offset;
+      if (local >= 0 && local < MAX_MILLIS) {
+        switch (layout) {
+        case Timestamp:
+          return formatTimestamp(local);
+        case Date:
+          return formatDate(local);
+        default:
+          // The XXX offset has no seconds field.
+          if (offset % MILLIS_PER_MINUTE == 0) {
+            return formatIso(local, offset);
+          }
+        }
+      }
+    }
+    final String text = formats.get().format(date);
+    return trimZeroFraction ? trim(text) : text;
+  }
+
+  /**
+   * Parse a date or timestamp.
+   *
+   * @param source
+   *          the string to parse.
+   * @return the same value that the template's {@code parse} method would
+   *         return for {@code source}, after any zero fraction is trimmed if
+   *         the codec was created to do so.
+   *
+   * @throws ParseException
+   *           if the start of {@code source} can not be parsed.
+   */
+  public Date parse(final String source) throws ParseException {
+    if (fastParse) {
+      final long millis;
+      switch (layout) {
+      case Timestamp:
+        millis = parseTimestamp(source);
+        break;
+      case Date:
+        millis = parseDate(source);
+        break;
+      default:
+        millis = parseIso(source);
+      }
+      if (millis >= 0) {
+        return new Date(millis);
+      }
+    }
+    return formats.get().parse(trimZeroFraction ? trim(source) : source);
+  }
+
+  private static String trim(final String text) {
+    String trimmed = text;
+    if (trimmed.endsWith(".000Z")) {
+      trimmed = trimmed.substring(0, trimmed.lastIndexOf(".")) + "Z";
+    }
+    if (trimmed.endsWith(".0")) {
+      trimmed = trimmed.substring(0, trimmed.lastIndexOf("."));
+    }
+    return trimmed;
+  }
+
+  private String formatTimestamp(final long local) {
+    final long second = local / MILLIS_PER_SECOND;
+    final String prefix = getCachedText(second, second * MILLIS_PER_SECOND);
+    final int millis = (int) (local - second * MILLIS_PER_SECOND);
+    final char[] chars = new char[TIMESTAMP_LENGTH];
+    prefix.getChars(0, PREFIX_LENGTH, chars, 0);
+    chars[PREFIX_LENGTH] = '.';
+    chars[PREFIX_LENGTH + 1] = (char) ('0' + millis / 100);
+    chars[PREFIX_LENGTH + 2] = (char) ('0' + (millis / 10) % 10);
+    chars[PREFIX_LENGTH + 3] = (char) ('0' + millis % 10);
+    return new String(chars);
+  }
+
+  private String formatIso(final long local, final int offset) {
+    final long second = local / MILLIS_PER_SECOND;
+    final String prefix = getCachedText(second, second * MILLIS_PER_SECOND);
+    if (offset == 0) {
+      return prefix + 'Z';
+    }
+    final int minutes = Math.abs(offset) / MILLIS_PER_MINUTE;
+    final char[] chars = new char[ISO_OFFSET_LENGTH];
+    prefix.getChars(0, PREFIX_LENGTH, chars, 0);
+    chars[PREFIX_LENGTH] = offset < 0 ? '-' : '+';
+    put(chars, PREFIX_LENGTH + 1, minutes / 60, 2);
+    chars[PREFIX_LENGTH + 3] = ':';
+    put(chars, PREFIX_LENGTH + 4, minutes % 60, 2);
+    return new String(chars);
+  }
+
+  private String formatDate(final long local) {
+    final long day = local / (SECONDS_PER_DAY * MILLIS_PER_SECOND);
+    return getCachedText(day, day * SECONDS_PER_DAY * MILLIS_PER_SECOND);
+  }
+
+  // Look up the text for a second or day, formatting it if it isn't cached.
+  private String getCachedText(final long key, final long local) {
+    final int idx = (int) (key & (CACHE_SIZE - 1));
+    final CacheEntry entry = cache[idx];
+    if (entry != null && entry.key == key) {
+      return entry.text;
+    }
+    final String text;
+    switch (layout) {
+    case Date:
+      text = formatPrefix(local, ' ').substring(0, DATE_LENGTH);
+      break;
+    case IsoOffset:
+      text = formatPrefix(local, 'T');
+      break;
+    default:
+      text = formatPrefix(local, ' ');
+    }
+    cache[idx] = new CacheEntry(key, text);
+    return text;
+  }
+
+  // Format yyyy-MM-dd HH:mm:ss for a non-negative local time, with the given
+  // character between the date and the time.
+  private static String formatPrefix(final long local, final char separator) {
+    final long seconds = local / MILLIS_PER_SECOND;
+    final long epochDay = seconds / SECONDS_PER_DAY;
+    final int secondOfDay = (int) (seconds - epochDay * SECONDS_PER_DAY);
+    final int[] ymd = civilFromDays(epochDay);
+    final char[] chars = new char[PREFIX_LENGTH];
+    put(chars, 0, ymd[0], 4);
+    chars[4] = '-';
+    put(chars, 5, ymd[1], 2);
+    chars[7] = '-';
+    put(chars, 8, ymd[2], 2);
+    chars[10] = separator;
+    put(chars, 11, secondOfDay / 3600, 2);
+    chars[13] = ':';
+    put(chars, 14, (secondOfDay / 60) % 60, 2);
+    chars[16] = ':';
+    put(chars, 17, secondOfDay % 60, 2);
+    return new String(chars);
+  }
+
+  private static void put(final char[] chars, final int offset, final int value,
+      final int digits) {
+    int remaining = value;
+    for (int i = offset + digits - 1; i >= offset; i--) {
+      chars[i] = (char) ('0' + remaining % 10);
+      remaining /= 10;
+    }
+  }
+
+  // Parse yyyy-MM-dd HH:mm:ss.SSS, returning -1 if the string does not match
+  // the layout exactly or holds a value that the template would parse
+  // leniently.
+  private static long parseTimestamp(final String s) {
+    if (s.length() != TIMESTAMP_LENGTH || s.charAt(19) != '.') {
+      return -1;
+    }
+    final long local = parsePrefix(s, ' ');
+    final int millis = digits(s, 20, 3);
+    if (local < 0 || millis < 0) {
+      return -1;
+    }
+    return local + millis;
+  }
+
+  // Parse yyyy-MM-dd'T'HH:mm:ss followed by Z or a +hh:mm offset, returning -1
+  // if the string does not match the layout exactly, holds a value that the
+  // template would parse leniently, or is before the epoch.
+  private static long parseIso(final String s) {
+    final int offset;
+    if (s.length() == ISO_UTC_LENGTH && s.charAt(PREFIX_LENGTH) == 'Z') {
+      offset = 0;
+    } else if (s.length() == ISO_OFFSET_LENGTH && s.charAt(PREFIX_LENGTH + 3) == ':') {
+      final char sign = s.charAt(PREFIX_LENGTH);
+      final int hours = digits(s, PREFIX_LENGTH + 1, 2);
+      final int minutes = digits(s, PREFIX_LENGTH + 4, 2);
+      if ((sign != '+' && sign != '-') || hours < 0 || hours > 23 || minutes < 0
+          || minutes > 59) {
+        return -1;
+      }
+      offset = (sign == '-' ? -1 : 1) * (hours * 60 + minutes) * MILLIS_PER_MINUTE;
+    } else {
+      return -1;
+    }
+    final long local = parsePrefix(s, 'T');
+    if (local < 0 || local - offset < 0) {
+      return -1;
+    }
+    return local - offset;
+  }
+
+  // Parse the yyyy-MM-dd HH:mm:ss at the start of a string, with the given
+  // character between the date and the time, into milliseconds since the
+  // epoch.
+  private static long parsePrefix(final String s, final char separator) {
+    if (s.charAt(10) != separator || s.charAt(13) != ':' || s.charAt(16) != ':') {
+      return -1;
+    }
+    final long day = parseDay(s);
+    final int hour = digits(s, 11, 2);
+    final int minute = digits(s, 14, 2);
+    final int second = digits(s, 17, 2);
+    if (day < 0 || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0
+        || second > 59) {
+      return -1;
+    }
+    return ((day * SECONDS_PER_DAY) + hour * 3600 + minute * 60 + second) * MILLIS_PER_SECOND;
+  }
+
+  private static long parseDate(final String s) {
+    if (s.length() != DATE_LENGTH) {
+      return -1;
+    }
+    final long day = parseDay(s);
+    return day < 0 ? -1 : day * SECONDS_PER_DAY * MILLIS_PER_SECOND;
+  }
+
+  // Parse the yyyy-MM-dd at the start of a string into a day since the epoch.
+  private static long parseDay(final String s) {
+    if (s.charAt(4) != '-' || s.charAt(7) != '-') {
+      return -1;
+    }
+    final int year = digits(s, 0, 4);
+    final int month = digits(s, 5, 2);
+    final int day = digits(s, 8, 2);
+    if (year < 1970 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+      return -1;
+    }
+    return daysFromCivil(year, month, day);
+  }
+
+  private static int digits(final String s, final int offset, final int count) {
+    int value = 0;
+    for (int i = offset; i < offset + count; i++) {
+      final int digit = s.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  private static int daysInMonth(final int year, final int month) {
+    switch (month) {
+    case 2:
+      final boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+      return leap ? 29 : 28;
+    case 4:
+    case 6:
+    case 9:
+    case 11:
+      return 30;
+    default:
+      return 31;
+    }
+  }
+
+  // Convert between days since 1970-01-01 and a Gregorian year, month and day,
+  // using the algorithms from http://howardhinnant.github.io/date_algorithms.html
+  // Only valid for non-negative days, which is all the fast path handles.
+  private static long daysFromCivil(final int year, final int month, final int day) {
+    final int y = month <= 2 ? year - 1 : year;
+    final int era = y / 400;
+    final int yearOfEra = y - era * 400;
+    final int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+    final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097L + dayOfEra - 719468;
+  }
+
+  private static int[] civilFromDays(final long epochDay) {
+    final long z = epochDay + 719468;
+    final long era = z / 146097;
+    final int dayOfEra = (int) (z - era * 146097);
+    final int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096)
+        / 365;
+    final int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    final int mp = (5 * dayOfYear + 2) / 153;
+    final int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+    final int month = mp < 10 ? mp + 3 : mp - 9;
+    final int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+    return new int[] { year, month, day };
+  }
+}
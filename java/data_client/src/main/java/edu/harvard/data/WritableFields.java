@@ -0,0 +1,58 @@
+package edu.harvard.data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.sql.Timestamp;
+
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Helper methods used by the {@code write} and {@code readFields} methods of
+ * generated bindings, which implement Hadoop's {@code Writable} so that jobs
+ * can shuffle typed records rather than delimited text.
+ * <P>
+ * The binary layout is only intended to be read by the same version of the
+ * bindings that wrote it (as is the case within a single job), and should not
+ * be used for data that is stored between jobs.
+ */
+public class WritableFields {
+
+  private WritableFields() {
+  }
+
+  /**
+   * Write a timestamp as a variable-length count of milliseconds followed by
+   * the nanoseconds within the millisecond, so that no precision is lost.
+   *
+   * @param out
+   *          the output to write to.
+   * @param timestamp
+   *          a non-null timestamp.
+   *
+   * @throws IOException
+   *           if an error occurs when writing to {@code out}.
+   */
+  public static void writeTimestamp(final DataOutput out, final Timestamp timestamp)
+      throws IOException {
+    WritableUtils.writeVLong(out, timestamp.getTime());
+    WritableUtils.writeVInt(out, timestamp.getNanos() % 1000000);
+  }
+
+  /**
+   * Read a timestamp written by {@link #writeTimestamp}.
+   *
+   * @param in
+   *          the input to read from.
+   *
+   * @return a new {@code Timestamp} object.
+   *
+   * @throws IOException
+   *           if an error occurs when reading from {@code in}.
+   */
+  public static Timestamp readTimestamp(final DataInput in) throws IOException {
+    final Timestamp timestamp = new Timestamp(WritableUtils.readVLong(in));
+    timestamp.setNanos(timestamp.getNanos() + WritableUtils.readVInt(in));
+    return timestamp;
+  }
+}
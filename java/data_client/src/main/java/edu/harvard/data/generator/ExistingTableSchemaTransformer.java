@@ -90,12 +90,12 @@ public class ExistingTableSchemaTransformer {
     for (final DataSchemaColumn column : srcTable.getColumns()) {
       if (!existingTable.getExclude().contains(column.getName())) {
         columns.add(new ExtensionSchemaColumn(column.getName(), column.getDescription(),
-            column.getType().toString(), column.getLength()));
+            column.getType().toString(), column.getLength(), column.getLowCardinality()));
       }
     }
     // Create a new table using the properties of the source
     final ExtensionSchemaTable newTable = new ExtensionSchemaTable(null,
-        existingTable.getDescription(), columns, null, existingTable.getExpireAfterPhase());
+        existingTable.getDescription(), columns, null, existingTable.getExpireAfterPhase(), null);
     newTable.setTableName(existingTable.getTableName());
     return newTable;
   }
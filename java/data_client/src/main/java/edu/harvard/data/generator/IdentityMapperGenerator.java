@@ -1,6 +1,7 @@
 package edu.harvard.data.generator;
 
 import java.io.PrintStream;
+import java.text.ParseException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -9,10 +10,12 @@ import org.apache.commons.csv.CSVRecord;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import edu.harvard.data.TableFormat;
 import edu.harvard.data.VerificationException;
 import edu.harvard.data.identity.IdentifierType;
 import edu.harvard.data.identity.IdentityImplementationException;
 import edu.harvard.data.identity.IdentityMap;
+import edu.harvard.data.io.DelimitedTokenizer;
 import edu.harvard.data.schema.DataSchemaTable;
 
 public class IdentityMapperGenerator {
@@ -53,7 +56,11 @@ public class IdentityMapperGenerator {
     out.println();
     out.println("public class " + className + " extends " + idType + "IdentityMapper {");
     out.println();
-    out.println("  private " + modelClass + " phase0;");
+    // The record and the map of main identifiers are reused for every line that
+    // the mapper reads.
+    out.println("  private " + modelClass + " phase0 = new " + modelClass + "();");
+    out.println("  private final Map<String, " + idType + "> keys = new HashMap<String, " + idType
+        + ">();");
     out.println();
     outputReadRecord(out);
     out.println();
@@ -67,7 +74,10 @@ public class IdentityMapperGenerator {
       throws VerificationException {
     out.println("import " + Map.class.getCanonicalName() + ";");
     out.println("import " + HashMap.class.getCanonicalName() + ";");
+    out.println("import " + ParseException.class.getCanonicalName() + ";");
     out.println("import " + CSVRecord.class.getCanonicalName() + ";");
+    out.println("import " + TableFormat.class.getCanonicalName() + ";");
+    out.println("import " + DelimitedTokenizer.class.getCanonicalName() + ";");
     if (hasMultipleMainIdColumns()) {
       out.println("import " + IdentityImplementationException.class.getCanonicalName() + ";");
     } else {
@@ -84,16 +94,22 @@ public class IdentityMapperGenerator {
 
   private void outputReadRecord(final PrintStream out) {
     out.println("  @Override");
-    out.println("  public void readRecord(final CSVRecord csvRecord) {");
+    out.println("  public void readRecord(final TableFormat format, final CSVRecord csvRecord)");
+    out.println("      throws ParseException {");
     out.println("    this.phase0 = new " + modelClass + "(format, csvRecord);");
     out.println("  }");
+    out.println();
+    out.println("  @Override");
+    out.println("  public void readRecord(final TableFormat format,");
+    out.println("      final DelimitedTokenizer fields) throws ParseException {");
+    out.println("    phase0.reset(format, fields);");
+    out.println("  }");
   }
 
   private void outputGetMainIdentifiers(final PrintStream out, final String idType)
       throws VerificationException {
     out.println("  @Override");
     out.println("  public Map<String, " + idType + "> getMainIdentifiers() {");
-    out.println("    Map<String, " + idType + "> keys = new HashMap<String, " + idType + ">();");
     for (final String column : IdentityJobGenerator.getMainIdColumns(identities, table,
         mainIdentifier)) {
       final String getter = JavaBindingGenerator.javaGetter(column);
@@ -1,6 +1,7 @@
 package edu.harvard.data.generator;
 
 import java.io.PrintStream;
+import java.text.ParseException;
 import java.util.List;
 import java.util.Map;
 
@@ -13,6 +14,7 @@ import edu.harvard.data.VerificationException;
 import edu.harvard.data.identity.IdentifierType;
 import edu.harvard.data.identity.IdentitySchemaTransformer;
 import edu.harvard.data.identity.IdentityScrubber;
+import edu.harvard.data.io.DelimitedTokenizer;
 import edu.harvard.data.schema.DataSchemaTable;
 
 public class IdentityScrubberGenerator {
@@ -59,26 +61,42 @@ public class IdentityScrubberGenerator {
     out.println();
     out.println("public class " + className + " extends IdentityScrubber<" + idType + "> {");
     out.println();
+    // Both versions of the record are reused for every line that the mapper
+    // reads.
+    out.println("  private final " + phase0ModelClass + " phase0 = new " + phase0ModelClass + "();");
+    out.println("  private final " + phase1ModelClass + " phase1 = new " + phase1ModelClass + "();");
+    out.println();
     outputPopulateRecord(out);
     out.println("}");
   }
 
   private void outputImportStatements(final PrintStream out, final String idType) {
+    out.println("import " + ParseException.class.getCanonicalName() + ";");
     out.println("import " + CSVRecord.class.getCanonicalName() + ";");
     out.println("import " + IdentifierType.class.getCanonicalName() + ";");
     out.println("import " + DataTable.class.getCanonicalName() + ";");
     out.println("import " + IdentityScrubber.class.getCanonicalName() + ";");
+    out.println("import " + DelimitedTokenizer.class.getCanonicalName() + ";");
     out.println("import " + phase0ModelPackage + "." + phase0ModelClass + ";");
     out.println("import " + phase1ModelPackage + "." + phase1ModelClass + ";");
   }
 
   private void outputPopulateRecord(final PrintStream out) throws VerificationException {
     out.println("  @Override");
-    out.println("  protected DataTable populateRecord(final CSVRecord csvRecord) {");
-    out.println("    final " + phase0ModelClass + " phase0 = new " + phase0ModelClass
-        + "(format, csvRecord);");
-    out.println(
-        "    final " + phase1ModelClass + " phase1 = new " + phase1ModelClass + "(phase0);");
+    out.println("  protected DataTable populateRecord(final CSVRecord csvRecord)");
+    out.println("      throws ParseException {");
+    out.println("    return scrub(new " + phase0ModelClass + "(format, csvRecord));");
+    out.println("  }");
+    out.println();
+    out.println("  @Override");
+    out.println("  protected DataTable populateRecord(final DelimitedTokenizer fields)");
+    out.println("      throws ParseException {");
+    out.println("    phase0.reset(format, fields);");
+    out.println("    return scrub(phase0);");
+    out.println("  }");
+    out.println();
+    out.println("  private DataTable scrub(final " + phase0ModelClass + " phase0) {");
+    out.println("    phase1.reset(phase0);");
     for (final String idColumn : IdentityJobGenerator.getMainIdColumns(identities, table,
         mainIdentifier)) {
       final String getter = JavaBindingGenerator.javaGetter(idColumn);
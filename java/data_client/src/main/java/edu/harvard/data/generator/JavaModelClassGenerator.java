@@ -5,15 +5,34 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import edu.harvard.data.CharSlices;
 import edu.harvard.data.DataTable;
+import edu.harvard.data.DelimitedEncoder;
+import edu.harvard.data.JsonFields;
+import edu.harvard.data.StringDictionary;
 import edu.harvard.data.TableFormat;
+import edu.harvard.data.WritableFields;
+import edu.harvard.data.io.ColumnarCodec;
+import edu.harvard.data.io.DelimitedTokenizer;
+import edu.harvard.data.io.JsonRecordDecoder;
+import edu.harvard.data.io.ColumnProjection;
+import edu.harvard.data.io.ProjectedRecordDecoder;
+import edu.harvard.data.io.ReusableRecord;
 import edu.harvard.data.schema.DataSchemaColumn;
 import edu.harvard.data.schema.DataSchemaTable;
 import edu.harvard.data.schema.DataSchemaType;
@@ -60,54 +79,50 @@ public class JavaModelClassGenerator {
     out.println();
 
     outputImportStatements(out);
-    out.println("public class " + className + " implements DataTable {");
+    out.println(
+        "public class " + className + " implements DataTable, Writable, ReusableRecord {");
     out.println();
     outputEnumTypes(out);
     outputFields(out);
+    outputRecordDecoder(out);
+    outputColumnarCodec(out);
+    outputJsonDecoder(out);
     outputDefaultConstructor(out);
     outputCsvConstructor(out);
+    outputTokenizerConstructor(out);
+    outputResetMethod(out);
     outputMapConstructor(out);
     outputPreviousClassConstructor(out);
+    outputPreviousClassReset(out);
     outputLikeClassConstructor(out);
     outputAllFieldConstructor(out);
     outputGettersAndSetters(out);
     outputGetFieldNames(out);
     outputGetFieldsAsListMethod(out);
+    outputWriteDelimitedMethod(out);
     outputGetFieldsAsMapMethod(out);
+    outputWritableMethods(out);
     out.println("}");
   }
 
   private void outputEnumTypes(final PrintStream out) {
     for (final DataSchemaColumn column : table.getColumns()) {
       if (column.getType() == DataSchemaType.Enum) {
-        final String desc = column.getDescription();
-        final String[] enumValues = desc.split("'");
-        if (enumValues.length > 1) { // In case there are no enum values specified.
+        final List<String> enumValues = getEnumValues(column);
+        if (!enumValues.isEmpty()) { // In case there are no enum values specified.
           final String enumName = JavaBindingGenerator.javaEnum(column);
           out.println("  public enum " + enumName + " {");
-          for (int i = 1; i < enumValues.length; i += 2) {
-            out.print(
-                "    " + JavaBindingGenerator.javaClass(enumValues[i], "") + "(\"" + enumValues[i] + "\")");
-            if (i + 2 < enumValues.length) {
+          for (int i = 0; i < enumValues.size(); i++) {
+            final String value = enumValues.get(i);
+            out.print("    " + JavaBindingGenerator.javaClass(value, "") + "(\"" + value + "\")");
+            if (i + 1 < enumValues.size()) {
               out.println(",");
             } else {
               out.println(";");
             }
           }
           out.println();
-          out.println("    private static final Map<String, " + enumName + "> values;");
-          out.println("    static {");
-          out.println("      values = new HashMap<String, " + enumName + ">();");
-          out.println("      for (final " + enumName + " v : " + enumName + ".values()) {");
-          out.println("        values.put(v.value, v);");
-          out.println("      }");
-          out.println("    };");
-          out.println("    public static " + enumName + " parse(final String str) {");
-          out.println("      if (values.containsKey(str)) {");
-          out.println("        return values.get(str);");
-          out.println("      }");
-          out.println("      return valueOf(str);");
-          out.println("    }");
+          outputEnumParseMethods(out, enumName, enumValues);
           out.println();
           out.println("    private final String value;");
           out.println("    private " + enumName + "(final String value) {");
@@ -130,12 +145,14 @@ public class JavaModelClassGenerator {
   // Generate the import statements required for the class. Only produce imports
   // for classes that are actually used (to avoid compiler warnings).
   private void outputImportStatements(final PrintStream out) {
+    out.println("import java.io.DataInput;");
+    out.println("import java.io.DataOutput;");
+    out.println("import java.io.IOException;");
     if (hasTimestampColumn(table)) {
       out.println("import java.sql.Timestamp;");
     }
-    if (hasDateColumn(table) || hasTimestampColumn(table)) {
-      out.println("import java.text.ParseException;");
-    }
+    // ParseException is always needed by the generated RecordDecoder.
+    out.println("import java.text.ParseException;");
     if (hasDateColumn(table)) {
       out.println("import java.util.Date;");
     }
@@ -145,8 +162,38 @@ public class JavaModelClassGenerator {
     out.println("import " + HashMap.class.getName() + ";");
     out.println();
     out.println("import org.apache.commons.csv.CSVRecord;");
+    out.println("import " + JsonParser.class.getName() + ";");
+    if (!getNestedMaps().isEmpty()) {
+      out.println("import " + JsonToken.class.getName() + ";");
+    }
+    if (hasColumnOfType(DataSchemaType.Text, DataSchemaType.VarChar, DataSchemaType.Guid)) {
+      out.println("import " + Text.class.getName() + ";");
+    }
+    out.println("import " + Writable.class.getName() + ";");
+    if (hasColumnOfType(DataSchemaType.BigInt, DataSchemaType.Integer, DataSchemaType.Date,
+        DataSchemaType.Enum)) {
+      out.println("import " + WritableUtils.class.getName() + ";");
+    }
     out.println("import " + DataTable.class.getName() + ";");
+    out.println("import " + DelimitedEncoder.class.getName() + ";");
+    out.println("import " + JsonFields.class.getName() + ";");
+    if (hasColumnOfType(DataSchemaType.Enum)) {
+      out.println("import " + CharSlices.class.getName() + ";");
+    }
+    if (hasLowCardinalityColumn()) {
+      out.println("import " + StringDictionary.class.getName() + ";");
+    }
     out.println("import " + TableFormat.class.getName() + ";");
+    if (hasTimestampColumn(table)) {
+      out.println("import " + WritableFields.class.getName() + ";");
+    }
+    out.println("import " + DelimitedTokenizer.class.getName() + ";");
+    out.println("import " + ColumnProjection.class.getName() + ";");
+    out.println("import " + ProjectedRecordDecoder.class.getName() + ";");
+    out.println("import " + ReusableRecord.class.getName() + ";");
+    out.println("import " + ColumnarCodec.class.getName() + ";");
+    out.println("import " + JsonRecordDecoder.class.getName() + ";");
+    out.println("import " + DataSchemaType.class.getName() + ";");
     out.println();
     if (previousVersion != null && !table.getNewlyGenerated()) {
       out.println(
@@ -155,7 +202,8 @@ public class JavaModelClassGenerator {
     }
   }
 
-  // Generate the field declarations
+  // Generate the field declarations, along with a StringDictionary for each
+  // column that the schema marks as having low cardinality.
   private void outputFields(final PrintStream out) {
     for (final DataSchemaColumn column : table.getColumns()) {
       final String typeName = JavaBindingGenerator.javaType(column);
@@ -163,6 +211,299 @@ public class JavaModelClassGenerator {
       out.println("  private " + typeName + " " + variableName + ";");
     }
     out.println();
+    if (hasLowCardinalityColumn()) {
+      for (final DataSchemaColumn column : table.getColumns()) {
+        if (isInterned(column)) {
+          out.println("  private static final StringDictionary " + dictionaryName(column)
+              + " = new StringDictionary(\"" + className + "." + column.getName() + "\");");
+        }
+      }
+      out.println();
+    }
+  }
+
+  // Generate a static RecordDecoder that calls the CSVRecord or
+  // DelimitedTokenizer constructor directly. Readers use this to create records
+  // without having to look up the constructor reflectively for every line of
+  // input. The projected variants let callers skip columns they do not need.
+  private void outputRecordDecoder(final PrintStream out) {
+    out.println("  public static final ProjectedRecordDecoder<" + className
+        + "> DECODER = new ProjectedRecordDecoder<" + className + ">() {");
+    out.println("    @Override");
+    out.println("    public " + className
+        + " decode(final TableFormat format, final CSVRecord record) throws ParseException {");
+    out.println("      return new " + className + "(format, record);");
+    out.println("    }");
+    out.println();
+    out.println("    @Override");
+    out.println("    public " + className
+        + " decode(final TableFormat format, final DelimitedTokenizer fields)"
+        + " throws ParseException {");
+    out.println("      return new " + className + "(format, fields);");
+    out.println("    }");
+    out.println();
+    out.println("    @Override");
+    out.println("    public ColumnProjection project(final String... columnNames) {");
+    out.println("      return new ColumnProjection(new " + className
+        + "().getFieldNames(), columnNames);");
+    out.println("    }");
+    out.println();
+    out.println("    @Override");
+    out.println("    public " + className
+        + " decode(final TableFormat format, final CSVRecord record,");
+    out.println("        final ColumnProjection projection) throws ParseException {");
+    out.println("      return new " + className + "(format, record, projection);");
+    out.println("    }");
+    out.println();
+    out.println("    @Override");
+    out.println("    public " + className
+        + " decode(final TableFormat format, final DelimitedTokenizer fields,");
+    out.println("        final ColumnProjection projection) throws ParseException {");
+    out.println("      return new " + className + "(format, fields, projection);");
+    out.println("    }");
+    out.println("  };");
+    out.println();
+  }
+
+  // Generate a static ColumnarCodec that describes the table's columns and
+  // copies field values to and from the arrays used by columnar writers and
+  // readers. Enum fields are exchanged as their string values.
+  private void outputColumnarCodec(final PrintStream out) {
+    final List<DataSchemaColumn> columns = table.getColumns();
+    out.println("  public static final ColumnarCodec<" + className
+        + "> COLUMNAR = new ColumnarCodec<" + className + ">(");
+    out.println("      new String[] {");
+    for (int i = 0; i < columns.size(); i++) {
+      out.println("        \"" + columns.get(i).getName() + "\""
+          + (i + 1 < columns.size() ? "," : ""));
+    }
+    out.println("      },");
+    out.println("      new DataSchemaType[] {");
+    for (int i = 0; i < columns.size(); i++) {
+      out.println("        DataSchemaType." + columns.get(i).getType().name()
+          + (i + 1 < columns.size() ? "," : ""));
+    }
+    out.println("      }) {");
+    out.println("    @Override");
+    out.println("    public void getValues(final " + className
+        + " record, final Object[] values) {");
+    for (int i = 0; i < columns.size(); i++) {
+      final DataSchemaColumn column = columns.get(i);
+      final String variableName = JavaBindingGenerator.javaVariable(column.getName());
+      if (column.getType() == DataSchemaType.Enum) {
+        out.println("      values[" + i + "] = record." + variableName + " == null ? null : record."
+            + variableName + ".getValue();");
+      } else {
+        out.println("      values[" + i + "] = record." + variableName + ";");
+      }
+    }
+    out.println("    }");
+    out.println();
+    out.println("    @Override");
+    out.println("    public " + className + " create(final Object[] values) {");
+    out.println("      final " + className + " record = new " + className + "();");
+    for (int i = 0; i < columns.size(); i++) {
+      final DataSchemaColumn column = columns.get(i);
+      final String variableName = JavaBindingGenerator.javaVariable(column.getName());
+      final String typeName = JavaBindingGenerator.javaType(column);
+      if (column.getType() == DataSchemaType.Enum) {
+        out.println("      record." + variableName + " = values[" + i + "] == null ? null : "
+            + typeName + ".parse((String) values[" + i + "]);");
+      } else {
+        out.println("      record." + variableName + " = (" + typeName + ") values[" + i + "];");
+      }
+    }
+    out.println("      return record;");
+    out.println("    }");
+    out.println("  };");
+    out.println();
+  }
+
+  // Generate a static JsonRecordDecoder that reads a JSON object token by token
+  // rather than from a parsed Map. The decoder must produce the same record as
+  // the Map constructor (see outputMapConstructor), so it looks up fields and
+  // nested objects by the same keys, and, like String.valueOf, stores "null" in
+  // string fields that are missing from an object that is present.
+  private void outputJsonDecoder(final PrintStream out) {
+    final List<DataSchemaColumn> topLevel = new ArrayList<DataSchemaColumn>();
+    final Map<String, List<DataSchemaColumn>> nested = new HashMap<String, List<DataSchemaColumn>>();
+    for (final DataSchemaColumn column : table.getColumns()) {
+      final String columnName = column.getName();
+      if (columnName.contains(".")) {
+        final String mapName = JavaBindingGenerator
+            .javaVariable(columnName.substring(0, columnName.lastIndexOf(".")));
+        if (!nested.containsKey(mapName)) {
+          nested.put(mapName, new ArrayList<DataSchemaColumn>());
+        }
+        nested.get(mapName).add(column);
+      } else {
+        topLevel.add(column);
+      }
+    }
+    out.println("  public static final JsonRecordDecoder<" + className
+        + "> JSON_DECODER = new JsonRecordDecoder<" + className + ">() {");
+    out.println("    @Override");
+    out.println("    public " + className + " create() {");
+    out.println("      final " + className + " record = new " + className + "();");
+    outputJsonStringDefaults(out, topLevel, "      ");
+    out.println("      return record;");
+    out.println("    }");
+    out.println();
+    out.println("    @Override");
+    out.println("    public boolean decodeField(final TableFormat format, final JsonParser parser,");
+    out.println("        final String name, final " + className
+        + " record) throws IOException, ParseException {");
+    out.println("      switch (name) {");
+    for (final DataSchemaColumn column : topLevel) {
+      out.println("      case \"" + column.getSourceName() + "\":");
+      outputReadFromParser(out, column, "        ");
+      out.println("        return true;");
+    }
+    for (final String mapName : getNestedMaps()) {
+      final String key = JavaBindingGenerator.javaVariable(mapName);
+      out.println("      case \"" + key + "\":");
+      out.println("        if (JsonFields.startObject(parser)) {");
+      outputJsonStringDefaults(out, nested.get(key), "          ");
+      out.println("          while (parser.nextToken() == JsonToken.FIELD_NAME) {");
+      out.println("            final String field = parser.getCurrentName();");
+      out.println("            parser.nextToken();");
+      out.println("            switch (field) {");
+      for (final DataSchemaColumn column : nested.get(key)) {
+        final String columnName = column.getName();
+        out.println("            case \""
+            + column.getSourceName().substring(columnName.indexOf(".") + 1) + "\":");
+        outputReadFromParser(out, column, "              ");
+        out.println("              break;");
+      }
+      out.println("            default:");
+      out.println("              parser.skipChildren();");
+      out.println("            }");
+      out.println("          }");
+      out.println("        }");
+      out.println("        return true;");
+    }
+    out.println("      default:");
+    out.println("        return false;");
+    out.println("      }");
+    out.println("    }");
+    out.println("  };");
+    out.println();
+  }
+
+  private void outputJsonStringDefaults(final PrintStream out,
+      final List<DataSchemaColumn> columns, final String indent) {
+    for (final DataSchemaColumn column : columns) {
+      switch (column.getType()) {
+      case Guid:
+      case Text:
+      case VarChar:
+        out.println(indent + "record." + JavaBindingGenerator.javaVariable(column.getName())
+            + " = \"null\";");
+        break;
+      default:
+        break;
+      }
+    }
+  }
+
+  // Determine the code needed to read a field's value from a JsonParser. The
+  // conversions match those in outputGetFromMap.
+  private void outputReadFromParser(final PrintStream out, final DataSchemaColumn column,
+      final String indent) {
+    final String variableName = JavaBindingGenerator.javaVariable(column.getName());
+    final String field = "record." + variableName;
+    switch (column.getType()) {
+    case BigInt:
+      out.println(indent + field + " = JsonFields.readLong(parser);");
+      break;
+    case Boolean:
+      out.println(indent + field + " = JsonFields.readBoolean(parser);");
+      break;
+    case Date:
+    case DateTime:
+    case Timestamp:
+      out.println(indent + field + " = JsonFields.readTimestamp(format, parser);");
+      break;
+    case Enum:
+      final String tmpName = "$" + variableName;
+      out.println(indent + "final String " + tmpName + " = JsonFields.readText(parser);");
+      out.println(indent + "if (" + tmpName + " != null && " + tmpName + ".length() > 0) {");
+      out.println(indent + "  " + field + " = " + JavaBindingGenerator.javaEnum(column) + ".parse("
+          + tmpName + ");");
+      out.println(indent + "}");
+      break;
+    case DoublePrecision:
+      out.println(indent + field + " = JsonFields.readDouble(parser);");
+      break;
+    case Guid:
+    case Text:
+    case VarChar:
+      if (isInterned(column)) {
+        out.println(indent + field + " = " + dictionaryName(column)
+            + ".intern(JsonFields.readString(parser));");
+      } else {
+        out.println(indent + field + " = JsonFields.readString(parser);");
+      }
+      break;
+    case Integer:
+      out.println(indent + field + " = JsonFields.readInteger(parser);");
+      break;
+    }
+  }
+
+  // Generate the methods that map a string value to an enum constant. Values
+  // that do not match any constant's string value are passed to valueOf, which
+  // accepts constant names and throws IllegalArgumentException for anything
+  // else. The first method switches on a String, which javac compiles to a
+  // switch on its hash code. The second does the same for a slice of a
+  // character buffer, using hash codes computed here, so that a
+  // DelimitedTokenizer field can be decoded without creating a String.
+  private void outputEnumParseMethods(final PrintStream out, final String enumName,
+      final List<String> enumValues) {
+    out.println("    public static " + enumName + " parse(final String str) {");
+    out.println("      switch (str) {");
+    for (final String value : new LinkedHashSet<String>(enumValues)) {
+      out.println("      case \"" + value + "\":");
+      out.println("        return " + JavaBindingGenerator.javaClass(value, "") + ";");
+    }
+    out.println("      default:");
+    out.println("        return valueOf(str);");
+    out.println("      }");
+    out.println("    }");
+    out.println();
+    final Map<Integer, List<String>> hashes = new LinkedHashMap<Integer, List<String>>();
+    for (final String value : new LinkedHashSet<String>(enumValues)) {
+      if (!hashes.containsKey(value.hashCode())) {
+        hashes.put(value.hashCode(), new ArrayList<String>());
+      }
+      hashes.get(value.hashCode()).add(value);
+    }
+    out.println("    public static " + enumName
+        + " parse(final char[] buf, final int offset, final int length) {");
+    out.println("      switch (CharSlices.hash(buf, offset, length)) {");
+    for (final Map.Entry<Integer, List<String>> entry : hashes.entrySet()) {
+      out.println("      case " + entry.getKey() + ":");
+      for (final String value : entry.getValue()) {
+        out.println("        if (CharSlices.matches(\"" + value + "\", buf, offset, length)) {");
+        out.println("          return " + JavaBindingGenerator.javaClass(value, "") + ";");
+        out.println("        }");
+      }
+      out.println("        break;");
+    }
+    out.println("      }");
+    out.println("      return valueOf(new String(buf, offset, length));");
+    out.println("    }");
+  }
+
+  // Extract the permitted values of an enum column from its description, where
+  // they appear in single quotes.
+  private List<String> getEnumValues(final DataSchemaColumn column) {
+    final String[] parts = column.getDescription().split("'");
+    final List<String> values = new ArrayList<String>();
+    for (int i = 1; i < parts.length; i += 2) {
+      values.add(parts[i]);
+    }
+    return values;
   }
 
   // Generate a no-argument constructor.
@@ -173,23 +514,129 @@ public class JavaModelClassGenerator {
 
   // Generate a constructor that takes the TableFormat and a CSVRecord. This
   // constructor parses the CSV record; the TableFormat is required to parse any
-  // dates that appear in the table.
+  // dates that appear in the table. A second constructor takes a
+  // ColumnProjection, and only parses the columns that it includes.
   private void outputCsvConstructor(final PrintStream out) {
-    if (hasDateColumn(table)) {
-      out.println("  public " + className
-          + "(final TableFormat format, final CSVRecord record) throws ParseException {");
-    } else {
-      out.println("  public " + className + "(final TableFormat format, final CSVRecord record) {");
+    final String exception = hasDateColumn(table) ? " throws ParseException" : "";
+    out.println("  public " + className + "(final TableFormat format, final CSVRecord record)"
+        + exception + " {");
+    out.println("    this(format, record, ColumnProjection.ALL);");
+    out.println("  }");
+    out.println();
+    out.println("  public " + className + "(final TableFormat format, final CSVRecord record,");
+    out.println("      final ColumnProjection projection)" + exception + " {");
+    int columnIdx = 0;
+    for (final DataSchemaColumn column : table.getColumns()) {
+      out.println("    if (projection.includes(" + columnIdx + ")) {");
+      outputParseFromString(out, column, "record.get(" + columnIdx + ")", "      ");
+      out.println("    }");
+      columnIdx++;
+    }
+    out.println("  }");
+    out.println();
+  }
+
+  // Generate a constructor that takes the TableFormat and a DelimitedTokenizer
+  // positioned on a record. Numeric, boolean and enum fields are parsed directly
+  // from the tokenizer's buffer; all other fields are handled as in the
+  // CSVRecord constructor. As with the CSVRecord constructors, a projected variant skips
+  // columns that the caller does not need; their fields are never copied out of
+  // the tokenizer's buffer.
+  private void outputTokenizerConstructor(final PrintStream out) {
+    final String exception = hasDateColumn(table) ? " throws ParseException" : "";
+    out.println("  public " + className
+        + "(final TableFormat format, final DelimitedTokenizer fields)" + exception + " {");
+    out.println("    this(format, fields, ColumnProjection.ALL);");
+    out.println("  }");
+    out.println();
+    out.println(
+        "  public " + className + "(final TableFormat format, final DelimitedTokenizer fields,");
+    out.println("      final ColumnProjection projection)" + exception + " {");
+    int columnIdx = 0;
+    for (final DataSchemaColumn column : table.getColumns()) {
+      out.println("    if (projection.includes(" + columnIdx + ")) {");
+      outputReadFromTokenizer(out, column, columnIdx, "      ");
+      out.println("    }");
+      columnIdx++;
     }
+    out.println("  }");
+    out.println();
+  }
+
+  // Generate the ReusableRecord reset method, which overwrites every field from
+  // a DelimitedTokenizer using the same code as the tokenizer constructor.
+  // Fields that the constructor only assigns when the input is non-empty are
+  // cleared first, so that no value survives from the previous record.
+  private void outputResetMethod(final PrintStream out) {
+    final String exception = hasDateColumn(table) ? " throws ParseException" : "";
+    out.println("  @Override");
+    out.println("  public void reset(final TableFormat format, final DelimitedTokenizer fields)"
+        + exception + " {");
     int columnIdx = 0;
     for (final DataSchemaColumn column : table.getColumns()) {
-      outputParseFromString(out, column, "record.get(" + columnIdx + ")");
+      switch (column.getType()) {
+      case Date:
+      case DateTime:
+      case Timestamp:
+      case Enum:
+        out.println("    this." + JavaBindingGenerator.javaVariable(column.getName())
+            + " = null;");
+        break;
+      default:
+        break;
+      }
+      outputReadFromTokenizer(out, column, columnIdx, "    ");
       columnIdx++;
     }
     out.println("  }");
     out.println();
   }
 
+  // Generate the code that reads a single column from a DelimitedTokenizer.
+  private void outputReadFromTokenizer(final PrintStream out, final DataSchemaColumn column,
+      final int columnIdx, final String indent) {
+    final String varName = JavaBindingGenerator.javaVariable(column.getName());
+    switch (column.getType()) {
+    case BigInt:
+      out.println(indent + "this." + varName + " = fields.getLong(" + columnIdx + ");");
+      break;
+    case Integer:
+      out.println(indent + "this." + varName + " = fields.getInteger(" + columnIdx + ");");
+      break;
+    case Boolean:
+      out.println(indent + "this." + varName + " = fields.getBoolean(" + columnIdx + ");");
+      break;
+    case DoublePrecision:
+      out.println(indent + "this." + varName + " = fields.getDouble(" + columnIdx + ");");
+      break;
+    case Guid:
+    case Text:
+    case VarChar:
+      if (isInterned(column)) {
+        out.println(indent + "this." + varName + " = fields.get(" + columnIdx + ", "
+            + dictionaryName(column) + ");");
+      } else {
+        out.println(indent + "this." + varName + " = fields.get(" + columnIdx + ");");
+      }
+      break;
+    case Enum:
+      if (!getEnumValues(column).isEmpty()) {
+        out.println(indent + "if (!fields.isNullOrEmpty(" + columnIdx + ")) {");
+        out.println(indent + "  this." + varName + " = " + JavaBindingGenerator.javaEnum(column)
+            + ".parse(fields.getBuffer(),");
+        out.println(indent + "      fields.getOffset(" + columnIdx + "), fields.getLength("
+            + columnIdx + "));");
+        out.println(indent + "}");
+      } else {
+        outputParseFromString(out, column, "fields.get(" + columnIdx + ")", indent);
+      }
+      break;
+    default:
+      outputParseFromString(out, column, "fields.get(" + columnIdx + ")", indent);
+      break;
+    }
+  }
+
   // Generate a constructor that takes the TableFormat and a Map<Object,
   // String>. This constructor is required to parse JSON objects. It recognizes
   // nested maps, flattening structures according to the column definitions in
@@ -248,6 +695,28 @@ public class JavaModelClassGenerator {
     }
   }
 
+  // Generate a method that overwrites an existing instance from the previous
+  // phase of the table, assigning the same fields as the constructor above.
+  // Columns that the constructor leaves unset are cleared, as are enums, which
+  // are only assigned when the previous value is non-null.
+  private void outputPreviousClassReset(final PrintStream out) {
+    if (previousClassName != null && !table.getNewlyGenerated()) {
+      final String previousVar = JavaBindingGenerator.javaVariable(previousClassName);
+      out.println("  public void reset(final " + previousClassName + " " + previousVar + ") {");
+      for (final DataSchemaColumn column : table.getColumns()) {
+        if (column.getNewlyGenerated() || column.getType() == DataSchemaType.Enum) {
+          out.println("    this." + JavaBindingGenerator.javaVariable(column.getName())
+              + " = null;");
+        }
+        if (!column.getNewlyGenerated()) {
+          assignField(out, column, previousVar);
+        }
+      }
+      out.println("  }");
+      out.println();
+    }
+  }
+
   // If the table was declared as "like" another, include a constructor for that
   // table's model class.
   private void outputLikeClassConstructor(final PrintStream out) {
@@ -344,6 +813,31 @@ public class JavaModelClassGenerator {
     out.println("  }");
   }
 
+  // Generate an implementation of the writeDelimited method. This method writes
+  // each field in the same order and format as getFieldsAsList, but appends it
+  // directly to the output rather than building a list.
+  private void outputWriteDelimitedMethod(final PrintStream out) {
+    out.println();
+    out.println("  @Override");
+    out.println("  public void writeDelimited(final TableFormat formatter, final Appendable out)"
+        + " throws IOException {");
+    out.println("    final DelimitedEncoder encoder = formatter.getDelimitedEncoder();");
+    boolean first = true;
+    for (final DataSchemaColumn column : table.getColumns()) {
+      final String variableName = JavaBindingGenerator.javaVariable(column.getName());
+      final String value;
+      if (isTimestamp(column) || isDate(column)) {
+        value = "formatter.formatTimestamp(" + variableName + ")";
+      } else {
+        value = variableName;
+      }
+      out.println("    encoder.write(out, " + value + ", " + first + ");");
+      first = false;
+    }
+    out.println("  }");
+    out.println();
+  }
+
   // Generate an implementation of the getFieldsAsMap method. This method
   // returns a HashMap containing each field name and its value. Any nested
   // object (those described in the schema as outer.inner) will be represented
@@ -379,6 +873,115 @@ public class JavaModelClassGenerator {
     out.println("  }");
   }
 
+  // Generate the write and readFields methods of the Writable interface, used
+  // when records are shuffled between Hadoop mappers and reducers. The record
+  // is written as a bitmap of the fields that are not null, followed by the
+  // value of each of those fields. Integers are written as variable-length
+  // values and enums as their ordinal, which is safe because the same binding
+  // class reads and writes the records within a job.
+  private void outputWritableMethods(final PrintStream out) {
+    final List<DataSchemaColumn> columns = table.getColumns();
+    final int bitmapBytes = (columns.size() + 7) / 8;
+    out.println();
+    out.println("  @Override");
+    out.println("  public void write(final DataOutput out) throws IOException {");
+    for (int b = 0; b < bitmapBytes; b++) {
+      out.print("    out.writeByte(");
+      for (int i = b * 8; i < Math.min(columns.size(), b * 8 + 8); i++) {
+        final String variableName = JavaBindingGenerator.javaVariable(columns.get(i).getName());
+        if (i > b * 8) {
+          out.println();
+          out.print("        | ");
+        }
+        out.print("(" + variableName + " == null ? 0 : " + (1 << (i % 8)) + ")");
+      }
+      out.println(");");
+    }
+    for (final DataSchemaColumn column : columns) {
+      final String variableName = JavaBindingGenerator.javaVariable(column.getName());
+      out.println("    if (" + variableName + " != null) {");
+      out.println("      " + getWriteStatement(column, variableName));
+      out.println("    }");
+    }
+    out.println("  }");
+    out.println();
+    out.println("  @Override");
+    out.println("  public void readFields(final DataInput in) throws IOException {");
+    for (int b = 0; b < bitmapBytes; b++) {
+      out.println("    final int $present" + b + " = in.readUnsignedByte();");
+    }
+    for (int i = 0; i < columns.size(); i++) {
+      final DataSchemaColumn column = columns.get(i);
+      final String variableName = JavaBindingGenerator.javaVariable(column.getName());
+      out.println("    this." + variableName + " = ($present" + (i / 8) + " & " + (1 << (i % 8))
+          + ") == 0 ? null : " + getReadExpression(column) + ";");
+    }
+    out.println("  }");
+  }
+
+  private String getWriteStatement(final DataSchemaColumn column, final String variableName) {
+    switch (column.getType()) {
+    case BigInt:
+      return "WritableUtils.writeVLong(out, " + variableName + ");";
+    case Integer:
+      return "WritableUtils.writeVInt(out, " + variableName + ");";
+    case Boolean:
+      return "out.writeBoolean(" + variableName + ");";
+    case DoublePrecision:
+      return "out.writeDouble(" + variableName + ");";
+    case Date:
+      return "WritableUtils.writeVLong(out, " + variableName + ".getTime());";
+    case DateTime:
+    case Timestamp:
+      return "WritableFields.writeTimestamp(out, " + variableName + ");";
+    case Enum:
+      return "WritableUtils.writeVInt(out, " + variableName + ".ordinal());";
+    case Guid:
+    case Text:
+    case VarChar:
+      return "Text.writeString(out, " + variableName + ");";
+    default:
+      throw new RuntimeException("Unknown data type: " + column.getType());
+    }
+  }
+
+  private String getReadExpression(final DataSchemaColumn column) {
+    switch (column.getType()) {
+    case BigInt:
+      return "WritableUtils.readVLong(in)";
+    case Integer:
+      return "WritableUtils.readVInt(in)";
+    case Boolean:
+      return "in.readBoolean()";
+    case DoublePrecision:
+      return "in.readDouble()";
+    case Date:
+      return "new Date(WritableUtils.readVLong(in))";
+    case DateTime:
+    case Timestamp:
+      return "WritableFields.readTimestamp(in)";
+    case Enum:
+      return JavaBindingGenerator.javaEnum(column) + ".values()[WritableUtils.readVInt(in)]";
+    case Guid:
+    case Text:
+    case VarChar:
+      return "Text.readString(in)";
+    default:
+      throw new RuntimeException("Unknown data type: " + column.getType());
+    }
+  }
+
+  private boolean hasColumnOfType(final DataSchemaType... types) {
+    for (final DataSchemaColumn column : table.getColumns()) {
+      for (final DataSchemaType type : types) {
+        if (column.getType() == type) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   private List<String> getNestedMaps() {
     final Set<String> maps = new HashSet<String>();
     for (final DataSchemaColumn column : table.getColumns()) {
@@ -414,6 +1017,35 @@ public class JavaModelClassGenerator {
     return c.getType() == DataSchemaType.Date;
   }
 
+  // Low cardinality string columns are decoded through a StringDictionary.
+  // ExtensionSchema only accepts the hint on string columns, but check the type
+  // here too since other schema sources can set it.
+  private boolean isInterned(final DataSchemaColumn c) {
+    switch (c.getType()) {
+    case Guid:
+    case Text:
+    case VarChar:
+      return c.getLowCardinality();
+    default:
+      return false;
+    }
+  }
+
+  private boolean hasLowCardinalityColumn() {
+    for (final DataSchemaColumn c : table.getColumns()) {
+      if (isInterned(c)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // Name of the static StringDictionary field for a column, such as
+  // UA_OS_NAME_DICTIONARY for the column ua.os_name.
+  private String dictionaryName(final DataSchemaColumn c) {
+    return c.getName().toUpperCase().replaceAll("[^A-Z0-9]", "_") + "_DICTIONARY";
+  }
+
   // Checks the whole table for any column that is of type Date
   private boolean hasDateColumn(final DataSchemaTable table) {
     for (final DataSchemaColumn c : table.getColumns()) {
@@ -462,13 +1094,11 @@ public class JavaModelClassGenerator {
       final String tmpName = "$" + variableName;
       out.println("      String " + tmpName + " = (String) " + getMethod + ";");
       out.println("      if (" + tmpName + " != null && " + tmpName + ".length() > 0) {");
-      out.println("        this." + variableName
-          + " = new Timestamp(format.getTimstampFormat().parse(format.cleanTimestampString("
-          + tmpName + ")).getTime());");
+      out.println("        this." + variableName + " = format.parseTimestamp(" + tmpName + ");");
       out.println("      }");
       break;
     case Enum:
-      outputParseFromString(out, column, "(String) " + getMethod);
+      outputParseFromString(out, column, "(String) " + getMethod, "    ");
       break;
     case DoublePrecision:
       out.println("      if (map.get(\"" + variableName + "\") instanceof Double) {");
@@ -480,7 +1110,12 @@ public class JavaModelClassGenerator {
     case Guid:
     case Text:
     case VarChar:
-      out.println("      this." + variableName + " = String.valueOf(" + getMethod + ");");
+      if (isInterned(column)) {
+        out.println("      this." + variableName + " = " + dictionaryName(column)
+            + ".intern(String.valueOf(" + getMethod + "));");
+      } else {
+        out.println("      this." + variableName + " = String.valueOf(" + getMethod + ");");
+      }
       break;
     case Integer:
       out.println("      this." + variableName + " = (Integer) " + getMethod + ";");
@@ -494,7 +1129,7 @@ public class JavaModelClassGenerator {
   // valueOf method in the case of boxed primitive types, or use the TableFormat
   // class to parse dates and timestamps.
   private void outputParseFromString(final PrintStream out, final DataSchemaColumn column,
-      final String getRecord) {
+      final String getRecord, final String indent) {
     final String varName = JavaBindingGenerator.javaVariable(column.getName());
     String parseMethod = null;
     final String extraParams = "";
@@ -511,7 +1146,7 @@ public class JavaModelClassGenerator {
       parseMethod = "Timestamp.valueOf";
       break;
     case Date:
-      parseMethod = "format.getDateFormat().parse";
+      parseMethod = "format.parseDate";
       break;
     case DoublePrecision:
       parseMethod = "Double.valueOf";
@@ -527,18 +1162,21 @@ public class JavaModelClassGenerator {
     case VarChar:
       break;
     }
-    if (parseMethod == null) {
-      out.println("    this." + varName + " = " + getRecord + ";");
+    if (parseMethod == null && isInterned(column)) {
+      out.println(indent + "this." + varName + " = " + dictionaryName(column) + ".intern("
+          + getRecord + ");");
+    } else if (parseMethod == null) {
+      out.println(indent + "this." + varName + " = " + getRecord + ";");
     } else {
       final String tmpName = "$" + varName;
-      out.println("    String " + tmpName + " = " + getRecord + ";");
-      out.println("    if (" + tmpName + " != null && " + tmpName + ".length() > 0) {");
-      out.println(
-          "        this." + varName + " = " + parseMethod + "(" + tmpName + extraParams + ");");
+      out.println(indent + "String " + tmpName + " = " + getRecord + ";");
+      out.println(indent + "if (" + tmpName + " != null && " + tmpName + ".length() > 0) {");
+      out.println(indent + "    this." + varName + " = " + parseMethod + "(" + tmpName
+          + extraParams + ");");
       //      if (extraCheck != null) {
       //        out.println("        " + extraCheck);
       //      }
-      out.println("    }");
+      out.println(indent + "}");
     }
   }
 }
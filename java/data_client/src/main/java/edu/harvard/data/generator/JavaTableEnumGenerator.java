@@ -7,6 +7,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import edu.harvard.data.DataTable;
+import edu.harvard.data.io.RecordDecoder;
 
 public class JavaTableEnumGenerator {
 
@@ -33,22 +34,30 @@ public class JavaTableEnumGenerator {
     out.println("package " + tableVersion.getJavaBindingPackage() + ";");
     out.println();
     out.println("import " + DataTable.class.getCanonicalName() + ";");
+    out.println("import " + RecordDecoder.class.getCanonicalName() + ";");
     out.println();
     out.println("public enum " + classPrefix + baseEnumName + " {");
     for (int i = 0; i < tableNames.size(); i++) {
       final String name = tableNames.get(i);
       final String className = JavaBindingGenerator.javaClass(name, classPrefix);
-      out.print("  " + className + "(\"" + name + "\", " + className + ".class)");
+      // The enum constants share their names with the model classes, so the
+      // decoder field has to be referenced through the fully-qualified name.
+      final String qualifiedName = tableVersion.getJavaBindingPackage() + "." + className;
+      out.print("  " + className + "(\"" + name + "\", " + className + ".class, "
+          + qualifiedName + ".DECODER)");
       out.println(i == (tableNames.size() - 1) ? ";" : ",");
     }
     out.println();
     out.println("  private final String sourceName;");
     out.println("  private final Class<? extends DataTable> tableClass;");
+    out.println("  private final RecordDecoder<? extends DataTable> recordDecoder;");
     out.println();
     out.println("  private " + classPrefix + baseEnumName +
-        "(final String sourceName, Class<? extends DataTable> tableClass) {");
+        "(final String sourceName, Class<? extends DataTable> tableClass,");
+    out.println("      final RecordDecoder<? extends DataTable> recordDecoder) {");
     out.println("    this.sourceName = sourceName;");
     out.println("    this.tableClass = tableClass;");
+    out.println("    this.recordDecoder = recordDecoder;");
     out.println("  }");
     out.println();
     out.println("  public String getSourceName() {");
@@ -59,6 +68,10 @@ public class JavaTableEnumGenerator {
     out.println("    return tableClass;");
     out.println("  }");
     out.println();
+    out.println("  public RecordDecoder<? extends DataTable> getRecordDecoder() {");
+    out.println("    return recordDecoder;");
+    out.println("  }");
+    out.println();
     out.println(
         "  public static " + classPrefix + baseEnumName + " fromSourceName(String sourceName) {");
     out.println("    switch(sourceName) {");
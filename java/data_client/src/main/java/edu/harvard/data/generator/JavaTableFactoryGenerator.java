@@ -15,7 +15,9 @@ import edu.harvard.data.DataTable;
 import edu.harvard.data.TableFactory;
 import edu.harvard.data.TableFormat;
 import edu.harvard.data.io.FileTableReader;
-import edu.harvard.data.io.S3TableReader;
+import edu.harvard.data.io.RecordDecoder;
+import edu.harvard.data.io.S3Prefetcher;
+import edu.harvard.data.io.StreamingS3TableReader;
 import edu.harvard.data.io.TableReader;
 import edu.harvard.data.io.TableWriter;
 
@@ -50,21 +52,26 @@ public class JavaTableFactoryGenerator {
     out.println();
     outputFileTableReaderFactory(out);
     outputS3TableReaderFactory(out);
+    outputCombinedS3TableReaderFactory(out);
     outputTableWriterFactory(out);
+    outputRecordDecoderFactory(out);
     out.println("}");
   }
 
   private void outputImportStatements(final PrintStream out) {
     out.println("import " + File.class.getName() + ";");
     out.println("import " + IOException.class.getName() + ";");
+    out.println("import " + List.class.getName() + ";");
     out.println();
     out.println("import " + S3ObjectId.class.getName() + ";");
     out.println();
     out.println("import " + AwsUtils.class.getName() + ";");
     out.println("import " + DataTable.class.getName() + ";");
     out.println("import " + FileTableReader.class.getName() + ";");
+    out.println("import " + RecordDecoder.class.getName() + ";");
     out.println("import " + TableWriter.class.getName() + ";");
-    out.println("import " + S3TableReader.class.getName() + ";");
+    out.println("import " + S3Prefetcher.class.getName() + ";");
+    out.println("import " + StreamingS3TableReader.class.getName() + ";");
     out.println("import " + TableFactory.class.getName() + ";");
     out.println("import " + TableFormat.class.getName() + ";");
     out.println("import " + TableReader.class.getName() + ";");
@@ -84,7 +91,7 @@ public class JavaTableFactoryGenerator {
       final String className = JavaBindingGenerator.javaClass(name, classPrefix);
       out.println("    case \"" + name + "\":");
       out.println("      return new FileTableReader<" + className + ">(" + className
-          + ".class, format, file);");
+          + ".class, " + className + ".DECODER, format, file);");
     }
     out.println("    }");
     out.println("    return null;");
@@ -93,7 +100,8 @@ public class JavaTableFactoryGenerator {
   }
 
   // Generate a method to create a TableReader for a specific table getting data
-  // from S3. The generated method will return an instance of S3TableReader.
+  // from S3. The generated method will return an instance of
+  // StreamingS3TableReader, or of S3TableReader for columnar formats.
   private void outputS3TableReaderFactory(final PrintStream out) {
     final String params = "final String table, final TableFormat format, final AwsUtils aws, final S3ObjectId obj, final File tempDir";
     out.println("  @Override");
@@ -103,8 +111,30 @@ public class JavaTableFactoryGenerator {
     for (final String name : tableNames) {
       final String className = JavaBindingGenerator.javaClass(name, classPrefix);
       out.println("    case \"" + name + "\":");
-      out.println("      return new S3TableReader<" + className + ">(aws, " + className
-          + ".class, format, obj, tempDir);");
+      out.println("      return StreamingS3TableReader.open(aws, " + className + ".class, "
+          + className + ".DECODER, format, obj, tempDir);");
+    }
+    out.println("    }");
+    out.println("    return null;");
+    out.println("  }");
+    out.println();
+  }
+
+  // Generate a method to create a TableReader for a specific table made up of
+  // several files in S3. The generated method will return a
+  // CombinedTableReader that prefetches the start of each file while the
+  // previous one is being read.
+  private void outputCombinedS3TableReaderFactory(final PrintStream out) {
+    final String params = "final String table, final TableFormat format, final AwsUtils aws, final List<S3ObjectId> objs, final S3Prefetcher prefetcher, final File tempDir";
+    out.println("  @Override");
+    out.println("  public TableReader<? extends DataTable> getTableReader(" + params
+        + ") throws IOException {");
+    out.println("    switch(table) {");
+    for (final String name : tableNames) {
+      final String className = JavaBindingGenerator.javaClass(name, classPrefix);
+      out.println("    case \"" + name + "\":");
+      out.println("      return StreamingS3TableReader.combine(aws, " + className + ".class, "
+          + className + ".DECODER, format, objs, prefetcher, tempDir);");
     }
     out.println("    }");
     out.println("    return null;");
@@ -130,6 +160,24 @@ public class JavaTableFactoryGenerator {
     out.println("    }");
     out.println("    return null;");
     out.println("  }");
+    out.println();
+  }
+
+  // Generate a method to return the RecordDecoder for a specific table. Each
+  // model class exposes its decoder through a static DECODER field.
+  private void outputRecordDecoderFactory(final PrintStream out) {
+    out.println("  @Override");
+    out.println(
+        "  public RecordDecoder<? extends DataTable> getRecordDecoder(final String table) {");
+    out.println("    switch(table) {");
+    for (final String name : tableNames) {
+      final String className = JavaBindingGenerator.javaClass(name, classPrefix);
+      out.println("    case \"" + name + "\":");
+      out.println("      return " + className + ".DECODER;");
+    }
+    out.println("    }");
+    out.println("    return null;");
+    out.println("  }");
   }
 
 }
@@ -2,6 +2,7 @@ package edu.harvard.data.generator;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import edu.harvard.data.VerificationException;
@@ -37,8 +38,9 @@ public class SchemaTransformer {
    *         from a deep copy of the base and extension schemas, so
    *         modifications will not affect the originals.
    * @throws VerificationException
-   *           if the extension schema contains duplicate fields, or is
-   *           specified to be 'like' a non-existent table.
+   *           if the extension schema contains duplicate fields, is
+   *           specified to be 'like' a non-existent table, or marks a missing
+   *           or non-string column as low cardinality.
    */
   public DataSchema transform(final DataSchema base, final ExtensionSchema extension,
       final boolean override) throws VerificationException {
@@ -93,6 +95,7 @@ public class SchemaTransformer {
         if (!schema.getTables().containsKey(tableName)) {
           // The new table doesn't exist yet - copy it into the schema.
           schema.addTable(tableName, newTable);
+          markLowCardinality(newTable, newTable.getLowCardinalityColumns());
         } else {
           // The new table already exists in the schema. Copy its columns.
           final DataSchemaTable originalTable = schema.getTables().get(tableName);
@@ -112,6 +115,7 @@ public class SchemaTransformer {
               originalTable.addColumn(column);
             }
           }
+          markLowCardinality(originalTable, newTable.getLowCardinalityColumns());
           // If the table is set as owned in the extension schema, we need to
           // reflect that in the new schema.
           originalTable.setOwner(newTable.getOwner());
@@ -124,6 +128,31 @@ public class SchemaTransformer {
     }
   }
 
+  /**
+   * Flag existing columns as low cardinality, leaving the rest of their
+   * definitions unchanged.
+   */
+  private void markLowCardinality(final DataSchemaTable table, final List<String> columnNames)
+      throws VerificationException {
+    for (final String columnName : columnNames) {
+      final DataSchemaColumn column = table.getColumn(columnName);
+      if (column == null) {
+        throw new VerificationException("Table " + table.getTableName()
+            + " marks unknown column " + columnName + " as low_cardinality");
+      }
+      switch (column.getType()) {
+      case Guid:
+      case Text:
+      case VarChar:
+        column.setLowCardinality(true);
+        break;
+      default:
+        throw new VerificationException("Column " + columnName + " of table "
+            + table.getTableName() + " is marked low_cardinality but is not a string type");
+      }
+    }
+  }
+
   /**
    * If one table is set to be 'like' another, we copy all the columns from the
    * 'like table' in to the new table.
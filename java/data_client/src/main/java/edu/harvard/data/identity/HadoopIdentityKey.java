@@ -3,21 +3,30 @@ package edu.harvard.data.identity;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 import org.apache.hadoop.io.WritableComparable;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 /**
- * Wrapper class to allow Hadoop to serialize an {@link IdentityMap}. This class
- * simply converts the {@code IdentityMap} instance to a JSON representation
- * which can then be written to HDFS.
+ * Wrapper class to allow Hadoop to serialize an {@link IdentityMap}.
+ * <P>
+ * The identity is written in a compact binary form: a bitmap of the
+ * identifiers that are present, followed by each present identifier in the
+ * order that they are declared in {@link IdentifierType}. Long identifiers are
+ * written as eight bytes, and String identifiers as a length followed by that
+ * many bytes of UTF-8. The same layout is used for the records in an
+ * {@link IdentityIndex}.
+ * <P>
+ * Calls to {@link #readFields} reuse the existing {@code IdentityMap} rather
+ * than creating a new one. Clients that hold on to the map returned by
+ * {@link #getIdentityMap} across calls must copy it.
  */
 public class HadoopIdentityKey implements WritableComparable<HadoopIdentityKey> {
 
-  private static final ObjectMapper jsonMapper = new ObjectMapper();
+  private static final IdentifierType[] TYPES = IdentifierType.values();
 
   private IdentityMap id;
+  private byte[] buffer = new byte[64];
 
   public HadoopIdentityKey() {
   }
@@ -36,14 +45,32 @@ public class HadoopIdentityKey implements WritableComparable<HadoopIdentityKey>
 
   @Override
   public void write(final DataOutput out) throws IOException {
-    final String json = jsonMapper.writeValueAsString(id);
-    out.writeUTF(json);
+    writeIdentity(id, out);
   }
 
   @Override
   public void readFields(final DataInput in) throws IOException {
-    final String json = in.readUTF();
-    this.id = jsonMapper.readValue(json, IdentityMap.class);
+    if (id == null) {
+      id = new IdentityMap();
+    } else {
+      id.clear();
+    }
+    final int present = in.readInt();
+    for (final IdentifierType type : TYPES) {
+      if ((present & (1 << type.ordinal())) == 0) {
+        continue;
+      }
+      if (type.getType() == Long.class) {
+        id.set(type, in.readLong());
+      } else {
+        final int length = in.readInt();
+        if (buffer.length < length) {
+          buffer = new byte[length];
+        }
+        in.readFully(buffer, 0, length);
+        id.set(type, new String(buffer, 0, length, StandardCharsets.UTF_8));
+      }
+    }
   }
 
   @Override
@@ -51,4 +78,42 @@ public class HadoopIdentityKey implements WritableComparable<HadoopIdentityKey>
     return id.compareTo(o.id);
   }
 
+  /**
+   * Write an identity using the binary layout described above.
+   *
+   * @param id
+   *          the identity to write. Identifiers that are neither Long nor
+   *          String typed are not written.
+   * @param out
+   *          the output to which the identity should be written.
+   *
+   * @throws IOException
+   *           if an error occurs when writing to the output.
+   */
+  static void writeIdentity(final IdentityMap id, final DataOutput out) throws IOException {
+    int present = 0;
+    for (final IdentifierType type : TYPES) {
+      if (isEncoded(type) && id.get(type) != null) {
+        present |= 1 << type.ordinal();
+      }
+    }
+    out.writeInt(present);
+    for (final IdentifierType type : TYPES) {
+      if ((present & (1 << type.ordinal())) == 0) {
+        continue;
+      }
+      if (type.getType() == Long.class) {
+        out.writeLong((Long) id.get(type));
+      } else {
+        final byte[] bytes = id.get(type).toString().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+    }
+  }
+
+  static boolean isEncoded(final IdentifierType type) {
+    return type.getType() == Long.class || type.getType() == String.class;
+  }
+
 }
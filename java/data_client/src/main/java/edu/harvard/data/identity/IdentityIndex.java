@@ -0,0 +1,506 @@
+package edu.harvard.data.identity;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocalFileSystem;
+import org.apache.hadoop.fs.Path;
+
+import edu.harvard.data.HadoopUtilities;
+import edu.harvard.data.TableFormat;
+import edu.harvard.data.io.TableReader;
+
+/**
+ * Read-only index over a complete identity map, keyed by the data set's main
+ * identifier and memory-mapped from a file rather than loaded onto the heap.
+ * <P>
+ * The identity reducers, the identity scrubbers and the verification mappers
+ * all look up identities by main identifier. Rather than having every task
+ * parse the whole identity map into a {@code HashMap}, the map is written once
+ * per run to an index file by {@link #build}, distributed through the Hadoop
+ * cache and mapped into memory by each task with {@link #load}. Only the
+ * identities that are looked up are decoded, and the operating system shares
+ * the mapped pages between tasks on the same node.
+ * <P>
+ * The file holds the encoded identities, followed by a table of entries sorted
+ * by key and a short trailer. Each entry is a pair of {@code long} values: the
+ * key and the offset of an identity. {@code Long} identifiers are used as keys
+ * directly, while {@code String} identifiers are hashed to a 64-bit key; hash
+ * collisions are resolved by comparing the identifier stored in the identity
+ * itself. If the identity map holds more than one identity for a main
+ * identifier, the last one wins, as it would in a {@code HashMap}.
+ * <P>
+ * The class implements {@link Map} so that it can stand in for the
+ * {@code HashMap} that tasks used to build, but the map is read-only and each
+ * call to {@link #get} returns a newly decoded {@link IdentityMap}. Iterating
+ * over the map decodes every identity, so should be avoided for large maps.
+ * <P>
+ * This class is not thread-safe. Any access synchronization must be performed
+ * by the caller.
+ *
+ * @param <T>
+ *          the Java type of the main identifier.
+ */
+public class IdentityIndex<T> extends AbstractMap<T, IdentityMap> implements Closeable {
+
+  /**
+   * File name extension for identity index files. Cache files with this
+   * extension are opened as indexes by {@link #load}.
+   */
+  public static final String EXTENSION = ".idx";
+
+  private static final int MAGIC = 0x49444958;
+  private static final int VERSION = 1;
+  private static final int ENTRY_SIZE = 16;
+  // Entry table offset, entry count, main identifier, version and magic number.
+  private static final int TRAILER_SIZE = 8 + 4 + 4 + 4 + 4;
+
+  // Files are mapped in segments of this size, since a single mapping is
+  // limited to 2GB. Each segment overlaps the next by MAX_RECORD_SIZE bytes so
+  // that no identity or entry straddles two mappings.
+  private static final long SEGMENT_SIZE = 1L << 30;
+  static final int MAX_RECORD_SIZE = 1 << 20;
+
+  private final IdentifierType mainIdentifier;
+  private final long segmentSize;
+  private final long entriesOffset;
+  private ByteBuffer[] segments;
+  private int count;
+  private byte[] scratch;
+
+  /**
+   * Write an identity map as an index file.
+   *
+   * @param identities
+   *          the identities to index. Identities without a value for the main
+   *          identifier are skipped.
+   * @param mainIdentifier
+   *          the identifier on which the index is keyed. Its type must be
+   *          {@code Long} or {@code String}.
+   * @param outStream
+   *          the stream to which the index is written. The stream is flushed
+   *          but not closed.
+   *
+   * @throws IOException
+   *           if an error occurs when writing to the stream, or if an identity
+   *           is too large to index.
+   */
+  public static void write(final Iterable<IdentityMap> identities,
+      final IdentifierType mainIdentifier, final OutputStream outStream) throws IOException {
+    checkKeyType(mainIdentifier);
+    final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outStream));
+    final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    final DataOutputStream recordOut = new DataOutputStream(record);
+    long[] entries = new long[1024];
+    int entryCount = 0;
+    long offset = 0;
+    for (final IdentityMap id : identities) {
+      final Object key = id.get(mainIdentifier);
+      if (key == null) {
+        continue;
+      }
+      record.reset();
+      HadoopIdentityKey.writeIdentity(id, recordOut);
+      if (record.size() > MAX_RECORD_SIZE) {
+        throw new IOException("Identity for " + key + " is too large to index");
+      }
+      if (entryCount * 2 == entries.length) {
+        entries = Arrays.copyOf(entries, entries.length * 2);
+      }
+      entries[entryCount * 2] = keyOf(key);
+      entries[entryCount * 2 + 1] = offset;
+      entryCount++;
+      record.writeTo(out);
+      offset += record.size();
+    }
+    sortEntries(entries, entryCount);
+    for (int i = 0; i < entryCount * 2; i++) {
+      out.writeLong(entries[i]);
+    }
+    out.writeLong(offset);
+    out.writeInt(entryCount);
+    out.writeInt(mainIdentifier.ordinal());
+    out.writeInt(VERSION);
+    out.writeInt(MAGIC);
+    out.flush();
+  }
+
+  /**
+   * Build an index file from identity map files stored in a Hadoop file
+   * system. This is done once per run, before the jobs that use the index are
+   * submitted.
+   *
+   * @param conf
+   *          the Hadoop configuration used to access the file system.
+   * @param inputs
+   *          the delimited identity map files to index.
+   * @param format
+   *          the {@link TableFormat} of the identity map files.
+   * @param mainIdentifier
+   *          the identifier on which the index is keyed.
+   * @param output
+   *          the path of the index file to create. Any existing file is
+   *          overwritten.
+   *
+   * @throws IOException
+   *           if an error occurs when reading the identity map or writing the
+   *           index.
+   */
+  public static void build(final Configuration conf, final List<Path> inputs,
+      final TableFormat format, final IdentifierType mainIdentifier, final Path output)
+          throws IOException {
+    final URI[] uris = new URI[inputs.size()];
+    for (int i = 0; i < uris.length; i++) {
+      uris[i] = inputs.get(i).toUri();
+    }
+    final FileSystem fs = output.getFileSystem(conf);
+    try (TableReader<IdentityMap> in = new HadoopUtilities().getHdfsTableReader(conf, uris, format,
+        IdentityMap.class); OutputStream out = fs.create(output, true)) {
+      write(in, mainIdentifier, out);
+    }
+  }
+
+  /**
+   * Get the identities stored in a task's cache files, keyed by main
+   * identifier.
+   * <P>
+   * If one of the cache files is an index (as determined by its
+   * {@link #EXTENSION}), it is opened and returned. Otherwise the cache files
+   * are read as delimited identity map files into a {@code HashMap}, as they
+   * were before indexes were introduced.
+   *
+   * @param conf
+   *          the Hadoop configuration for the task.
+   * @param cacheFiles
+   *          the task's cache files. May be null if there are none.
+   * @param format
+   *          the {@link TableFormat} of any delimited identity map files.
+   * @param mainIdentifier
+   *          the identifier on which the identities are keyed.
+   *
+   * @return a map from main identifier to identity.
+   *
+   * @throws IOException
+   *           if an error occurs when reading the cache files, or if an index
+   *           is keyed on a different identifier.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> Map<T, IdentityMap> load(final Configuration conf, final URI[] cacheFiles,
+      final TableFormat format, final IdentifierType mainIdentifier) throws IOException {
+    final Map<T, IdentityMap> identities = new HashMap<T, IdentityMap>();
+    if (cacheFiles == null) {
+      return identities;
+    }
+    for (final URI uri : cacheFiles) {
+      if (uri.getPath().endsWith(EXTENSION)) {
+        final IdentityIndex<T> index = open(localFile(conf, uri));
+        if (index.mainIdentifier != mainIdentifier) {
+          index.close();
+          throw new IOException("Identity index " + uri + " is keyed on "
+              + index.mainIdentifier + ", not " + mainIdentifier);
+        }
+        return index;
+      }
+    }
+    try (TableReader<IdentityMap> in = new HadoopUtilities().getHdfsTableReader(conf, cacheFiles,
+        format, IdentityMap.class)) {
+      for (final IdentityMap id : in) {
+        identities.put((T) id.get(mainIdentifier), id);
+      }
+    }
+    return identities;
+  }
+
+  /**
+   * Open an index file.
+   *
+   * @param file
+   *          the index file, as written by {@link #write}.
+   *
+   * @return the index, which should be closed once it is no longer needed.
+   *
+   * @throws IOException
+   *           if the file cannot be read or is not an identity index.
+   */
+  public static <T> IdentityIndex<T> open(final File file) throws IOException {
+    return new IdentityIndex<T>(file, SEGMENT_SIZE);
+  }
+
+  IdentityIndex(final File file, final long segmentSize) throws IOException {
+    this.segmentSize = segmentSize;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+        FileChannel channel = raf.getChannel()) {
+      final long size = channel.size();
+      if (size < TRAILER_SIZE) {
+        throw new IOException(file + " is not an identity index");
+      }
+      this.segments = new ByteBuffer[(int) ((size + segmentSize - 1) / segmentSize)];
+      for (int i = 0; i < segments.length; i++) {
+        final long start = i * segmentSize;
+        final long length = Math.min(segmentSize + MAX_RECORD_SIZE, size - start);
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+      }
+      final long trailer = size - TRAILER_SIZE;
+      this.entriesOffset = getLong(trailer);
+      this.count = getInt(trailer + 8);
+      final int identifier = getInt(trailer + 12);
+      if (getInt(trailer + 20) != MAGIC || getInt(trailer + 16) != VERSION
+          || entriesOffset + (long) count * ENTRY_SIZE != trailer || identifier < 0
+          || identifier >= IdentifierType.values().length) {
+        throw new IOException(file + " is not an identity index");
+      }
+      this.mainIdentifier = IdentifierType.values()[identifier];
+    }
+    this.scratch = new byte[256];
+  }
+
+  /**
+   * @return the identifier on which this index is keyed.
+   */
+  public IdentifierType getMainIdentifier() {
+    return mainIdentifier;
+  }
+
+  @Override
+  public IdentityMap get(final Object key) {
+    if (key == null || !mainIdentifier.getType().isInstance(key)) {
+      return null;
+    }
+    final long hash = keyOf(key);
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (entryKey(mid) < hash) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    // Entries with the same key are ordered by offset, so the last match is
+    // the last identity that was written for the identifier.
+    IdentityMap found = null;
+    for (int i = low; i < count && entryKey(i) == hash; i++) {
+      final IdentityMap id = decode(entryOffset(i));
+      if (key.equals(id.get(mainIdentifier))) {
+        found = id;
+      }
+    }
+    return found;
+  }
+
+  @Override
+  public boolean containsKey(final Object key) {
+    return get(key) != null;
+  }
+
+  /**
+   * @return the number of identities in the index. If the identity map held
+   *         more than one identity for a main identifier, each is counted.
+   */
+  @Override
+  public int size() {
+    return count;
+  }
+
+  @Override
+  public Set<Map.Entry<T, IdentityMap>> entrySet() {
+    return new AbstractSet<Map.Entry<T, IdentityMap>>() {
+      @Override
+      public Iterator<Map.Entry<T, IdentityMap>> iterator() {
+        return new Iterator<Map.Entry<T, IdentityMap>>() {
+          private int next = 0;
+
+          @Override
+          public boolean hasNext() {
+            return next < count;
+          }
+
+          @Override
+          @SuppressWarnings("unchecked")
+          public Map.Entry<T, IdentityMap> next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            final IdentityMap id = decode(entryOffset(next++));
+            return new AbstractMap.SimpleImmutableEntry<T, IdentityMap>(
+                (T) id.get(mainIdentifier), id);
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return count;
+      }
+    };
+  }
+
+  /**
+   * Release the index's mappings. The index is empty once closed; the memory
+   * is returned to the operating system once the mappings are
+   * garbage-collected.
+   */
+  @Override
+  public void close() {
+    segments = new ByteBuffer[0];
+    count = 0;
+  }
+
+  private long entryKey(final int i) {
+    return getLong(entriesOffset + (long) i * ENTRY_SIZE);
+  }
+
+  private long entryOffset(final int i) {
+    return getLong(entriesOffset + (long) i * ENTRY_SIZE + 8);
+  }
+
+  private long getLong(final long position) {
+    return segments[(int) (position / segmentSize)].getLong((int) (position % segmentSize));
+  }
+
+  private int getInt(final long position) {
+    return segments[(int) (position / segmentSize)].getInt((int) (position % segmentSize));
+  }
+
+  // Decode the identity stored at an offset in the file, written in the layout
+  // described in HadoopIdentityKey.
+  private IdentityMap decode(final long offset) {
+    final ByteBuffer segment = segments[(int) (offset / segmentSize)];
+    int position = (int) (offset % segmentSize);
+    final IdentityMap id = new IdentityMap();
+    final int present = segment.getInt(position);
+    position += 4;
+    for (final IdentifierType type : IdentifierType.values()) {
+      if ((present & (1 << type.ordinal())) == 0) {
+        continue;
+      }
+      if (type.getType() == Long.class) {
+        id.set(type, segment.getLong(position));
+        position += 8;
+      } else {
+        final int length = segment.getInt(position);
+        position += 4;
+        if (scratch.length < length) {
+          scratch = new byte[length];
+        }
+        for (int i = 0; i < length; i++) {
+          scratch[i] = segment.get(position + i);
+        }
+        position += length;
+        id.set(type, new String(scratch, 0, length, StandardCharsets.UTF_8));
+      }
+    }
+    return id;
+  }
+
+  private static void checkKeyType(final IdentifierType mainIdentifier) {
+    if (!HadoopIdentityKey.isEncoded(mainIdentifier)) {
+      throw new IllegalArgumentException("Can't index identities by " + mainIdentifier);
+    }
+  }
+
+  private static long keyOf(final Object key) {
+    if (key instanceof Long) {
+      return (Long) key;
+    }
+    // 64-bit FNV-1a hash of the identifier's characters.
+    final String str = key.toString();
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < str.length(); i++) {
+      hash ^= str.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  // Heapsort the (key, offset) pairs in place, ordering by key and then by
+  // offset. This avoids boxing every entry to sort it as an object.
+  private static void sortEntries(final long[] entries, final int entryCount) {
+    for (int i = entryCount / 2 - 1; i >= 0; i--) {
+      siftDown(entries, i, entryCount);
+    }
+    for (int end = entryCount - 1; end > 0; end--) {
+      swap(entries, 0, end);
+      siftDown(entries, 0, end);
+    }
+  }
+
+  private static void siftDown(final long[] entries, final int start, final int end) {
+    int parent = start;
+    while (true) {
+      int child = parent * 2 + 1;
+      if (child >= end) {
+        return;
+      }
+      if (child + 1 < end && less(entries, child, child + 1)) {
+        child++;
+      }
+      if (!less(entries, parent, child)) {
+        return;
+      }
+      swap(entries, parent, child);
+      parent = child;
+    }
+  }
+
+  private static boolean less(final long[] entries, final int a, final int b) {
+    final long keyA = entries[a * 2];
+    final long keyB = entries[b * 2];
+    return keyA < keyB || (keyA == keyB && entries[a * 2 + 1] < entries[b * 2 + 1]);
+  }
+
+  private static void swap(final long[] entries, final int a, final int b) {
+    final long key = entries[a * 2];
+    final long offset = entries[a * 2 + 1];
+    entries[a * 2] = entries[b * 2];
+    entries[a * 2 + 1] = entries[b * 2 + 1];
+    entries[b * 2] = key;
+    entries[b * 2 + 1] = offset;
+  }
+
+  // Cache files are localized into the task's working directory under their
+  // own names. Outside a task, use the file directly if it is local, or copy
+  // it from its file system.
+  private static File localFile(final Configuration conf, final URI uri) throws IOException {
+    final Path path = new Path(uri);
+    final File linked = new File(path.getName());
+    if (linked.isFile()) {
+      return linked;
+    }
+    final FileSystem fs = path.getFileSystem(conf);
+    if (fs instanceof LocalFileSystem) {
+      return ((LocalFileSystem) fs).pathToFile(path);
+    }
+    final File copy = File.createTempFile("identity", EXTENSION);
+    copy.deleteOnExit();
+    fs.copyToLocalFile(false, path, new Path(copy.toURI()), true);
+    return copy;
+  }
+}
@@ -1,5 +1,6 @@
 package edu.harvard.data.identity;
 
+import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -10,7 +11,9 @@ import java.util.Map;
 import org.apache.commons.csv.CSVRecord;
 
 import edu.harvard.data.DataTable;
+import edu.harvard.data.DelimitedEncoder;
 import edu.harvard.data.TableFormat;
+import edu.harvard.data.io.RecordDecoder;
 import edu.harvard.data.schema.DataSchemaColumn;
 import edu.harvard.data.schema.DataSchemaTable;
 import edu.harvard.data.schema.extension.ExtensionSchemaColumn;
@@ -70,6 +73,17 @@ import edu.harvard.data.schema.extension.ExtensionSchemaTable;
  */
 public class IdentityMap implements DataTable, Comparable<IdentityMap> {
 
+  /**
+   * {@link RecordDecoder} used by the readers in {@link edu.harvard.data.io}
+   * to create identity maps without reflection.
+   */
+  public static final RecordDecoder<IdentityMap> DECODER = new RecordDecoder<IdentityMap>() {
+    @Override
+    public IdentityMap decode(final TableFormat format, final CSVRecord record) {
+      return new IdentityMap(format, record);
+    }
+  };
+
   private final Map<IdentifierType, Object> identities;
 
   /**
@@ -266,6 +280,19 @@ public class IdentityMap implements DataTable, Comparable<IdentityMap> {
     return fields;
   }
 
+  @Override
+  public void writeDelimited(final TableFormat formatter, final Appendable out)
+      throws IOException {
+    final DelimitedEncoder encoder = formatter.getDelimitedEncoder();
+    encoder.write(out, identities.get(IdentifierType.ResearchUUID), true);
+    encoder.write(out, identities.get(IdentifierType.HUID), false);
+    encoder.write(out, identities.get(IdentifierType.XID), false);
+    encoder.write(out, identities.get(IdentifierType.CanvasID), false);
+    encoder.write(out, identities.get(IdentifierType.CanvasDataID), false);
+    encoder.write(out, identities.get(IdentifierType.EPPN), false);
+    encoder.write(out, identities.get(IdentifierType.ActiveDirectoryID), false);
+  }
+
   @Override
   public List<String> getFieldNames() {
     final List<String> fields = new ArrayList<String>();
@@ -347,4 +374,12 @@ public class IdentityMap implements DataTable, Comparable<IdentityMap> {
     identities.put(idType, value);
   }
 
+  /**
+   * Remove every identifier from this map, so that the instance can be reused
+   * for another individual.
+   */
+  public void clear() {
+    identities.clear();
+  }
+
 }
@@ -137,13 +137,19 @@ public class IdentityMapHadoopJob {
     FileOutputFormat.setOutputPath(job, new Path(config.getPhase1IdMapPath()));
   }
 
+  // Index the existing identity map once, so that each reducer maps the index
+  // rather than reading the whole identity map onto its heap.
   private void addInitialIdentityMapPaths(final DataConfig config2, final Job job)
       throws IllegalArgumentException, IOException {
-    for (final Path path : hadoopUtils.listHdfsFiles(hadoopConfig,
-        new Path(config.getPhase0IdMapPath()))) {
-      log.info("Adding identity file " + path + " to map job cache");
-      job.addCacheFile(path.toUri());
-    }
+    final List<Path> inputs = hadoopUtils.listHdfsFiles(hadoopConfig,
+        new Path(config.getPhase0IdMapPath()));
+    final Path index = new Path(config.getIdentityIndexPath(0));
+    log.info("Indexing " + inputs.size() + " identity files to " + index);
+    IdentityIndex.build(hadoopConfig, inputs,
+        new FormatLibrary().getFormat(config.getPipelineFormat()), config.getMainIdentifier(),
+        index);
+    log.info("Adding identity index " + index + " to map job cache");
+    job.addCacheFile(index.toUri());
   }
 
   private Job getIdentityMapJob(final DataConfig config) throws IOException {
@@ -1,6 +1,7 @@
 package edu.harvard.data.identity;
 
 import java.io.IOException;
+import java.text.ParseException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -12,6 +13,7 @@ import org.apache.hadoop.mapreduce.Mapper;
 import edu.harvard.data.HadoopUtilities;
 import edu.harvard.data.TableFormat;
 import edu.harvard.data.generator.IdentityMapperGenerator;
+import edu.harvard.data.io.DelimitedTokenizer;
 
 /**
  * Helper class that implements the common logic for the various mapper classes
@@ -28,6 +30,12 @@ import edu.harvard.data.generator.IdentityMapperGenerator;
  * this class for common operations. See {@link LongIdentityMapper} for an
  * example of an identity mapper job.
  * <p>
+ * Records are decoded straight from the bytes of each {@code Text} value by a
+ * {@link DelimitedTokenizer} when the format allows it, and the map of results,
+ * along with the identity keys that it contains, is reused from one call to
+ * {@link #map} to the next. Formats that the tokenizer does not support are
+ * parsed line by line with {@code CSVParser}.
+ * <p>
  * @param <T>
  *          the Java type of the main identifier over which this job operates.
  *          Thus, for a mapper job that returns a map from {@code LongWritable}
@@ -36,13 +44,25 @@ import edu.harvard.data.generator.IdentityMapperGenerator;
 public class IdentityMapper<T> {
   TableFormat format;
   private final HadoopUtilities hadoopUtils;
+  private final Map<T, HadoopIdentityKey> results;
+  private final IdentityMap id;
+  private final HadoopIdentityKey identityKey;
+  private final HadoopIdentityKey emptyKey;
+  private DelimitedTokenizer tokenizer;
 
   public IdentityMapper() {
     this.hadoopUtils = new HadoopUtilities();
+    this.results = new HashMap<T, HadoopIdentityKey>();
+    this.id = new IdentityMap();
+    this.identityKey = new HadoopIdentityKey(id);
+    this.emptyKey = new HadoopIdentityKey(new IdentityMap());
   }
 
   public void setup(final Mapper<?, ?, ?, ?>.Context context) {
     this.format = hadoopUtils.getFormat(context);
+    if (DelimitedTokenizer.supports(format.getCsvFormat())) {
+      this.tokenizer = new DelimitedTokenizer(format.getCsvFormat());
+    }
   }
 
   /**
@@ -84,38 +104,54 @@ public class IdentityMapper<T> {
    * @return a {@link Map} from {@code T} (the main identifier type) to
    *         {@code HadoopIdentityKey} that contains the identity information
    *         discovered by this method. This map may be empty, but will never be
-   *         null.
+   *         null. The map and its values are overwritten by the next call to
+   *         this method, so must be consumed before then.
    *
    * @throws IOException if an error occurs when parsing the {@code value} text string.
    */
   public Map<T, HadoopIdentityKey> map(final Text value, final TableIdentityMapper<T> idMapper)
       throws IOException {
-    final Map<T, HadoopIdentityKey> results = new HashMap<T, HadoopIdentityKey>();
-    final CSVParser parser = CSVParser.parse(value.toString(), format.getCsvFormat());
-    for (final CSVRecord csvRecord : parser.getRecords()) {
-      idMapper.readRecord(csvRecord);
-      final Map<String, T> hadoopKeys = idMapper.getMainIdentifiers();
-      if (hadoopKeys.size() == 1) {
-        // If there's only one main ID, we can use this table to figure
-        // out other identities for that individual.
-        final T hadoopKey = hadoopKeys.entrySet().iterator().next().getValue();
-        final IdentityMap id = new IdentityMap();
-        final boolean populated = idMapper.populateIdentityMap(id);
-        if (populated) {
-          results.put(hadoopKey, new HadoopIdentityKey(id));
+    results.clear();
+    try {
+      if (tokenizer != null) {
+        if (tokenizer.reset(value.getBytes(), 0, value.getLength())) {
+          idMapper.readRecord(format, tokenizer);
+          addIdentities(idMapper);
         }
       } else {
-        // If there are multiple main IDs in the table, it's ambiguous as
-        // to which individual other identifier fields may refer. We just log
-        // the identifier and leave it at that.
-        for (final T hadoopKey : hadoopKeys.values()) {
-          if (hadoopKey != null) {
-            results.put(hadoopKey, new HadoopIdentityKey(new IdentityMap()));
-          }
+        final CSVParser parser = CSVParser.parse(value.toString(), format.getCsvFormat());
+        for (final CSVRecord csvRecord : parser.getRecords()) {
+          idMapper.readRecord(format, csvRecord);
+          addIdentities(idMapper);
         }
       }
+    } catch (final ParseException e) {
+      throw new IOException(e);
     }
     return results;
   }
 
+  private void addIdentities(final TableIdentityMapper<T> idMapper) {
+    final Map<String, T> hadoopKeys = idMapper.getMainIdentifiers();
+    if (hadoopKeys.size() == 1) {
+      // If there's only one main ID, we can use this table to figure
+      // out other identities for that individual.
+      final T hadoopKey = hadoopKeys.entrySet().iterator().next().getValue();
+      id.clear();
+      final boolean populated = idMapper.populateIdentityMap(id);
+      if (populated) {
+        results.put(hadoopKey, identityKey);
+      }
+    } else {
+      // If there are multiple main IDs in the table, it's ambiguous as
+      // to which individual other identifier fields may refer. We just log
+      // the identifier and leave it at that.
+      for (final T hadoopKey : hadoopKeys.values()) {
+        if (hadoopKey != null) {
+          results.put(hadoopKey, emptyKey);
+        }
+      }
+    }
+  }
+
 }
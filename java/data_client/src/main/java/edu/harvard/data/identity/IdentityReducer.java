@@ -1,23 +1,20 @@
 package edu.harvard.data.identity;
 
 import java.io.IOException;
-import java.io.StringWriter;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
-import org.apache.commons.csv.CSVPrinter;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
 
+import edu.harvard.data.DelimitedText;
 import edu.harvard.data.FormatLibrary.Format;
 import edu.harvard.data.HadoopUtilities;
 import edu.harvard.data.TableFormat;
-import edu.harvard.data.io.TableReader;
 
 /**
  * Helper class that implements the actual logic for the reduce phase during the
@@ -39,9 +36,13 @@ public class IdentityReducer<T> {
   TableFormat format;
   IdentifierType mainIdentifier;
   private final HadoopUtilities hadoopUtils;
+  private final DelimitedText delimitedText;
+  private final Text csvText;
 
   public IdentityReducer() {
     this.hadoopUtils = new HadoopUtilities();
+    this.delimitedText = new DelimitedText();
+    this.csvText = new Text();
   }
   
   /**
@@ -59,10 +60,12 @@ public class IdentityReducer<T> {
    * {@link IdentifierType#getType}) must be the same as the class parameter
    * {@code T}.
    * <p>
-   * It then fetches the incoming identity map files from the Hadoop distributed
-   * cache and builds up a map from the main identifier type to identity map
-   * values that can be used during the reduce phase to ensure that consistent
-   * research UUIDs are assigned to existing users.
+   * It then fetches the incoming identity map from the Hadoop distributed cache
+   * as a map from the main identifier type to identity map values that can be
+   * used during the reduce phase to ensure that consistent research UUIDs are
+   * assigned to existing users. The map is usually an {@link IdentityIndex}
+   * that is memory-mapped rather than read onto the heap; see
+   * {@link IdentityIndex#load}.
    *
    * @param context
    *          the Hadoop context for the reducer.
@@ -70,17 +73,11 @@ public class IdentityReducer<T> {
    *           if an error occurs while reading and parsing the identity map
    *           files in the Hadoop distributed cache.
    */
-  @SuppressWarnings("unchecked")
   public void setup(final Reducer<?, ?, ?, ?>.Context context) throws IOException {
     this.format = hadoopUtils.getFormat(context);
     this.mainIdentifier = hadoopUtils.getMainIdentifier(context);
-    this.identities = new HashMap<T, IdentityMap>();
-    try (TableReader<IdentityMap> in = hadoopUtils.getHdfsTableReader(context, format,
-        IdentityMap.class)) {
-      for (final IdentityMap id : in) {
-        identities.put((T) id.get(mainIdentifier), id);
-      }
-    }
+    this.identities = IdentityIndex.load(context.getConfiguration(), context.getCacheFiles(),
+        format, mainIdentifier);
   }
 
   /**
@@ -165,7 +162,7 @@ public class IdentityReducer<T> {
         names_last.add(name_last);
       }
     }
-    outputResult("tempidentitymap", outputs, id.getFieldsAsList(format).toArray());
+    outputResult("tempidentitymap", outputs, id);
     for (final String email : emails) {
       if (email != null && !email.isEmpty()) {	
     	  outputResult(IdentifierType.EmailAddress.getFieldName(), outputs,
@@ -202,14 +199,17 @@ public class IdentityReducer<T> {
     
   }
 
+  private void outputResult(final String outputName,
+      final MultipleOutputs<Text, NullWritable> outputs, final IdentityMap id)
+          throws IOException, InterruptedException {
+    delimitedText.set(csvText, format, id);
+    outputs.write(outputName, csvText, NullWritable.get(), outputName + "/" + outputName);
+  }
+
   private void outputResult(final String outputName,
       final MultipleOutputs<Text, NullWritable> outputs, final Object... fields)
           throws IOException, InterruptedException {
-    final StringWriter writer = new StringWriter();
-    try (final CSVPrinter printer = new CSVPrinter(writer, format.getCsvFormat())) {
-      printer.printRecord(fields);
-    }
-    final Text csvText = new Text(writer.toString().trim());
+    delimitedText.set(csvText, format, fields);
     outputs.write(outputName, csvText, NullWritable.get(), outputName + "/" + outputName);
   }
 
@@ -21,6 +21,7 @@ import edu.harvard.data.AwsUtils;
 import edu.harvard.data.CodeManager;
 import edu.harvard.data.DataConfig;
 import edu.harvard.data.DataConfigurationException;
+import edu.harvard.data.FormatLibrary;
 import edu.harvard.data.HadoopUtilities;
 import edu.harvard.data.NoInputDataException;
 import edu.harvard.data.leases.LeaseRenewalException;
@@ -69,11 +70,12 @@ public class IdentityScrubHadoopJob {
 
     final Map<String, Class<? extends IdentityScrubber<?>>> scrubbers = codeManager
         .getIdentityScrubberClasses();
+    final Path index = buildIdentityIndex();
     final List<Job> jobs = new ArrayList<Job>();
     for (final String tableName : scrubbers.keySet()) {
       if (dataIndex.containsTable(tableName)) {
         final Class<? extends IdentityScrubber<?>> cls = scrubbers.get(tableName);
-        jobs.add(getJob(tableName, cls));
+        jobs.add(getJob(tableName, cls, index));
       }
     }
 
@@ -86,8 +88,21 @@ public class IdentityScrubHadoopJob {
     leaseThread.checkLease();
   }
 
-  private Job getJob(final String tableName, final Class<? extends IdentityScrubber<?>> cls)
-      throws IOException, NoInputDataException {
+  // Index the updated identity map once for all of the scrubber jobs, rather
+  // than having every mapper read the whole identity map onto its heap.
+  private Path buildIdentityIndex() throws IOException {
+    final Configuration hadoopConfig = new Configuration();
+    final Path index = new Path(config.getIdentityIndexPath(1));
+    IdentityIndex.build(hadoopConfig,
+        hadoopUtils.listHdfsFiles(hadoopConfig,
+            new Path(config.getHdfsDir(1) + "/identity_map/identitymap")),
+        new FormatLibrary().getFormat(config.getPipelineFormat()), config.getMainIdentifier(),
+        index);
+    return index;
+  }
+
+  private Job getJob(final String tableName, final Class<? extends IdentityScrubber<?>> cls,
+      final Path index) throws IOException, NoInputDataException {
     final Configuration hadoopConfig = new Configuration();
     hadoopConfig.set("format", config.getPipelineFormat().toString());
     hadoopConfig.set("config", config.getPaths());
@@ -102,10 +117,7 @@ public class IdentityScrubHadoopJob {
     job.setOutputFormatClass(TextOutputFormat.class);
     hadoopUtils.setPaths(job, hdfsService, config.getHdfsDir(0) + "/" + tableName,
         config.getHdfsDir(1) + "/" + tableName);
-    for (final Path path : hadoopUtils.listHdfsFiles(hadoopConfig,
-        new Path(config.getHdfsDir(1) + "/identity_map/identitymap"))) {
-      job.addCacheFile(path.toUri());
-    }
+    job.addCacheFile(index.toUri());
 
     return job;
   }
@@ -1,7 +1,7 @@
 package edu.harvard.data.identity;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.text.ParseException;
 import java.util.Map;
 
 import org.apache.commons.csv.CSVParser;
@@ -18,7 +18,7 @@ import edu.harvard.data.DataTable;
 import edu.harvard.data.HadoopUtilities;
 import edu.harvard.data.TableFormat;
 import edu.harvard.data.generator.IdentityScrubberGenerator;
-import edu.harvard.data.io.TableReader;
+import edu.harvard.data.io.DelimitedTokenizer;
 
 /**
  * Base class for the identity scrub mapper job. As the second part of the
@@ -31,10 +31,17 @@ import edu.harvard.data.io.TableReader;
  * mapper is written directly as the output of the identity phase.
  * <p>
  * The class contains a setup method that reads an existing identity map from
- * the Hadoop distributed cache to create an {@code Map} from the main
- * identifier type (type parameter T) to {@link IdentityMap}. It also contains a
+ * the Hadoop distributed cache as a {@code Map} from the main identifier type
+ * (type parameter T) to {@link IdentityMap}. The map is usually an
+ * {@link IdentityIndex} that is memory-mapped rather than read onto the heap. It also contains a
  * map method that uses the subtype's {@link #populateRecord} method to copy all
  * non-identifier fields from the previous phase's version of the record.
+ * <p>
+ * When the format allows it, each line is decoded straight from the bytes of
+ * its {@code Text} value by a {@link DelimitedTokenizer}, and passed to the
+ * tokenizer variant of {@code populateRecord}. Subclasses may return the same
+ * record instance from every call, since each record is written out before the
+ * next line is read; the output {@code Text} is likewise reused.
  *
  * @param <T>
  *          the type of the dataset's main identifier.
@@ -53,19 +60,45 @@ public abstract class IdentityScrubber<T> extends Mapper<Object, Text, Text, Nul
    *         record at the end of the previous phase (e.g. if the identity phase
    *         is running as Phase 1 of the data pipeline, the returned value
    *         should be of the correct type to represent the output of Phase 0).
+   *
+   * @throws ParseException
+   *           if a date or timestamp field cannot be parsed.
+   */
+  protected abstract DataTable populateRecord(CSVRecord csvRecord) throws ParseException;
+
+  /**
+   * Populate an instance of the {@link DataTable} type that represents this
+   * table from the current record of a {@link DelimitedTokenizer}. This method
+   * is used in place of {@link #populateRecord(CSVRecord)} whenever the format
+   * allows it, and implementations should avoid allocating new objects for
+   * every record.
+   *
+   * @param fields
+   *          a tokenizer positioned on the record to read.
+   * @return a parsed object containing the data from the current record, as
+   *         described for {@link #populateRecord(CSVRecord)}. The object may be
+   *         overwritten by the next call to this method.
+   *
+   * @throws ParseException
+   *           if a date or timestamp field cannot be parsed.
    */
-  protected abstract DataTable populateRecord(CSVRecord csvRecord);
+  protected abstract DataTable populateRecord(DelimitedTokenizer fields) throws ParseException;
 
   protected TableFormat format;
   protected Map<T, IdentityMap> identities;
   protected HadoopUtilities hadoopUtils;
+  private DelimitedTokenizer tokenizer;
+  private Text outputText;
 
   @Override
-  @SuppressWarnings("unchecked")
   protected void setup(final Context context) throws IOException, InterruptedException {
     super.setup(context);
     this.hadoopUtils = new HadoopUtilities();
     this.format = hadoopUtils.getFormat(context);
+    if (DelimitedTokenizer.supports(format.getCsvFormat())) {
+      this.tokenizer = new DelimitedTokenizer(format.getCsvFormat());
+    }
+    this.outputText = new Text();
     DataConfig config;
     try {
       config = hadoopUtils.getConfig(context);
@@ -73,23 +106,39 @@ public abstract class IdentityScrubber<T> extends Mapper<Object, Text, Text, Nul
       throw new IOException(e);
     }
     final IdentifierType mainIdentifier = config.getMainIdentifier();
-    this.identities = new HashMap<T, IdentityMap>();
-    try (TableReader<IdentityMap> in = hadoopUtils.getHdfsTableReader(context, format,
-        IdentityMap.class)) {
-      for (final IdentityMap id : in) {
-        identities.put((T) id.get(mainIdentifier), id);
-      }
-    }
+    this.identities = IdentityIndex.load(context.getConfiguration(), context.getCacheFiles(),
+        format, mainIdentifier);
     log.info("Completed setup for " + this);
   }
 
   @Override
   public void map(final Object key, final Text value, final Context context)
       throws IOException, InterruptedException {
-    final CSVParser parser = CSVParser.parse(value.toString(), format.getCsvFormat());
-    for (final CSVRecord csvRecord : parser.getRecords()) {
-      final DataTable record = populateRecord(csvRecord);
-      context.write(hadoopUtils.recordToText(record, format), NullWritable.get());
+    try {
+      if (tokenizer != null) {
+        if (tokenizer.reset(value.getBytes(), 0, value.getLength())) {
+          write(populateRecord(tokenizer), context);
+        }
+      } else {
+        final CSVParser parser = CSVParser.parse(value.toString(), format.getCsvFormat());
+        for (final CSVRecord csvRecord : parser.getRecords()) {
+          write(populateRecord(csvRecord), context);
+        }
+      }
+    } catch (final ParseException e) {
+      throw new IOException(e);
     }
   }
+
+  private void write(final DataTable record, final Context context)
+      throws IOException, InterruptedException {
+    hadoopUtils.recordToText(record, format, outputText);
+    context.write(outputText, NullWritable.get());
+  }
+
+  @Override
+  protected void cleanup(final Context context) throws IOException, InterruptedException {
+    hadoopUtils.reportDictionaryCounters(context);
+    super.cleanup(context);
+  }
 }
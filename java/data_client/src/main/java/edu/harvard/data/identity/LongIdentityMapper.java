@@ -21,9 +21,11 @@ Mapper<Object, Text, LongWritable, HadoopIdentityKey> implements TableIdentityMa
 
   protected IdentityMapper<Long> mapper;
   protected TableFormat format;
+  private final LongWritable outputKey;
 
   public LongIdentityMapper() {
     this.mapper = new IdentityMapper<Long>();
+    this.outputKey = new LongWritable();
   }
 
   /**
@@ -43,7 +45,8 @@ Mapper<Object, Text, LongWritable, HadoopIdentityKey> implements TableIdentityMa
   }
 
   /**
-   * See {@link IdentityMapper#map(Text, TableIdentityMapper)}.
+   * See {@link IdentityMapper#map(Text, TableIdentityMapper)}. The output key
+   * is a single instance that is reset for every record.
    */
   @Override
   public void map(final Object key, final Text value, final Context context)
@@ -51,7 +54,8 @@ Mapper<Object, Text, LongWritable, HadoopIdentityKey> implements TableIdentityMa
     final Map<Long, HadoopIdentityKey> map = mapper.map(value, this);
     for (final Long hadoopKey : map.keySet()) {
       final HadoopIdentityKey identityKey = map.get(hadoopKey);
-      context.write(new LongWritable(hadoopKey), identityKey);
+      outputKey.set(hadoopKey);
+      context.write(outputKey, identityKey);
     }
   }
 }
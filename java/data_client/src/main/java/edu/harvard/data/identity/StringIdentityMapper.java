@@ -20,9 +20,11 @@ implements TableIdentityMapper<String> {
 
   protected IdentityMapper<String> mapper;
   protected TableFormat format;
+  private final Text outputKey;
 
   public StringIdentityMapper() {
     this.mapper = new IdentityMapper<String>();
+    this.outputKey = new Text();
   }
 
   /**
@@ -42,7 +44,8 @@ implements TableIdentityMapper<String> {
   }
 
   /**
-   * See {@link IdentityMapper#map(Text, TableIdentityMapper)}.
+   * See {@link IdentityMapper#map(Text, TableIdentityMapper)}. The output key
+   * is a single instance that is reset for every record.
    */
   @Override
   public void map(final Object key, final Text value, final Context context)
@@ -50,7 +53,8 @@ implements TableIdentityMapper<String> {
     final Map<String, HadoopIdentityKey> map = mapper.map(value, this);
     for (final String hadoopKey : map.keySet()) {
       final HadoopIdentityKey identityKey = map.get(hadoopKey);
-      context.write(new Text(hadoopKey), identityKey);
+      outputKey.set(hadoopKey);
+      context.write(outputKey, identityKey);
     }
   }
 }
\ No newline at end of file
@@ -1,10 +1,13 @@
 package edu.harvard.data.identity;
 
+import java.text.ParseException;
 import java.util.Map;
 
 import org.apache.commons.csv.CSVRecord;
 
+import edu.harvard.data.TableFormat;
 import edu.harvard.data.generator.IdentityMapperGenerator;
+import edu.harvard.data.io.DelimitedTokenizer;
 
 /**
  * Interface to provide table-specific functionality for the Hadoop identity map
@@ -24,15 +27,41 @@ public interface TableIdentityMapper<T> {
 
   /**
    * Set up whatever internal data structures will be required to fulfill future
-   * method calls on this instance. This method should always be called before
-   * {@link #populateIdentityMap} or {@link #readRecord}.
+   * method calls on this instance. This method, or
+   * {@link #readRecord(TableFormat, DelimitedTokenizer)}, should always be
+   * called before {@link #populateIdentityMap} or {@link #getMainIdentifiers}.
    *
+   * @param format
+   *          the {@link TableFormat} that indicates how the record is
+   *          formatted.
    * @param csvRecord
    *          a {@link CSVRecord} object that contains values for every field in
    *          the table. The individual values may be null, but the
    *          {@code csvRecord} itself may not.
+   *
+   * @throws ParseException
+   *           if a date or timestamp field cannot be parsed.
+   */
+  void readRecord(TableFormat format, CSVRecord csvRecord) throws ParseException;
+
+  /**
+   * Set up this instance from the current record of a
+   * {@link DelimitedTokenizer}. This method is used in place of
+   * {@link #readRecord(TableFormat, CSVRecord)} whenever the format allows it,
+   * and implementations should reuse their internal state rather than
+   * allocating new objects for every record.
+   *
+   * @param format
+   *          the {@link TableFormat} that indicates how the record is
+   *          formatted.
+   * @param fields
+   *          a tokenizer positioned on the record to read. Every field in the
+   *          table must be present.
+   *
+   * @throws ParseException
+   *           if a date or timestamp field cannot be parsed.
    */
-  void readRecord(CSVRecord csvRecord);
+  void readRecord(TableFormat format, DelimitedTokenizer fields) throws ParseException;
 
   /**
    * Identify columns in the table and the values in the record that contain the
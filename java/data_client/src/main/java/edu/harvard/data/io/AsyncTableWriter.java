@@ -0,0 +1,406 @@
+package edu.harvard.data.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import edu.harvard.data.DataTable;
+import edu.harvard.data.TableFormat;
+
+/**
+ * {@link TableWriter} implementation that encodes and compresses records on a
+ * dedicated background thread.
+ * <P>
+ * The standard {@code TableWriter} formats each buffered record and pushes it
+ * through the output stream (and any compression codec) on the thread that
+ * calls {@link #add}, so a caller that is also parsing input alternates between
+ * the two tasks on a single core. This class instead fills a record buffer on
+ * the caller's thread and, once the buffer is full, hands it to a writer thread
+ * over a bounded queue. The writer thread encodes the records, then returns
+ * the emptied buffer to a pool so that it can be reused. By default two
+ * buffers are used, so the caller can fill one buffer while the other is being
+ * written.
+ * <P>
+ * If the writer thread falls behind, the caller blocks in {@code add} until a
+ * buffer becomes free. The total time spent blocked is available from
+ * {@link #getStallTimeMillis}, and is logged when the writer is closed; a large
+ * value indicates that output, rather than parsing, is the bottleneck.
+ * <P>
+ * Records are written in the same order that they were received by the
+ * {@code add} method, and the output is identical to that of a
+ * {@code TableWriter} with the same format. As with {@code TableWriter},
+ * clients must call {@link #close} once all records have been added; the
+ * method waits for the writer thread to finish and reports any error that
+ * occurred while writing. An error on the writer thread is also reported by
+ * the next call to {@code add} that hands off a buffer.
+ * <P>
+ * This class is not thread-safe. Any access synchronization must be performed
+ * by the caller.
+ */
+public class AsyncTableWriter<T extends DataTable> extends TableWriter<T> {
+
+  private static final Logger log = LogManager.getLogger();
+
+  /**
+   * The default number of record buffers shared between the caller and the
+   * writer thread.
+   */
+  public static final int DEFAULT_BUFFER_COUNT = 2;
+
+  private static final int DEFAULT_BUFFER_SIZE = 512;
+
+  private final Class<T> tableType;
+  private final BlockingQueue<List<T>> fullBuffers;
+  private final BlockingQueue<List<T>> freeBuffers;
+  private final List<T> endOfOutput;
+  private final ExecutorService exec;
+  private final Future<Void> future;
+  private volatile IOException failure;
+  private List<T> current;
+  private int bufferSize;
+  private long stallNanos;
+  private boolean closed;
+
+  /**
+   * Create a new {@code AsyncTableWriter} that outputs records to a local file,
+   * using the default number of buffers. Any necessary parent directories will
+   * be created, and any existing file with the same name will be overwritten.
+   *
+   * @param tableType
+   *          the type of record that will be written by this writer.
+   * @param format
+   *          the format (represented by a {@link TableFormat} object) of the
+   *          output files.
+   * @param file
+   *          a local {@link File} object to which the records will be written.
+   *          The writer will overwrite any existing file in that location.
+   */
+  public AsyncTableWriter(final Class<T> tableType, final TableFormat format, final File file) {
+    this(tableType, format, file, DEFAULT_BUFFER_COUNT);
+  }
+
+  /**
+   * Create a new {@code AsyncTableWriter} that outputs records to a local file.
+   * Any necessary parent directories will be created, and any existing file
+   * with the same name will be overwritten.
+   *
+   * @param tableType
+   *          the type of record that will be written by this writer.
+   * @param format
+   *          the format (represented by a {@link TableFormat} object) of the
+   *          output files.
+   * @param file
+   *          a local {@link File} object to which the records will be written.
+   *          The writer will overwrite any existing file in that location.
+   * @param bufferCount
+   *          the number of record buffers to allocate. This bounds the number
+   *          of records held in memory to {@code bufferCount} times the buffer
+   *          size.
+   *
+   * @throws IllegalArgumentException
+   *           if {@code bufferCount} is less than two.
+   */
+  public AsyncTableWriter(final Class<T> tableType, final TableFormat format, final File file,
+      final int bufferCount) {
+    super(tableType, format, file);
+    this.tableType = tableType;
+    this.fullBuffers = new ArrayBlockingQueue<List<T>>(checkBufferCount(bufferCount));
+    this.freeBuffers = new ArrayBlockingQueue<List<T>>(bufferCount);
+    this.endOfOutput = new ArrayList<T>();
+    this.bufferSize = DEFAULT_BUFFER_SIZE;
+    this.exec = Executors.newSingleThreadExecutor(new WriterThreadFactory());
+    this.future = start(bufferCount);
+  }
+
+  /**
+   * Create a new {@code AsyncTableWriter} that outputs records to an output
+   * stream, using the default number of buffers.
+   *
+   * @param tableType
+   *          the type of record that will be written by this writer.
+   * @param format
+   *          the format (represented by a {@link TableFormat} object) of the
+   *          output files.
+   * @param outStream
+   *          an open {@link OutputStream} to which the records will be written.
+   *          This stream will be closed when the {@link #close} method is
+   *          called on this instance. The stream is only accessed from the
+   *          writer thread until {@code close} is called.
+   */
+  public AsyncTableWriter(final Class<T> tableType, final TableFormat format,
+      final OutputStream outStream) {
+    this(tableType, format, outStream, DEFAULT_BUFFER_COUNT);
+  }
+
+  /**
+   * Create a new {@code AsyncTableWriter} that outputs records to an output
+   * stream.
+   *
+   * @param tableType
+   *          the type of record that will be written by this writer.
+   * @param format
+   *          the format (represented by a {@link TableFormat} object) of the
+   *          output files.
+   * @param outStream
+   *          an open {@link OutputStream} to which the records will be written.
+   *          This stream will be closed when the {@link #close} method is
+   *          called on this instance. The stream is only accessed from the
+   *          writer thread until {@code close} is called.
+   * @param bufferCount
+   *          the number of record buffers to allocate. This bounds the number
+   *          of records held in memory to {@code bufferCount} times the buffer
+   *          size.
+   *
+   * @throws IllegalArgumentException
+   *           if {@code bufferCount} is less than two.
+   */
+  public AsyncTableWriter(final Class<T> tableType, final TableFormat format,
+      final OutputStream outStream, final int bufferCount) {
+    super(tableType, format, outStream);
+    this.tableType = tableType;
+    this.fullBuffers = new ArrayBlockingQueue<List<T>>(checkBufferCount(bufferCount));
+    this.freeBuffers = new ArrayBlockingQueue<List<T>>(bufferCount);
+    this.endOfOutput = new ArrayList<T>();
+    this.bufferSize = DEFAULT_BUFFER_SIZE;
+    this.exec = Executors.newSingleThreadExecutor(new WriterThreadFactory());
+    this.future = start(bufferCount);
+  }
+
+  private static int checkBufferCount(final int bufferCount) {
+    if (bufferCount < 2) {
+      throw new IllegalArgumentException("Buffer count must be at least two: " + bufferCount);
+    }
+    return bufferCount;
+  }
+
+  // Populate the buffer pool, take the first buffer for the caller and start
+  // the writer thread.
+  private Future<Void> start(final int bufferCount) {
+    for (int i = 0; i < bufferCount; i++) {
+      freeBuffers.add(new ArrayList<T>(bufferSize));
+    }
+    current = freeBuffers.poll();
+    return exec.submit(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        writeBuffers();
+        return null;
+      }
+    });
+  }
+
+  /**
+   * Write a record to the output stream or file. The record is added to the
+   * current buffer; if that fills the buffer, it is passed to the writer thread
+   * and this method may block until an empty buffer is available.
+   *
+   * @param record
+   *          the data to be written.
+   * @throws IOException
+   *           if an error has occurred on the writer thread, or if the calling
+   *           thread is interrupted while waiting for a free buffer. Note that
+   *           due to buffering an error may not be reported until some time
+   *           after the record that caused it was added, so callers cannot
+   *           assume that all records have been safely written until the
+   *           {@link #close} method has been successfully called.
+   */
+  @Override
+  public void add(final T record) throws IOException {
+    checkOpen();
+    current.add(record);
+    if (current.size() >= bufferSize) {
+      handOff();
+    }
+  }
+
+  /**
+   * Change the size of the output buffers, measured in records. Any records in
+   * the current buffer are passed to the writer thread first.
+   *
+   * @param bufferSize
+   *          the new size of the buffers, measured in the number of records
+   *          stored between hand-offs to the writer thread.
+   * @throws IOException
+   *           if an error has occurred on the writer thread.
+   */
+  @Override
+  public void resizeBuffer(final int bufferSize) throws IOException {
+    checkOpen();
+    this.bufferSize = bufferSize;
+    if (!current.isEmpty()) {
+      handOff();
+    }
+  }
+
+  /**
+   * Pass any remaining records to the writer thread, wait for all records to be
+   * written, and close any internal streams. This method closes an
+   * {@code OutputStream} passed to the constructor.
+   * <P>
+   * If an error occurred on the writer thread, the output is closed without
+   * writing any further records, and the error is thrown. Any error that occurs
+   * while closing the output is added to it as a suppressed exception.
+   *
+   * @throws IOException
+   *           if an error occurred while writing any of the records.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    IOException error = null;
+    try {
+      if (failure == null) {
+        if (!current.isEmpty()) {
+          put(current);
+        }
+        put(endOfOutput);
+        future.get();
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.cancel(true);
+      error = new IOException("Interrupted while closing writer for " + tableType.getName(), e);
+    } catch (final ExecutionException e) {
+      error = unwrap(e.getCause());
+    } finally {
+      exec.shutdownNow();
+    }
+    if (error == null) {
+      error = failure;
+    }
+    if (error != null) {
+      try {
+        awaitWriterThread();
+        abort();
+      } catch (final IOException e) {
+        error.addSuppressed(e);
+      }
+      throw error;
+    }
+    // The writer thread has finished, so it is now safe to use the output stream
+    // from this thread. This writes headers for an empty table and closes the
+    // stream.
+    super.close();
+    log.info("Writer for " + tableType.getName() + " stalled for " + getStallTimeMillis()
+        + " ms waiting for free buffers");
+  }
+
+  // Wait for the writer thread to stop after it has been cancelled, so that the
+  // output can be closed from this thread. An interrupt that arrives while
+  // waiting is kept for the caller.
+  private void awaitWriterThread() {
+    boolean interrupted = Thread.interrupted();
+    while (true) {
+      try {
+        if (exec.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+          break;
+        }
+      } catch (final InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Get the total time that callers of this writer have spent blocked, waiting
+   * for the writer thread to free up a buffer. This value measures the
+   * back-pressure exerted by the encoding and compression of the output.
+   *
+   * @return the cumulative stall time, in milliseconds.
+   */
+  public long getStallTimeMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(stallNanos);
+  }
+
+  private void checkOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Writer for " + tableType.getName() + " has been closed");
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  // Pass the current buffer to the writer thread and take a free buffer to
+  // replace it, recording the time spent waiting.
+  private void handOff() throws IOException {
+    try {
+      put(current);
+      final long start = System.nanoTime();
+      current = freeBuffers.take();
+      stallNanos += System.nanoTime() - start;
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while writing " + tableType.getName(), e);
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  // The full queue has room for every buffer, so this only blocks briefly when
+  // the end-of-output marker is queued behind them. Any wait is still counted.
+  private void put(final List<T> buffer) throws InterruptedException {
+    final long start = System.nanoTime();
+    fullBuffers.put(buffer);
+    stallNanos += System.nanoTime() - start;
+  }
+
+  // Runs on the writer thread. Buffers are written in the order in which they
+  // were queued. After a failure the thread keeps recycling buffers without
+  // writing them, so that the caller is never left waiting for a free buffer.
+  private void writeBuffers() throws InterruptedException {
+    while (true) {
+      final List<T> buffer = fullBuffers.take();
+      if (buffer == endOfOutput) {
+        return;
+      }
+      if (failure == null) {
+        try {
+          writeRecords(buffer);
+        } catch (final IOException | RuntimeException e) {
+          log.error("Error writing " + tableType.getName(), e);
+          failure = unwrap(e);
+        }
+      }
+      buffer.clear();
+      freeBuffers.put(buffer);
+    }
+  }
+
+  private IOException unwrap(final Throwable t) {
+    if (t instanceof IOException) {
+      return (IOException) t;
+    }
+    return new IOException("Error writing " + tableType.getName(), t);
+  }
+
+  private class WriterThreadFactory implements ThreadFactory {
+    @Override
+    public Thread newThread(final Runnable r) {
+      final Thread thread = new Thread(r, "TableWriter-" + tableType.getSimpleName());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
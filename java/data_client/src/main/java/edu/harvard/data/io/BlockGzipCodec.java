@@ -0,0 +1,211 @@
+package edu.harvard.data.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.Seekable;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.io.compress.SplitCompressionInputStream;
+import org.apache.hadoop.io.compress.SplittableCompressionCodec;
+
+/**
+ * Hadoop compression codec that allows {@code .gz} files written by
+ * {@link BlockGzipOutputStream} to be divided between several input splits.
+ * <P>
+ * Hadoop's {@code GzipCodec} is not splittable, so a job that reads a large
+ * gzipped table gets a single mapper for each file. Block gzip files are made
+ * up of independent gzip members, each of which starts with a recognizable
+ * header; this codec moves the start and end of each split to the next block
+ * boundary, letting {@code TextInputFormat} process each part of the file in a
+ * separate task.
+ * <P>
+ * The codec claims the {@code .gz} extension, so it also sees ordinary gzip
+ * files. Input formats should call {@link #isBlockFile} before splitting a
+ * file, as {@link DataTableInputFormat} does, so that an ordinary gzip file
+ * gets a single split. If one is split anyway, the first split reads the whole
+ * file and any other splits read nothing, which gives the same result as
+ * {@code GzipCodec} at the cost of the idle tasks. Streams opened without a
+ * split (for example by {@code hadoop fs -text}) are handled exactly as they
+ * are by {@code GzipCodec}.
+ * <P>
+ * Use {@link #register} to enable the codec for a job. {@code HadoopJob} does
+ * so only for pipelines whose format uses block gzip compression.
+ */
+public class BlockGzipCodec extends GzipCodec implements SplittableCompressionCodec {
+
+  private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Add this codec to the compression codecs used by a Hadoop configuration.
+   * Since the codec is added after any others, it replaces {@code GzipCodec}
+   * for files that end in {@code .gz}.
+   *
+   * @param conf
+   *          the configuration to modify.
+   */
+  public static void register(final Configuration conf) {
+    final String key = CommonConfigurationKeys.IO_COMPRESSION_CODECS_KEY;
+    final String codecs = conf.get(key, "").trim();
+    final String name = BlockGzipCodec.class.getName();
+    for (final String codec : codecs.split(",")) {
+      if (codec.trim().equals(name)) {
+        return;
+      }
+    }
+    conf.set(key, codecs.isEmpty() ? name : codecs + "," + name);
+  }
+
+  /**
+   * Check whether a file starts with a block gzip header, and so can be divided
+   * between splits by this codec.
+   *
+   * @param fs
+   *          the file system that holds the file.
+   * @param path
+   *          the file to check.
+   * @return true if the file was written by {@link BlockGzipOutputStream};
+   *         false if it is an ordinary gzip file, or is too short to tell.
+   *
+   * @throws IOException
+   *           if the file can not be read.
+   */
+  public static boolean isBlockFile(final FileSystem fs, final Path path) throws IOException {
+    final byte[] header = new byte[BlockGzipOutputStream.HEADER_SIZE];
+    try (InputStream in = fs.open(path)) {
+      return readHeader(in, header) && BlockGzipInputStream.isBlockHeader(header, 0);
+    }
+  }
+
+  @Override
+  public SplitCompressionInputStream createInputStream(final InputStream seekableIn,
+      final Decompressor decompressor, final long start, final long end, final READ_MODE readMode)
+          throws IOException {
+    if (!(seekableIn instanceof Seekable)) {
+      throw new IOException("seekableIn must be an instance of " + Seekable.class.getName());
+    }
+    final Seekable seekable = (Seekable) seekableIn;
+    final byte[] header = new byte[BlockGzipOutputStream.HEADER_SIZE];
+    seekable.seek(0);
+    final boolean blocks = readHeader(seekableIn, header)
+        && BlockGzipInputStream.isBlockHeader(header, 0);
+    if (!blocks) {
+      // An ordinary gzip file; the first split reads all of it.
+      seekable.seek(0);
+      if (start == 0) {
+        return new BlockSplitInputStream(seekableIn, 0, Long.MAX_VALUE, false);
+      }
+      return new BlockSplitInputStream(seekableIn, end, end, true);
+    }
+    final long adjustedEnd = findBlock(seekableIn, end);
+    final long adjustedStart = findBlock(seekableIn, start);
+    seekable.seek(adjustedStart);
+    return new BlockSplitInputStream(seekableIn, adjustedStart, adjustedEnd, false);
+  }
+
+  private static boolean readHeader(final InputStream in, final byte[] header)
+      throws IOException {
+    int length = 0;
+    while (length < header.length) {
+      final int n = in.read(header, length, header.length - length);
+      if (n < 0) {
+        return false;
+      }
+      length += n;
+    }
+    return true;
+  }
+
+  // Find the first block that starts at or after an offset. Returns the
+  // length of the file if there are no more blocks.
+  static long findBlock(final InputStream in, final long offset) throws IOException {
+    ((Seekable) in).seek(offset);
+    final int headerSize = BlockGzipOutputStream.HEADER_SIZE;
+    final byte[] window = new byte[SCAN_BUFFER_SIZE];
+    long windowStart = offset;
+    int length = 0;
+    while (true) {
+      final int n = in.read(window, length, window.length - length);
+      if (n < 0) {
+        return windowStart + length;
+      }
+      length += n;
+      for (int i = 0; i + headerSize <= length; i++) {
+        if (BlockGzipInputStream.isBlockHeader(window, i)) {
+          return windowStart + i;
+        }
+      }
+      // Keep any partial header at the end of the window.
+      final int keep = Math.min(length, headerSize - 1);
+      System.arraycopy(window, length - keep, window, 0, keep);
+      windowStart += length - keep;
+      length = keep;
+    }
+  }
+
+  /**
+   * Stream that decompresses the blocks of one split.
+   * <P>
+   * The position reported to {@code LineRecordReader} is the offset of the
+   * next block while the stream is between blocks, and one byte past the start
+   * of the current block while it is part way through one. As a result the
+   * reader for a split keeps going until it has read the first line that
+   * starts in the block at its adjusted end, which is exactly the line that the
+   * next split skips.
+   */
+  private static class BlockSplitInputStream extends SplitCompressionInputStream {
+
+    private final BlockGzipInputStream blocks;
+    private final long offset;
+    private final boolean empty;
+
+    BlockSplitInputStream(final InputStream in, final long start, final long end,
+        final boolean empty) throws IOException {
+      super(in, start, end);
+      setStart(start);
+      setEnd(end);
+      this.blocks = new BlockGzipInputStream(in, start > 0);
+      this.offset = start;
+      this.empty = empty;
+    }
+
+    @Override
+    public int read() throws IOException {
+      return empty ? -1 : blocks.read();
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      return empty ? -1 : blocks.read(b, off, len);
+    }
+
+    @Override
+    public long getPos() {
+      if (empty) {
+        return getAdjustedEnd() + 1;
+      }
+      if (blocks.isInMember()) {
+        return offset + blocks.getMemberStart() + 1;
+      }
+      return offset + blocks.getPosition();
+    }
+
+    @Override
+    public void resetState() {
+      throw new UnsupportedOperationException("Block gzip split streams can not be reset");
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        blocks.close();
+      } finally {
+        super.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,299 @@
+package edu.harvard.data.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Input stream that decompresses gzip data, including multi-member files such
+ * as those written by {@link BlockGzipOutputStream}.
+ * <P>
+ * {@code java.util.zip.GZIPInputStream} decides whether another member follows
+ * the current one by calling {@code available()} on its input, which makes it
+ * stop early on streams (such as S3 object streams) that report no available
+ * data between network reads. This class reads members until the underlying
+ * stream is exhausted. As with {@code GZIPInputStream}, any trailing data that
+ * does not start with a gzip header is ignored.
+ * <P>
+ * A single call to {@link #read(byte[], int, int)} never returns data from
+ * more than one member, and the stream keeps track of its position in the
+ * compressed input. {@link BlockGzipCodec} relies on both properties to divide
+ * a block gzip file between Hadoop input splits.
+ * <P>
+ * This class is not thread-safe.
+ */
+public class BlockGzipInputStream extends InputStream {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+
+  private final InputStream in;
+  private final byte[] buffer;
+  private final Inflater inflater;
+  private final CRC32 crc;
+  private final byte[] singleByte;
+  // Offset in the compressed input of buffer[0].
+  private long bufferStart;
+  private int bufferPosition;
+  private int bufferLength;
+  private long memberStart;
+  private long memberSize;
+  private boolean inMember;
+  private boolean firstMember;
+  private boolean eof;
+  private boolean closed;
+
+  /**
+   * Create a stream that decompresses gzip data.
+   *
+   * @param in
+   *          the compressed input. The stream must start with a gzip header.
+   */
+  public BlockGzipInputStream(final InputStream in) {
+    this(in, false);
+  }
+
+  /**
+   * Create a stream that decompresses gzip data, optionally accepting an empty
+   * input. Used when reading from the middle of a file, where there may be no
+   * members left.
+   */
+  BlockGzipInputStream(final InputStream in, final boolean allowEmpty) {
+    this.in = in;
+    this.buffer = new byte[BUFFER_SIZE];
+    this.inflater = new Inflater(true);
+    this.crc = new CRC32();
+    this.singleByte = new byte[1];
+    this.bufferStart = 0;
+    this.bufferPosition = 0;
+    this.bufferLength = 0;
+    this.inMember = false;
+    this.firstMember = !allowEmpty;
+    this.eof = false;
+    this.closed = false;
+  }
+
+  @Override
+  public int read() throws IOException {
+    return read(singleByte, 0, 1) == -1 ? -1 : singleByte[0] & 0xff;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    if (off < 0 || len < 0 || len > b.length - off) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (len == 0) {
+      return 0;
+    }
+    while (true) {
+      if (!inMember && !startMember()) {
+        return -1;
+      }
+      final int n = inflate(b, off, len);
+      if (n > 0) {
+        return n;
+      }
+      // Nothing was read, so the member that just ended was empty.
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      inflater.end();
+      in.close();
+    }
+  }
+
+  /**
+   * Get the position in the compressed input of the next byte that has not
+   * yet been decompressed. This is only meaningful between members.
+   */
+  long getPosition() {
+    return bufferStart + bufferPosition;
+  }
+
+  /**
+   * Get the position in the compressed input of the header of the current
+   * member, or of the last member read if the stream is between members.
+   */
+  long getMemberStart() {
+    return memberStart;
+  }
+
+  /**
+   * Check whether the stream has started but not finished decompressing a
+   * member.
+   */
+  boolean isInMember() {
+    return inMember;
+  }
+
+  /**
+   * Check whether an array holds the header of a block written by
+   * {@link BlockGzipOutputStream}.
+   *
+   * @param b
+   *          the array to check.
+   * @param off
+   *          the offset in {@code b} of the first byte of the header. The array
+   *          must hold at least {@code BlockGzipOutputStream.HEADER_SIZE} bytes
+   *          starting from this offset.
+   * @return true if the array holds a gzip header that starts with a
+   *         {@code BC} extra field.
+   */
+  static boolean isBlockHeader(final byte[] b, final int off) {
+    return b[off] == 0x1f && b[off + 1] == (byte) 0x8b && b[off + 2] == 8
+        && (b[off + 3] & FEXTRA) != 0 && b[off + 10] == 6 && b[off + 11] == 0
+        && b[off + 12] == 'B' && b[off + 13] == 'C' && b[off + 14] == 2 && b[off + 15] == 0;
+  }
+
+  // Read the header of the next member. Returns false at the end of the input.
+  private boolean startMember() throws IOException {
+    if (eof) {
+      return false;
+    }
+    memberStart = getPosition();
+    if (bufferPosition == bufferLength && !fill()) {
+      if (firstMember) {
+        throw new EOFException();
+      }
+      eof = true;
+      return false;
+    }
+    int magic;
+    try {
+      magic = readUnsignedShort();
+    } catch (final EOFException e) {
+      magic = -1;
+    }
+    if (magic != 0x8b1f) {
+      if (firstMember) {
+        throw new ZipException("Not in GZIP format");
+      }
+      eof = true;
+      return false;
+    }
+    if (readUnsignedByte() != 8) {
+      throw new ZipException("Unsupported compression method");
+    }
+    final int flags = readUnsignedByte();
+    // Modification time, extra flags and operating system.
+    skipBytes(6);
+    if ((flags & FEXTRA) != 0) {
+      skipBytes(readUnsignedShort());
+    }
+    if ((flags & FNAME) != 0) {
+      while (readUnsignedByte() != 0) {
+      }
+    }
+    if ((flags & FCOMMENT) != 0) {
+      while (readUnsignedByte() != 0) {
+      }
+    }
+    if ((flags & FHCRC) != 0) {
+      skipBytes(2);
+    }
+    inflater.reset();
+    crc.reset();
+    memberSize = 0;
+    inMember = true;
+    firstMember = false;
+    return true;
+  }
+
+  // Decompress data from the current member, reading its trailer if the end
+  // of the member is reached. Returns zero only at the end of the member.
+  private int inflate(final byte[] b, final int off, final int len) throws IOException {
+    while (true) {
+      if (inflater.needsInput()) {
+        if (bufferPosition == bufferLength && !fill()) {
+          throw new EOFException("Unexpected end of ZLIB input stream");
+        }
+        inflater.setInput(buffer, bufferPosition, bufferLength - bufferPosition);
+        bufferPosition = bufferLength;
+      }
+      final int n;
+      try {
+        n = inflater.inflate(b, off, len);
+      } catch (final DataFormatException e) {
+        final String message = e.getMessage();
+        throw new ZipException(message == null ? "Invalid ZLIB data format" : message);
+      }
+      if (n > 0) {
+        crc.update(b, off, n);
+        memberSize += n;
+      }
+      if (inflater.finished()) {
+        bufferPosition = bufferLength - inflater.getRemaining();
+        readTrailer();
+        inMember = false;
+        return n;
+      }
+      if (n > 0) {
+        return n;
+      }
+      if (inflater.needsDictionary()) {
+        throw new ZipException("Unexpected preset dictionary");
+      }
+    }
+  }
+
+  private void readTrailer() throws IOException {
+    final long expectedCrc = readUnsignedInt();
+    final long expectedSize = readUnsignedInt();
+    if (expectedCrc != crc.getValue() || expectedSize != (memberSize & 0xffffffffL)) {
+      throw new ZipException("Corrupt GZIP trailer");
+    }
+  }
+
+  // Refill the buffer once all of its contents have been consumed. Returns
+  // false at the end of the input.
+  private boolean fill() throws IOException {
+    bufferStart += bufferLength;
+    bufferPosition = 0;
+    bufferLength = 0;
+    int n = 0;
+    while (n == 0) {
+      n = in.read(buffer, 0, buffer.length);
+    }
+    if (n < 0) {
+      return false;
+    }
+    bufferLength = n;
+    return true;
+  }
+
+  private int readUnsignedByte() throws IOException {
+    if (bufferPosition == bufferLength && !fill()) {
+      throw new EOFException();
+    }
+    return buffer[bufferPosition++] & 0xff;
+  }
+
+  private int readUnsignedShort() throws IOException {
+    return readUnsignedByte() | (readUnsignedByte() << 8);
+  }
+
+  private long readUnsignedInt() throws IOException {
+    return readUnsignedShort() | ((long) readUnsignedShort() << 16);
+  }
+
+  private void skipBytes(final int count) throws IOException {
+    for (int i = 0; i < count; i++) {
+      readUnsignedByte();
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package edu.harvard.data.io;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Output stream that writes data in the block gzip (BGZF) layout used by
+ * samtools and Hadoop-BAM.
+ * <P>
+ * The data is split into blocks of at most {@link #MAX_BLOCK_DATA} bytes, and
+ * each block is compressed as a separate gzip member. Every member carries a
+ * {@code BC} extra field holding its compressed size, and the stream ends with
+ * an empty member. The result is a valid multi-member gzip file, so it can be
+ * read by {@code gunzip}, Redshift's {@code COPY ... GZIP} and Hadoop's
+ * {@code GzipCodec}. Unlike a single-member gzip file, a reader can also start
+ * at any block boundary, which lets {@link BlockGzipCodec} split the file
+ * between several Hadoop map tasks.
+ * <P>
+ * The cost of the block layout is a slightly lower compression ratio than a
+ * single gzip member, since the compression dictionary is reset for each
+ * block.
+ * <P>
+ * This class is not thread-safe.
+ */
+public class BlockGzipOutputStream extends FilterOutputStream {
+
+  /**
+   * The maximum number of uncompressed bytes in a block. This is the value used
+   * by samtools; it leaves room for the deflate overhead of incompressible data
+   * without the block exceeding 64KiB.
+   */
+  public static final int MAX_BLOCK_DATA = 0xff00;
+
+  static final int HEADER_SIZE = 18;
+  static final int TRAILER_SIZE = 8;
+  static final int MAX_BLOCK_SIZE = 0x10000;
+
+  // An empty block, written at the end of the stream as an end-of-file marker.
+  static final byte[] EOF_BLOCK = { 0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 6, 0,
+      'B', 'C', 2, 0, 0x1b, 0, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0 };
+
+  private final byte[] data;
+  private final byte[] block;
+  private final Deflater deflater;
+  private final CRC32 crc;
+  private int dataLength;
+  private boolean closed;
+
+  /**
+   * Create a stream that compresses its blocks using the default deflate
+   * level.
+   *
+   * @param out
+   *          the stream to which compressed blocks are written.
+   */
+  public BlockGzipOutputStream(final OutputStream out) {
+    this(out, Deflater.DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * Create a stream that compresses its blocks using a specific deflate level.
+   *
+   * @param out
+   *          the stream to which compressed blocks are written.
+   * @param level
+   *          the deflate level, between {@link Deflater#BEST_SPEED} and
+   *          {@link Deflater#BEST_COMPRESSION}, or
+   *          {@link Deflater#DEFAULT_COMPRESSION}.
+   */
+  public BlockGzipOutputStream(final OutputStream out, final int level) {
+    super(out);
+    this.data = new byte[MAX_BLOCK_DATA];
+    this.block = new byte[MAX_BLOCK_SIZE];
+    this.deflater = new Deflater(level, true);
+    this.crc = new CRC32();
+    this.dataLength = 0;
+    this.closed = false;
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    if (dataLength == data.length) {
+      writeBlock(data, 0, dataLength);
+      dataLength = 0;
+    }
+    data[dataLength++] = (byte) b;
+  }
+
+  @Override
+  public void write(final byte[] b, final int off, final int len) throws IOException {
+    int offset = off;
+    int remaining = len;
+    while (remaining > 0) {
+      if (dataLength == data.length) {
+        writeBlock(data, 0, dataLength);
+        dataLength = 0;
+      }
+      final int count = Math.min(remaining, data.length - dataLength);
+      System.arraycopy(b, offset, data, dataLength, count);
+      dataLength += count;
+      offset += count;
+      remaining -= count;
+    }
+  }
+
+  // Blocks are only written when they are full or the stream is closed; a
+  // flush passes on any blocks already written but does not end the current
+  // block, since small blocks compress poorly.
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (dataLength > 0) {
+        writeBlock(data, 0, dataLength);
+        dataLength = 0;
+      }
+      out.write(EOF_BLOCK);
+    } finally {
+      deflater.end();
+      out.close();
+    }
+  }
+
+  private void writeBlock(final byte[] b, final int off, final int len) throws IOException {
+    deflater.reset();
+    deflater.setInput(b, off, len);
+    deflater.finish();
+    final int maxCompressed = MAX_BLOCK_SIZE - HEADER_SIZE - TRAILER_SIZE;
+    int compressed = 0;
+    while (!deflater.finished() && compressed < maxCompressed) {
+      compressed += deflater.deflate(block, HEADER_SIZE + compressed, maxCompressed - compressed);
+    }
+    if (!deflater.finished()) {
+      // Deflate's worst-case overhead means this shouldn't happen for blocks
+      // of MAX_BLOCK_DATA bytes, but split the data rather than write a block
+      // that is too large to be read.
+      writeBlock(b, off, len / 2);
+      writeBlock(b, off + len / 2, len - len / 2);
+      return;
+    }
+    crc.reset();
+    crc.update(b, off, len);
+    final int blockSize = HEADER_SIZE + compressed + TRAILER_SIZE;
+    System.arraycopy(EOF_BLOCK, 0, block, 0, HEADER_SIZE - 2);
+    putShort(block, HEADER_SIZE - 2, blockSize - 1);
+    putInt(block, HEADER_SIZE + compressed, (int) crc.getValue());
+    putInt(block, HEADER_SIZE + compressed + 4, len);
+    out.write(block, 0, blockSize);
+  }
+
+  private static void putShort(final byte[] b, final int offset, final int value) {
+    b[offset] = (byte) value;
+    b[offset + 1] = (byte) (value >>> 8);
+  }
+
+  private static void putInt(final byte[] b, final int offset, final int value) {
+    putShort(b, offset, value);
+    putShort(b, offset + 2, value >>> 16);
+  }
+}
@@ -0,0 +1,96 @@
+package edu.harvard.data.io;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.hadoop.util.PureJavaCrc32C;
+
+/**
+ * Output stream that computes the MD5 digest, CRC32C checksum and length of
+ * the data that passes through it to an underlying stream.
+ * <P>
+ * Placing this stream directly above a file (below any compression) lets a
+ * writer know the checksums of the bytes that will be stored, without reading
+ * the file back once it has been written. {@link TableWriter} uses it for every
+ * table that it writes; the resulting {@link ContentChecksum} can then be sent
+ * along with the file when it is uploaded to S3.
+ * <P>
+ * This class is not thread-safe.
+ */
+public class ChecksumOutputStream extends FilterOutputStream {
+
+  private final MessageDigest md5;
+  private final PureJavaCrc32C crc32c;
+  private long length;
+  private byte[] digest;
+  private long digestLength;
+
+  /**
+   * Create a stream that checksums all data written to another stream.
+   *
+   * @param out
+   *          the stream to which data is written. This stream will be closed
+   *          when the {@link #close} method is called on this instance.
+   */
+  public ChecksumOutputStream(final OutputStream out) {
+    super(out);
+    try {
+      this.md5 = MessageDigest.getInstance("MD5");
+    } catch (final NoSuchAlgorithmException e) {
+      // Every Java platform is required to support MD5.
+      throw new RuntimeException(e);
+    }
+    this.crc32c = new PureJavaCrc32C();
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    out.write(b);
+    md5.update((byte) b);
+    crc32c.update(b);
+    length++;
+  }
+
+  // FilterOutputStream writes arrays one byte at a time, so pass them through
+  // directly.
+  @Override
+  public void write(final byte[] b, final int off, final int len) throws IOException {
+    out.write(b, off, len);
+    md5.update(b, off, len);
+    crc32c.update(b, off, len);
+    length += len;
+  }
+
+  /**
+   * @return the number of bytes that have been written to this stream.
+   */
+  public long getLength() {
+    return length;
+  }
+
+  /**
+   * Get the checksums of all data written to this stream. Once this method has
+   * been called no more data may be written.
+   *
+   * @param rows
+   *          the number of records held in the data, or
+   *          {@link ContentChecksum#UNKNOWN_ROWS} if the caller does not know.
+   *
+   * @return a {@link ContentChecksum} describing the data.
+   *
+   * @throws IllegalStateException
+   *           if data has been written since a previous call to this method.
+   */
+  public ContentChecksum getChecksum(final long rows) {
+    if (digest == null) {
+      digest = md5.digest();
+      digestLength = length;
+    } else if (length != digestLength) {
+      throw new IllegalStateException("Data written after checksum was computed");
+    }
+    return new ContentChecksum(digest, crc32c.getValue(), length, rows);
+  }
+}
@@ -0,0 +1,61 @@
+package edu.harvard.data.io;
+
+import java.util.List;
+
+/**
+ * The set of columns that a caller needs from a table, used by
+ * {@link ProjectedRecordDecoder} to skip decoding every other column.
+ * <P>
+ * A projection is resolved against a table's column names once, when it is
+ * created, so checking whether a column is included while decoding a record
+ * is a simple array lookup. Projections are normally obtained from
+ * {@link ProjectedRecordDecoder#project} rather than constructed directly.
+ * <P>
+ * Instances are immutable, and so can be shared between threads.
+ */
+public class ColumnProjection {
+
+  /**
+   * A projection that includes every column of any table.
+   */
+  public static final ColumnProjection ALL = new ColumnProjection();
+
+  private final boolean[] included;
+
+  private ColumnProjection() {
+    this.included = null;
+  }
+
+  /**
+   * Create a projection over a table.
+   *
+   * @param columnNames
+   *          the names of all columns in the table, in the order in which they
+   *          appear in each record.
+   * @param selected
+   *          the names of the columns to be decoded.
+   *
+   * @throws IllegalArgumentException
+   *           if any of the selected names is not a column of the table.
+   */
+  public ColumnProjection(final List<String> columnNames, final String... selected) {
+    this.included = new boolean[columnNames.size()];
+    for (final String name : selected) {
+      final int idx = columnNames.indexOf(name);
+      if (idx < 0) {
+        throw new IllegalArgumentException("Unknown column " + name + "; expected one of "
+            + columnNames);
+      }
+      included[idx] = true;
+    }
+  }
+
+  /**
+   * @param column
+   *          the zero-based index of a column in the table.
+   * @return {@code true} if the column should be decoded.
+   */
+  public boolean includes(final int column) {
+    return included == null || (column < included.length && included[column]);
+  }
+}
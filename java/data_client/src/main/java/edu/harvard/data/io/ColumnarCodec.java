@@ -0,0 +1,125 @@
+package edu.harvard.data.io;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import edu.harvard.data.DataTable;
+import edu.harvard.data.schema.DataSchemaType;
+
+/**
+ * Describes the columns of a {@link DataTable} class and moves values between
+ * its records and the column buffers of a columnar file.
+ * <P>
+ * Generated bindings declare a {@code public static final} field named
+ * {@link #CODEC_FIELD} that holds a codec built from the table's
+ * {@code DataSchemaTable}: one column per schema column, in schema order, with
+ * the schema's name and type. {@link ParquetEncoder} uses the codec to derive
+ * the file schema, and {@link ParquetFileIterator} uses it to create records.
+ * <P>
+ * Values are exchanged using the Java types of the binding's fields, except
+ * for enum columns, which are exchanged as their string values.
+ * <P>
+ * Implementations must be thread-safe; generated codecs hold no state.
+ *
+ * @param <T>
+ *          the {@link DataTable} implementation handled by this codec.
+ */
+public abstract class ColumnarCodec<T extends DataTable> {
+
+  /**
+   * The name of the static field that generated bindings use to expose their
+   * {@code ColumnarCodec}.
+   */
+  public static final String CODEC_FIELD = "COLUMNAR";
+
+  private static final ConcurrentMap<Class<?>, ColumnarCodec<?>> codecs = new ConcurrentHashMap<Class<?>, ColumnarCodec<?>>();
+
+  private final String[] names;
+  private final DataSchemaType[] types;
+
+  protected ColumnarCodec(final String[] names, final DataSchemaType[] types) {
+    if (names.length != types.length) {
+      throw new IllegalArgumentException("Column names and types don't match");
+    }
+    this.names = names.clone();
+    this.types = types.clone();
+  }
+
+  public int getColumnCount() {
+    return names.length;
+  }
+
+  public String getColumnName(final int column) {
+    return names[column];
+  }
+
+  public DataSchemaType getColumnType(final int column) {
+    return types[column];
+  }
+
+  /**
+   * Copy the fields of a record into an array, one element per column.
+   *
+   * @param record
+   *          the record to read.
+   * @param values
+   *          an array of at least {@link #getColumnCount} elements that will
+   *          hold the field values. Null fields are stored as {@code null}.
+   */
+  public abstract void getValues(T record, Object[] values);
+
+  /**
+   * Create a record from an array of column values, as produced by
+   * {@link #getValues}.
+   *
+   * @param values
+   *          the field values, one element per column.
+   * @return a new record.
+   */
+  public abstract T create(Object[] values);
+
+  /**
+   * Get the codec for a {@link DataTable} class.
+   *
+   * @param tableType
+   *          the class of records to be encoded.
+   *
+   * @return the {@code ColumnarCodec} declared by the class.
+   *
+   * @throws RuntimeException
+   *           if the class does not declare a codec, which is the case for
+   *           hand-written {@code DataTable} implementations and bindings
+   *           generated before columnar output was supported. This represents
+   *           a bug in the calling code rather than a data error, so it is not
+   *           a checked exception.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T extends DataTable> ColumnarCodec<T> forClass(final Class<T> tableType) {
+    ColumnarCodec<?> codec = codecs.get(tableType);
+    if (codec == null) {
+      codec = findCodec(tableType);
+      codecs.putIfAbsent(tableType, codec);
+    }
+    return (ColumnarCodec<T>) codec;
+  }
+
+  private static ColumnarCodec<?> findCodec(final Class<?> tableType) {
+    try {
+      final Field field = tableType.getField(CODEC_FIELD);
+      if (Modifier.isStatic(field.getModifiers())
+          && ColumnarCodec.class.isAssignableFrom(field.getType())) {
+        final Object value = field.get(null);
+        if (value != null) {
+          return (ColumnarCodec<?>) value;
+        }
+      }
+    } catch (final NoSuchFieldException e) {
+      // Fall through to the exception below.
+    } catch (final IllegalAccessException e) {
+      throw new RuntimeException(e);
+    }
+    throw new RuntimeException(tableType.getName() + " does not declare a columnar codec");
+  }
+}
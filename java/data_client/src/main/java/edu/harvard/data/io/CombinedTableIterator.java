@@ -2,9 +2,9 @@ package edu.harvard.data.io;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import edu.harvard.data.DataTable;
 
@@ -21,7 +21,9 @@ import edu.harvard.data.DataTable;
  * implementation.
  * <P>
  * The iterator does not cache any records, meaning that its memory footprint is
- * small.
+ * small. It also does not call {@link TableReader#iterator} on a component
+ * reader until the previous reader has been exhausted, so readers that fetch
+ * their data lazily (such as {@link S3TableReader}) do so one at a time.
  * <P>
  * This class is not thread-safe. Any access synchronization must be performed
  * by the caller.
@@ -44,7 +46,7 @@ import edu.harvard.data.DataTable;
 public class CombinedTableIterator<T extends DataTable> implements Iterator<T> {
 
   private Iterator<T> currentIterator;
-  private final List<Iterator<T>> iteratorQueue;
+  private int currentTable;
   private final List<TableReader<T>> tables;
 
   /**
@@ -61,49 +63,41 @@ public class CombinedTableIterator<T extends DataTable> implements Iterator<T> {
    *          over.
    */
   CombinedTableIterator(final List<TableReader<T>> tables) {
-    iteratorQueue = new ArrayList<Iterator<T>>();
     this.tables = tables;
-    if (tables.size() == 0) {
-      currentIterator = null;
-    } else {
-      currentIterator = tables.get(0).iterator();
-    }
-    for (int i = 1; i < tables.size(); i++) {
-      iteratorQueue.add(tables.get(i).iterator());
-    }
+    this.currentTable = -1;
+    this.currentIterator = null;
   }
 
   @Override
   public boolean hasNext() {
-    if (currentIterator == null) {
-      return false;
-    }
-    if (currentIterator.hasNext()) {
-      return true;
-    }
-    if (iteratorQueue.isEmpty()) {
-      closeCurrentIterator();
-      return false;
+    while (currentIterator == null || !currentIterator.hasNext()) {
+      if (currentIterator != null) {
+        closeCurrentTable();
+      }
+      if (currentTable + 1 >= tables.size()) {
+        currentTable = tables.size();
+        return false;
+      }
+      currentTable++;
+      currentIterator = tables.get(currentTable).iterator();
     }
-    closeCurrentIterator();
-    currentIterator = iteratorQueue.remove(0);
-    return hasNext();
+    return true;
   }
 
-  private void closeCurrentIterator() {
-    for (final TableReader<T> t : tables) {
-      if (t.iterator().equals(currentIterator)) {
-        try {
-          t.close();
-        } catch (final IOException e) {
-          throw new RuntimeException(e);
-        }
-      }
+  private void closeCurrentTable() {
+    try {
+      tables.get(currentTable).close();
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
     }
+    currentIterator = null;
   }
 
   @Override
   public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
     return currentIterator.next();
   }
 
@@ -112,4 +106,4 @@ public class CombinedTableIterator<T extends DataTable> implements Iterator<T> {
     throw new UnsupportedOperationException();
   }
 
-}
\ No newline at end of file
+}
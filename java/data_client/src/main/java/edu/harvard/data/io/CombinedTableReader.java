@@ -3,6 +3,7 @@ package edu.harvard.data.io;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import edu.harvard.data.DataTable;
 
@@ -43,6 +44,24 @@ public class CombinedTableReader<T extends DataTable> implements TableReader<T>
     return iterator;
   }
 
+  /**
+   * Create a {@link ParallelTableReader} over the same {@link TableReader}
+   * instances as this reader, so that the tables can be read concurrently. The
+   * work is split at table boundaries, meaning that each component reader
+   * (typically a single file) is read on its own thread.
+   * <P>
+   * The returned reader shares its component readers with this instance, so
+   * clients should iterate over one or the other, but not both.
+   *
+   * @param exec
+   *          the {@link ExecutorService} on which the tables will be read.
+   *
+   * @return a {@code ParallelTableReader} over the tables in this reader.
+   */
+  public ParallelTableReader<T> parallel(final ExecutorService exec) {
+    return new ParallelTableReader<T>(tables, exec);
+  }
+
   @Override
   public void close() throws IOException {
     for (final TableReader<T> table : tables) {
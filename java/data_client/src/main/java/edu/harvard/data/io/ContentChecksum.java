@@ -0,0 +1,176 @@
+package edu.harvard.data.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+
+import com.amazonaws.util.BinaryUtils;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Checksums, length and row count of a data file, computed as the file was
+ * written.
+ * <P>
+ * A {@code ContentChecksum} is produced by {@link TableWriter} when it is
+ * closed, sent with the file to S3 by
+ * {@link edu.harvard.data.AwsUtils#putFile(com.amazonaws.services.s3.model.S3ObjectId, File, ContentChecksum)}
+ * and recorded in the
+ * {@link edu.harvard.data.pipeline.InputTableIndex}. Later stages can compare
+ * checksums to tell whether a file has changed, or use the row count to
+ * verify a load, without downloading the file.
+ * <P>
+ * Instances are immutable, and are serialized to JSON as part of the
+ * {@code InputTableIndex}.
+ */
+public class ContentChecksum {
+
+  /**
+   * Row count used when the number of records in a file is not known, for
+   * example when the checksum was computed from a file rather than by the
+   * {@link TableWriter} that produced it.
+   */
+  public static final long UNKNOWN_ROWS = -1;
+
+  private final String md5;
+  private final long crc32c;
+  private final long length;
+  private final long rows;
+
+  ContentChecksum(final byte[] md5, final long crc32c, final long length, final long rows) {
+    this(BinaryUtils.toHex(md5), crc32c, length, rows);
+  }
+
+  /**
+   * Create a checksum from previously computed values.
+   *
+   * @param md5
+   *          the MD5 digest of the data, as a lower-case hexadecimal string.
+   * @param crc32c
+   *          the CRC32C checksum of the data.
+   * @param length
+   *          the length of the data, in bytes.
+   * @param rows
+   *          the number of records in the data, or {@link #UNKNOWN_ROWS}.
+   */
+  @JsonCreator
+  public ContentChecksum(@JsonProperty("md5") final String md5,
+      @JsonProperty("crc32c") final long crc32c, @JsonProperty("length") final long length,
+      @JsonProperty("rows") final long rows) {
+    this.md5 = md5;
+    this.crc32c = crc32c;
+    this.length = length;
+    this.rows = rows;
+  }
+
+  /**
+   * Compute the checksums of an existing file. This reads the whole file; when
+   * a file is produced by a {@link TableWriter} it is cheaper to use the
+   * checksum returned by {@link TableWriter#getChecksum}.
+   *
+   * @param file
+   *          the file to read.
+   *
+   * @return a {@code ContentChecksum} for the file, with an unknown row count.
+   *
+   * @throws IOException
+   *           if an error occurs while reading the file.
+   */
+  public static ContentChecksum forFile(final File file) throws IOException {
+    try (final InputStream in = new FileInputStream(file);
+        final ChecksumOutputStream out = new ChecksumOutputStream(new NullOutputStream())) {
+      IOUtils.copy(in, out);
+      return out.getChecksum(UNKNOWN_ROWS);
+    }
+  }
+
+  /**
+   * @return the MD5 digest of the data, as a lower-case hexadecimal string.
+   */
+  public String getMd5() {
+    return md5;
+  }
+
+  /**
+   * @return the MD5 digest of the data encoded in base 64, as used by the HTTP
+   *         {@code Content-MD5} header.
+   */
+  @JsonIgnore
+  public String getMd5Base64() {
+    return BinaryUtils.toBase64(BinaryUtils.fromHex(md5));
+  }
+
+  /**
+   * @return the CRC32C (Castagnoli) checksum of the data.
+   */
+  public long getCrc32c() {
+    return crc32c;
+  }
+
+  /**
+   * @return the length of the data, in bytes.
+   */
+  public long getLength() {
+    return length;
+  }
+
+  /**
+   * @return the number of records in the data, or {@link #UNKNOWN_ROWS}.
+   */
+  public long getRows() {
+    return rows;
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + (int) (crc32c ^ (crc32c >>> 32));
+    result = prime * result + (int) (length ^ (length >>> 32));
+    result = prime * result + ((md5 == null) ? 0 : md5.hashCode());
+    result = prime * result + (int) (rows ^ (rows >>> 32));
+    return result;
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null) {
+      return false;
+    }
+    if (getClass() != obj.getClass()) {
+      return false;
+    }
+    final ContentChecksum other = (ContentChecksum) obj;
+    if (crc32c != other.crc32c) {
+      return false;
+    }
+    if (length != other.length) {
+      return false;
+    }
+    if (md5 == null) {
+      if (other.md5 != null) {
+        return false;
+      }
+    } else if (!md5.equals(other.md5)) {
+      return false;
+    }
+    if (rows != other.rows) {
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "md5=" + md5 + ", crc32c=" + String.format("%08x", crc32c) + ", length=" + length
+        + ", rows=" + rows;
+  }
+}
@@ -0,0 +1,106 @@
+package edu.harvard.data.io;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.io.compress.SplittableCompressionCodec;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+
+import edu.harvard.data.DataTable;
+import edu.harvard.data.HadoopConfigurationException;
+import edu.harvard.data.HadoopUtilities;
+
+/**
+ * Hadoop {@code InputFormat} that delivers parsed {@link DataTable} records to
+ * mappers, in place of the {@code Text} lines produced by
+ * {@code TextInputFormat}.
+ * <P>
+ * The record class is stored in the job configuration by
+ * {@link #setTableType}, and the {@link edu.harvard.data.TableFormat} is read
+ * from the {@code format} parameter that {@link edu.harvard.data.HadoopJob}
+ * sets for every job. Records are decoded by a {@link DataTableRecordReader};
+ * see that class for details, in particular the fact that generated bindings
+ * are reused from one call to {@code map} to the next.
+ * <P>
+ * Files are split as {@code TextInputFormat} would split them: uncompressed
+ * files and files compressed with a splittable codec may be divided between
+ * mappers. The exception is {@link BlockGzipCodec}, which claims every
+ * {@code .gz} file; only files that start with a block gzip header are split,
+ * and ordinary gzip files get one mapper each.
+ *
+ * @param <T>
+ *          the record type that this format produces.
+ */
+public class DataTableInputFormat<T extends DataTable> extends FileInputFormat<LongWritable, T> {
+
+  /**
+   * The Hadoop configuration parameter that holds the name of the record
+   * class.
+   */
+  public static final String TABLE_TYPE = "dataTableType";
+
+  /**
+   * Set the type of record that a job's mappers receive. The job must also use
+   * this class as its input format.
+   *
+   * @param job
+   *          the Hadoop job to configure.
+   * @param tableType
+   *          the class of record stored in the job's input files.
+   */
+  public static void setTableType(final Job job, final Class<? extends DataTable> tableType) {
+    job.getConfiguration().setClass(TABLE_TYPE, tableType, DataTable.class);
+  }
+
+  /**
+   * Get the type of record configured by {@link #setTableType}.
+   *
+   * @param conf
+   *          the Hadoop configuration for the job.
+   * @return the record class.
+   *
+   * @throws HadoopConfigurationException
+   *           if the record type has not been set.
+   */
+  public static Class<? extends DataTable> getTableType(final Configuration conf) {
+    final Class<? extends DataTable> tableType = conf.getClass(TABLE_TYPE, null, DataTable.class);
+    if (tableType == null) {
+      throw new HadoopConfigurationException(
+          "Required Hadoop configuration parameter '" + TABLE_TYPE + "' missing");
+    }
+    return tableType;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public RecordReader<LongWritable, T> createRecordReader(final InputSplit split,
+      final TaskAttemptContext context) {
+    final Configuration conf = context.getConfiguration();
+    return new DataTableRecordReader<T>((Class<T>) getTableType(conf),
+        new HadoopUtilities().getFormat(conf));
+  }
+
+  @Override
+  protected boolean isSplitable(final JobContext context, final Path file) {
+    final Configuration conf = context.getConfiguration();
+    final CompressionCodec codec = new CompressionCodecFactory(conf).getCodec(file);
+    if (codec instanceof BlockGzipCodec) {
+      try {
+        return BlockGzipCodec.isBlockFile(file.getFileSystem(conf), file);
+      } catch (final IOException e) {
+        // Leave the file whole; the record reader reports the error.
+        return false;
+      }
+    }
+    return codec == null || codec instanceof SplittableCompressionCodec;
+  }
+}
@@ -0,0 +1,161 @@
+package edu.harvard.data.io;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.List;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.LineRecordReader;
+
+import edu.harvard.data.DataTable;
+import edu.harvard.data.TableFormat;
+
+/**
+ * Hadoop {@link RecordReader} that splits its input into lines and decodes
+ * each line into a {@link DataTable} record.
+ * <P>
+ * Line splitting (including the handling of split boundaries and compressed
+ * input) is delegated to Hadoop's {@link LineRecordReader}. Each line's bytes
+ * are then decoded straight from the {@code Text} buffer by a
+ * {@link DelimitedTokenizer}, without creating a {@code String} for the line
+ * or a {@code CSVParser} for the record. If the record type implements
+ * {@link ReusableRecord}, a single instance is reset for every line, so the
+ * value returned by {@link #getCurrentValue} is the same object each time; as
+ * with Hadoop's {@code Text} values, a mapper must copy anything that it needs
+ * to keep beyond the current call to {@code map}. Other record types are
+ * created afresh for each line by their {@link RecordDecoder}.
+ * <P>
+ * Formats that the tokenizer does not support, such as those that use quoting,
+ * are parsed one line at a time with {@code CSVParser}, as the mappers did
+ * before this class existed. If the format includes headers, the first line of
+ * each file is skipped.
+ * <P>
+ * The key for each record is its byte offset in the file, as with
+ * {@code TextInputFormat}. Instances are normally created by
+ * {@link DataTableInputFormat}.
+ * <P>
+ * This class is not thread-safe. Any access synchronization must be performed
+ * by the caller.
+ *
+ * @param <T>
+ *          the record type that this reader produces.
+ */
+public class DataTableRecordReader<T extends DataTable> extends RecordReader<LongWritable, T> {
+
+  private final Class<T> tableType;
+  private final TableFormat format;
+  private final CSVFormat csvFormat;
+  private final RecordDecoder<T> decoder;
+  private final LineRecordReader lines;
+  private final DelimitedTokenizer tokenizer;
+  private final T reusable;
+  private T value;
+
+  /**
+   * Create a reader.
+   *
+   * @param tableType
+   *          the type of record to produce. If the class implements
+   *          {@link ReusableRecord} it must have a public no-argument
+   *          constructor.
+   * @param format
+   *          the {@link TableFormat} that indicates how the data is formatted.
+   */
+  public DataTableRecordReader(final Class<T> tableType, final TableFormat format) {
+    this.tableType = tableType;
+    this.format = format;
+    this.csvFormat = format.getCsvFormat();
+    this.decoder = RecordDecoders.forClass(tableType);
+    this.lines = new LineRecordReader();
+    final boolean reuse = ReusableRecord.class.isAssignableFrom(tableType);
+    if (DelimitedTokenizer.supports(csvFormat)
+        && (reuse || decoder instanceof TokenizedRecordDecoder)) {
+      this.tokenizer = new DelimitedTokenizer(csvFormat);
+      this.reusable = reuse ? newRecord() : null;
+    } else {
+      this.tokenizer = null;
+      this.reusable = null;
+    }
+  }
+
+  @Override
+  public void initialize(final InputSplit split, final TaskAttemptContext context)
+      throws IOException {
+    lines.initialize(split, context);
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    while (lines.nextKeyValue()) {
+      if (format.includeHeaders() && lines.getCurrentKey().get() == 0) {
+        continue;
+      }
+      final Text line = lines.getCurrentValue();
+      try {
+        if (tokenizer != null) {
+          if (!tokenizer.reset(line.getBytes(), 0, line.getLength())) {
+            continue;
+          }
+          value = decodeFromTokenizer();
+        } else {
+          final List<CSVRecord> records = CSVParser.parse(line.toString(), csvFormat)
+              .getRecords();
+          if (records.isEmpty()) {
+            continue;
+          }
+          value = decoder.decode(format, records.get(0));
+        }
+      } catch (final ParseException | RuntimeException e) {
+        throw new IOException("Failed to parse " + tableType.getSimpleName()
+            + " record at offset " + lines.getCurrentKey(), e);
+      }
+      return true;
+    }
+    value = null;
+    return false;
+  }
+
+  @SuppressWarnings("unchecked")
+  private T decodeFromTokenizer() throws ParseException {
+    if (reusable != null) {
+      ((ReusableRecord) reusable).reset(format, tokenizer);
+      return reusable;
+    }
+    return ((TokenizedRecordDecoder<T>) decoder).decode(format, tokenizer);
+  }
+
+  private T newRecord() {
+    try {
+      return tableType.newInstance();
+    } catch (final InstantiationException | IllegalAccessException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public LongWritable getCurrentKey() {
+    return lines.getCurrentKey();
+  }
+
+  @Override
+  public T getCurrentValue() {
+    return value;
+  }
+
+  @Override
+  public float getProgress() throws IOException {
+    return lines.getProgress();
+  }
+
+  @Override
+  public void close() throws IOException {
+    lines.close();
+  }
+}
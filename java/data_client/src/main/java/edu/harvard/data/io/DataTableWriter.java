@@ -0,0 +1,32 @@
+package edu.harvard.data.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import edu.harvard.data.DataTable;
+
+/**
+ * Interface for classes that write a series of {@link DataTable} records to
+ * one or more outputs. A {@code DataTableWriter} extends {@link Closeable},
+ * allowing it to be used in a try-with-resources construct; records are
+ * buffered by most implementations, so callers can not assume that they have
+ * been written until {@link Closeable#close} has returned.
+ * <P>
+ * The standard implementation is {@link TableWriter}, which writes to a single
+ * file or stream. {@link PartitionedTableWriter} spreads the records over
+ * several files.
+ */
+public interface DataTableWriter<T extends DataTable> extends Closeable {
+
+  /**
+   * Write a record.
+   *
+   * @param record
+   *          the data to be written.
+   *
+   * @throws IOException
+   *           if an error occurs when writing the record. Due to buffering,
+   *           the error may relate to a record added earlier.
+   */
+  void add(T record) throws IOException;
+}
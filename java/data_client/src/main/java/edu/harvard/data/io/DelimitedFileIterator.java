@@ -5,8 +5,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.lang.reflect.InvocationTargetException;
+import java.io.Reader;
+import java.text.ParseException;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
@@ -22,9 +24,16 @@ import edu.harvard.data.TableFormat;
  * characteristics of the data file, are indicated by the {@link TableFormat}
  * object passed to the constructor.
  * <P>
- * The iterator reads each line of the source file and reflectively calls the
- * {@link CSVRecord} constructor on the appropriate {@link DataTable} class that
- * parses a line in the input to populate an object.
+ * The iterator reads each line of the source file and passes it to a
+ * {@link RecordDecoder} that creates an instance of the appropriate
+ * {@link DataTable} class. Generated bindings supply a decoder that calls the
+ * record constructor directly; for other classes, see
+ * {@link RecordDecoders#forClass}.
+ * <P>
+ * If the decoder is a {@link TokenizedRecordDecoder} and the file format does
+ * not use quoting, lines are split by a {@link DelimitedTokenizer} rather than
+ * a commons-csv {@link CSVParser}, avoiding the creation of a {@code String}
+ * for every field.
  * <P>
  * The iterator does not cache any records, meaning that its memory footprint is
  * small.
@@ -49,7 +58,11 @@ public class DelimitedFileIterator<T extends DataTable> implements Iterator<T>,
 
   private Iterator<CSVRecord> iterator;
   private CSVParser requestParser;
+  private DelimitedTokenizer tokenizer;
+  private Reader reader;
+  private boolean tokenizerReady;
   protected final Class<T> table;
+  protected final RecordDecoder<T> decoder;
   protected final TableFormat format;
   private final File file;
   protected InputStream inStream;
@@ -71,31 +84,59 @@ public class DelimitedFileIterator<T extends DataTable> implements Iterator<T>,
    */
   DelimitedFileIterator(final Class<T> tableType, final TableFormat format,
       final File file) {
+    this(tableType, RecordDecoders.forClass(tableType), format, file);
+  }
+
+  /**
+   * Create a new iterator that uses a specific {@link RecordDecoder} to create
+   * records.
+   *
+   * @param tableType
+   *          a reference to the template class {@code T} that will be used to
+   *          create new records.
+   * @param decoder
+   *          the {@link RecordDecoder} used to convert each line of input into
+   *          an instance of {@code T}.
+   * @param format
+   *          the {@link TableFormat} that indicates how the data file is
+   *          formatted.
+   * @param file
+   *          a {@link File} object that refers to the data file.
+   */
+  DelimitedFileIterator(final Class<T> tableType, final RecordDecoder<T> decoder,
+      final TableFormat format, final File file) {
     this.format = format;
     this.table = tableType;
+    this.decoder = decoder;
     this.file = file;
   }
 
   /**
-   * Build a CSV parser that sits on top of a file input stream. If the file
-   * format includes headers, this method skips the first line of the input,
-   * since we do not use the file headers for schema information.
+   * Build a CSV parser or tokenizer that sits on top of a file input stream.
+   * If the file format includes headers, this method skips the first line of
+   * the input, since we do not use the file headers for schema information.
    *
    * @throws IOException
    *           if an error occurs when reading the file or creating the parser.
    */
   private void createIterator() throws IOException {
-    if (iterator == null) {
+    if (iterator == null && tokenizer == null) {
       final InputStream in = getInputStream();
-      requestParser = new CSVParser(new InputStreamReader(in, format.getEncoding()),
-          format.getCsvFormat());
-      iterator = requestParser.iterator();
-      if (format.includeHeaders()) {
-        iterator.next();
-        line = 1;
+      reader = new InputStreamReader(in, format.getEncoding());
+      if (decoder instanceof TokenizedRecordDecoder
+          && DelimitedTokenizer.supports(format.getCsvFormat())) {
+        tokenizer = new DelimitedTokenizer(format.getCsvFormat(), reader);
+        if (format.includeHeaders()) {
+          tokenizer.next();
+        }
       } else {
-        line = 0;
+        requestParser = new CSVParser(reader, format.getCsvFormat());
+        iterator = requestParser.iterator();
+        if (format.includeHeaders()) {
+          iterator.next();
+        }
       }
+      line = format.includeHeaders() ? 1 : 0;
     }
   }
 
@@ -117,39 +158,59 @@ public class DelimitedFileIterator<T extends DataTable> implements Iterator<T>,
 
   @Override
   public boolean hasNext() {
-    if (iterator == null) {
+    if (tokenizer == null && iterator == null) {
       try {
         createIterator();
       } catch (final IOException e) {
         throw new IterationException(e);
       }
     }
+    if (tokenizer != null) {
+      if (!tokenizerReady) {
+        try {
+          tokenizerReady = tokenizer.next();
+        } catch (final IOException e) {
+          throw new IterationException(e);
+        }
+      }
+      return tokenizerReady;
+    }
     return iterator.hasNext();
   }
 
   @Override
   public T next() {
-    if (iterator == null) {
+    if (tokenizer == null && iterator == null) {
       try {
         createIterator();
       } catch (final IOException e) {
         throw new IterationException(e);
       }
     }
+    if (tokenizer != null) {
+      return nextFromTokenizer();
+    }
     final CSVRecord next = iterator.next();
     line++;
     try {
-      return table.getConstructor(TableFormat.class, CSVRecord.class).newInstance(format, next);
-    } catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-        | NoSuchMethodException | SecurityException e) {
-      throw new RuntimeException(e);
-    } catch (final InvocationTargetException e) {
-      Throwable cause = e;
-      while (cause instanceof InvocationTargetException) {
-        cause = cause.getCause();
-      }
+      return decoder.decode(format, next);
+    } catch (final ParseException | RuntimeException e) {
+      log.info("IterationException on line: " + line );
+      throw new IterationException(e);
+    }
+  }
+
+  private T nextFromTokenizer() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    tokenizerReady = false;
+    line++;
+    try {
+      return ((TokenizedRecordDecoder<T>) decoder).decode(format, tokenizer);
+    } catch (final ParseException | RuntimeException e) {
       log.info("IterationException on line: " + line );
-      throw new IterationException(cause);
+      throw new IterationException(e);
     }
   }
 
@@ -157,6 +218,8 @@ public class DelimitedFileIterator<T extends DataTable> implements Iterator<T>,
   public void close() throws IOException {
     if (requestParser != null) {
       requestParser.close();
+    } else if (reader != null) {
+      reader.close();
     }
     if (inStream != null) {
       inStream.close();
@@ -0,0 +1,694 @@
+package edu.harvard.data.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.csv.CSVFormat;
+
+import edu.harvard.data.StringDictionary;
+
+/**
+ * Tokenizer for delimited data files that do not use quoting, such as the
+ * tab-separated Canvas Data flat files and our internal formats.
+ * <P>
+ * Commons-csv's {@code CSVParser} handles the general case, but it builds a
+ * {@code CSVRecord} of {@code String} objects for every line of input, even
+ * when the caller only needs to parse a number out of most fields. This class
+ * instead reads the input into a reusable character buffer and exposes each
+ * field of the current record as an offset and length into that buffer. Escape
+ * sequences are resolved in place as a record is tokenized, so a field's slice
+ * always holds its final value. Callers can then either materialize a field as
+ * a {@code String} with {@link #get}, or parse numeric and boolean fields
+ * directly from the buffer with methods such as {@link #getLong}, which do not
+ * create any intermediate objects.
+ * <P>
+ * The tokenizer produces exactly the same fields as {@code CSVParser} for any
+ * format accepted by {@link #supports}: records end at CR, LF or CRLF; empty
+ * lines are skipped if the format ignores them; escape sequences are handled
+ * as commons-csv 1.1 does; surrounding whitespace is trimmed if the format
+ * calls for it; and fields that match the format's null string
+ * (ignoring case) are reported as null.
+ * <P>
+ * Generated bindings implement {@link TokenizedRecordDecoder} to construct
+ * records from a tokenizer, which {@link DelimitedFileIterator} uses
+ * automatically when the file format allows it.
+ * <P>
+ * A tokenizer can also be created without a stream, in which case each record
+ * is supplied as UTF-8 bytes through {@link #reset}. This suits Hadoop record
+ * readers, which already split their input into lines; see
+ * {@link DataTableInputFormat}.
+ * <P>
+ * This class is not thread-safe. Any access synchronization must be performed
+ * by the caller.
+ */
+public class DelimitedTokenizer {
+
+  private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+  private static final int INITIAL_FIELDS = 32;
+  private static final int RECORD_BUFFER_SIZE = 1024;
+  private static final char CR = '\r';
+  private static final char LF = '\n';
+  private static final long MAX_EXACT_LONG = 1L << 53;
+  private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8,
+    1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+  private final Reader in;
+  private final char delimiter;
+  private final boolean hasEscape;
+  private final char escape;
+  private final char[] nullString;
+  private final boolean ignoreEmptyLines;
+  private final boolean ignoreSurroundingSpaces;
+  private char[] buf;
+  private int bufStart;
+  private int bufEnd;
+  private boolean eof;
+  private boolean pendingCarriageReturn;
+  private int fieldCount;
+  private int[] starts;
+  private int[] ends;
+  private boolean[] nulls;
+  private CharsetDecoder decoder;
+
+  /**
+   * Check whether a format can be read by this tokenizer.
+   *
+   * @param format
+   *          the commons-csv format of the data.
+   * @return {@code true} if the format does not use quoting or comments.
+   */
+  public static boolean supports(final CSVFormat format) {
+    return !format.isQuoteCharacterSet() && !format.isCommentMarkerSet()
+        && format.getDelimiter() != CR && format.getDelimiter() != LF;
+  }
+
+  /**
+   * Create a tokenizer over a character stream.
+   *
+   * @param format
+   *          the commons-csv format of the data. The format must be supported
+   *          according to {@link #supports}.
+   * @param in
+   *          the {@link Reader} from which to read records.
+   *
+   * @throws IllegalArgumentException
+   *           if the format is not supported.
+   */
+  public DelimitedTokenizer(final CSVFormat format, final Reader in) {
+    this(format, in, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Create a tokenizer that reads one record at a time from byte arrays passed
+   * to {@link #reset}, rather than from a stream.
+   *
+   * @param format
+   *          the commons-csv format of the data. The format must be supported
+   *          according to {@link #supports}.
+   *
+   * @throws IllegalArgumentException
+   *           if the format is not supported.
+   */
+  public DelimitedTokenizer(final CSVFormat format) {
+    this(format, null, RECORD_BUFFER_SIZE);
+  }
+
+  // Package-private to allow tests to exercise buffer boundaries.
+  DelimitedTokenizer(final CSVFormat format, final Reader in, final int bufferSize) {
+    if (!supports(format)) {
+      throw new IllegalArgumentException("Format requires CSVParser: " + format);
+    }
+    this.in = in;
+    this.delimiter = format.getDelimiter();
+    this.hasEscape = format.isEscapeCharacterSet();
+    this.escape = hasEscape ? format.getEscapeCharacter() : 0;
+    this.nullString = format.getNullString() == null ? null
+        : format.getNullString().toCharArray();
+    this.ignoreEmptyLines = format.getIgnoreEmptyLines();
+    this.ignoreSurroundingSpaces = format.getIgnoreSurroundingSpaces();
+    this.buf = new char[bufferSize];
+    this.starts = new int[INITIAL_FIELDS];
+    this.ends = new int[INITIAL_FIELDS];
+    this.nulls = new boolean[INITIAL_FIELDS];
+    this.eof = in == null;
+  }
+
+  /**
+   * Advance to the next record.
+   *
+   * @return {@code true} if a record was read, or {@code false} if the end of
+   *         the input has been reached.
+   *
+   * @throws IOException
+   *           if an error occurs when reading the input, or if the input ends
+   *           part way through an escape sequence.
+   */
+  public boolean next() throws IOException {
+    fieldCount = 0;
+    while (true) {
+      if (pendingCarriageReturn) {
+        skipLineFeed();
+      }
+      final int end = findRecordEnd();
+      if (end < 0) {
+        return false;
+      }
+      final int recordStart = bufStart;
+      bufStart = skipTerminator(end);
+      if (end == recordStart && ignoreEmptyLines) {
+        continue;
+      }
+      tokenize(recordStart, end);
+      return true;
+    }
+  }
+
+  /**
+   * Tokenize a record held as UTF-8 bytes, such as the contents of a Hadoop
+   * {@code Text}. The bytes are decoded into the tokenizer's buffer, so the
+   * caller may reuse the array as soon as this method returns. Malformed input
+   * is replaced with U+FFFD, as {@code Text.toString} does.
+   * <P>
+   * The bytes are expected to hold a single line. If they contain a line
+   * terminator, only the first record is tokenized, which matches taking the
+   * first record from {@code CSVParser.parse}.
+   *
+   * @param bytes
+   *          the array holding the record.
+   * @param offset
+   *          the offset of the record in {@code bytes}.
+   * @param length
+   *          the number of bytes in the record.
+   *
+   * @return {@code true} if the bytes held a record, or {@code false} if they
+   *         were empty (or held only lines that the format ignores).
+   *
+   * @throws IOException
+   *           if the record ends part way through an escape sequence.
+   * @throws IllegalStateException
+   *           if this tokenizer reads from a stream.
+   */
+  public boolean reset(final byte[] bytes, final int offset, final int length)
+      throws IOException {
+    if (in != null) {
+      throw new IllegalStateException("Tokenizer reads from a stream");
+    }
+    decode(bytes, offset, length);
+    bufStart = 0;
+    pendingCarriageReturn = false;
+    final boolean found = next();
+    bufStart = bufEnd;
+    return found;
+  }
+
+  /**
+   * @return the number of fields in the current record.
+   */
+  public int size() {
+    return fieldCount;
+  }
+
+  /**
+   * Get the buffer that holds the current record. The contents of the buffer
+   * are only valid until the next call to {@link #next}.
+   *
+   * @return the character buffer into which {@link #getOffset} and
+   *         {@link #getLength} index.
+   */
+  public char[] getBuffer() {
+    return buf;
+  }
+
+  /**
+   * @param i
+   *          the zero-based field index.
+   * @return the offset of the field's value in {@link #getBuffer}.
+   */
+  public int getOffset(final int i) {
+    checkIndex(i);
+    return starts[i];
+  }
+
+  /**
+   * @param i
+   *          the zero-based field index.
+   * @return the length of the field's value in {@link #getBuffer}.
+   */
+  public int getLength(final int i) {
+    checkIndex(i);
+    return ends[i] - starts[i];
+  }
+
+  /**
+   * @param i
+   *          the zero-based field index.
+   * @return {@code true} if the field matches the format's null string.
+   */
+  public boolean isNull(final int i) {
+    checkIndex(i);
+    return nulls[i];
+  }
+
+  /**
+   * Get a field as a {@code String}, as {@code CSVRecord.get} would return it.
+   *
+   * @param i
+   *          the zero-based field index.
+   * @return the field value, or {@code null} if the field matches the format's
+   *         null string.
+   */
+  public String get(final int i) {
+    checkIndex(i);
+    if (nulls[i]) {
+      return null;
+    }
+    return new String(buf, starts[i], ends[i] - starts[i]);
+  }
+
+  /**
+   * Get a field as a {@code String}, using a {@link StringDictionary} to share
+   * repeated values. If the value is already in the dictionary, no objects are
+   * created.
+   *
+   * @param i
+   *          the zero-based field index.
+   * @param dictionary
+   *          the {@link StringDictionary} that holds values for the field's
+   *          column.
+   * @return the field value, or {@code null} if the field matches the format's
+   *         null string.
+   */
+  public String get(final int i, final StringDictionary dictionary) {
+    checkIndex(i);
+    if (nulls[i]) {
+      return null;
+    }
+    return dictionary.intern(buf, starts[i], ends[i] - starts[i]);
+  }
+
+  /**
+   * Parse a field as a {@code Long}, with the same result as applying
+   * {@link Long#valueOf(String)} to a non-empty field.
+   *
+   * @param i
+   *          the zero-based field index.
+   * @return the parsed value, or {@code null} if the field is null or empty.
+   * @throws NumberFormatException
+   *           if the field is not a valid long.
+   */
+  public Long getLong(final int i) {
+    if (isNullOrEmpty(i)) {
+      return null;
+    }
+    return parseLong(i, Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * Parse a field as an {@code Integer}, with the same result as applying
+   * {@link Integer#valueOf(String)} to a non-empty field.
+   *
+   * @param i
+   *          the zero-based field index.
+   * @return the parsed value, or {@code null} if the field is null or empty.
+   * @throws NumberFormatException
+   *           if the field is not a valid integer.
+   */
+  public Integer getInteger(final int i) {
+    if (isNullOrEmpty(i)) {
+      return null;
+    }
+    return (int) parseLong(i, Integer.MIN_VALUE, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Parse a field as a {@code Double}, with the same result as applying
+   * {@link Double#valueOf(String)} to a non-empty field.
+   *
+   * @param i
+   *          the zero-based field index.
+   * @return the parsed value, or {@code null} if the field is null or empty.
+   * @throws NumberFormatException
+   *           if the field is not a valid double.
+   */
+  public Double getDouble(final int i) {
+    if (isNullOrEmpty(i)) {
+      return null;
+    }
+    return parseDouble(i);
+  }
+
+  /**
+   * Parse a field as a {@code Boolean}, with the same result as applying
+   * {@link Boolean#valueOf(String)} to a non-empty field.
+   *
+   * @param i
+   *          the zero-based field index.
+   * @return the parsed value, or {@code null} if the field is null or empty.
+   */
+  public Boolean getBoolean(final int i) {
+    if (isNullOrEmpty(i)) {
+      return null;
+    }
+    final int start = starts[i];
+    if (ends[i] - start != 4) {
+      return Boolean.FALSE;
+    }
+    return (buf[start] == 't' || buf[start] == 'T') && (buf[start + 1] == 'r' || buf[start + 1] == 'R')
+        && (buf[start + 2] == 'u' || buf[start + 2] == 'U')
+        && (buf[start + 3] == 'e' || buf[start + 3] == 'E');
+  }
+
+  /**
+   * Check whether a field is null or empty. Generated bindings leave such
+   * fields unset rather than attempting to parse them.
+   *
+   * @param i
+   *          the zero-based field index.
+   * @return {@code true} if the field is null or has zero length.
+   */
+  public boolean isNullOrEmpty(final int i) {
+    checkIndex(i);
+    return nulls[i] || starts[i] == ends[i];
+  }
+
+  private void checkIndex(final int i) {
+    if (i < 0 || i >= fieldCount) {
+      throw new ArrayIndexOutOfBoundsException(i);
+    }
+  }
+
+  // Parse a signed decimal number in the range [min, max], accumulating
+  // negatively as Long.parseLong does so that min can be represented. Anything
+  // other than ASCII digits, including overflow, is handed to the JDK so that
+  // the result (or exception) is exactly what Long.valueOf would produce.
+  private long parseLong(final int field, final long min, final long max) {
+    final int end = ends[field];
+    int pos = starts[field];
+    boolean negative = false;
+    final char first = buf[pos];
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      pos++;
+      if (pos == end) {
+        return parseSlowly(field, min);
+      }
+    }
+    final long limit = negative ? min : -max;
+    final long multmin = limit / 10;
+    long result = 0;
+    while (pos < end) {
+      final int digit = buf[pos++] - '0';
+      if (digit < 0 || digit > 9 || result < multmin) {
+        return parseSlowly(field, min);
+      }
+      result *= 10;
+      if (result < limit + digit) {
+        return parseSlowly(field, min);
+      }
+      result -= digit;
+    }
+    return negative ? result : -result;
+  }
+
+  private long parseSlowly(final int field, final long min) {
+    if (min == Integer.MIN_VALUE) {
+      return Integer.parseInt(get(field));
+    }
+    return Long.parseLong(get(field));
+  }
+
+  // Parse a plain decimal number of the form [sign]digits[.digits]. When the
+  // digits form an integer of at most 2^53 and there are at most 22 of them
+  // after the point, both the digits and the power of ten are exact doubles,
+  // so a single (correctly rounded) division gives the same result as
+  // Double.parseDouble. Everything else, including exponents, NaN, Infinity,
+  // surrounding whitespace and malformed input, is handed to the JDK.
+  private double parseDouble(final int field) {
+    final int end = ends[field];
+    int pos = starts[field];
+    boolean negative = false;
+    final char first = buf[pos];
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      pos++;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int scale = -1;
+    while (pos < end) {
+      final char c = buf[pos++];
+      if (c >= '0' && c <= '9') {
+        mantissa = mantissa * 10 + (c - '0');
+        if (mantissa > MAX_EXACT_LONG) {
+          return Double.parseDouble(get(field));
+        }
+        digits++;
+        if (scale >= 0) {
+          scale++;
+        }
+      } else if (c == '.' && scale < 0) {
+        scale = 0;
+      } else {
+        return Double.parseDouble(get(field));
+      }
+    }
+    if (digits == 0 || scale >= POWERS_OF_TEN.length) {
+      return Double.parseDouble(get(field));
+    }
+    double value = mantissa;
+    if (scale > 0) {
+      value /= POWERS_OF_TEN[scale];
+    }
+    return negative ? -value : value;
+  }
+
+  // Find the index of the character that terminates the record that starts at
+  // bufStart, reading more input as necessary. Returns bufEnd if the record is
+  // terminated by the end of the input, or -1 if there are no more records.
+  private int findRecordEnd() throws IOException {
+    int pos = bufStart;
+    while (true) {
+      while (pos < bufEnd) {
+        final char c = buf[pos];
+        if (c == CR || c == LF) {
+          return pos;
+        }
+        if (hasEscape && c == escape) {
+          if (pos + 1 < bufEnd) {
+            pos += 2;
+            continue;
+          }
+          if (eof) {
+            throw new IOException("EOF whilst processing escape sequence");
+          }
+          break;
+        }
+        pos++;
+      }
+      if (eof) {
+        return pos == bufStart ? -1 : pos;
+      }
+      // Keep the offset relative to the start of the record across the fill.
+      final int scanned = pos - bufStart;
+      fill();
+      pos = bufStart + scanned;
+    }
+  }
+
+  // Skip the line terminator at pos, treating CRLF as a single terminator.
+  // The buffer can't be refilled here without moving the record that has just
+  // been found, so if a CR is the last character in the buffer we defer
+  // checking for the LF until the next record is requested.
+  private int skipTerminator(final int pos) {
+    if (pos >= bufEnd) {
+      return pos;
+    }
+    if (buf[pos] == CR) {
+      if (pos + 1 == bufEnd) {
+        pendingCarriageReturn = true;
+      } else if (buf[pos + 1] == LF) {
+        return pos + 2;
+      }
+    }
+    return pos + 1;
+  }
+
+  private void skipLineFeed() throws IOException {
+    pendingCarriageReturn = false;
+    if (bufStart == bufEnd && !eof) {
+      fill();
+    }
+    if (bufStart < bufEnd && buf[bufStart] == LF) {
+      bufStart++;
+    }
+  }
+
+  // Move any unconsumed data to the start of the buffer and read more input,
+  // growing the buffer if it is already full.
+  private void fill() throws IOException {
+    final int remaining = bufEnd - bufStart;
+    if (bufStart > 0) {
+      System.arraycopy(buf, bufStart, buf, 0, remaining);
+      bufStart = 0;
+      bufEnd = remaining;
+    }
+    if (bufEnd == buf.length) {
+      final char[] larger = new char[buf.length * 2];
+      System.arraycopy(buf, 0, larger, 0, bufEnd);
+      buf = larger;
+    }
+    final int n = in.read(buf, bufEnd, buf.length - bufEnd);
+    if (n < 0) {
+      eof = true;
+    } else {
+      bufEnd += n;
+    }
+  }
+
+  // Decode UTF-8 into the start of the buffer. A UTF-8 sequence never decodes
+  // to more chars than it has bytes, so a buffer of length chars is enough.
+  // Data files are mostly ASCII, which is copied directly; the decoder only
+  // handles the rest of a record once a non-ASCII byte is found.
+  private void decode(final byte[] bytes, final int offset, final int length) {
+    if (buf.length < length) {
+      buf = new char[Math.max(length, buf.length * 2)];
+    }
+    final int end = offset + length;
+    int read = offset;
+    int write = 0;
+    while (read < end && bytes[read] >= 0) {
+      buf[write++] = (char) bytes[read++];
+    }
+    if (read < end) {
+      if (decoder == null) {
+        decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      }
+      final CharBuffer chars = CharBuffer.wrap(buf, write, buf.length - write);
+      decoder.reset();
+      decoder.decode(ByteBuffer.wrap(bytes, read, end - read), chars, true);
+      decoder.flush(chars);
+      write = chars.position();
+    }
+    bufEnd = write;
+  }
+
+  // Split the record in [start, end) into fields, resolving escape sequences
+  // in place. Unescaping never lengthens a field, so the write position can
+  // never overtake the read position.
+  private void tokenize(final int start, final int end) {
+    int read = start;
+    int write = start;
+    int fieldStart = start;
+    boolean leading = ignoreSurroundingSpaces;
+    while (read < end) {
+      final char c = buf[read++];
+      if (c == delimiter) {
+        addField(fieldStart, write);
+        fieldStart = read;
+        write = read;
+        leading = ignoreSurroundingSpaces;
+      } else if (leading && Character.isWhitespace(c)) {
+        fieldStart = read;
+        write = read;
+      } else if (hasEscape && c == escape) {
+        leading = false;
+        final char next = buf[read++];
+        final int unescaped = unescape(next);
+        if (unescaped < 0) {
+          buf[write++] = c;
+          buf[write++] = next;
+        } else {
+          buf[write++] = (char) unescaped;
+        }
+      } else {
+        leading = false;
+        buf[write++] = c;
+      }
+    }
+    addField(fieldStart, write);
+  }
+
+  // Follows Lexer.readEscape in commons-csv 1.1. Returns -1 if the character
+  // following the escape is not part of a recognized sequence, in which case
+  // both characters are kept.
+  private int unescape(final char c) {
+    switch (c) {
+    case 'r':
+      return CR;
+    case 'n':
+      return LF;
+    case 't':
+      return '\t';
+    case 'b':
+      return '\b';
+    case 'f':
+      return '\f';
+    case CR:
+    case LF:
+    case '\f':
+    case '\t':
+    case '\b':
+      return c;
+    default:
+      if (c == delimiter || c == escape) {
+        return c;
+      }
+      return -1;
+    }
+  }
+
+  private void addField(final int start, final int end) {
+    int fieldEnd = end;
+    if (ignoreSurroundingSpaces) {
+      // As in commons-csv, trailing spaces are trimmed after unescaping.
+      while (fieldEnd > start && Character.isWhitespace(buf[fieldEnd - 1])) {
+        fieldEnd--;
+      }
+    }
+    if (fieldCount == starts.length) {
+      final int size = fieldCount * 2;
+      starts = copyOf(starts, size);
+      ends = copyOf(ends, size);
+      nulls = copyOf(nulls, size);
+    }
+    starts[fieldCount] = start;
+    ends[fieldCount] = fieldEnd;
+    nulls[fieldCount] = matchesNullString(start, fieldEnd);
+    fieldCount++;
+  }
+
+  // CSVParser compares fields to the null string ignoring case.
+  private boolean matchesNullString(final int start, final int end) {
+    if (nullString == null || end - start != nullString.length) {
+      return false;
+    }
+    for (int i = 0; i < nullString.length; i++) {
+      final char a = buf[start + i];
+      final char b = nullString[i];
+      if (a != b && Character.toUpperCase(a) != Character.toUpperCase(b)
+          && Character.toLowerCase(a) != Character.toLowerCase(b)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int[] copyOf(final int[] array, final int size) {
+    final int[] copy = new int[size];
+    System.arraycopy(array, 0, copy, 0, array.length);
+    return copy;
+  }
+
+  private static boolean[] copyOf(final boolean[] array, final int size) {
+    final boolean[] copy = new boolean[size];
+    System.arraycopy(array, 0, copy, 0, array.length);
+    return copy;
+  }
+}
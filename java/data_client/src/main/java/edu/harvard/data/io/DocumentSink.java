@@ -0,0 +1,32 @@
+package edu.harvard.data.io;
+
+import java.io.IOException;
+
+import edu.harvard.data.DataTable;
+
+/**
+ * Callback that receives the {@link DataTable} records extracted from a JSON
+ * document. A {@link StreamingJsonDocumentParser} pushes each record into a
+ * sink as soon as it has been built, rather than collecting the records for a
+ * document into a map of lists.
+ * <P>
+ * The usual implementation is {@link TableWriterSink}, which routes each
+ * record directly to the {@link TableWriter} for its table.
+ */
+public interface DocumentSink {
+
+  /**
+   * Accept a single record.
+   *
+   * @param tableName
+   *          the name of the table to which the record belongs. This is the
+   *          same key that would be used in the map returned by
+   *          {@link JsonDocumentParser#getDocuments}.
+   * @param record
+   *          the record extracted from the document.
+   *
+   * @throws IOException
+   *           if an error occurs when writing the record.
+   */
+  void emit(String tableName, DataTable record) throws IOException;
+}
@@ -0,0 +1,425 @@
+package edu.harvard.data.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Writable;
+
+import edu.harvard.data.DataTable;
+
+/**
+ * Sorts the records of a {@link TableReader} using a bounded amount of memory.
+ * <P>
+ * Records are read into memory until their estimated size reaches the memory
+ * budget. The buffered records are then sorted and spilled to a run file in a
+ * scratch directory. Once the input is exhausted the runs (along with any
+ * records still in memory) are merged, and the result is returned as a
+ * {@code TableReader} that produces the records in order. If the input fits in
+ * the budget, nothing is written to disk.
+ * <P>
+ * Runs are stored using the records' {@link Writable} encoding, which the
+ * generated bindings implement for the Hadoop shuffle. It is compact (integers
+ * are variable-length, enums are ordinals and nulls are a bit in a bitmap) and
+ * is read back without any text parsing. As with the shuffle, the encoding is
+ * only read by the same binding class that wrote it.
+ * <P>
+ * The memory budget is approximate. The size of a record in memory is estimated
+ * from the size of its encoding, which is measured for a sample of the records.
+ * When there are more runs than can be merged at once, runs are merged in
+ * several passes so that the number of open files (and their buffers) stays
+ * bounded.
+ * <P>
+ * The sort is stable: records that compare as equal are returned in the order
+ * in which they were read.
+ * <P>
+ * This class is not thread-safe. Any access synchronization must be performed
+ * by the caller.
+ *
+ * @param <T>
+ *          the record type to be sorted.
+ */
+public class ExternalSorter<T extends DataTable & Writable> {
+
+  /**
+   * Extracts the key on which records are sorted, for use with
+   * {@link ExternalSorter#byKey}.
+   *
+   * @param <T>
+   *          the record type.
+   * @param <K>
+   *          the type of the sort key.
+   */
+  public interface KeyExtractor<T, K extends Comparable<? super K>> {
+    /**
+     * @param record
+     *          the record being sorted.
+     * @return the record's sort key. Null keys sort before all other keys.
+     */
+    K getKey(T record);
+  }
+
+  // Records are sampled at this interval to estimate their size in memory.
+  private static final int SAMPLE_INTERVAL = 64;
+
+  // Rough ratio of the heap used by a record to the size of its encoding,
+  // accounting for object headers, boxed fields and two-byte characters.
+  private static final int HEAP_FACTOR = 4;
+
+  // Per-record overhead of the object and its slot in the buffer.
+  private static final int RECORD_OVERHEAD = 64;
+
+  // Maximum number of runs merged in a single pass.
+  static final int MAX_MERGE_WIDTH = 64;
+
+  private static final int RUN_BUFFER_SIZE = 64 * 1024;
+
+  private final Class<T> tableType;
+  private final Comparator<? super T> comparator;
+  private final long memoryBytes;
+  private final File scratchDir;
+  private final DataOutputBuffer sample;
+  private int mergeWidth;
+
+  /**
+   * Create a sorter.
+   *
+   * @param tableType
+   *          the type of record to be sorted. The class must have a public
+   *          no-argument constructor, which is used to create records when runs
+   *          are read back.
+   * @param comparator
+   *          the order in which records are returned.
+   * @param memoryBytes
+   *          the approximate number of bytes of heap that buffered records may
+   *          use before they are spilled to disk.
+   * @param scratchDir
+   *          the local directory in which to write run files. The files are
+   *          deleted when the sorted reader is closed.
+   *
+   * @throws IllegalArgumentException
+   *           if {@code memoryBytes} is not positive.
+   */
+  public ExternalSorter(final Class<T> tableType, final Comparator<? super T> comparator,
+      final long memoryBytes, final File scratchDir) {
+    if (memoryBytes <= 0) {
+      throw new IllegalArgumentException("Memory budget must be positive: " + memoryBytes);
+    }
+    this.tableType = tableType;
+    this.comparator = comparator;
+    this.memoryBytes = memoryBytes;
+    this.scratchDir = scratchDir;
+    this.sample = new DataOutputBuffer();
+    this.mergeWidth = MAX_MERGE_WIDTH;
+  }
+
+  /**
+   * Create a sorter that orders records by a key.
+   *
+   * @param tableType
+   *          the type of record to be sorted.
+   * @param key
+   *          the {@link KeyExtractor} that gets each record's sort key.
+   * @param memoryBytes
+   *          the approximate number of bytes of heap that buffered records may
+   *          use before they are spilled to disk.
+   * @param scratchDir
+   *          the local directory in which to write run files.
+   *
+   * @see #ExternalSorter(Class, Comparator, long, File)
+   */
+  public <K extends Comparable<? super K>> ExternalSorter(final Class<T> tableType,
+      final KeyExtractor<? super T, K> key, final long memoryBytes, final File scratchDir) {
+    this(tableType, byKey(key), memoryBytes, scratchDir);
+  }
+
+  /**
+   * Create a {@link Comparator} that orders records by a key.
+   *
+   * @param key
+   *          the {@link KeyExtractor} that gets each record's sort key.
+   *
+   * @return a {@code Comparator} that orders records by their keys, with null
+   *         keys first.
+   */
+  public static <T, K extends Comparable<? super K>> Comparator<T> byKey(
+      final KeyExtractor<? super T, K> key) {
+    return new Comparator<T>() {
+      @Override
+      public int compare(final T o1, final T o2) {
+        final K k1 = key.getKey(o1);
+        final K k2 = key.getKey(o2);
+        if (k1 == null) {
+          return k2 == null ? 0 : -1;
+        }
+        if (k2 == null) {
+          return 1;
+        }
+        return k1.compareTo(k2);
+      }
+    };
+  }
+
+  // Allows tests to force several merge passes without creating many runs.
+  void setMergeWidth(final int mergeWidth) {
+    this.mergeWidth = mergeWidth;
+  }
+
+  /**
+   * Read all records from a table and return them in sorted order.
+   * <P>
+   * The input is read to the end before this method returns, but it is not
+   * closed; the caller remains responsible for closing it. The returned reader
+   * must be closed to release the run files.
+   *
+   * @param in
+   *          the {@link TableReader} whose records are to be sorted.
+   *
+   * @return a {@code TableReader} that returns the records of {@code in} in the
+   *         order defined by this sorter's comparator.
+   *
+   * @throws IOException
+   *           if an error occurs when writing or merging the run files.
+   * @throws IterationException
+   *           if an error occurs when reading from {@code in}.
+   */
+  public TableReader<T> sort(final TableReader<T> in) throws IOException {
+    final List<Run> runs = new ArrayList<Run>();
+    final List<T> buffer = new ArrayList<T>();
+    try {
+      long estimate = 0;
+      long bytesPerRecord = 0;
+      for (final T record : in) {
+        if (buffer.size() % SAMPLE_INTERVAL == 0) {
+          bytesPerRecord = estimateSize(record);
+        }
+        buffer.add(record);
+        estimate += bytesPerRecord;
+        if (estimate >= memoryBytes) {
+          runs.add(spill(buffer));
+          buffer.clear();
+          estimate = 0;
+        }
+      }
+      Collections.sort(buffer, comparator);
+      while (runs.size() + 1 > mergeWidth) {
+        final List<Run> group = runs.subList(0, mergeWidth);
+        final Run merged = merge(new ArrayList<Run>(group));
+        group.clear();
+        runs.add(0, merged);
+      }
+    } catch (final IOException | RuntimeException e) {
+      for (final Run run : runs) {
+        run.file.delete();
+      }
+      throw e;
+    }
+    return new SortedTableReader(runs, buffer);
+  }
+
+  private long estimateSize(final T record) throws IOException {
+    sample.reset();
+    record.write(sample);
+    return (long) sample.getLength() * HEAP_FACTOR + RECORD_OVERHEAD;
+  }
+
+  private Run spill(final List<T> records) throws IOException {
+    Collections.sort(records, comparator);
+    final Run run = new Run(File.createTempFile("sort-", ".run", scratchDir));
+    try (DataOutputStream out = run.openOutput()) {
+      for (final T record : records) {
+        record.write(out);
+      }
+    }
+    run.records = records.size();
+    return run;
+  }
+
+  // Merge several runs into one, deleting the inputs. The runs must be in
+  // input order so that the merge is stable.
+  private Run merge(final List<Run> inputs) throws IOException {
+    final Run run = new Run(File.createTempFile("sort-", ".run", scratchDir));
+    try (SortedTableReader merged = new SortedTableReader(inputs, Collections.<T> emptyList());
+        DataOutputStream out = run.openOutput()) {
+      for (final T record : merged) {
+        record.write(out);
+        run.records++;
+      }
+    } catch (final IterationException e) {
+      run.file.delete();
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw e;
+    } catch (final IOException | RuntimeException e) {
+      run.file.delete();
+      throw e;
+    }
+    return run;
+  }
+
+  // A sorted file of records.
+  private class Run {
+    final File file;
+    long records;
+
+    Run(final File file) {
+      this.file = file;
+    }
+
+    DataOutputStream openOutput() throws IOException {
+      return new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(file), RUN_BUFFER_SIZE));
+    }
+  }
+
+  // The next record from a run or from the in-memory buffer. The index breaks
+  // ties so that records from earlier runs are returned first.
+  private class Source implements Comparable<Source> {
+    final int index;
+    final Iterator<T> memory;
+    final DataInputStream in;
+    long remaining;
+    T head;
+
+    Source(final int index, final Run run) throws IOException {
+      this.index = index;
+      this.memory = null;
+      this.in = new DataInputStream(
+          new BufferedInputStream(new FileInputStream(run.file), RUN_BUFFER_SIZE));
+      this.remaining = run.records;
+    }
+
+    Source(final int index, final List<T> records) {
+      this.index = index;
+      this.memory = records.iterator();
+      this.in = null;
+      this.remaining = records.size();
+    }
+
+    boolean advance() throws IOException {
+      if (remaining == 0) {
+        head = null;
+        return false;
+      }
+      remaining--;
+      if (memory != null) {
+        head = memory.next();
+      } else {
+        try {
+          head = tableType.newInstance();
+        } catch (final InstantiationException | IllegalAccessException e) {
+          throw new RuntimeException(e);
+        }
+        head.readFields(in);
+      }
+      return true;
+    }
+
+    void close() throws IOException {
+      if (in != null) {
+        in.close();
+      }
+    }
+
+    @Override
+    public int compareTo(final Source other) {
+      final int result = comparator.compare(head, other.head);
+      return result != 0 ? result : Integer.compare(index, other.index);
+    }
+  }
+
+  // Merges the runs and the in-memory records. Closing the reader deletes the
+  // run files.
+  private class SortedTableReader implements TableReader<T>, Iterator<T> {
+    private final List<Run> runs;
+    private final List<Source> sources;
+    private final PriorityQueue<Source> queue;
+
+    SortedTableReader(final List<Run> runs, final List<T> records) throws IOException {
+      this.runs = runs;
+      this.sources = new ArrayList<Source>();
+      this.queue = new PriorityQueue<Source>(runs.size() + 1);
+      try {
+        for (final Run run : runs) {
+          sources.add(new Source(sources.size(), run));
+        }
+        sources.add(new Source(sources.size(), records));
+        for (final Source source : sources) {
+          if (source.advance()) {
+            queue.add(source);
+          }
+        }
+      } catch (final IOException e) {
+        close();
+        throw e;
+      }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !queue.isEmpty();
+    }
+
+    @Override
+    public T next() {
+      final Source source = queue.poll();
+      if (source == null) {
+        throw new NoSuchElementException();
+      }
+      final T record = source.head;
+      try {
+        if (source.advance()) {
+          queue.add(source);
+        }
+      } catch (final IOException e) {
+        throw new IterationException(e);
+      }
+      return record;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() throws IOException {
+      queue.clear();
+      IOException error = null;
+      for (final Source source : sources) {
+        try {
+          source.close();
+        } catch (final IOException e) {
+          if (error == null) {
+            error = e;
+          }
+        }
+      }
+      for (final Run run : runs) {
+        run.file.delete();
+      }
+      if (error != null) {
+        throw error;
+      }
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package edu.harvard.data.io;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -9,11 +10,13 @@ import edu.harvard.data.DataTable;
 import edu.harvard.data.TableFormat;
 
 /**
- * {@link TableReader} implementation that reads records from a delimited data
+ * {@link TableReader} implementation that reads records from a local data
  * file.
  * <P>
- * This class is a simple wrapper around {@link DelimitedFileIterator}; see the
- * documentation for that class for details around how a file is read.
+ * This class is a simple wrapper around {@link DelimitedFileIterator}, or
+ * {@link ParquetFileIterator} if the format is columnar (see
+ * {@link TableFormat#isColumnar}); see the documentation for those classes for
+ * details around how a file is read.
  * <P>
  * This class is not thread-safe. Any access synchronization must be performed
  * by the caller.
@@ -23,7 +26,8 @@ import edu.harvard.data.TableFormat;
  */
 public class FileTableReader<T extends DataTable> implements TableReader<T> {
 
-  private final DelimitedFileIterator<T> iterator;
+  private final Iterator<T> iterator;
+  private final Closeable closeable;
 
   /**
    * Create a new reader.
@@ -42,10 +46,46 @@ public class FileTableReader<T extends DataTable> implements TableReader<T> {
    */
   public FileTableReader(final Class<T> tableType, final TableFormat format, final File file)
       throws FileNotFoundException {
+    this(tableType, RecordDecoders.forClass(tableType), format, file);
+  }
+
+  /**
+   * Create a new reader that uses a specific {@link RecordDecoder} to create
+   * records. Generated table factories use this constructor to pass in the
+   * decoder for each table, avoiding any reflection when reading.
+   *
+   * @param tableType
+   *          a reference to the template class {@code T} that will be used to
+   *          create new records.
+   * @param decoder
+   *          the {@link RecordDecoder} used to convert each line of input into
+   *          an instance of {@code T}. A columnar file is read through the
+   *          table's {@link ColumnarCodec} instead.
+   * @param format
+   *          the {@link TableFormat} that indicates how the data file is
+   *          formatted.
+   * @param file
+   *          a {@link File} object that refers to the data file.
+   *
+   * @throws FileNotFoundException
+   *           if the file parameter refers to a file that does not exist.
+   */
+  public FileTableReader(final Class<T> tableType, final RecordDecoder<T> decoder,
+      final TableFormat format, final File file) throws FileNotFoundException {
     if (!file.exists() || file.isDirectory()) {
       throw new FileNotFoundException(file.toString());
     }
-    iterator = new DelimitedFileIterator<T>(tableType, format, file);
+    if (format.isColumnar()) {
+      final ParquetFileIterator<T> columnar = new ParquetFileIterator<T>(
+          ColumnarCodec.forClass(tableType), format, file);
+      iterator = columnar;
+      closeable = columnar;
+    } else {
+      final DelimitedFileIterator<T> delimited = new DelimitedFileIterator<T>(tableType, decoder,
+          format, file);
+      iterator = delimited;
+      closeable = delimited;
+    }
   }
 
   @Override
@@ -55,7 +95,7 @@ public class FileTableReader<T extends DataTable> implements TableReader<T> {
 
   @Override
   public void close() throws IOException {
-    iterator.close();
+    closeable.close();
   }
 
 }
@@ -2,7 +2,6 @@ package edu.harvard.data.io;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.zip.GZIPInputStream;
 
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -43,7 +42,30 @@ public class HdfsDelimitedFileIterator<T extends DataTable> extends DelimitedFil
    */
   HdfsDelimitedFileIterator(final Class<T> tableType, final TableFormat format,
       final FileSystem fs, final Path path) {
-    super(tableType, format, null);
+    this(tableType, RecordDecoders.forClass(tableType), format, fs, path);
+  }
+
+  /**
+   * Create a new iterator that uses a specific {@link RecordDecoder} to create
+   * records.
+   *
+   * @param tableType
+   *          a reference to the template class {@code T} that will be used to
+   *          create new records.
+   * @param decoder
+   *          the {@link RecordDecoder} used to convert each line of input into
+   *          an instance of {@code T}.
+   * @param format
+   *          the {@link TableFormat} that indicates how the data file is
+   *          formatted.
+   * @param fs
+   *          The Hadoop file system on which the data file is stored.
+   * @param path
+   *          the location of the data file on the Hadoop file system.
+   */
+  HdfsDelimitedFileIterator(final Class<T> tableType, final RecordDecoder<T> decoder,
+      final TableFormat format, final FileSystem fs, final Path path) {
+    super(tableType, decoder, format, null);
     this.fs = fs;
     this.path = path;
   }
@@ -64,13 +86,11 @@ public class HdfsDelimitedFileIterator<T extends DataTable> extends DelimitedFil
       return inStream;
     }
     final InputStream inStream = fs.open(path);
-    switch (format.getCompression()) {
-    case Gzip:
-      return new GZIPInputStream(inStream);
-    case None:
-      return inStream;
-    default:
-      throw new RuntimeException("Unknown compression format: " + format.getCompression());
+    try {
+      return format.getInputStream(inStream);
+    } catch (final IOException | RuntimeException e) {
+      inStream.close();
+      throw e;
     }
   }
 
@@ -43,10 +43,36 @@ public class HdfsTableReader<T extends DataTable> implements TableReader<T> {
    */
   public HdfsTableReader(final Class<T> tableType, final TableFormat format, final FileSystem fs,
       final Path path) throws IOException {
+    this(tableType, RecordDecoders.forClass(tableType), format, fs, path);
+  }
+
+  /**
+   * Create a new reader that uses a specific {@link RecordDecoder} to create
+   * records.
+   *
+   * @param tableType
+   *          a reference to the template class {@code T} that will be used to
+   *          create new records.
+   * @param decoder
+   *          the {@link RecordDecoder} used to convert each line of input into
+   *          an instance of {@code T}.
+   * @param format
+   *          the {@link TableFormat} that indicates how the data file is
+   *          formatted.
+   * @param fs
+   *          The Hadoop file system on which the data file is stored.
+   * @param path
+   *          the location of the data file on the Hadoop file system.
+   *
+   * @throws IOException
+   *           if an error occurs when reading from HDFS.
+   */
+  public HdfsTableReader(final Class<T> tableType, final RecordDecoder<T> decoder,
+      final TableFormat format, final FileSystem fs, final Path path) throws IOException {
     if (!fs.exists(path) || fs.isDirectory(path)) {
       throw new FileNotFoundException(path.toString());
     }
-    iterator = new HdfsDelimitedFileIterator<T>(tableType, format, fs, path);
+    iterator = new HdfsDelimitedFileIterator<T>(tableType, decoder, format, fs, path);
   }
 
   @Override
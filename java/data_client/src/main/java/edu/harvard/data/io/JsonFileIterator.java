@@ -1,18 +1,25 @@
 package edu.harvard.data.io;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
 
 import edu.harvard.data.DataTable;
 import edu.harvard.data.TableFormat;
@@ -20,12 +27,20 @@ import edu.harvard.data.VerificationException;
 
 /**
  * Iterator that reads JSON-formated data from a local file. This class parses
- * each line of the input file as a JSON object, and then defers to a
- * {@link JsonDocumentParser} instance to convert that JSON object to a set of
- * one or more {@link DataTable} instances.
+ * each JSON object in the input file (typically one per line), and then defers
+ * to a {@link JsonDocumentParser} instance to convert that JSON object to a set
+ * of one or more {@link DataTable} instances.
+ * <P>
+ * A single Jackson {@link JsonParser} streams over the whole input, rather than
+ * reading and parsing each line separately. If the format's encoding is UTF-8
+ * the parser decodes bytes directly; otherwise the input is decoded with an
+ * {@link InputStreamReader} for the format's encoding. Parse errors report the
+ * line and column in the file at which they occurred.
  * <P>
  * The iterator does not cache any records, meaning that its memory footprint is
- * small.
+ * small. Callers that write each record straight to a {@link TableWriter} can
+ * avoid the per-document maps returned by {@link #next} by draining the
+ * iterator into a {@link DocumentSink} with {@link JsonFileReader#parse}.
  * <P>
  * This class is not thread-safe. Any access synchronization must be performed
  * by the caller.
@@ -43,10 +58,15 @@ import edu.harvard.data.VerificationException;
 public class JsonFileIterator
 implements Iterator<Map<String, List<? extends DataTable>>>, Closeable {
 
+  private static final Logger log = LogManager.getLogger();
+
+  private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {
+  };
+
   protected final TableFormat format;
   private final File file;
-  protected BufferedReader in;
-  private String nextLine;
+  private MappingIterator<Map<String, Object>> objects;
+  private boolean hasNextObject;
   private final JsonDocumentParser parser;
   private InputStream inStream;
 
@@ -98,23 +118,22 @@ implements Iterator<Map<String, List<? extends DataTable>>>, Closeable {
   @Override
   public boolean hasNext() {
     // Call init() if it has not been called already.
-    if (in == null) {
+    if (objects == null) {
       try {
         init();
       } catch (final IOException e) {
         throw new IterationException(e);
       }
     }
-    // Init sets nextLine to be the first line in the file (or null for an empty
-    // file). next() sets nextLine to be the next line in the file, or null if
-    // there are no more records.
-    return nextLine != null;
+    // Init checks for the first object in the file. next() checks for the
+    // following object once it has parsed the current one.
+    return hasNextObject;
   }
 
   /**
-   * Set up the input streams that will be used to read the data file. This
-   * method should be called exactly once, and only before attempting to read a
-   * record from the file.
+   * Set up the input streams and JSON parser that will be used to read the
+   * data file. This method should be called exactly once, and only before
+   * attempting to read a record from the file.
    *
    * @throws IOException
    *           if an error occurs when setting up the input streams.
@@ -123,14 +142,22 @@ implements Iterator<Map<String, List<? extends DataTable>>>, Closeable {
     if (inStream == null) {
       inStream = format.getInputStream(file);
     }
-    in = new BufferedReader(new InputStreamReader(inStream));
-    nextLine = in.readLine();
+    final JsonFactory factory = format.getJsonMapper().getFactory();
+    final JsonParser jsonParser;
+    if (StandardCharsets.UTF_8.name().equalsIgnoreCase(format.getEncoding())) {
+      // Jackson's byte-level parser decodes UTF-8 itself, avoiding a Reader.
+      jsonParser = factory.createParser(inStream);
+    } else {
+      jsonParser = factory.createParser(new InputStreamReader(inStream, format.getEncoding()));
+    }
+    objects = format.getJsonMapper().readerFor(MAP_TYPE).readValues(jsonParser);
+    hasNextObject = objects.hasNextValue();
   }
 
   @Override
   public Map<String, List<? extends DataTable>> next() {
     // call init() if it hasn't been called already
-    if (in == null) {
+    if (objects == null) {
       try {
         init();
       } catch (final IOException e) {
@@ -138,37 +165,102 @@ implements Iterator<Map<String, List<? extends DataTable>>>, Closeable {
       }
     }
 
-    // nextLine is set by init() or by the previous time through this method.
-    if (nextLine == null) {
+    // hasNextObject is set by init() or by the previous time through this
+    // method.
+    if (!hasNextObject) {
       return null;
     }
 
-    // JSON mapper accepts a file or a stream; in this case we convert the
-    // String containing a single object into a ByteArrayInputStream.
-    final InputStream lineIn = new ByteArrayInputStream(nextLine.getBytes());
-    final TypeReference<Map<String, Object>> typeRef = new TypeReference<Map<String, Object>>() {
-    };
+    final int line = objects.getParser().getTokenLocation().getLineNr();
     try {
-      // Parse the String containing a JSON object, and pass the result to the
+      // Parse the next JSON object, and pass the result to the
       // JsonDocumentParser to split into DataTables.
-      final Map<String, Object> obj = format.getJsonMapper().readValue(lineIn, typeRef);
+      final Map<String, Object> obj = objects.nextValue();
       final Map<String, List<? extends DataTable>> documents = parser.getDocuments(obj);
 
-      // Advance the iterator to the next line in the input file.
-      nextLine = in.readLine();
+      // Advance the iterator to the next object in the input file.
+      hasNextObject = objects.hasNextValue();
 
       // Return the parsed DataTables.
       return documents;
     } catch (final IOException | ParseException | VerificationException e) {
+      log.info("IterationException on line: " + line);
       throw new IterationException(e);
     }
   }
 
+  /**
+   * Parse every remaining JSON object, passing the extracted records to a
+   * {@link DocumentSink} rather than returning them from {@link #next}. If the
+   * parser is a {@link StreamingJsonDocumentParser} it is handed the
+   * underlying {@link JsonParser} for each object, and pushes records directly
+   * into the sink; otherwise each record in the map returned by
+   * {@link JsonDocumentParser#getDocuments} is emitted in turn.
+   *
+   * @param sink
+   *          the {@link DocumentSink} that receives every record.
+   *
+   * @throws IOException
+   *           if an error occurs when reading the input or when the sink
+   *           writes a record.
+   * @throws IterationException
+   *           if a JSON object cannot be parsed or fails verification.
+   */
+  void parseRemaining(final DocumentSink sink) throws IOException {
+    if (objects == null) {
+      init();
+    }
+    if (parser instanceof StreamingJsonDocumentParser) {
+      parseTokens((StreamingJsonDocumentParser) parser, sink);
+      return;
+    }
+    while (hasNextObject) {
+      final int line = objects.getParser().getTokenLocation().getLineNr();
+      try {
+        final Map<String, Object> obj = objects.nextValue();
+        for (final Map.Entry<String, List<? extends DataTable>> table : parser.getDocuments(obj)
+            .entrySet()) {
+          for (final DataTable record : table.getValue()) {
+            sink.emit(table.getKey(), record);
+          }
+        }
+        hasNextObject = objects.hasNextValue();
+      } catch (final ParseException | VerificationException e) {
+        log.info("IterationException on line: " + line);
+        throw new IterationException(e);
+      }
+    }
+  }
+
+  // Hand each object to the parser while the underlying JsonParser is still
+  // positioned on its first token, so that the parser can decide whether to
+  // build a map or read the tokens itself. Once this method has started, the
+  // MappingIterator is no longer used.
+  private void parseTokens(final StreamingJsonDocumentParser streamingParser,
+      final DocumentSink sink) throws IOException {
+    final JsonParser json = objects.getParser();
+    while (hasNextObject) {
+      final int line = json.getTokenLocation().getLineNr();
+      if (json.getCurrentToken() != JsonToken.START_OBJECT) {
+        throw new IterationException(new JsonParseException(
+            "Expected an object but found " + json.getCurrentToken(), json.getTokenLocation()));
+      }
+      try {
+        streamingParser.parse(json, sink);
+      } catch (final ParseException | VerificationException e) {
+        log.info("IterationException on line: " + line);
+        throw new IterationException(e);
+      }
+      hasNextObject = json.nextToken() != null;
+    }
+  }
+
   @Override
   public void close() throws IOException {
-    if (in != null) {
-      in.close();
-    } else if (inStream != null) {
+    if (objects != null) {
+      objects.close();
+    }
+    if (inStream != null) {
       inStream.close();
     }
   }
@@ -177,4 +269,4 @@ implements Iterator<Map<String, List<? extends DataTable>>>, Closeable {
   public void remove() {
     throw new UnsupportedOperationException();
   }
-}
\ No newline at end of file
+}
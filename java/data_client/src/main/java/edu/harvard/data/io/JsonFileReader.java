@@ -69,6 +69,26 @@ public class JsonFileReader implements Closeable, Iterable<Map<String, List<? ex
     iterator = new JsonFileIterator(format, inStream, parser);
   }
 
+  /**
+   * Parse every remaining record in the input and pass it to a
+   * {@link DocumentSink}. This avoids the intermediate collections created
+   * for each document by the iterator API, particularly when the parser is a
+   * {@link StreamingJsonDocumentParser}.
+   *
+   * @param sink
+   *          the {@link DocumentSink} that receives every record, typically a
+   *          {@link TableWriterSink}.
+   *
+   * @throws IOException
+   *           if an error occurs when reading the input or when the sink
+   *           writes a record.
+   * @throws IterationException
+   *           if a JSON object cannot be parsed or fails verification.
+   */
+  public void parse(final DocumentSink sink) throws IOException {
+    iterator.parseRemaining(sink);
+  }
+
   @Override
   public Iterator<Map<String, List<? extends DataTable>>> iterator() {
     return iterator;
@@ -0,0 +1,100 @@
+package edu.harvard.data.io;
+
+import java.io.IOException;
+import java.text.ParseException;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import edu.harvard.data.DataTable;
+import edu.harvard.data.TableFormat;
+
+/**
+ * Decoder that reads a {@link DataTable} record straight from the tokens of a
+ * Jackson {@link JsonParser}, without first building a
+ * {@code Map<String, Object>} for the JSON object.
+ * <P>
+ * The code generator emits a {@code JSON_DECODER} constant of this type for
+ * every binding. The records it produces are identical to those created by the
+ * binding's {@code (TableFormat, Map)} constructor for the same object, and
+ * fields that do not belong to the binding are skipped without being parsed.
+ * <P>
+ * A {@link StreamingJsonDocumentParser} can use {@link #decode} for documents
+ * that map onto a single binding, or call {@link #create} and
+ * {@link #decodeField} itself when one JSON object contains several records.
+ *
+ * @param <T>
+ *          the {@link DataTable} implementation produced by this decoder.
+ */
+public abstract class JsonRecordDecoder<T extends DataTable> {
+
+  /**
+   * Create an empty record, with any defaults that the map constructor would
+   * set when a field is missing.
+   *
+   * @return a new instance of {@code T}.
+   */
+  public abstract T create();
+
+  /**
+   * Read a single field of a JSON object into a record.
+   *
+   * @param format
+   *          the {@link TableFormat} used to parse values such as timestamps.
+   * @param parser
+   *          a parser positioned on the value of the field. If the field is
+   *          decoded, the parser is left on the last token of the value.
+   * @param name
+   *          the field's name in the JSON object.
+   * @param record
+   *          the record to be populated.
+   *
+   * @return true if the field belongs to this binding and was decoded, or
+   *         false if it is not known. In that case the parser has not moved,
+   *         and the caller should skip the value.
+   *
+   * @throws IOException
+   *           if an error occurs when reading from the parser, or if the
+   *           value has an unexpected type.
+   * @throws ParseException
+   *           if a timestamp field can not be parsed.
+   */
+  public abstract boolean decodeField(TableFormat format, JsonParser parser, String name,
+      T record) throws IOException, ParseException;
+
+  /**
+   * Read a whole JSON object into a new record.
+   *
+   * @param format
+   *          the {@link TableFormat} used to parse values such as timestamps.
+   * @param parser
+   *          a parser positioned on the {@code START_OBJECT} token of the
+   *          object. On return, the parser is positioned on the matching
+   *          {@code END_OBJECT} token.
+   *
+   * @return a new instance of {@code T}.
+   *
+   * @throws IOException
+   *           if an error occurs when reading from the parser, or if a value
+   *           has an unexpected type.
+   * @throws ParseException
+   *           if a timestamp field can not be parsed.
+   */
+  public T decode(final TableFormat format, final JsonParser parser)
+      throws IOException, ParseException {
+    if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+      throw new JsonParseException("Expected an object but found " + parser.getCurrentToken(),
+          parser.getCurrentLocation());
+    }
+    final T record = create();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String name = parser.getCurrentName();
+      parser.nextToken();
+      if (!decodeField(format, parser, name, record)) {
+        parser.skipChildren();
+      }
+    }
+    return record;
+  }
+}
@@ -0,0 +1,150 @@
+package edu.harvard.data.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Input stream that reads a local file through a read-only memory mapping.
+ * <P>
+ * Reading a file through a {@code FileInputStream} costs a system call and a
+ * copy out of the page cache for every buffer that the caller fills, which
+ * becomes the bottleneck when parsing large uncompressed files. This stream
+ * maps the file into memory instead, so that each read is a copy from mapped
+ * memory, and the kernel can read ahead as aggressively as it likes.
+ * <P>
+ * Files are mapped in windows of up to {@link #DEFAULT_WINDOW_SIZE} bytes,
+ * since a single mapping is limited to 2GB. Mappings are released when they
+ * are garbage collected rather than when the stream is closed; on Linux this
+ * does not prevent the file from being deleted.
+ * <P>
+ * This class is not thread-safe.
+ */
+public class MappedFileInputStream extends InputStream {
+
+  /**
+   * The default size of the section of the file that is mapped at any time.
+   */
+  public static final int DEFAULT_WINDOW_SIZE = 256 * 1024 * 1024;
+
+  private final FileChannel channel;
+  private final long length;
+  private final int windowSize;
+  private MappedByteBuffer window;
+  private long windowStart;
+  private long position;
+  private boolean closed;
+
+  /**
+   * Open a file for reading.
+   *
+   * @param file
+   *          the local file to read.
+   *
+   * @throws FileNotFoundException
+   *           if the file does not exist or can not be read.
+   * @throws IOException
+   *           if an error occurs when determining the size of the file.
+   */
+  public MappedFileInputStream(final File file) throws IOException {
+    this(file, DEFAULT_WINDOW_SIZE);
+  }
+
+  MappedFileInputStream(final File file, final int windowSize) throws IOException {
+    if (windowSize < 1) {
+      throw new IllegalArgumentException("Invalid window size " + windowSize);
+    }
+    final FileInputStream in = new FileInputStream(file);
+    try {
+      this.channel = in.getChannel();
+      this.length = channel.size();
+    } catch (final IOException | RuntimeException e) {
+      in.close();
+      throw e;
+    }
+    this.windowSize = windowSize;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!ensureWindow()) {
+      return -1;
+    }
+    position++;
+    return window.get() & 0xff;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    if (off < 0 || len < 0 || len > b.length - off) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (len == 0) {
+      return 0;
+    }
+    if (!ensureWindow()) {
+      return -1;
+    }
+    final int n = Math.min(len, window.remaining());
+    window.get(b, off, n);
+    position += n;
+    return n;
+  }
+
+  @Override
+  public long skip(final long n) throws IOException {
+    checkOpen();
+    final long skipped = Math.max(0, Math.min(n, length - position));
+    position += skipped;
+    if (window != null) {
+      if (position < windowStart + window.capacity()) {
+        window.position((int) (position - windowStart));
+      } else {
+        window = null;
+      }
+    }
+    return skipped;
+  }
+
+  @Override
+  public int available() throws IOException {
+    checkOpen();
+    return (int) Math.min(Integer.MAX_VALUE, length - position);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      window = null;
+      channel.close();
+    }
+  }
+
+  // Make sure that there is a mapped window with data remaining, mapping the
+  // next section of the file if necessary. Returns false at the end of the
+  // file.
+  private boolean ensureWindow() throws IOException {
+    checkOpen();
+    if (window != null && window.hasRemaining()) {
+      return true;
+    }
+    if (position >= length) {
+      return false;
+    }
+    windowStart = position;
+    final long size = Math.min(windowSize, length - position);
+    window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size);
+    return true;
+  }
+
+  private void checkOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+}
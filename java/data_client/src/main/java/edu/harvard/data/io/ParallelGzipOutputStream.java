@@ -0,0 +1,325 @@
+package edu.harvard.data.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Output stream that gzip compresses its data on several threads.
+ * <P>
+ * The data is split into blocks of {@link #DEFAULT_BLOCK_SIZE} bytes, and each
+ * block is compressed as a separate gzip member by a task on an
+ * {@link ExecutorService}. Members are written to the underlying stream in
+ * order, so the result is a standard multi-member gzip file that can be read
+ * by {@code GZIPInputStream}, {@code gunzip}, Hadoop's {@code GzipCodec} and
+ * Redshift's {@code COPY ... GZIP}. Since each block is large, the compression
+ * ratio is within a fraction of a percent of a single gzip member.
+ * <P>
+ * Across all streams in the JVM, at most {@link #MAX_PENDING_BLOCKS} blocks
+ * (two per available processor) are waiting to be compressed or written at any
+ * time, so that many concurrent writers share a bounded amount of memory. A
+ * stream that needs to submit a block when the limit has been reached writes
+ * its own oldest member first, blocking until that member has been
+ * compressed. If it has no members pending, it compresses the block on the
+ * caller's thread instead, rather than wait for other streams that may not
+ * write their members until they are closed. Block buffers are returned to a
+ * shared free list once they have been compressed, and reused by later blocks
+ * of the same size.
+ * <P>
+ * By default, streams share a pool of daemon threads with one thread per
+ * available processor, so that many concurrent writers do not oversubscribe
+ * the machine.
+ * <P>
+ * This class is not thread-safe.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+  /**
+   * The default number of uncompressed bytes in each gzip member.
+   */
+  public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+  /**
+   * The maximum number of blocks, across all streams, that may be waiting to
+   * be compressed or written.
+   */
+  public static final int MAX_PENDING_BLOCKS = 2 * Runtime.getRuntime().availableProcessors();
+
+  private static final byte[] HEADER = { 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+  private static ExecutorService sharedPool;
+
+  // Deflaters are expensive to create, so each executor thread that compresses
+  // blocks keeps one. A block compressed on the caller's thread uses its own
+  // Deflater, which is ended straight away, since the caller's thread may not
+  // live as long as the executor's threads do.
+  static final ThreadLocal<Deflater> deflaters = new ThreadLocal<Deflater>();
+
+  // One permit for each block that has been submitted for compression but not
+  // yet written to its stream.
+  static final Semaphore pendingBlocks = new Semaphore(MAX_PENDING_BLOCKS);
+
+  // Compressed block buffers, ready to be reused. Besides the pending blocks,
+  // each open stream holds one block that it is filling.
+  private static final BlockingQueue<byte[]> freeBlocks = new ArrayBlockingQueue<byte[]>(
+      MAX_PENDING_BLOCKS);
+
+  private final OutputStream out;
+  private final ExecutorService exec;
+  private final int blockSize;
+  private final int level;
+  private final Deque<Future<byte[]>> pending;
+  private byte[] block;
+  private int count;
+  private boolean written;
+  private boolean closed;
+
+  /**
+   * Create a stream that compresses 1MB blocks at the default deflate level on
+   * the shared thread pool.
+   *
+   * @param out
+   *          the stream to which compressed members are written.
+   */
+  public ParallelGzipOutputStream(final OutputStream out) {
+    this(out, getSharedPool(), DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * Create a stream that compresses blocks on a specific executor.
+   *
+   * @param out
+   *          the stream to which compressed members are written.
+   * @param exec
+   *          the {@link ExecutorService} on which blocks are compressed. The
+   *          executor is not shut down when the stream is closed.
+   * @param blockSize
+   *          the number of uncompressed bytes in each member.
+   * @param level
+   *          the deflate level, between {@link Deflater#BEST_SPEED} and
+   *          {@link Deflater#BEST_COMPRESSION}, or
+   *          {@link Deflater#DEFAULT_COMPRESSION}.
+   *
+   * @throws IllegalArgumentException
+   *           if {@code blockSize} is not positive.
+   */
+  public ParallelGzipOutputStream(final OutputStream out, final ExecutorService exec,
+      final int blockSize, final int level) {
+    if (blockSize < 1) {
+      throw new IllegalArgumentException("Invalid block size " + blockSize);
+    }
+    this.out = out;
+    this.exec = exec;
+    this.blockSize = blockSize;
+    this.level = level;
+    this.pending = new ArrayDeque<Future<byte[]>>();
+    this.block = allocateBlock(blockSize);
+  }
+
+  private static synchronized ExecutorService getSharedPool() {
+    if (sharedPool == null) {
+      final AtomicInteger threads = new AtomicInteger();
+      sharedPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+          new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+              final Thread thread = new Thread(r, "parallel-gzip-" + threads.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+    }
+    return sharedPool;
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    checkOpen();
+    block[count++] = (byte) b;
+    if (count == blockSize) {
+      submitBlock();
+    }
+  }
+
+  @Override
+  public void write(final byte[] b, final int off, final int len) throws IOException {
+    checkOpen();
+    if (off < 0 || len < 0 || len > b.length - off) {
+      throw new IndexOutOfBoundsException();
+    }
+    int offset = off;
+    int remaining = len;
+    while (remaining > 0) {
+      final int n = Math.min(remaining, blockSize - count);
+      System.arraycopy(b, offset, block, count, n);
+      count += n;
+      offset += n;
+      remaining -= n;
+      if (count == blockSize) {
+        submitBlock();
+      }
+    }
+  }
+
+  /**
+   * Write any members that have finished compressing and flush the underlying
+   * stream. The current block is not ended, since small members would hurt the
+   * compression ratio, so data written since the last full block is not
+   * flushed.
+   */
+  @Override
+  public void flush() throws IOException {
+    checkOpen();
+    while (!pending.isEmpty() && pending.peekFirst().isDone()) {
+      writeMember();
+    }
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    try {
+      // An empty stream is still written as a single empty member.
+      if (count > 0 || !written) {
+        submitBlock();
+      }
+      while (!pending.isEmpty()) {
+        writeMember();
+      }
+    } finally {
+      closed = true;
+      for (final Future<byte[]> future : pending) {
+        future.cancel(false);
+        pendingBlocks.release();
+      }
+      pending.clear();
+      out.close();
+    }
+  }
+
+  private void submitBlock() throws IOException {
+    final byte[] data = block;
+    final int length = count;
+    written = true;
+    block = allocateBlock(blockSize);
+    count = 0;
+    while (!pendingBlocks.tryAcquire()) {
+      if (pending.isEmpty()) {
+        final Deflater deflater = new Deflater(level, true);
+        try {
+          out.write(compress(data, length, level, deflater));
+        } finally {
+          deflater.end();
+        }
+        recycleBlock(data);
+        return;
+      }
+      writeMember();
+    }
+    try {
+      pending.addLast(exec.submit(new Callable<byte[]>() {
+        @Override
+        public byte[] call() {
+          Deflater deflater = deflaters.get();
+          if (deflater == null) {
+            deflater = new Deflater(level, true);
+            deflaters.set(deflater);
+          }
+          final byte[] member = compress(data, length, level, deflater);
+          recycleBlock(data);
+          return member;
+        }
+      }));
+    } catch (final RejectedExecutionException e) {
+      pendingBlocks.release();
+      throw e;
+    }
+  }
+
+  private void writeMember() throws IOException {
+    final byte[] member;
+    try {
+      member = pending.peekFirst().get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while compressing");
+    } catch (final ExecutionException e) {
+      throw new IOException(e.getCause());
+    }
+    pending.removeFirst();
+    pendingBlocks.release();
+    out.write(member);
+  }
+
+  private static byte[] allocateBlock(final int blockSize) {
+    final byte[] block = freeBlocks.poll();
+    return block != null && block.length == blockSize ? block : new byte[blockSize];
+  }
+
+  private static void recycleBlock(final byte[] block) {
+    freeBlocks.offer(block);
+  }
+
+  // Compress a block into a complete gzip member.
+  private static byte[] compress(final byte[] data, final int length, final int level,
+      final Deflater deflater) {
+    deflater.reset();
+    deflater.setLevel(level);
+    deflater.setInput(data, 0, length);
+    deflater.finish();
+    // Deflate expands incompressible data by a few bytes per 16KB block.
+    byte[] member = new byte[HEADER.length + length + length / 1000 + 64];
+    System.arraycopy(HEADER, 0, member, 0, HEADER.length);
+    int size = HEADER.length;
+    while (!deflater.finished()) {
+      if (size == member.length - 8) {
+        final byte[] larger = new byte[member.length * 2];
+        System.arraycopy(member, 0, larger, 0, size);
+        member = larger;
+      }
+      size += deflater.deflate(member, size, member.length - 8 - size);
+    }
+    final CRC32 crc = new CRC32();
+    crc.update(data, 0, length);
+    putInt(member, size, (int) crc.getValue());
+    putInt(member, size + 4, length);
+    size += 8;
+    if (size == member.length) {
+      return member;
+    }
+    final byte[] result = new byte[size];
+    System.arraycopy(member, 0, result, 0, size);
+    return result;
+  }
+
+  private static void putInt(final byte[] b, final int offset, final int value) {
+    b[offset] = (byte) value;
+    b[offset + 1] = (byte) (value >>> 8);
+    b[offset + 2] = (byte) (value >>> 16);
+    b[offset + 3] = (byte) (value >>> 24);
+  }
+
+  private void checkOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package edu.harvard.data.io;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import edu.harvard.data.DataTable;
+
+/**
+ * Iterator class that reads the records of multiple {@link TableReader}
+ * instances on background threads, while returning them in the same order as
+ * {@link CombinedTableIterator}.
+ * <P>
+ * Each source {@code TableReader} (typically one per file) is read by a task
+ * submitted to an {@link ExecutorService}. The task parses records into a
+ * bounded queue, and the iterator drains the queues one table at a time in the
+ * order that the tables were passed to the constructor. At most
+ * {@code readAhead} tables are in flight at any time, and each queue holds at
+ * most {@code bufferSize} records, so the memory footprint of the iterator is
+ * bounded by {@code readAhead * bufferSize} records regardless of the number or
+ * size of the input files.
+ * <P>
+ * Tables are submitted to the executor in order, and a task for a table is
+ * only submitted once every earlier table has been submitted. The executor
+ * should therefore process tasks in submission order (as the executors
+ * returned by {@link java.util.concurrent.Executors} do), and should not be
+ * shared with tasks that themselves wait on this iterator.
+ * <P>
+ * As with {@link CombinedTableIterator}, each source {@code TableReader} is
+ * closed once its records have been exhausted.
+ * <P>
+ * This class is not thread-safe. Any access synchronization must be performed
+ * by the caller.
+ * <P>
+ * This class should not be instantiated by clients; create an instance of
+ * {@link ParallelTableReader} instead.
+ * <P>
+ * Note that the iteration process can throw an instance of
+ * {@link IterationException}. Exceptions thrown by a source
+ * {@code TableReader} on a background thread are passed to the calling thread
+ * and rethrown when the iterator reaches the point in the input where they
+ * occurred.
+ *
+ * @param <T>
+ *          the {@link DataTable} implementation to be read by this iterator.
+ */
+class ParallelTableIterator<T extends DataTable> implements Iterator<T>, Closeable {
+
+  // Marker placed on a queue once all records for a table have been read.
+  private static final Object END_OF_TABLE = new Object();
+
+  private final List<TableReader<T>> tables;
+  private final ExecutorService exec;
+  private final int readAhead;
+  private final int bufferSize;
+  private final ParallelTableReader.Producers producers;
+  private final List<BlockingQueue<Object>> queues;
+  private final List<Future<?>> futures;
+  private int current;
+  private Object next;
+
+  /**
+   * Create an iterator based on an existing set of {@link TableReader} objects.
+   * The tables will be returned in the order that they appear in this list.
+   *
+   * @param tables
+   *          a {@link List} of {@code TableReader} instances to be iterated
+   *          over.
+   * @param exec
+   *          the {@link ExecutorService} used to read the tables.
+   * @param readAhead
+   *          the maximum number of tables that will be read concurrently.
+   * @param bufferSize
+   *          the maximum number of records that will be buffered for each
+   *          table that is being read.
+   * @param producers
+   *          tracks the background tasks, so that the owning
+   *          {@link ParallelTableReader} can wait for them to stop.
+   */
+  ParallelTableIterator(final List<TableReader<T>> tables, final ExecutorService exec,
+      final int readAhead, final int bufferSize, final ParallelTableReader.Producers producers) {
+    this.tables = tables;
+    this.exec = exec;
+    this.readAhead = readAhead;
+    this.bufferSize = bufferSize;
+    this.producers = producers;
+    this.queues = new ArrayList<BlockingQueue<Object>>();
+    this.futures = new ArrayList<Future<?>>();
+    this.current = 0;
+  }
+
+  // Start reading tables until there are readAhead tables in flight.
+  private void submitTables() {
+    while (queues.size() < tables.size() && queues.size() < current + readAhead) {
+      final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(bufferSize);
+      final TableReader<T> table = tables.get(queues.size());
+      queues.add(queue);
+      futures.add(exec.submit(new TableProducer<T>(table, queue, producers)));
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (next == null) {
+      if (current >= tables.size()) {
+        return false;
+      }
+      submitTables();
+      final Object item;
+      try {
+        item = queues.get(current).take();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IterationException(e);
+      }
+      if (item == END_OF_TABLE) {
+        queues.set(current, null);
+        current++;
+      } else if (item instanceof Failure) {
+        close();
+        current = tables.size();
+        throw new IterationException(((Failure) item).cause);
+      } else {
+        next = item;
+      }
+    }
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    final T record = (T) next;
+    next = null;
+    return record;
+  }
+
+  /**
+   * Cancel any background tasks that are still reading tables. This does not
+   * wait for the tasks to stop or close the source {@link TableReader}
+   * instances; that is the responsibility of {@link ParallelTableReader#close}.
+   */
+  @Override
+  public void close() {
+    for (final Future<?> future : futures) {
+      future.cancel(true);
+    }
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  // Wrapper for an exception thrown while reading a table on a background
+  // thread.
+  private static class Failure {
+    private final Throwable cause;
+
+    Failure(final Throwable cause) {
+      this.cause = cause;
+    }
+  }
+
+  // Task that reads all records from a single table into a bounded queue.
+  private static class TableProducer<T extends DataTable> implements Runnable {
+    private final TableReader<T> table;
+    private final BlockingQueue<Object> queue;
+    private final ParallelTableReader.Producers producers;
+
+    TableProducer(final TableReader<T> table, final BlockingQueue<Object> queue,
+        final ParallelTableReader.Producers producers) {
+      this.table = table;
+      this.queue = queue;
+      this.producers = producers;
+    }
+
+    @Override
+    public void run() {
+      if (!producers.start()) {
+        return;
+      }
+      try {
+        read();
+      } finally {
+        producers.finish();
+      }
+    }
+
+    private void read() {
+      try {
+        try {
+          for (final T record : table) {
+            queue.put(record);
+          }
+        } finally {
+          table.close();
+        }
+        queue.put(END_OF_TABLE);
+      } catch (final InterruptedException e) {
+        // The iterator has been closed; stop reading.
+      } catch (final Throwable t) {
+        final Throwable cause = t instanceof IterationException ? t.getCause() : t;
+        try {
+          queue.put(new Failure(cause));
+        } catch (final InterruptedException e) {
+          // The iterator has been closed; nobody is waiting for the failure.
+        }
+      }
+    }
+  }
+
+}
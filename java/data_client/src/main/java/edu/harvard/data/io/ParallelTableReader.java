@@ -0,0 +1,251 @@
+package edu.harvard.data.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import edu.harvard.data.DataTable;
+
+/**
+ * Implementation of the {@link TableReader} interface that reads the records
+ * of multiple other table readers concurrently. Like {@link CombinedTableReader}
+ * this class is intended for the case where a data table is represented by
+ * multiple files, but rather than reading each file in turn on the calling
+ * thread it splits the work at file boundaries and reads each file on a thread
+ * provided by an {@link ExecutorService}.
+ * <P>
+ * The class supports two modes of operation:
+ * <UL>
+ * <LI>The {@link #iterator} method returns the records in the same order as a
+ * {@code CombinedTableReader} would. Parsing happens in the background, a
+ * bounded number of files ahead of the caller, so that memory use is limited
+ * to {@code readAhead * bufferSize} records. See
+ * {@link ParallelTableIterator} for details. This mode is useful when the
+ * records must be processed in order or by code that is not thread-safe.</LI>
+ * <LI>The {@link #forEach} method reads every file at once and passes each
+ * record to a {@link RecordHandler} on the thread that parsed it. Records from
+ * a single file are handled in order, but no ordering is guaranteed between
+ * files. This mode uses all available threads and buffers no records.</LI>
+ * </UL>
+ * Only one of these methods should be used on a single instance.
+ * <P>
+ * Closing the reader cancels any tables that are still being read, and waits
+ * for the tasks reading them to stop before the tables are closed. The
+ * executor is not shut down.
+ * <P>
+ * This class is not thread-safe. Any access synchronization must be performed
+ * by the caller.
+ *
+ * @param <T>
+ *          the record type that this reader parses.
+ */
+public class ParallelTableReader<T extends DataTable> implements TableReader<T> {
+
+  /**
+   * The default number of tables that the ordered iterator reads concurrently.
+   */
+  public static final int DEFAULT_READ_AHEAD = 4;
+
+  /**
+   * The default number of records that the ordered iterator buffers per table.
+   */
+  public static final int DEFAULT_BUFFER_SIZE = 512;
+
+  private final List<TableReader<T>> tables;
+  private final ExecutorService exec;
+  private final int readAhead;
+  private final int bufferSize;
+  private final Producers producers;
+  private ParallelTableIterator<T> iterator;
+
+  /**
+   * Create a parallel reader from a list of existing {@link TableReader}
+   * instances, using the default read-ahead and buffer sizes.
+   *
+   * @param tables
+   *          an ordered {@link List} of {@code TableReader} instances that will
+   *          provide the records for this reader.
+   * @param exec
+   *          the {@link ExecutorService} on which the tables will be read.
+   */
+  public ParallelTableReader(final List<TableReader<T>> tables, final ExecutorService exec) {
+    this(tables, exec, DEFAULT_READ_AHEAD, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Create a parallel reader from a list of existing {@link TableReader}
+   * instances.
+   *
+   * @param tables
+   *          an ordered {@link List} of {@code TableReader} instances that will
+   *          provide the records for this reader.
+   * @param exec
+   *          the {@link ExecutorService} on which the tables will be read.
+   * @param readAhead
+   *          the maximum number of tables that the ordered iterator will read
+   *          concurrently. This would typically be the number of threads
+   *          available to the executor.
+   * @param bufferSize
+   *          the maximum number of records that the ordered iterator will
+   *          buffer for each table being read.
+   *
+   * @throws IllegalArgumentException
+   *           if {@code readAhead} or {@code bufferSize} are not positive.
+   */
+  public ParallelTableReader(final List<TableReader<T>> tables, final ExecutorService exec,
+      final int readAhead, final int bufferSize) {
+    if (readAhead < 1 || bufferSize < 1) {
+      throw new IllegalArgumentException(
+          "Invalid read ahead (" + readAhead + ") or buffer size (" + bufferSize + ")");
+    }
+    this.tables = tables;
+    this.exec = exec;
+    this.readAhead = readAhead;
+    this.bufferSize = bufferSize;
+    this.producers = new Producers();
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    if (iterator == null) {
+      iterator = new ParallelTableIterator<T>(tables, exec, readAhead, bufferSize, producers);
+    }
+    return iterator;
+  }
+
+  /**
+   * Read all tables concurrently, passing every record to a handler. This
+   * method blocks until all tables have been read. Each table is closed once
+   * its records have been exhausted.
+   *
+   * @param handler
+   *          the {@link RecordHandler} that will be called for each record.
+   *          The handler is called from multiple threads, and so must be
+   *          thread-safe.
+   *
+   * @return the total number of records read.
+   *
+   * @throws IOException
+   *           if an error occurs while reading any of the tables, or if the
+   *           handler throws an exception. The first such error to occur is
+   *           thrown as soon as it happens, and any tables that are still being
+   *           read are cancelled.
+   */
+  public long forEach(final RecordHandler<? super T> handler) throws IOException {
+    // Tables are collected in completion order rather than submission order,
+    // so that a failure is not held back behind a large table that is still
+    // being read.
+    final CompletionService<Long> completed = new ExecutorCompletionService<Long>(exec);
+    final List<Future<Long>> futures = new ArrayList<Future<Long>>();
+    for (final TableReader<T> table : tables) {
+      futures.add(completed.submit(new Callable<Long>() {
+        @Override
+        public Long call() throws IOException {
+          if (!producers.start()) {
+            return 0L;
+          }
+          long count = 0;
+          try {
+            for (final T record : table) {
+              handler.handle(record);
+              count++;
+            }
+          } finally {
+            try {
+              table.close();
+            } finally {
+              producers.finish();
+            }
+          }
+          return count;
+        }
+      }));
+    }
+    long count = 0;
+    try {
+      for (int i = 0; i < futures.size(); i++) {
+        count += completed.take().get();
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for tables to be read", e);
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause() instanceof IterationException
+          ? e.getCause().getCause() : e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    } finally {
+      for (final Future<Long> future : futures) {
+        future.cancel(true);
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (iterator != null) {
+      iterator.close();
+    }
+    producers.stop();
+    for (final TableReader<T> table : tables) {
+      table.close();
+    }
+  }
+
+  // Tracks the tasks that are reading tables, so that close can wait for any
+  // that have been cancelled to stop before it closes the tables. Cancelling a
+  // task's future interrupts it, but does not wait for it to return.
+  static class Producers {
+    private int running;
+    private boolean stopped;
+
+    // Called by a task before it reads a table. Returns false if the reader is
+    // being closed, in which case the task must not touch the table.
+    synchronized boolean start() {
+      if (stopped) {
+        return false;
+      }
+      running++;
+      return true;
+    }
+
+    synchronized void finish() {
+      running--;
+      notifyAll();
+    }
+
+    // Prevent further tasks from starting, and wait for running ones to
+    // finish. An interrupt that arrives while waiting is kept for the caller.
+    synchronized void stop() {
+      stopped = true;
+      boolean interrupted = false;
+      while (running > 0) {
+        try {
+          wait();
+        } catch (final InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+}
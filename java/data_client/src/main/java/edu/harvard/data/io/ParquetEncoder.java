@@ -0,0 +1,365 @@
+package edu.harvard.data.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.TimeZone;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
+import org.apache.parquet.column.ParquetProperties.WriterVersion;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.OriginalType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Types;
+import org.apache.parquet.schema.Types.MessageTypeBuilder;
+
+import edu.harvard.data.DataTable;
+import edu.harvard.data.TableFormat;
+import edu.harvard.data.schema.DataSchemaType;
+
+/**
+ * Writes {@link DataTable} records to an output stream as a Parquet file, using
+ * the {@code ParquetWriter} from parquet-mr.
+ * <P>
+ * The file schema is taken from the table's {@link ColumnarCodec}: every
+ * schema column becomes an optional top-level Parquet column with the same
+ * name. The column types follow the Hive types produced by
+ * {@link DataSchemaType#getHiveType}, so that a Hive table created with
+ * {@code STORED AS PARQUET} (or a Redshift {@code COPY ... FORMAT AS PARQUET})
+ * can read the file directly:
+ * <ul>
+ * <li>{@code BigInt}: {@code INT64}</li>
+ * <li>{@code Integer}: {@code INT32}</li>
+ * <li>{@code Boolean}: {@code BOOLEAN}</li>
+ * <li>{@code DoublePrecision}: {@code DOUBLE}</li>
+ * <li>{@code Date}: {@code INT32} annotated as {@code DATE}, holding the day
+ * in the format's date time zone (the same day that the delimited formats
+ * would print)</li>
+ * <li>{@code DateTime} and {@code Timestamp}: {@code INT96}, the timestamp
+ * layout used by Hive and Impala</li>
+ * <li>String and enum types: {@code BINARY} annotated as {@code UTF8}</li>
+ * </ul>
+ * Files use the Parquet 1.0 page layout, which every version of Hive and
+ * Redshift can read, with dictionary encoding where parquet-mr chooses it.
+ * Rows are grouped into row groups of about {@link #ROW_GROUP_SIZE} bytes. If
+ * the format's compression is not {@code None}, pages are gzip compressed; the
+ * file itself is not wrapped in the format's codec, since Parquet readers
+ * expect to seek within it.
+ * <P>
+ * Parquet-mr 1.8 can only write to a Hadoop {@code Path}, so the file is
+ * written to a temporary local file and copied to the output stream when the
+ * encoder is closed. The temporary file is deleted once it has been copied, or
+ * when the encoder is aborted.
+ * <P>
+ * This class is not thread-safe.
+ *
+ * @param <T>
+ *          the {@link DataTable} implementation written by this encoder.
+ */
+class ParquetEncoder<T extends DataTable> implements Closeable {
+
+  static final int ROW_GROUP_SIZE = 64 * 1024 * 1024;
+
+  static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+  // The Julian day number of 1970-01-01.
+  static final long JULIAN_EPOCH_DAY = 2440588;
+
+  private final ColumnarCodec<T> codec;
+  private final OutputStream out;
+  private final File tempFile;
+  private final ParquetWriter<Object[]> writer;
+  private final Object[] values;
+  private boolean closed;
+
+  /**
+   * Create an encoder that writes a Parquet file to a stream.
+   *
+   * @param codec
+   *          the codec that describes the columns of {@code T}.
+   * @param format
+   *          the format of the output. Its compression setting determines
+   *          whether pages are compressed, and its date format's time zone
+   *          determines the day stored for {@code Date} columns.
+   * @param out
+   *          the stream to which the file is written when the encoder is
+   *          closed. It is closed by {@link #close}.
+   * @param tempDir
+   *          the directory in which to create the temporary file, or
+   *          {@code null} to use the default temporary directory.
+   *
+   * @throws IOException
+   *           if an error occurs when creating the temporary file.
+   */
+  ParquetEncoder(final ColumnarCodec<T> codec, final TableFormat format, final OutputStream out,
+      final File tempDir) throws IOException {
+    this(codec, format, out, tempDir, ROW_GROUP_SIZE);
+  }
+
+  // Allows tests to produce several row groups without writing 64MB of data.
+  ParquetEncoder(final ColumnarCodec<T> codec, final TableFormat format, final OutputStream out,
+      final File tempDir, final int rowGroupSize) throws IOException {
+    this.codec = codec;
+    this.out = out;
+    this.values = new Object[codec.getColumnCount()];
+    this.tempFile = File.createTempFile("table-", ".parquet.tmp", tempDir);
+    final CompressionCodecName compression = format
+        .getCompression() == TableFormat.Compression.None ? CompressionCodecName.UNCOMPRESSED
+            : CompressionCodecName.GZIP;
+    try {
+      this.writer = new Builder(new Path(tempFile.toURI()), codec, format)
+          .withConf(getConfiguration()).withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+          .withCompressionCodec(compression).withRowGroupSize(rowGroupSize)
+          .withWriterVersion(WriterVersion.PARQUET_1_0).build();
+    } catch (final IOException | RuntimeException e) {
+      Files.deleteIfExists(tempFile.toPath());
+      throw e;
+    }
+  }
+
+  /**
+   * Get the Hadoop configuration used to read and write Parquet files. Local
+   * files are accessed without Hadoop's checksum layer, so that no
+   * {@code .crc} files are written next to them.
+   */
+  static Configuration getConfiguration() {
+    final Configuration conf = new Configuration();
+    conf.setClass("fs.file.impl", RawLocalFileSystem.class, FileSystem.class);
+    conf.setBoolean("fs.file.impl.disable.cache", true);
+    return conf;
+  }
+
+  /**
+   * Get the Parquet schema for a table.
+   *
+   * @param codec
+   *          the codec that describes the table's columns.
+   * @return a flat schema with one optional column for each of the codec's
+   *         columns.
+   */
+  static MessageType getSchema(final ColumnarCodec<?> codec) {
+    final MessageTypeBuilder builder = Types.buildMessage();
+    for (int i = 0; i < codec.getColumnCount(); i++) {
+      final DataSchemaType type = codec.getColumnType(i);
+      final PrimitiveTypeName physicalType = getPhysicalType(type);
+      OriginalType originalType = null;
+      if (physicalType == PrimitiveTypeName.BINARY) {
+        originalType = OriginalType.UTF8;
+      } else if (type == DataSchemaType.Date) {
+        originalType = OriginalType.DATE;
+      }
+      builder.optional(physicalType).as(originalType).named(codec.getColumnName(i));
+    }
+    return builder.named("schema");
+  }
+
+  static PrimitiveTypeName getPhysicalType(final DataSchemaType type) {
+    switch (type) {
+    case BigInt:
+      return PrimitiveTypeName.INT64;
+    case Boolean:
+      return PrimitiveTypeName.BOOLEAN;
+    case Date:
+    case Integer:
+      return PrimitiveTypeName.INT32;
+    case DateTime:
+    case Timestamp:
+      return PrimitiveTypeName.INT96;
+    case DoublePrecision:
+      return PrimitiveTypeName.DOUBLE;
+    case Enum:
+    case Guid:
+    case Text:
+    case VarChar:
+      return PrimitiveTypeName.BINARY;
+    }
+    throw new RuntimeException("Unknown data type: " + type);
+  }
+
+  static long floorDiv(final long x, final long y) {
+    final long q = x / y;
+    return (x % y != 0 && (x < 0) != (y < 0)) ? q - 1 : q;
+  }
+
+  void add(final T record) throws IOException {
+    codec.getValues(record, values);
+    writer.write(values);
+  }
+
+  // Finish the file and copy it to the output stream.
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      writer.close();
+      Files.copy(tempFile.toPath(), out);
+    } finally {
+      try {
+        Files.deleteIfExists(tempFile.toPath());
+      } finally {
+        out.close();
+      }
+    }
+  }
+
+  /**
+   * Close the encoder after an error without writing anything to the output
+   * stream. The temporary file is deleted and the output stream is closed.
+   *
+   * @throws IOException
+   *           if an error occurs when closing the output stream.
+   */
+  void abort() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      writer.close();
+    } catch (final IOException | RuntimeException e) {
+      // The partial file is being discarded.
+    } finally {
+      try {
+        Files.deleteIfExists(tempFile.toPath());
+      } finally {
+        out.close();
+      }
+    }
+  }
+
+  // The encoded size of the file so far, including the row group held in
+  // memory. None of it reaches the output stream until the encoder is closed.
+  long getBufferedSize() {
+    return closed ? 0 : writer.getDataSize();
+  }
+
+  private static class Builder extends ParquetWriter.Builder<Object[], Builder> {
+    private final ColumnarCodec<?> codec;
+    private final TableFormat format;
+
+    Builder(final Path path, final ColumnarCodec<?> codec, final TableFormat format) {
+      super(path);
+      this.codec = codec;
+      this.format = format;
+    }
+
+    @Override
+    protected Builder self() {
+      return this;
+    }
+
+    @Override
+    protected WriteSupport<Object[]> getWriteSupport(final Configuration conf) {
+      return new ValuesWriteSupport(codec, format);
+    }
+  }
+
+  // Writes the column values of a record, as produced by
+  // ColumnarCodec.getValues, to parquet-mr's record consumer.
+  private static class ValuesWriteSupport extends WriteSupport<Object[]> {
+    private final MessageType schema;
+    private final String[] names;
+    private final DataSchemaType[] types;
+    private final TimeZone dateZone;
+    private final ByteBuffer int96;
+    private RecordConsumer consumer;
+
+    ValuesWriteSupport(final ColumnarCodec<?> codec, final TableFormat format) {
+      this.schema = getSchema(codec);
+      this.names = new String[codec.getColumnCount()];
+      this.types = new DataSchemaType[codec.getColumnCount()];
+      for (int i = 0; i < names.length; i++) {
+        names[i] = codec.getColumnName(i);
+        types[i] = codec.getColumnType(i);
+      }
+      this.dateZone = format.getDateCodec().getTimeZone();
+      this.int96 = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public WriteContext init(final Configuration conf) {
+      return new WriteContext(schema, new HashMap<String, String>());
+    }
+
+    @Override
+    public void prepareForWrite(final RecordConsumer recordConsumer) {
+      this.consumer = recordConsumer;
+    }
+
+    @Override
+    public void write(final Object[] values) {
+      consumer.startMessage();
+      for (int i = 0; i < names.length; i++) {
+        if (values[i] != null) {
+          consumer.startField(names[i], i);
+          writeValue(types[i], values[i]);
+          consumer.endField(names[i], i);
+        }
+      }
+      consumer.endMessage();
+    }
+
+    private void writeValue(final DataSchemaType type, final Object value) {
+      switch (type) {
+      case BigInt:
+        consumer.addLong(((Number) value).longValue());
+        break;
+      case Integer:
+        consumer.addInteger(((Number) value).intValue());
+        break;
+      case Boolean:
+        consumer.addBoolean((Boolean) value);
+        break;
+      case DoublePrecision:
+        consumer.addDouble(((Number) value).doubleValue());
+        break;
+      case Date:
+        final long millis = ((Date) value).getTime();
+        final long local = millis + dateZone.getOffset(millis);
+        consumer.addInteger((int) floorDiv(local, MILLIS_PER_DAY));
+        break;
+      case DateTime:
+      case Timestamp:
+        consumer.addBinary(getInt96((Date) value));
+        break;
+      default:
+        consumer.addBinary(Binary.fromString(value.toString()));
+        break;
+      }
+    }
+
+    // Hive's INT96 timestamp: the nanoseconds within the day and the Julian day
+    // number, both little-endian, in UTC.
+    private Binary getInt96(final Date date) {
+      final long millis = date.getTime();
+      final long day = floorDiv(millis, MILLIS_PER_DAY);
+      long nanos = (millis - day * MILLIS_PER_DAY) * 1000000;
+      if (date instanceof Timestamp) {
+        // Replace the milliseconds with the full fractional second.
+        nanos = nanos - (nanos % 1000000000) + ((Timestamp) date).getNanos();
+      }
+      int96.clear();
+      int96.putLong(nanos);
+      int96.putInt((int) (day + JULIAN_EPOCH_DAY));
+      return Binary.fromConstantByteArray(int96.array().clone());
+    }
+  }
+}
@@ -0,0 +1,283 @@
+package edu.harvard.data.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TimeZone;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.api.InitContext;
+import org.apache.parquet.hadoop.api.ReadSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.Converter;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.PrimitiveConverter;
+import org.apache.parquet.io.api.RecordMaterializer;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type;
+
+import edu.harvard.data.DataTable;
+import edu.harvard.data.TableFormat;
+import edu.harvard.data.schema.DataSchemaType;
+
+/**
+ * Helper class that implements an iterator over a local Parquet file, such as
+ * those written by {@link TableWriter} in a columnar {@link TableFormat}. The
+ * file is read by the {@code ParquetReader} from parquet-mr.
+ * <P>
+ * Columns in the file are matched to the columns of the table's
+ * {@link ColumnarCodec} by name, and only the matching columns are read. Table
+ * columns that are missing from the file are read as {@code null}, and file
+ * columns that are not part of the table are ignored, so that a file written
+ * with an older version of a schema can still be read. Files with nested or
+ * repeated columns cause an {@link IterationException}.
+ * <P>
+ * This class is not thread-safe. Any access synchronization must be performed
+ * by the caller.
+ * <P>
+ * This class should not be instantiated by clients; create an instance of
+ * {@link FileTableReader} instead.
+ *
+ * @param <T>
+ *          the {@link DataTable} implementation to be read by this iterator.
+ */
+public class ParquetFileIterator<T extends DataTable> implements Iterator<T>, Closeable {
+
+  private final ColumnarCodec<T> codec;
+  private final Map<String, Integer> columns;
+  private final TimeZone dateZone;
+  private final File file;
+  private ParquetReader<Object[]> reader;
+  private Object[] next;
+
+  /**
+   * Create a new iterator.
+   *
+   * @param codec
+   *          the {@link ColumnarCodec} used to create records.
+   * @param format
+   *          the {@link TableFormat} that the file was written with. Its date
+   *          format's time zone determines how {@code Date} columns are read.
+   * @param file
+   *          a {@link File} object that refers to the data file.
+   */
+  ParquetFileIterator(final ColumnarCodec<T> codec, final TableFormat format, final File file) {
+    this.codec = codec;
+    this.columns = new HashMap<String, Integer>();
+    for (int i = 0; i < codec.getColumnCount(); i++) {
+      columns.put(codec.getColumnName(i), i);
+    }
+    this.dateZone = format.getDateCodec().getTimeZone();
+    this.file = file;
+  }
+
+  @Override
+  public boolean hasNext() {
+    try {
+      if (reader == null) {
+        reader = ParquetReader.builder(new ValuesReadSupport(), new Path(file.toURI()))
+            .withConf(ParquetEncoder.getConfiguration()).build();
+      }
+      if (next == null) {
+        next = reader.read();
+      }
+      return next != null;
+    } catch (final IOException | RuntimeException e) {
+      throw new IterationException(e);
+    }
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    final Object[] values = next;
+    next = null;
+    return codec.create(values);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (reader != null) {
+      reader.close();
+    }
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  // Convert a value decoded by parquet-mr to the Java type that the codec
+  // expects.
+  private Object convert(final Object value, final DataSchemaType type) {
+    switch (type) {
+    case BigInt:
+      return ((Number) value).longValue();
+    case Integer:
+      return ((Number) value).intValue();
+    case DoublePrecision:
+      return ((Number) value).doubleValue();
+    case Date:
+      if (value instanceof Integer) {
+        final long local = (Integer) value * ParquetEncoder.MILLIS_PER_DAY;
+        return new Date(local - dateZone.getOffset(local - dateZone.getOffset(local)));
+      }
+      return new Date(((Date) value).getTime());
+    case DateTime:
+    case Timestamp:
+      if (value instanceof Timestamp) {
+        return value;
+      }
+      return new Timestamp(((Date) value).getTime());
+    case Enum:
+    case Guid:
+    case Text:
+    case VarChar:
+      return value.toString();
+    default:
+      return value;
+    }
+  }
+
+  // Decode Hive's INT96 timestamp layout.
+  private static Timestamp getTimestamp(final Binary binary) {
+    final ByteBuffer buf = binary.toByteBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    final long nanos = buf.getLong();
+    final long day = buf.getInt() - ParquetEncoder.JULIAN_EPOCH_DAY;
+    final Timestamp timestamp = new Timestamp(day * ParquetEncoder.MILLIS_PER_DAY
+        + nanos / 1000000);
+    timestamp.setNanos((int) (nanos % 1000000000));
+    return timestamp;
+  }
+
+  // Requests the file columns that match the codec's columns, and assembles
+  // each row into an array of values in codec order.
+  private class ValuesReadSupport extends ReadSupport<Object[]> {
+
+    @Override
+    public ReadContext init(final InitContext context) {
+      final MessageType fileSchema = context.getFileSchema();
+      final List<Type> requested = new ArrayList<Type>();
+      for (final Type field : fileSchema.getFields()) {
+        if (!field.isPrimitive() || field.isRepetition(Type.Repetition.REPEATED)) {
+          throw new IllegalArgumentException("Nested Parquet schemas are not supported");
+        }
+        if (columns.containsKey(field.getName())) {
+          requested.add(field);
+        }
+      }
+      return new ReadContext(new MessageType(fileSchema.getName(), requested));
+    }
+
+    @Override
+    public RecordMaterializer<Object[]> prepareForRead(final Configuration conf,
+        final Map<String, String> keyValueMetaData, final MessageType fileSchema,
+        final ReadContext readContext) {
+      return new ValuesMaterializer(readContext.getRequestedSchema());
+    }
+  }
+
+  private class ValuesMaterializer extends RecordMaterializer<Object[]> {
+    private final GroupConverter root;
+    private Object[] values;
+
+    ValuesMaterializer(final MessageType schema) {
+      final Converter[] converters = new Converter[schema.getFieldCount()];
+      for (int i = 0; i < converters.length; i++) {
+        final Type field = schema.getType(i);
+        converters[i] = new ValueConverter(columns.get(field.getName()),
+            field.asPrimitiveType().getPrimitiveTypeName());
+      }
+      this.root = new GroupConverter() {
+        @Override
+        public Converter getConverter(final int fieldIndex) {
+          return converters[fieldIndex];
+        }
+
+        @Override
+        public void start() {
+          values = new Object[codec.getColumnCount()];
+        }
+
+        @Override
+        public void end() {
+        }
+      };
+    }
+
+    @Override
+    public Object[] getCurrentRecord() {
+      return values;
+    }
+
+    @Override
+    public GroupConverter getRootConverter() {
+      return root;
+    }
+
+    private class ValueConverter extends PrimitiveConverter {
+      private final int column;
+      private final DataSchemaType type;
+      private final PrimitiveTypeName physicalType;
+
+      ValueConverter(final int column, final PrimitiveTypeName physicalType) {
+        this.column = column;
+        this.type = codec.getColumnType(column);
+        this.physicalType = physicalType;
+      }
+
+      private void set(final Object value) {
+        values[column] = convert(value, type);
+      }
+
+      @Override
+      public void addBinary(final Binary value) {
+        if (physicalType == PrimitiveTypeName.INT96) {
+          set(getTimestamp(value));
+        } else {
+          set(value.toStringUsingUTF8());
+        }
+      }
+
+      @Override
+      public void addBoolean(final boolean value) {
+        set(value);
+      }
+
+      @Override
+      public void addDouble(final double value) {
+        set(value);
+      }
+
+      @Override
+      public void addFloat(final float value) {
+        set(value);
+      }
+
+      @Override
+      public void addInt(final int value) {
+        set(value);
+      }
+
+      @Override
+      public void addLong(final long value) {
+        set(value);
+      }
+    }
+  }
+}
@@ -0,0 +1,358 @@
+package edu.harvard.data.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.harvard.data.DataConfig;
+import edu.harvard.data.DataTable;
+import edu.harvard.data.TableFormat;
+
+/**
+ * Output stream that spreads a series of {@link DataTable} records across
+ * several files in a local directory.
+ * <P>
+ * A single large file can only be loaded by one Redshift slice, and read by
+ * one mapper if it is compressed. This writer instead routes each record to
+ * one of a fixed number of partitions, either by hashing the value of a column
+ * (see {@link #hashColumn}) or in turn (see {@link #roundRobin}). Each partition
+ * is written by its own {@link TableWriter}. If a target file size is set, a
+ * partition's file is closed once the compressed output reaches that size, and
+ * the partition continues in a new file. The number of partitions and the
+ * target size are normally taken from the {@link DataConfig}.
+ * <P>
+ * Files are named {@code <prefix>-<partition>-<sequence><extension>}, with the
+ * extension taken from the {@link TableFormat}. The size of a file is checked
+ * each time its writer flushes a batch of records through to the codec, and
+ * counts the compressed bytes written to the file (or, for a columnar format,
+ * the encoded size of the row group in memory). A file may therefore exceed
+ * the target size by up to one batch of records, plus whatever the codec holds
+ * back to compress as a block; for {@link ParallelGzipOutputStream} that is
+ * the blocks still being compressed. Records with the same hash key are always
+ * written to the same partition, but once a partition rolls over they may be
+ * split between that partition's files.
+ * <P>
+ * As with {@link TableWriter}, clients must call {@link #close} once all
+ * records have been added. If no records are written, a single empty file
+ * (with headers, if the format requires them) is created for partition zero.
+ * The files written and their checksums are then available from
+ * {@link #getChecksums}.
+ * <P>
+ * This class is not thread-safe. Any access synchronization must be performed
+ * by the caller.
+ */
+public class PartitionedTableWriter<T extends DataTable> implements DataTableWriter<T> {
+
+  /**
+   * Strategy that chooses the partition to which each record is written.
+   *
+   * @param <T>
+   *          the type of record being partitioned.
+   */
+  public interface Partitioner<T extends DataTable> {
+    /**
+     * @param record
+     *          the record to be written.
+     * @param partitions
+     *          the number of partitions.
+     * @return a partition number between zero (inclusive) and
+     *         {@code partitions} (exclusive).
+     */
+    int getPartition(T record, int partitions);
+  }
+
+  private final Class<T> tableType;
+  private final TableFormat format;
+  private final File directory;
+  private final String prefix;
+  private final long targetFileSize;
+  private final Partitioner<T> partitioner;
+  private final List<TableWriter<T>> writers;
+  private final List<File> files;
+  private final int[] sequence;
+  private final Map<File, ContentChecksum> checksums;
+  private Integer bufferSize;
+  private boolean closed;
+
+  /**
+   * Create a writer with the partition count and target file size from the
+   * data configuration (the {@code output_partitions} and
+   * {@code output_file_size_mb} settings).
+   *
+   * @param tableType
+   *          the type of record that will be written by this writer.
+   * @param format
+   *          the format of the output files.
+   * @param directory
+   *          the local directory in which to create the files. It will be
+   *          created if necessary.
+   * @param prefix
+   *          the prefix of each file name, typically the table name.
+   * @param config
+   *          the {@link DataConfig} that sets the number of partitions and the
+   *          target file size.
+   * @param partitioner
+   *          the {@link Partitioner} that chooses the file for each record.
+   */
+  public PartitionedTableWriter(final Class<T> tableType, final TableFormat format,
+      final File directory, final String prefix, final DataConfig config,
+      final Partitioner<T> partitioner) {
+    this(tableType, format, directory, prefix, config.getOutputPartitions(),
+        config.getOutputFileSizeBytes(), partitioner);
+  }
+
+  /**
+   * Create a writer.
+   *
+   * @param tableType
+   *          the type of record that will be written by this writer.
+   * @param format
+   *          the format of the output files.
+   * @param directory
+   *          the local directory in which to create the files. It will be
+   *          created if necessary.
+   * @param prefix
+   *          the prefix of each file name, typically the table name.
+   * @param partitions
+   *          the number of partitions across which to spread the records.
+   * @param targetFileSize
+   *          the compressed size, in bytes, at which to start a new file for a
+   *          partition, or zero to write a single file per partition.
+   * @param partitioner
+   *          the {@link Partitioner} that chooses the file for each record.
+   *
+   * @throws IllegalArgumentException
+   *           if {@code partitions} is not positive or {@code targetFileSize}
+   *           is negative.
+   */
+  public PartitionedTableWriter(final Class<T> tableType, final TableFormat format,
+      final File directory, final String prefix, final int partitions,
+      final long targetFileSize, final Partitioner<T> partitioner) {
+    if (partitions < 1) {
+      throw new IllegalArgumentException("Partition count must be positive: " + partitions);
+    }
+    if (targetFileSize < 0) {
+      throw new IllegalArgumentException("Target file size can't be negative: " + targetFileSize);
+    }
+    this.tableType = tableType;
+    this.format = format;
+    this.directory = directory;
+    this.prefix = prefix;
+    this.targetFileSize = targetFileSize;
+    this.partitioner = partitioner;
+    this.writers = new ArrayList<TableWriter<T>>(Collections.<TableWriter<T>> nCopies(partitions,
+        null));
+    this.files = new ArrayList<File>(Collections.<File> nCopies(partitions, null));
+    this.sequence = new int[partitions];
+    this.checksums = new LinkedHashMap<File, ContentChecksum>();
+  }
+
+  /**
+   * Create a {@link Partitioner} that assigns records to each partition in
+   * turn.
+   *
+   * @return a new {@code Partitioner}. Each instance keeps its own position, so
+   *         should only be used by a single writer.
+   */
+  public static <T extends DataTable> Partitioner<T> roundRobin() {
+    return new Partitioner<T>() {
+      private int next;
+
+      @Override
+      public int getPartition(final T record, final int partitions) {
+        final int partition = next;
+        next = (next + 1) % partitions;
+        return partition;
+      }
+    };
+  }
+
+  /**
+   * Create a {@link Partitioner} that assigns records by the hash of a column's
+   * value, so that all records with the same value are written to the same
+   * partition. Null values are assigned to partition zero.
+   * <P>
+   * The column value is read through the table's {@link ColumnarCodec}, so no
+   * per-record objects are created.
+   *
+   * @param tableType
+   *          the type of record being partitioned.
+   * @param column
+   *          the name of the column whose value determines the partition.
+   *
+   * @return a new {@code Partitioner}, which should only be used by a single
+   *         writer.
+   *
+   * @throws IllegalArgumentException
+   *           if the table does not have the named column.
+   */
+  public static <T extends DataTable> Partitioner<T> hashColumn(final Class<T> tableType,
+      final String column) {
+    final ColumnarCodec<T> codec = ColumnarCodec.forClass(tableType);
+    int idx = -1;
+    final List<String> names = new ArrayList<String>();
+    for (int i = 0; i < codec.getColumnCount(); i++) {
+      names.add(codec.getColumnName(i));
+      if (codec.getColumnName(i).equals(column)) {
+        idx = i;
+      }
+    }
+    if (idx < 0) {
+      throw new IllegalArgumentException("Unknown column " + column + "; expected one of "
+          + names);
+    }
+    final int columnIdx = idx;
+    return new Partitioner<T>() {
+      private final Object[] values = new Object[codec.getColumnCount()];
+
+      @Override
+      public int getPartition(final T record, final int partitions) {
+        codec.getValues(record, values);
+        return hashPartition(values[columnIdx], partitions);
+      }
+    };
+  }
+
+  /**
+   * Map a value to a partition by its hash code. Enum values are hashed by name,
+   * so that the assignment is the same in every JVM.
+   *
+   * @param value
+   *          the value to hash; may be {@code null}.
+   * @param partitions
+   *          the number of partitions.
+   *
+   * @return a partition number between zero (inclusive) and {@code partitions}
+   *         (exclusive).
+   */
+  public static int hashPartition(final Object value, final int partitions) {
+    if (value == null) {
+      return 0;
+    }
+    int hash = value instanceof Enum ? ((Enum<?>) value).name().hashCode() : value.hashCode();
+    hash ^= hash >>> 16;
+    return (hash & Integer.MAX_VALUE) % partitions;
+  }
+
+  /**
+   * Write a record to the file for its partition, starting a new file for the
+   * partition if the current one has reached the target size.
+   *
+   * @param record
+   *          the data to be written.
+   *
+   * @throws IOException
+   *           if an error occurs when writing to or creating a file.
+   * @throws IllegalArgumentException
+   *           if the {@link Partitioner} returns an invalid partition.
+   */
+  @Override
+  public void add(final T record) throws IOException {
+    if (closed) {
+      throw new IOException("Writer for " + tableType.getName() + " has been closed");
+    }
+    final int partition = partitioner.getPartition(record, sequence.length);
+    if (partition < 0 || partition >= sequence.length) {
+      throw new IllegalArgumentException("Partition " + partition + " out of range for "
+          + sequence.length + " partitions");
+    }
+    TableWriter<T> writer = writers.get(partition);
+    if (writer == null) {
+      writer = openWriter(partition);
+    }
+    writer.add(record);
+    if (targetFileSize > 0 && writer.getBytesWritten() >= targetFileSize) {
+      closeWriter(partition);
+    }
+  }
+
+  /**
+   * Close every partition's current file. All files are closed even if one
+   * fails; the first failure is rethrown.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (checksums.isEmpty() && Collections.frequency(writers, null) == writers.size()) {
+      openWriter(0);
+    }
+    IOException error = null;
+    for (int i = 0; i < writers.size(); i++) {
+      try {
+        if (writers.get(i) != null) {
+          closeWriter(i);
+        }
+      } catch (final IOException e) {
+        if (error == null) {
+          error = e;
+        }
+      }
+    }
+    if (error != null) {
+      throw error;
+    }
+  }
+
+  /**
+   * Change the size of the output buffer for every partition's writer,
+   * including those created later. See {@link TableWriter#resizeBuffer}.
+   *
+   * @param bufferSize
+   *          the new size of each writer's buffer, measured in records.
+   *
+   * @throws IOException
+   *           if an error occurs when flushing a writer's buffer.
+   */
+  public void resizeBuffer(final int bufferSize) throws IOException {
+    this.bufferSize = bufferSize;
+    for (final TableWriter<T> writer : writers) {
+      if (writer != null) {
+        writer.resizeBuffer(bufferSize);
+      }
+    }
+  }
+
+  /**
+   * Get the files written by this writer, along with their checksums and row
+   * counts.
+   *
+   * @return a map from each file written to its {@link ContentChecksum}, in the
+   *         order in which the files were completed.
+   *
+   * @throws IllegalStateException
+   *           if the writer has not been closed.
+   */
+  public Map<File, ContentChecksum> getChecksums() {
+    if (!closed) {
+      throw new IllegalStateException("Checksums are not available until the writer is closed");
+    }
+    return Collections.unmodifiableMap(checksums);
+  }
+
+  private TableWriter<T> openWriter(final int partition) throws IOException {
+    final String name = String.format("%s-%05d-%05d%s", prefix, partition,
+        sequence[partition]++, format.getExtension());
+    final File file = new File(directory, name);
+    final TableWriter<T> writer = new TableWriter<T>(tableType, format, file);
+    if (bufferSize != null) {
+      writer.resizeBuffer(bufferSize);
+    }
+    writers.set(partition, writer);
+    files.set(partition, file);
+    return writer;
+  }
+
+  private void closeWriter(final int partition) throws IOException {
+    final TableWriter<T> writer = writers.get(partition);
+    writers.set(partition, null);
+    writer.close();
+    checksums.put(files.get(partition), writer.getChecksum());
+  }
+}
@@ -0,0 +1,84 @@
+package edu.harvard.data.io;
+
+import java.text.ParseException;
+
+import org.apache.commons.csv.CSVRecord;
+
+import edu.harvard.data.DataTable;
+import edu.harvard.data.TableFormat;
+
+/**
+ * Extension of {@link TokenizedRecordDecoder} for decoders that can restrict
+ * decoding to a subset of a table's columns.
+ * <P>
+ * Many jobs read wide tables but only look at a handful of fields. Parsing
+ * numbers, timestamps, dates and enums for every other column is wasted work,
+ * and on the tokenizer path the unused fields are never even copied out of
+ * the input buffer. Records produced with a {@link ColumnProjection} hold the
+ * same values as a full decode for the projected columns, and {@code null} for
+ * all others.
+ * <P>
+ * The {@code DECODER} constant emitted by the code generator implements this
+ * interface. Readers do not need to know about projections; callers wrap a
+ * decoder with {@link RecordDecoders#project} and pass the result to any
+ * reader that accepts a {@link RecordDecoder}.
+ *
+ * @param <T>
+ *          the {@link DataTable} implementation produced by this decoder.
+ */
+public interface ProjectedRecordDecoder<T extends DataTable> extends TokenizedRecordDecoder<T> {
+
+  /**
+   * Resolve a set of column names against this decoder's table.
+   *
+   * @param columnNames
+   *          the names of the columns to decode, as they appear in the table's
+   *          schema.
+   *
+   * @return a {@link ColumnProjection} that can be passed to the projected
+   *         decode methods.
+   *
+   * @throws IllegalArgumentException
+   *           if any name is not a column of the table.
+   */
+  ColumnProjection project(String... columnNames);
+
+  /**
+   * Create a new record from a parsed line of input, decoding only the
+   * projected columns.
+   *
+   * @param format
+   *          the {@link TableFormat} that describes the input data.
+   * @param record
+   *          a {@link CSVRecord} containing the fields for a single record.
+   * @param projection
+   *          the columns to decode, as returned by {@link #project}.
+   *
+   * @return a new instance of {@code T}.
+   *
+   * @throws ParseException
+   *           if a projected date or timestamp field can not be parsed.
+   */
+  T decode(TableFormat format, CSVRecord record, ColumnProjection projection)
+      throws ParseException;
+
+  /**
+   * Create a new record from the current record of a tokenizer, decoding only
+   * the projected columns.
+   *
+   * @param format
+   *          the {@link TableFormat} that describes the input data.
+   * @param fields
+   *          a {@link DelimitedTokenizer} positioned on the record to decode.
+   * @param projection
+   *          the columns to decode, as returned by {@link #project}.
+   *
+   * @return a new instance of {@code T}.
+   *
+   * @throws ParseException
+   *           if a projected date or timestamp field can not be parsed.
+   */
+  T decode(TableFormat format, DelimitedTokenizer fields, ColumnProjection projection)
+      throws ParseException;
+
+}
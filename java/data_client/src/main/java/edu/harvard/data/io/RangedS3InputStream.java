@@ -0,0 +1,271 @@
+package edu.harvard.data.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectId;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+
+/**
+ * {@link InputStream} implementation that reads an S3 object directly, without
+ * first downloading it to the local file system.
+ * <P>
+ * The stream reads the object using ranged GET requests. If a request fails
+ * part way through (for example if the connection is reset during a long
+ * read), the stream issues a new request starting from the last byte that was
+ * successfully read, up to a configurable number of consecutive retries. This
+ * makes it safe to read large objects slowly, as happens when a parser is
+ * consuming the stream record by record.
+ * <P>
+ * The stream records the object's ETag when it first learns the object's
+ * length, or from the first response if S3 did not report one then. Every
+ * later request is conditional on that ETag, so if the object is overwritten
+ * while it is being read, the stream throws an {@link IOException} rather than
+ * splicing bytes from two versions of the object. That failure is not retried.
+ * <P>
+ * The stream can optionally be given an {@link S3Prefetcher.Head} that holds
+ * the first bytes of the object. Those bytes are served from memory, and the
+ * first request to S3 starts at the end of the prefetched data.
+ * <P>
+ * This class is not thread-safe. Any access synchronization must be performed
+ * by the caller.
+ */
+public class RangedS3InputStream extends InputStream {
+
+  private static final Logger log = LogManager.getLogger();
+
+  /**
+   * The default number of consecutive failed reads that will be retried before
+   * the stream gives up.
+   */
+  public static final int DEFAULT_MAX_RETRIES = 3;
+
+  private static final long RETRY_DELAY_MILLIS = 200;
+
+  private final AmazonS3 client;
+  private final S3ObjectId obj;
+  private final int maxRetries;
+  private S3Prefetcher.Head head;
+  private byte[] headBytes;
+  private S3ObjectInputStream current;
+  private long length;
+  private long position;
+  private String eTag;
+
+  /**
+   * Create a stream to read an object, with the default retry limit.
+   *
+   * @param client
+   *          the S3 client used to read the object.
+   * @param obj
+   *          the object to read.
+   */
+  public RangedS3InputStream(final AmazonS3 client, final S3ObjectId obj) {
+    this(client, obj, null, DEFAULT_MAX_RETRIES);
+  }
+
+  /**
+   * Create a stream to read an object.
+   *
+   * @param client
+   *          the S3 client used to read the object.
+   * @param obj
+   *          the object to read.
+   * @param head
+   *          the prefetched start of the object, or {@code null} if nothing
+   *          has been prefetched. The stream takes ownership of the head, and
+   *          will release it once it has been consumed or the stream is
+   *          closed.
+   * @param maxRetries
+   *          the number of consecutive failed requests that will be retried
+   *          before a read throws an exception.
+   */
+  public RangedS3InputStream(final AmazonS3 client, final S3ObjectId obj,
+      final S3Prefetcher.Head head, final int maxRetries) {
+    this.client = client;
+    this.obj = obj;
+    this.head = head;
+    this.maxRetries = maxRetries;
+    this.length = -1;
+    this.position = 0;
+  }
+
+  // Determine the length of the object, either from the prefetched head or by
+  // requesting the object's metadata.
+  private void init() throws IOException {
+    if (length >= 0) {
+      return;
+    }
+    if (head != null) {
+      final S3Prefetcher.Head.Data data = head.get();
+      if (data != null) {
+        headBytes = data.bytes;
+        length = data.objectLength;
+        eTag = data.eTag;
+      } else {
+        releaseHead();
+      }
+    }
+    int failures = 0;
+    while (length < 0) {
+      try {
+        final ObjectMetadata metadata = client.getObjectMetadata(obj.getBucket(), obj.getKey());
+        length = metadata.getContentLength();
+        eTag = metadata.getETag();
+      } catch (final AmazonClientException e) {
+        failures = retryOrThrow(e, failures);
+      }
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    final byte[] b = new byte[1];
+    final int n = read(b, 0, 1);
+    return n < 0 ? -1 : b[0] & 0xff;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    init();
+    if (len == 0) {
+      return 0;
+    }
+    if (position >= length) {
+      return -1;
+    }
+    if (headBytes != null) {
+      final int n = (int) Math.min(len, headBytes.length - position);
+      System.arraycopy(headBytes, (int) position, b, off, n);
+      position += n;
+      if (position >= headBytes.length) {
+        headBytes = null;
+        releaseHead();
+      }
+      return n;
+    }
+    int failures = 0;
+    while (true) {
+      try {
+        if (current == null) {
+          current = openRange();
+        }
+        final int n = current.read(b, off, (int) Math.min(len, length - position));
+        if (n < 0) {
+          throw new EOFException("Unexpected end of " + obj + " at offset " + position);
+        }
+        position += n;
+        return n;
+      } catch (final ObjectChangedException e) {
+        throw e;
+      } catch (final IOException | AmazonClientException e) {
+        abortCurrent();
+        failures = retryOrThrow(e, failures);
+      }
+    }
+  }
+
+  // Request the rest of the object from the current position. Once the ETag is
+  // known, the request only succeeds if the object has not been replaced; the
+  // client returns null if the constraint is not met.
+  private S3ObjectInputStream openRange() throws ObjectChangedException {
+    final GetObjectRequest request = new GetObjectRequest(obj.getBucket(), obj.getKey())
+        .withRange(position, length - 1);
+    if (eTag != null) {
+      request.withMatchingETagConstraint(eTag);
+    }
+    final S3Object object = client.getObject(request);
+    if (object == null) {
+      throw new ObjectChangedException("Object " + obj + " changed at offset " + position
+          + " while being read; expected ETag " + eTag);
+    }
+    if (eTag == null) {
+      eTag = object.getObjectMetadata().getETag();
+    }
+    return object.getObjectContent();
+  }
+
+  @Override
+  public int available() throws IOException {
+    if (headBytes != null) {
+      return (int) (headBytes.length - position);
+    }
+    return current == null ? 0 : current.available();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (current != null && position >= length) {
+      // The request has been read to the end, so the connection can be reused.
+      current.close();
+      current = null;
+    }
+    abortCurrent();
+    headBytes = null;
+    releaseHead();
+  }
+
+  /**
+   * Get the offset of the next byte that will be returned by this stream.
+   *
+   * @return the number of bytes that have been read so far.
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  // Decide whether to retry after a failed request. Returns the updated
+  // failure count, or throws if the retry limit has been reached.
+  private int retryOrThrow(final Exception e, final int failures) throws IOException {
+    if (failures >= maxRetries) {
+      if (e instanceof IOException) {
+        throw (IOException) e;
+      }
+      throw new IOException("Failed to read " + obj + " at offset " + position, e);
+    }
+    log.warn("Error reading " + obj + " at offset " + position + ", retrying", e);
+    try {
+      Thread.sleep(RETRY_DELAY_MILLIS * (failures + 1));
+    } catch (final InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while reading " + obj, ie);
+    }
+    return failures + 1;
+  }
+
+  // Abort rather than close the underlying request, since closing an S3 stream
+  // reads and discards the remainder of the object.
+  private void abortCurrent() {
+    if (current != null) {
+      current.abort();
+      current = null;
+    }
+  }
+
+  private void releaseHead() {
+    if (head != null) {
+      head.release();
+      head = null;
+    }
+  }
+
+  // Thrown when the object no longer matches the ETag seen at the start of the
+  // read. Retrying can not help, so read passes it straight to the caller.
+  private static class ObjectChangedException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    ObjectChangedException(final String message) {
+      super(message);
+    }
+  }
+
+}
@@ -0,0 +1,211 @@
+package edu.harvard.data.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Input stream that reads a local file in large blocks on a background thread.
+ * <P>
+ * This stream is intended for compressed files, where the caller spends most
+ * of its time decompressing. A dedicated thread keeps up to
+ * {@link #DEFAULT_READ_AHEAD} blocks of {@link #DEFAULT_BLOCK_SIZE} bytes
+ * filled ahead of the caller, so that waiting for the disk overlaps with
+ * decompression rather than adding to it, and the file is read with a few
+ * large system calls rather than many small ones. Blocks are held in direct
+ * buffers, which the file channel can fill without an intermediate copy.
+ * <P>
+ * Errors on the background thread are reported by the next call to
+ * {@code read} that reaches the failed block. Callers must call
+ * {@link #close} to stop the background thread if they do not read to the end
+ * of the file.
+ * <P>
+ * This class is not thread-safe.
+ */
+public class ReadAheadFileInputStream extends InputStream {
+
+  /**
+   * The default size of each block read from the file.
+   */
+  public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+  /**
+   * The default number of blocks that the background thread reads ahead of
+   * the caller.
+   */
+  public static final int DEFAULT_READ_AHEAD = 2;
+
+  // Placed on the queue of filled blocks once the background thread stops.
+  private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+  private final FileChannel channel;
+  private final BlockingQueue<ByteBuffer> filled;
+  private final BlockingQueue<ByteBuffer> empty;
+  private final Thread reader;
+  private volatile IOException error;
+  private volatile boolean closed;
+  private ByteBuffer current;
+
+  /**
+   * Open a file and start reading it in the background, using the default
+   * block size and read-ahead.
+   *
+   * @param file
+   *          the local file to read.
+   *
+   * @throws FileNotFoundException
+   *           if the file does not exist or can not be read.
+   */
+  public ReadAheadFileInputStream(final File file) throws FileNotFoundException {
+    this(file, DEFAULT_BLOCK_SIZE, DEFAULT_READ_AHEAD);
+  }
+
+  /**
+   * Open a file and start reading it in the background.
+   *
+   * @param file
+   *          the local file to read.
+   * @param blockSize
+   *          the size of each block read from the file.
+   * @param readAhead
+   *          the maximum number of blocks read ahead of the caller.
+   *
+   * @throws FileNotFoundException
+   *           if the file does not exist or can not be read.
+   * @throws IllegalArgumentException
+   *           if {@code blockSize} or {@code readAhead} is not positive.
+   */
+  public ReadAheadFileInputStream(final File file, final int blockSize, final int readAhead)
+      throws FileNotFoundException {
+    if (blockSize < 1 || readAhead < 1) {
+      throw new IllegalArgumentException("Invalid block size (" + blockSize + ") or read-ahead ("
+          + readAhead + ")");
+    }
+    this.channel = new FileInputStream(file).getChannel();
+    // One more block than the read-ahead is held by the caller, and the filled
+    // queue has room for the end marker as well as every block.
+    this.empty = new ArrayBlockingQueue<ByteBuffer>(readAhead + 1);
+    this.filled = new ArrayBlockingQueue<ByteBuffer>(readAhead + 2);
+    for (int i = 0; i <= readAhead; i++) {
+      empty.add(ByteBuffer.allocateDirect(blockSize));
+    }
+    this.reader = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        readBlocks();
+      }
+    }, "read-ahead " + file.getName());
+    reader.setDaemon(true);
+    reader.start();
+  }
+
+  // Runs on the background thread.
+  private void readBlocks() {
+    try {
+      while (!closed) {
+        final ByteBuffer block = empty.take();
+        block.clear();
+        boolean end = false;
+        while (block.hasRemaining()) {
+          if (channel.read(block) < 0) {
+            end = true;
+            break;
+          }
+        }
+        block.flip();
+        if (block.hasRemaining()) {
+          filled.put(block);
+        }
+        if (end) {
+          break;
+        }
+      }
+    } catch (final InterruptedException e) {
+      // The stream was closed.
+    } catch (final IOException e) {
+      error = e;
+    } finally {
+      filled.offer(END);
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!nextBlock()) {
+      return -1;
+    }
+    return current.get() & 0xff;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    if (off < 0 || len < 0 || len > b.length - off) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (len == 0) {
+      return 0;
+    }
+    if (!nextBlock()) {
+      return -1;
+    }
+    final int n = Math.min(len, current.remaining());
+    current.get(b, off, n);
+    return n;
+  }
+
+  @Override
+  public int available() throws IOException {
+    checkOpen();
+    return current == null ? 0 : current.remaining();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      reader.interrupt();
+      channel.close();
+    }
+  }
+
+  // Make sure that the current block has data remaining, waiting for the next
+  // block if necessary. Returns false at the end of the file.
+  private boolean nextBlock() throws IOException {
+    checkOpen();
+    if (current != null && current.hasRemaining()) {
+      return true;
+    }
+    if (current == END) {
+      return false;
+    }
+    if (current != null) {
+      empty.add(current);
+    }
+    try {
+      current = filled.take();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for read-ahead");
+    }
+    if (current == END) {
+      if (error != null) {
+        throw error;
+      }
+      return false;
+    }
+    return true;
+  }
+
+  private void checkOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+}
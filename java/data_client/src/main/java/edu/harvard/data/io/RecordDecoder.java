@@ -0,0 +1,48 @@
+package edu.harvard.data.io;
+
+import java.text.ParseException;
+
+import org.apache.commons.csv.CSVRecord;
+
+import edu.harvard.data.DataTable;
+import edu.harvard.data.TableFormat;
+
+/**
+ * Factory interface that converts a single parsed {@link CSVRecord} into an
+ * instance of a {@link DataTable} type.
+ * <P>
+ * The delimited readers in this package need to create a new record object for
+ * every line of input. Looking up and invoking the record's constructor
+ * reflectively for each line is expensive on large files, so the code
+ * generator emits a {@code DECODER} constant for each binding class that
+ * implements this interface by calling the constructor directly. Clients that
+ * only have a {@code Class} reference can use {@link RecordDecoders#forClass}
+ * to find the generated decoder (or a cached reflective fallback for classes
+ * that do not declare one).
+ * <P>
+ * Implementations must be stateless and thread-safe, since a single decoder
+ * instance is shared by every reader of a given table.
+ *
+ * @param <T>
+ *          the {@link DataTable} implementation produced by this decoder.
+ */
+public interface RecordDecoder<T extends DataTable> {
+
+  /**
+   * Create a new record from a parsed line of input.
+   *
+   * @param format
+   *          the {@link TableFormat} that describes the input data. The format
+   *          is used to parse values such as dates and timestamps.
+   * @param record
+   *          a {@link CSVRecord} containing the fields for a single record.
+   *
+   * @return a new instance of {@code T}, populated from the {@code record}
+   *         parameter.
+   *
+   * @throws ParseException
+   *           if a date or timestamp field in the record can not be parsed.
+   */
+  T decode(TableFormat format, CSVRecord record) throws ParseException;
+
+}
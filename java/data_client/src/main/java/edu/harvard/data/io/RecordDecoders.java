@@ -0,0 +1,159 @@
+package edu.harvard.data.io;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.text.ParseException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.csv.CSVRecord;
+
+import edu.harvard.data.DataTable;
+import edu.harvard.data.TableFormat;
+
+/**
+ * Utility methods to find the {@link RecordDecoder} for a {@link DataTable}
+ * class.
+ * <P>
+ * Generated bindings declare a {@code public static final} field named
+ * {@link #DECODER_FIELD} that holds a decoder calling the class constructor
+ * directly. For classes that do not declare that field (such as hand-written
+ * {@code DataTable} implementations) this class falls back to a decoder that
+ * looks up the {@code (TableFormat, CSVRecord)} constructor once and reuses it
+ * for every record. Either way, the reflective lookup happens at most once per
+ * class rather than once per record.
+ * <P>
+ * This class is thread-safe.
+ */
+public final class RecordDecoders {
+
+  /**
+   * The name of the static field that generated bindings use to expose their
+   * {@link RecordDecoder}.
+   */
+  public static final String DECODER_FIELD = "DECODER";
+
+  private static final ConcurrentMap<Class<?>, RecordDecoder<?>> decoders = new ConcurrentHashMap<Class<?>, RecordDecoder<?>>();
+
+  private RecordDecoders() {
+  }
+
+  /**
+   * Get the decoder for a {@link DataTable} class.
+   *
+   * @param tableType
+   *          the class of records to be decoded.
+   *
+   * @return the {@link RecordDecoder} declared by the class if it exists, or a
+   *         decoder that calls the class's {@code (TableFormat, CSVRecord)}
+   *         constructor otherwise.
+   *
+   * @throws RuntimeException
+   *           if the class neither declares a decoder nor has a suitable
+   *           constructor. This represents a bug in the binding class rather
+   *           than a data error, so it is not a checked exception.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T extends DataTable> RecordDecoder<T> forClass(final Class<T> tableType) {
+    RecordDecoder<?> decoder = decoders.get(tableType);
+    if (decoder == null) {
+      decoder = findDecoder(tableType);
+      decoders.putIfAbsent(tableType, decoder);
+    }
+    return (RecordDecoder<T>) decoder;
+  }
+
+  /**
+   * Wrap a decoder so that it only decodes a subset of a table's columns. The
+   * result can be passed to any reader in place of the original decoder;
+   * records it produces hold {@code null} for every column that was not
+   * requested.
+   *
+   * @param decoder
+   *          the {@link ProjectedRecordDecoder} for the table, typically the
+   *          generated {@code DECODER} constant.
+   * @param columnNames
+   *          the names of the columns that the caller needs.
+   *
+   * @return a {@link TokenizedRecordDecoder} that applies the projection to
+   *         every record.
+   *
+   * @throws IllegalArgumentException
+   *           if any name is not a column of the table.
+   */
+  public static <T extends DataTable> TokenizedRecordDecoder<T> project(
+      final ProjectedRecordDecoder<T> decoder, final String... columnNames) {
+    final ColumnProjection projection = decoder.project(columnNames);
+    return new TokenizedRecordDecoder<T>() {
+      @Override
+      public T decode(final TableFormat format, final CSVRecord record) throws ParseException {
+        return decoder.decode(format, record, projection);
+      }
+
+      @Override
+      public T decode(final TableFormat format, final DelimitedTokenizer fields)
+          throws ParseException {
+        return decoder.decode(format, fields, projection);
+      }
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T extends DataTable> RecordDecoder<T> findDecoder(final Class<T> tableType) {
+    try {
+      final Field field = tableType.getField(DECODER_FIELD);
+      if (Modifier.isStatic(field.getModifiers())
+          && RecordDecoder.class.isAssignableFrom(field.getType())) {
+        final Object value = field.get(null);
+        if (value != null) {
+          return (RecordDecoder<T>) value;
+        }
+      }
+    } catch (final NoSuchFieldException e) {
+      // Fall through to the constructor-based decoder.
+    } catch (final IllegalAccessException e) {
+      throw new RuntimeException(e);
+    }
+    return new ConstructorDecoder<T>(tableType);
+  }
+
+  /**
+   * Fallback decoder for classes that do not declare a {@code DECODER} field.
+   * The constructor is resolved once, when the decoder is created.
+   */
+  private static class ConstructorDecoder<T extends DataTable> implements RecordDecoder<T> {
+
+    private final Constructor<T> constructor;
+
+    ConstructorDecoder(final Class<T> tableType) {
+      try {
+        this.constructor = tableType.getConstructor(TableFormat.class, CSVRecord.class);
+      } catch (NoSuchMethodException | SecurityException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public T decode(final TableFormat format, final CSVRecord record) throws ParseException {
+      try {
+        return constructor.newInstance(format, record);
+      } catch (InstantiationException | IllegalAccessException | IllegalArgumentException e) {
+        throw new RuntimeException(e);
+      } catch (final InvocationTargetException e) {
+        Throwable cause = e;
+        while (cause instanceof InvocationTargetException) {
+          cause = cause.getCause();
+        }
+        if (cause instanceof ParseException) {
+          throw (ParseException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        throw new RuntimeException(cause);
+      }
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package edu.harvard.data.io;
+
+import java.io.IOException;
+
+import edu.harvard.data.DataTable;
+
+/**
+ * Callback interface used by {@link ParallelTableReader#forEach} to process
+ * records that are read concurrently from multiple files.
+ * <P>
+ * Since records from different files are processed on different threads,
+ * implementations of this interface must be thread-safe.
+ *
+ * @param <T>
+ *          the {@link DataTable} implementation handled by this callback.
+ */
+public interface RecordHandler<T extends DataTable> {
+
+  /**
+   * Process a single record.
+   *
+   * @param record
+   *          the record that has been read.
+   *
+   * @throws IOException
+   *           if an error occurs while processing the record. Throwing an
+   *           exception causes the {@code forEach} call to fail.
+   */
+  void handle(T record) throws IOException;
+
+}
@@ -0,0 +1,37 @@
+package edu.harvard.data.io;
+
+import java.text.ParseException;
+
+import edu.harvard.data.TableFormat;
+
+/**
+ * A record whose fields can be overwritten in place from a
+ * {@link DelimitedTokenizer}, so that a single instance can be reused for
+ * every line of an input.
+ * <P>
+ * The classes emitted by the code generator implement this interface.
+ * {@link DataTableInputFormat} uses it to hand the same record object to a
+ * mapper for each line of a split, rather than creating a new one per line.
+ * Callers that reuse a record in this way must copy any values that they need
+ * to keep before the record is reset.
+ */
+public interface ReusableRecord {
+
+  /**
+   * Replace every field of this record with the values in the tokenizer's
+   * current record. Fields that are null or empty in the input are set to
+   * {@code null}, so the result is identical to a record newly created from
+   * the same tokenizer.
+   *
+   * @param format
+   *          the {@link TableFormat} that describes the input data. The format
+   *          is used to parse values such as dates and timestamps.
+   * @param fields
+   *          a {@link DelimitedTokenizer} positioned on the record to decode.
+   *
+   * @throws ParseException
+   *           if a date or timestamp field in the record can not be parsed.
+   */
+  void reset(TableFormat format, DelimitedTokenizer fields) throws ParseException;
+
+}
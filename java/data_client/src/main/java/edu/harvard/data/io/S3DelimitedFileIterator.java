@@ -0,0 +1,78 @@
+package edu.harvard.data.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.S3ObjectId;
+
+import edu.harvard.data.DataTable;
+import edu.harvard.data.TableFormat;
+
+/**
+ * Helper class that iterates over a data file stored in S3, parsing records
+ * directly from the object stream. This class inherits the majority of its
+ * functionality from {@link DelimitedFileIterator}, changing only its input
+ * from the local file system to a {@link RangedS3InputStream}.
+ * <P>
+ * This class should not be instantiated by clients; create an instance of
+ * {@link StreamingS3TableReader} instead.
+ *
+ * @param <T>
+ *          the {@link DataTable} implementation to be read by this iterator.
+ */
+public class S3DelimitedFileIterator<T extends DataTable> extends DelimitedFileIterator<T> {
+
+  private final AmazonS3 client;
+  private final S3ObjectId obj;
+  private final S3Prefetcher.Head head;
+
+  /**
+   * Create a new iterator.
+   *
+   * @param tableType
+   *          a reference to the template class {@code T} that will be used to
+   *          create new records.
+   * @param decoder
+   *          the {@link RecordDecoder} used to convert each line of input into
+   *          an instance of {@code T}.
+   * @param format
+   *          the {@link TableFormat} that indicates how the data file is
+   *          formatted.
+   * @param client
+   *          the S3 client used to read the object.
+   * @param obj
+   *          the location of the data file in S3.
+   * @param head
+   *          the prefetched start of the object, or {@code null} if nothing
+   *          has been prefetched.
+   */
+  S3DelimitedFileIterator(final Class<T> tableType, final RecordDecoder<T> decoder,
+      final TableFormat format, final AmazonS3 client, final S3ObjectId obj,
+      final S3Prefetcher.Head head) {
+    super(tableType, decoder, format, null);
+    this.client = client;
+    this.obj = obj;
+    this.head = head;
+  }
+
+  /**
+   * Open a {@link RangedS3InputStream} on the S3 object, wrapped in a
+   * decompressor if the format calls for one.
+   *
+   * @return an {@code InputStream} on top of the S3 object specified in the
+   *         constructor that can be parsed for records.
+   *
+   * @throws IOException
+   *           if an error occurs creating the stream.
+   */
+  @Override
+  protected InputStream getInputStream() throws IOException {
+    if (inStream == null) {
+      inStream = format.getInputStream(new RangedS3InputStream(client, obj, head,
+          RangedS3InputStream.DEFAULT_MAX_RETRIES));
+    }
+    return inStream;
+  }
+
+}
@@ -0,0 +1,220 @@
+package edu.harvard.data.io;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectId;
+
+/**
+ * Helper class that fetches the first bytes of S3 objects in the background,
+ * so that a {@link StreamingS3TableReader} can start parsing a file without
+ * waiting for a round trip to S3.
+ * <P>
+ * The amount of memory used by prefetched data is limited by a byte budget
+ * passed to the constructor. Each call to {@link #prefetch} reserves
+ * {@code prefetchBytes} from the budget, and the reservation is returned once
+ * the prefetched {@link Head} has been consumed or released. If there is not
+ * enough budget left, {@code prefetch} returns {@code null} and the object is
+ * read on demand instead.
+ * <P>
+ * This class is thread-safe.
+ */
+public class S3Prefetcher {
+
+  private static final Logger log = LogManager.getLogger();
+
+  /**
+   * The default number of bytes to fetch from the start of each object.
+   */
+  public static final int DEFAULT_PREFETCH_BYTES = 4 * 1024 * 1024;
+
+  /**
+   * The default maximum number of bytes that may be held by prefetched heads
+   * at any time.
+   */
+  public static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024;
+
+  private final AmazonS3 client;
+  private final ExecutorService exec;
+  private final int prefetchBytes;
+  private final long budgetBytes;
+  private final AtomicLong inFlightBytes;
+
+  /**
+   * Create a prefetcher with the default prefetch size and byte budget.
+   *
+   * @param client
+   *          the S3 client used to fetch data.
+   * @param exec
+   *          the {@link ExecutorService} on which background fetches are run.
+   */
+  public S3Prefetcher(final AmazonS3 client, final ExecutorService exec) {
+    this(client, exec, DEFAULT_PREFETCH_BYTES, DEFAULT_BUDGET_BYTES);
+  }
+
+  /**
+   * Create a prefetcher.
+   *
+   * @param client
+   *          the S3 client used to fetch data.
+   * @param exec
+   *          the {@link ExecutorService} on which background fetches are run.
+   * @param prefetchBytes
+   *          the number of bytes to fetch from the start of each object.
+   * @param budgetBytes
+   *          the maximum number of bytes that may be reserved by prefetched
+   *          heads that have not yet been consumed.
+   *
+   * @throws IllegalArgumentException
+   *           if {@code prefetchBytes} is not positive or is larger than
+   *           {@code budgetBytes}.
+   */
+  public S3Prefetcher(final AmazonS3 client, final ExecutorService exec, final int prefetchBytes,
+      final long budgetBytes) {
+    if (prefetchBytes < 1 || prefetchBytes > budgetBytes) {
+      throw new IllegalArgumentException("Invalid prefetch size (" + prefetchBytes
+          + ") or budget (" + budgetBytes + ")");
+    }
+    this.client = client;
+    this.exec = exec;
+    this.prefetchBytes = prefetchBytes;
+    this.budgetBytes = budgetBytes;
+    this.inFlightBytes = new AtomicLong(0);
+  }
+
+  /**
+   * Start fetching the first bytes of an object in the background.
+   *
+   * @param obj
+   *          the object to fetch.
+   *
+   * @return a {@link Head} that can be passed to a {@link RangedS3InputStream}
+   *         for the object, or {@code null} if the byte budget has been
+   *         exhausted.
+   */
+  public Head prefetch(final S3ObjectId obj) {
+    if (!reserve()) {
+      log.debug("Prefetch budget exhausted; not prefetching " + obj);
+      return null;
+    }
+    final Future<Head.Data> future = exec.submit(new Callable<Head.Data>() {
+      @Override
+      public Head.Data call() throws IOException {
+        final GetObjectRequest request = new GetObjectRequest(obj.getBucket(), obj.getKey())
+            .withRange(0, prefetchBytes - 1);
+        try (final S3Object object = client.getObject(request)) {
+          final byte[] bytes = IOUtils.toByteArray(object.getObjectContent());
+          return new Head.Data(bytes, object.getObjectMetadata().getInstanceLength(),
+              object.getObjectMetadata().getETag());
+        }
+      }
+    });
+    return new Head(this, obj, future);
+  }
+
+  /**
+   * Get the number of bytes currently reserved by prefetched heads.
+   *
+   * @return the number of bytes reserved against the budget.
+   */
+  public long getInFlightBytes() {
+    return inFlightBytes.get();
+  }
+
+  private boolean reserve() {
+    while (true) {
+      final long current = inFlightBytes.get();
+      if (current + prefetchBytes > budgetBytes) {
+        return false;
+      }
+      if (inFlightBytes.compareAndSet(current, current + prefetchBytes)) {
+        return true;
+      }
+    }
+  }
+
+  private void release() {
+    inFlightBytes.addAndGet(-prefetchBytes);
+  }
+
+  /**
+   * Handle to the first bytes of an S3 object that are being fetched in the
+   * background. The handle holds a reservation against the prefetcher's byte
+   * budget until {@link #release} is called.
+   */
+  public static class Head {
+    private final S3Prefetcher owner;
+    private final S3ObjectId obj;
+    private final Future<Data> future;
+    private boolean released;
+
+    Head(final S3Prefetcher owner, final S3ObjectId obj, final Future<Data> future) {
+      this.owner = owner;
+      this.obj = obj;
+      this.future = future;
+      this.released = false;
+    }
+
+    /**
+     * Wait for the prefetch to complete.
+     *
+     * @return the data fetched from the start of the object, or {@code null}
+     *         if the prefetch failed. Failures are not fatal, since the caller
+     *         can read the object directly instead.
+     */
+    Data get() {
+      try {
+        return future.get();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      } catch (final ExecutionException e) {
+        if (e.getCause() instanceof IOException
+            || e.getCause() instanceof AmazonClientException) {
+          log.info("Failed to prefetch " + obj + ", will read directly", e.getCause());
+          return null;
+        }
+        throw new RuntimeException(e.getCause());
+      }
+    }
+
+    /**
+     * Return this head's reservation to the prefetcher's byte budget. This
+     * method is idempotent.
+     */
+    synchronized void release() {
+      if (!released) {
+        released = true;
+        future.cancel(true);
+        owner.release();
+      }
+    }
+
+    // The bytes fetched from the start of the object, along with the length
+    // and ETag of the complete object as reported by S3.
+    static class Data {
+      final byte[] bytes;
+      final long objectLength;
+      final String eTag;
+
+      Data(final byte[] bytes, final long objectLength, final String eTag) {
+        this.bytes = bytes;
+        this.objectLength = objectLength;
+        this.eTag = eTag;
+      }
+    }
+  }
+
+}
@@ -19,6 +19,8 @@ import edu.harvard.data.TableFormat;
  * client first attempts to retrieve the iterator for the data table, this class
  * downloads the data file from S3 to a temporary location on the local file
  * system. It then delegates to {@code FileTableReader} to read the file.
+ * See {@link StreamingS3TableReader} for an implementation that parses records
+ * directly from S3 without using local scratch space.
  * <P>
  * This class is not thread-safe. Any access synchronization must be performed
  * by the caller.
@@ -32,6 +34,7 @@ public class S3TableReader<T extends DataTable> implements TableReader<T> {
   private final S3ObjectId obj;
   private final TableFormat format;
   private final Class<T> tableType;
+  private final RecordDecoder<T> decoder;
   private final File tempFile;
   private final AwsUtils aws;
 
@@ -60,8 +63,38 @@ public class S3TableReader<T extends DataTable> implements TableReader<T> {
    */
   public S3TableReader(final AwsUtils aws, final Class<T> tableType, final TableFormat format,
       final S3ObjectId obj, final File tempDir) {
+    this(aws, tableType, RecordDecoders.forClass(tableType), format, obj, tempDir);
+  }
+
+  /**
+   * Create a new reader for a file on S3 that uses a specific
+   * {@link RecordDecoder} to create records.
+   *
+   * @param aws
+   *          an instance of the {@link AwsUtils} class used to abstract access
+   *          to Amazon Web Services.
+   * @param tableType
+   *          a reference to the template class {@code T} that will be used to
+   *          create new records.
+   * @param decoder
+   *          the {@link RecordDecoder} used to convert each line of input into
+   *          an instance of {@code T}.
+   * @param format
+   *          the {@link TableFormat} that indicates how the data file is
+   *          formatted.
+   * @param obj
+   *          an {S3ObjectId} instance that contains the bucket and key used to
+   *          address the file on S3.
+   * @param tempDir
+   *          a {@link File} pointing to a scratch directory where a temporary
+   *          file can be created.
+   */
+  public S3TableReader(final AwsUtils aws, final Class<T> tableType,
+      final RecordDecoder<T> decoder, final TableFormat format, final S3ObjectId obj,
+      final File tempDir) {
     this.aws = aws;
     this.tableType = tableType;
+    this.decoder = decoder;
     this.format = format;
     this.obj = obj;
     this.tempFile = new File(tempDir, UUID.randomUUID().toString());
@@ -86,7 +119,7 @@ public class S3TableReader<T extends DataTable> implements TableReader<T> {
       }
       tempFile.getParentFile().mkdirs();
       aws.getFile(obj, tempFile);
-      reader = new FileTableReader<T>(tableType, format, tempFile);
+      reader = new FileTableReader<T>(tableType, decoder, format, tempFile);
     }
     return reader;
   }
@@ -0,0 +1,56 @@
+package edu.harvard.data.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compression scheme used for the data files described by a
+ * {@link edu.harvard.data.TableFormat}.
+ * <P>
+ * The built-in schemes are the values of
+ * {@link edu.harvard.data.TableFormat.Compression}. Other implementations can
+ * be installed on a format using
+ * {@link edu.harvard.data.TableFormat#setCodec}, after which every stream
+ * opened through the format (local, S3 or HDFS) goes through the codec.
+ * <P>
+ * Implementations must be thread-safe; a single codec instance is shared by
+ * every stream that a format opens.
+ */
+public interface StreamCodec {
+
+  /**
+   * Get the file extension used for data compressed by this codec.
+   *
+   * @return an extension such as {@code .gz}, including the leading dot, or an
+   *         empty string if the codec does not compress its data.
+   */
+  String getExtension();
+
+  /**
+   * Wrap an output stream so that data written to it is compressed.
+   *
+   * @param out
+   *          the stream to which compressed data should be written. Closing the
+   *          returned stream must close {@code out}.
+   * @return a stream that compresses data into {@code out}.
+   *
+   * @throws IOException
+   *           if an error occurs when writing to {@code out}.
+   */
+  OutputStream compress(OutputStream out) throws IOException;
+
+  /**
+   * Wrap an input stream so that data read from it is decompressed.
+   *
+   * @param in
+   *          a stream containing data compressed by this codec. Closing the
+   *          returned stream must close {@code in}.
+   * @return a stream that decompresses data from {@code in}.
+   *
+   * @throws IOException
+   *           if an error occurs when reading from {@code in}, or if its data
+   *           is not in the expected format.
+   */
+  InputStream decompress(InputStream in) throws IOException;
+}
@@ -0,0 +1,109 @@
+package edu.harvard.data.io;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import edu.harvard.data.DataTable;
+import edu.harvard.data.VerificationException;
+
+/**
+ * Base class for {@link JsonDocumentParser} implementations that push the
+ * records they extract into a {@link DocumentSink}, rather than returning a
+ * new map of lists for every document.
+ * <P>
+ * When a {@link JsonFileReader} is drained with {@link JsonFileReader#parse},
+ * records go straight from the parser to the sink with no intermediate
+ * collections, and subclasses that override
+ * {@link #parse(JsonParser, DocumentSink)} avoid building a map for each
+ * document as well. The {@link #getDocuments} method is implemented on top of
+ * {@link #parse(Map, DocumentSink)} so that subclasses can still be used with the iterator API.
+ */
+public abstract class StreamingJsonDocumentParser implements JsonDocumentParser {
+
+  private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {
+  };
+
+  /**
+   * Extract all {@link DataTable} records from a parsed JSON object, and pass
+   * them to a sink.
+   *
+   * @param values
+   *          the data parsed from an input JSON string; see
+   *          {@link JsonDocumentParser#getDocuments}.
+   * @param sink
+   *          the {@link DocumentSink} that receives each record as it is
+   *          extracted.
+   *
+   * @throws ParseException
+   *           if some field in the JSON document cannot be parsed.
+   * @throws VerificationException
+   *           if the data contained in the JSON document violates some
+   *           implementation-specific verification criteria.
+   * @throws IOException
+   *           if the sink fails to accept a record.
+   */
+  public abstract void parse(Map<String, Object> values, DocumentSink sink)
+      throws ParseException, VerificationException, IOException;
+
+  /**
+   * Extract all {@link DataTable} records from a JSON object that has not yet
+   * been parsed, and pass them to a sink. {@link JsonFileReader#parse} calls
+   * this method for each object in the input.
+   * <P>
+   * The default implementation reads the object into a map and calls
+   * {@link #parse(Map, DocumentSink)}. Subclasses can override it to read
+   * records straight from the parser's tokens, typically with the
+   * {@code JSON_DECODER} generated for each binding (see
+   * {@link JsonRecordDecoder}).
+   *
+   * @param parser
+   *          a Jackson {@link JsonParser} positioned on the
+   *          {@code START_OBJECT} token of the document. On return, the parser
+   *          must be positioned on the matching {@code END_OBJECT} token.
+   * @param sink
+   *          the {@link DocumentSink} that receives each record as it is
+   *          extracted.
+   *
+   * @throws ParseException
+   *           if some field in the JSON document cannot be parsed.
+   * @throws VerificationException
+   *           if the data contained in the JSON document violates some
+   *           implementation-specific verification criteria.
+   * @throws IOException
+   *           if the JSON is malformed, or if the sink fails to accept a
+   *           record.
+   */
+  public void parse(final JsonParser parser, final DocumentSink sink)
+      throws ParseException, VerificationException, IOException {
+    final Map<String, Object> values = parser.readValueAs(MAP_TYPE);
+    parse(values, sink);
+  }
+
+  @Override
+  public Map<String, List<? extends DataTable>> getDocuments(final Map<String, Object> values)
+      throws ParseException, VerificationException {
+    final Map<String, List<DataTable>> tables = new HashMap<String, List<DataTable>>();
+    try {
+      parse(values, new DocumentSink() {
+        @Override
+        public void emit(final String tableName, final DataTable record) {
+          if (!tables.containsKey(tableName)) {
+            tables.put(tableName, new ArrayList<DataTable>());
+          }
+          tables.get(tableName).add(record);
+        }
+      });
+    } catch (final IOException e) {
+      // The sink above never throws.
+      throw new IterationException(e);
+    }
+    return new HashMap<String, List<? extends DataTable>>(tables);
+  }
+}
@@ -0,0 +1,233 @@
+package edu.harvard.data.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.S3ObjectId;
+
+import edu.harvard.data.AwsUtils;
+import edu.harvard.data.DataTable;
+import edu.harvard.data.TableFormat;
+
+/**
+ * {@link TableReader} implementation that parses records directly from a
+ * delimited data file in S3.
+ * <P>
+ * Unlike {@link S3TableReader}, this class does not download the file to local
+ * disk before parsing it. Records are read from a {@link RangedS3InputStream},
+ * which retries and resumes failed requests, so the first record is available
+ * as soon as the first bytes arrive and no scratch space is needed.
+ * <P>
+ * When a table is made up of several files, use {@link #combine} to build a
+ * {@link CombinedTableReader} over them. Each reader in the combined set starts
+ * prefetching the first bytes of the next file (using an
+ * {@link S3Prefetcher}) as soon as its own iteration begins, so that the
+ * transition between files does not stall on a new S3 request.
+ * <P>
+ * Columnar formats can not be parsed from a forward-only stream, since the
+ * file metadata is stored at the end. The static {@link #open} and
+ * {@link #combine(AwsUtils, Class, RecordDecoder, TableFormat, List, S3Prefetcher, File)}
+ * methods fall back to an {@link S3TableReader} for those formats; the
+ * generated {@link edu.harvard.data.TableFactory} implementations create S3
+ * readers through them.
+ * <P>
+ * This class is not thread-safe. Any access synchronization must be performed
+ * by the caller.
+ *
+ * @param <T>
+ *          the record type that this file reader parses.
+ */
+public class StreamingS3TableReader<T extends DataTable> implements TableReader<T> {
+
+  private final AmazonS3 client;
+  private final Class<T> tableType;
+  private final RecordDecoder<T> decoder;
+  private final TableFormat format;
+  private final S3ObjectId obj;
+  private final S3Prefetcher prefetcher;
+  private StreamingS3TableReader<T> next;
+  private S3Prefetcher.Head head;
+  private S3DelimitedFileIterator<T> iterator;
+
+  /**
+   * Create a new reader for a file on S3.
+   *
+   * @param client
+   *          the S3 client used to read the object.
+   * @param tableType
+   *          a reference to the template class {@code T} that will be used to
+   *          create new records.
+   * @param decoder
+   *          the {@link RecordDecoder} used to convert each line of input into
+   *          an instance of {@code T}.
+   * @param format
+   *          the {@link TableFormat} that indicates how the data file is
+   *          formatted.
+   * @param obj
+   *          an {@link S3ObjectId} instance that contains the bucket and key
+   *          used to address the file on S3.
+   * @param prefetcher
+   *          the {@link S3Prefetcher} used to fetch the start of the file in
+   *          the background, or {@code null} to disable prefetching.
+   */
+  public StreamingS3TableReader(final AmazonS3 client, final Class<T> tableType,
+      final RecordDecoder<T> decoder, final TableFormat format, final S3ObjectId obj,
+      final S3Prefetcher prefetcher) {
+    this.client = client;
+    this.tableType = tableType;
+    this.decoder = decoder;
+    this.format = format;
+    this.obj = obj;
+    this.prefetcher = prefetcher;
+  }
+
+  /**
+   * Create a reader for a file on S3, streaming the file if its format allows
+   * it and downloading it with an {@link S3TableReader} otherwise.
+   *
+   * @param aws
+   *          the {@link AwsUtils} instance used to access S3.
+   * @param tableType
+   *          a reference to the template class {@code T} that will be used to
+   *          create new records.
+   * @param decoder
+   *          the {@link RecordDecoder} used to convert each line of input into
+   *          an instance of {@code T}.
+   * @param format
+   *          the {@link TableFormat} that indicates how the data file is
+   *          formatted.
+   * @param obj
+   *          the file to read.
+   * @param tempDir
+   *          a scratch directory used if the file has to be downloaded.
+   *
+   * @return a {@code TableReader} for the file.
+   */
+  public static <T extends DataTable> TableReader<T> open(final AwsUtils aws,
+      final Class<T> tableType, final RecordDecoder<T> decoder, final TableFormat format,
+      final S3ObjectId obj, final File tempDir) {
+    if (format.isColumnar()) {
+      return new S3TableReader<T>(aws, tableType, decoder, format, obj, tempDir);
+    }
+    return new StreamingS3TableReader<T>(aws.getClient(), tableType, decoder, format, obj, null);
+  }
+
+  /**
+   * Create a {@link CombinedTableReader} over a set of S3 files, streaming and
+   * prefetching them if their format allows it and downloading each one in
+   * turn with an {@link S3TableReader} otherwise.
+   *
+   * @param aws
+   *          the {@link AwsUtils} instance used to access S3.
+   * @param tableType
+   *          a reference to the template class {@code T} that will be used to
+   *          create new records.
+   * @param decoder
+   *          the {@link RecordDecoder} used to convert each line of input into
+   *          an instance of {@code T}.
+   * @param format
+   *          the {@link TableFormat} that indicates how the data files are
+   *          formatted.
+   * @param objs
+   *          an ordered {@link List} of the files that make up the table.
+   * @param prefetcher
+   *          the {@link S3Prefetcher} used to fetch the start of each file in
+   *          the background, or {@code null} to disable prefetching.
+   * @param tempDir
+   *          a scratch directory used if the files have to be downloaded.
+   *
+   * @return a {@code CombinedTableReader} over the files.
+   */
+  public static <T extends DataTable> CombinedTableReader<T> combine(final AwsUtils aws,
+      final Class<T> tableType, final RecordDecoder<T> decoder, final TableFormat format,
+      final List<S3ObjectId> objs, final S3Prefetcher prefetcher, final File tempDir) {
+    if (!format.isColumnar()) {
+      return combine(aws.getClient(), tableType, decoder, format, objs, prefetcher);
+    }
+    final List<TableReader<T>> readers = new ArrayList<TableReader<T>>();
+    for (final S3ObjectId obj : objs) {
+      readers.add(new S3TableReader<T>(aws, tableType, decoder, format, obj, tempDir));
+    }
+    return new CombinedTableReader<T>(readers);
+  }
+
+  /**
+   * Create a {@link CombinedTableReader} that streams a set of S3 files in
+   * order, prefetching the start of each file while the previous one is being
+   * read.
+   *
+   * @param client
+   *          the S3 client used to read the objects.
+   * @param tableType
+   *          a reference to the template class {@code T} that will be used to
+   *          create new records.
+   * @param decoder
+   *          the {@link RecordDecoder} used to convert each line of input into
+   *          an instance of {@code T}.
+   * @param format
+   *          the {@link TableFormat} that indicates how the data files are
+   *          formatted.
+   * @param objs
+   *          an ordered {@link List} of the files that make up the table.
+   * @param prefetcher
+   *          the {@link S3Prefetcher} used to fetch the start of each file in
+   *          the background, or {@code null} to disable prefetching.
+   *
+   * @return a {@code CombinedTableReader} over the files.
+   */
+  public static <T extends DataTable> CombinedTableReader<T> combine(final AmazonS3 client,
+      final Class<T> tableType, final RecordDecoder<T> decoder, final TableFormat format,
+      final List<S3ObjectId> objs, final S3Prefetcher prefetcher) {
+    final List<TableReader<T>> readers = new ArrayList<TableReader<T>>();
+    StreamingS3TableReader<T> previous = null;
+    for (final S3ObjectId obj : objs) {
+      final StreamingS3TableReader<T> reader = new StreamingS3TableReader<T>(client, tableType,
+          decoder, format, obj, prefetcher);
+      if (previous != null) {
+        previous.next = reader;
+      }
+      readers.add(reader);
+      previous = reader;
+    }
+    return new CombinedTableReader<T>(readers);
+  }
+
+  /**
+   * Start fetching the first bytes of this reader's file in the background,
+   * if a prefetcher was provided and iteration has not already started.
+   */
+  synchronized void prefetch() {
+    if (prefetcher != null && head == null && iterator == null) {
+      head = prefetcher.prefetch(obj);
+    }
+  }
+
+  @Override
+  public synchronized Iterator<T> iterator() {
+    if (iterator == null) {
+      iterator = new S3DelimitedFileIterator<T>(tableType, decoder, format, client, obj, head);
+      if (next != null) {
+        next.prefetch();
+      }
+    }
+    return iterator;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (iterator != null) {
+      iterator.close();
+    }
+    // Releasing the head is idempotent, so this is safe even if the stream has
+    // already consumed and released it.
+    if (head != null) {
+      head.release();
+      head = null;
+    }
+  }
+
+}
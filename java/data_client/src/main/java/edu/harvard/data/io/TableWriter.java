@@ -1,16 +1,16 @@
 package edu.harvard.data.io;
 
-import java.io.Closeable;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.commons.csv.CSVPrinter;
-
 import edu.harvard.data.DataTable;
+import edu.harvard.data.DelimitedEncoder;
 import edu.harvard.data.TableFormat;
 
 /**
@@ -33,10 +33,25 @@ import edu.harvard.data.TableFormat;
  * <P>
  * A single {@code TableWriter} instance outputs a single type of
  * {@link DataTable} records, determined by the type parameter {@code T}.
+ * <P>
+ * If the format is columnar (see {@link TableFormat#isColumnar}), the records
+ * are written as a Parquet file by a {@link ParquetEncoder} rather than as
+ * delimited text. In that case {@code T} must declare a {@link ColumnarCodec},
+ * and the writer holds a row group (up to about 64MB of encoded data) in
+ * memory at a time. The file is assembled in a temporary file next to the
+ * output file (or in the default temporary directory when writing to a
+ * stream), and copied to the output when the writer is closed.
+ * <P>
+ * The writer computes the MD5 digest and CRC32C checksum of the bytes that it
+ * writes (after compression), and counts the records, as it goes. Once the
+ * writer is closed these are available from {@link #getChecksum}, so that the
+ * file can be uploaded with integrity headers and recorded in an index without
+ * being read again.
  */
-public class TableWriter<T extends DataTable> implements Closeable {
+public class TableWriter<T extends DataTable> implements DataTableWriter<T> {
 
   private static final int DEFAULT_BUFFER_SIZE = 512;
+  private static final int FLUSH_CHARS = 8192;
 
   private final List<T> buffer;
   private int bufferSize;
@@ -44,7 +59,15 @@ public class TableWriter<T extends DataTable> implements Closeable {
   private final TableFormat format;
   private final Class<T> tableType;
   private OutputStream outStream;
-  private CSVPrinter printer;
+  private ChecksumOutputStream checksumStream;
+  private OutputStream dataStream;
+  private ContentChecksum checksum;
+  private long rows;
+  private Writer writer;
+  private DelimitedEncoder encoder;
+  private ParquetEncoder<T> columnarEncoder;
+  private final StringBuilder lines;
+  private char[] chars;
 
   /**
    * Common internal constructor that sets up standard fields regardless of the
@@ -52,6 +75,8 @@ public class TableWriter<T extends DataTable> implements Closeable {
    */
   private TableWriter(final Class<T> tableType, final TableFormat format) {
     this.buffer = new ArrayList<T>();
+    this.lines = new StringBuilder();
+    this.chars = new char[FLUSH_CHARS];
     this.bufferSize = DEFAULT_BUFFER_SIZE;
     this.tableType = tableType;
     this.format = format;
@@ -121,6 +146,7 @@ public class TableWriter<T extends DataTable> implements Closeable {
    *           callers cannot assume that all records have been safely written
    *           until the {@link #close} method has been successfully called.
    */
+  @Override
   public void add(final T record) throws IOException {
     buffer.add(record);
     if (buffer.size() >= bufferSize) {
@@ -136,9 +162,72 @@ public class TableWriter<T extends DataTable> implements Closeable {
   @Override
   public void close() throws IOException {
     flush();
-    if (printer != null) {
-      printer.close();
+    if (writer != null) {
+      writer.close();
+    }
+    if (columnarEncoder != null) {
+      columnarEncoder.close();
+    }
+    if (checksumStream != null && checksum == null) {
+      checksum = checksumStream.getChecksum(rows);
+    }
+  }
+
+  /**
+   * Close the output after an error, without writing any buffered records,
+   * headers or Parquet footer. The codec stream is still closed, so that it
+   * releases any resources that it holds (such as the blocks that a
+   * {@link ParallelGzipOutputStream} has pending), along with the file or
+   * {@code OutputStream} below it. No checksum is computed.
+   *
+   * @throws IOException
+   *           if an error occurs when closing the streams.
+   */
+  void abort() throws IOException {
+    buffer.clear();
+    if (columnarEncoder != null) {
+      columnarEncoder.abort();
+    } else if (dataStream != null) {
+      dataStream.close();
+    } else if (checksumStream != null) {
+      checksumStream.close();
+    } else if (outStream != null) {
+      outStream.close();
+    }
+  }
+
+  /**
+   * Get the checksums, length and record count of the data written by this
+   * writer. The checksums cover the bytes written to the file or output stream,
+   * after any compression, and the record count excludes headers.
+   *
+   * @return a {@link ContentChecksum} describing the output.
+   *
+   * @throws IllegalStateException
+   *           if the writer has not been closed.
+   */
+  public ContentChecksum getChecksum() {
+    if (checksum == null) {
+      throw new IllegalStateException("Checksum is not available until the writer is closed");
     }
+    return checksum;
+  }
+
+  /**
+   * Get the number of bytes written so far to the file or output stream, after
+   * any compression. Each batch of records is flushed through the character
+   * encoder when it is written, so this covers every record added except those
+   * still in the output buffer and any data that the codec is holding to
+   * compress as a block. For a columnar format, the file is only copied to the
+   * output when the writer is closed, so the encoded size of the file so far
+   * (including the row group held in memory) is reported instead.
+   *
+   * @return the number of bytes passed to the underlying stream, plus any
+   *         columnar output not yet copied to it.
+   */
+  long getBytesWritten() {
+    final long written = checksumStream == null ? 0 : checksumStream.getLength();
+    return columnarEncoder == null ? written : written + columnarEncoder.getBufferedSize();
   }
 
   /**
@@ -168,43 +257,113 @@ public class TableWriter<T extends DataTable> implements Closeable {
 
   /**
    * Write all records stored in the output buffer to the output stream or local
-   * file. This method will create a new {@code CSVPrinter} object on top of the
-   * output stream if one does not exist already, and will write headers if the
-   * file format requires it.
+   * file, and clear the buffer.
    *
    * @throws IOException
    *           if an error occurs while writing the records or creating an
    *           output stream.
    */
   private void flush() throws IOException {
-    if (printer == null) {
-      getPrinter();
+    writeRecords(buffer);
+    buffer.clear();
+  }
+
+  /**
+   * Encode a batch of records to the output stream or local file, bypassing
+   * the output buffer. This method will create a new {@code Writer} object on
+   * top of the output stream if one does not exist already, and will write
+   * headers if the file format requires it.
+   * <P>
+   * Each record is encoded by its {@link DataTable#writeDelimited} method into
+   * a line buffer that is reused between records, so no per-record objects are
+   * created. The encoded text is handed to the output stream in large chunks,
+   * and flushed through the character encoder at the end of the batch so that
+   * {@link #getBytesWritten} reflects the records written.
+   * <P>
+   * Subclasses that manage their own buffering (such as
+   * {@link AsyncTableWriter}) use this method to write each batch in order.
+   *
+   * @param records
+   *          the records to write, in output order.
+   *
+   * @throws IOException
+   *           if an error occurs while writing the records or creating an
+   *           output stream.
+   */
+  void writeRecords(final List<T> records) throws IOException {
+    rows += records.size();
+    if (format.isColumnar()) {
+      writeColumnar(records);
+      return;
+    }
+    if (writer == null) {
+      getWriter();
       if (format.includeHeaders()) {
-        writeHeaders(printer);
+        writeHeaders();
       }
     }
-    for (final T row : buffer) {
-      printer.printRecord(row.getFieldsAsList(format));
+    for (final T row : records) {
+      row.writeDelimited(format, lines);
+      encoder.endRecord(lines);
+      if (lines.length() >= FLUSH_CHARS) {
+        writeLines();
+      }
+    }
+    writeLines();
+    writer.flush();
+  }
+
+  // Parquet readers need to seek within the file, so the stream is not wrapped
+  // in the format's codec; the encoder compresses each page instead.
+  private void writeColumnar(final List<T> records) throws IOException {
+    if (columnarEncoder == null) {
+      checksumStream = new ChecksumOutputStream(
+          outStream == null ? new FileOutputStream(file) : outStream);
+      columnarEncoder = new ParquetEncoder<T>(ColumnarCodec.forClass(tableType), format,
+          checksumStream, file == null ? null : file.getParentFile());
+    }
+    for (final T row : records) {
+      columnarEncoder.add(row);
+    }
+  }
+
+  // Copy the contents of the line buffer to the writer, avoiding the String
+  // that Writer.append(CharSequence) would create.
+  private void writeLines() throws IOException {
+    final int length = lines.length();
+    if (length > 0) {
+      if (chars.length < length) {
+        chars = new char[length];
+      }
+      lines.getChars(0, length, chars, 0);
+      writer.write(chars, 0, length);
+      lines.setLength(0);
     }
-    buffer.clear();
   }
 
   /**
-   * Create a {@link CSVPrinter} object on top of the output stream (either
-   * user-provided or newly-created from a local file).
+   * Create a {@link Writer} object on top of the output stream (either
+   * user-provided or newly-created from a local file). A local file is
+   * compressed according to the format, and checksummed below the compression
+   * so that the checksums match the bytes on disk. Characters are encoded using
+   * the format's encoding rather than the platform default, so that readers
+   * that decode the format's encoding see the same text.
    *
    * @throws IOException
-   *           if an error occurs when creating an output stream or constructing
-   *           the CSV printer.
+   *           if an error occurs when creating an output stream.
    */
-  private void getPrinter() throws IOException {
+  private void getWriter() throws IOException {
     final OutputStream out;
     if (outStream == null) {
-      out = format.getOutputStream(file);
+      checksumStream = new ChecksumOutputStream(new FileOutputStream(file));
+      out = format.getOutputStream(checksumStream);
     } else {
-      out = outStream;
+      checksumStream = new ChecksumOutputStream(outStream);
+      out = checksumStream;
     }
-    printer = new CSVPrinter(new OutputStreamWriter(out), format.getCsvFormat());
+    dataStream = out;
+    writer = new OutputStreamWriter(out, format.getEncoding());
+    encoder = format.getDelimitedEncoder();
   }
 
   /**
@@ -213,10 +372,8 @@ public class TableWriter<T extends DataTable> implements Closeable {
    * written), and only if the {@link TableFormat#includeHeaders} method returns
    * true.
    *
-   * @param printer
-   *          the {@link CSVPrinter} stream where the headers should be written.
    * @throws IOException
-   *           if an error occurs when writing to the print stream.
+   *           if an error occurs when writing to the output stream.
    * @throws RuntimeException
    *           if an error occurs when reflectively accessing the field names
    *           from the tableType object. Since we don't necessarily have a
@@ -230,11 +387,14 @@ public class TableWriter<T extends DataTable> implements Closeable {
    *           logic for this class, and so it's unreasonable to expect the
    *           caller to handle it.
    */
-  private void writeHeaders(final CSVPrinter printer) throws IOException {
+  private void writeHeaders() throws IOException {
     try {
       final T table = tableType.newInstance();
       final List<String> headers = table.getFieldNames();
-      printer.printRecord(headers);
+      for (int i = 0; i < headers.size(); i++) {
+        encoder.write(lines, headers.get(i), i == 0);
+      }
+      encoder.endRecord(lines);
     } catch (InstantiationException | IllegalAccessException e) {
       throw new RuntimeException(e);
     }
@@ -0,0 +1,82 @@
+package edu.harvard.data.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.harvard.data.DataTable;
+
+/**
+ * {@link DocumentSink} that routes each record to the {@link DataTableWriter}
+ * registered for its table.
+ * <P>
+ * Closing the sink closes every registered writer, so a sink can be used in a
+ * try-with-resources block in place of the individual writers.
+ * <P>
+ * This class is not thread-safe. Any access synchronization must be performed
+ * by the caller.
+ */
+public class TableWriterSink implements DocumentSink, Closeable {
+
+  private final Map<String, DataTableWriter<DataTable>> writers;
+
+  public TableWriterSink() {
+    this.writers = new HashMap<String, DataTableWriter<DataTable>>();
+  }
+
+  /**
+   * Register the writer for a table. Records emitted for the table must be of
+   * the type written by {@code writer}.
+   *
+   * @param tableName
+   *          the name of the table, as passed to {@link #emit}.
+   * @param writer
+   *          the {@link DataTableWriter} that receives the table's records. The
+   *          writer is closed when this sink is closed.
+   *
+   * @return this sink, so that calls can be chained.
+   */
+  @SuppressWarnings("unchecked")
+  public TableWriterSink add(final String tableName,
+      final DataTableWriter<? extends DataTable> writer) {
+    writers.put(tableName, (DataTableWriter<DataTable>) writer);
+    return this;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IllegalArgumentException
+   *           if no writer has been registered for {@code tableName}.
+   */
+  @Override
+  public void emit(final String tableName, final DataTable record) throws IOException {
+    final DataTableWriter<DataTable> writer = writers.get(tableName);
+    if (writer == null) {
+      throw new IllegalArgumentException("No writer registered for table " + tableName);
+    }
+    writer.add(record);
+  }
+
+  /**
+   * Close every registered writer. All writers are closed even if one fails;
+   * the first failure is rethrown.
+   */
+  @Override
+  public void close() throws IOException {
+    IOException error = null;
+    for (final DataTableWriter<DataTable> writer : writers.values()) {
+      try {
+        writer.close();
+      } catch (final IOException e) {
+        if (error == null) {
+          error = e;
+        }
+      }
+    }
+    if (error != null) {
+      throw error;
+    }
+  }
+}
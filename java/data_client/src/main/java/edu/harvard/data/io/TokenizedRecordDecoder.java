@@ -0,0 +1,43 @@
+package edu.harvard.data.io;
+
+import java.text.ParseException;
+
+import edu.harvard.data.DataTable;
+import edu.harvard.data.TableFormat;
+
+/**
+ * Extension of {@link RecordDecoder} for decoders that can also create records
+ * directly from the fields of a {@link DelimitedTokenizer}.
+ * <P>
+ * Decoding from a tokenizer avoids the intermediate {@code CSVRecord} and
+ * field {@code String} objects created by commons-csv; numeric and boolean
+ * fields are parsed straight from the tokenizer's buffer. The {@code DECODER}
+ * constant emitted by the code generator implements this interface, and
+ * {@link DelimitedFileIterator} uses it whenever the file format is supported
+ * by {@link DelimitedTokenizer#supports}.
+ * <P>
+ * Both decode methods must produce identical records for the same input.
+ *
+ * @param <T>
+ *          the {@link DataTable} implementation produced by this decoder.
+ */
+public interface TokenizedRecordDecoder<T extends DataTable> extends RecordDecoder<T> {
+
+  /**
+   * Create a new record from the current record of a tokenizer.
+   *
+   * @param format
+   *          the {@link TableFormat} that describes the input data. The format
+   *          is used to parse values such as dates and timestamps.
+   * @param fields
+   *          a {@link DelimitedTokenizer} positioned on the record to decode.
+   *
+   * @return a new instance of {@code T}, populated from the tokenizer's current
+   *         record.
+   *
+   * @throws ParseException
+   *           if a date or timestamp field in the record can not be parsed.
+   */
+  T decode(TableFormat format, DelimitedTokenizer fields) throws ParseException;
+
+}
@@ -20,6 +20,14 @@
  * records to an {@link java.io.OutputStream} or to a local file which, once
  * closed, can be moved elsewhere in the infrastructure by client code.
  *
+ * Records that must be sorted or grouped locally can be passed through an
+ * {@link ExternalSorter}, which spills sorted runs to scratch files rather than
+ * holding the whole table in memory, and returns the result as another
+ * {@code TableReader}.
+ *
+ * Hadoop jobs read the same files through {@link DataTableInputFormat}, which
+ * hands each mapper parsed records rather than lines of text.
+ *
  * While the majority of the classes in this package are based around reading
  * tabular data, the {@link JsonFileReader} enables clients to parse
  * JSON-formatted data. The {@code JsonFileReader} class consumes a data file
@@ -27,6 +35,8 @@
  * {@link JsonDocumentParser} to convert those objects to {@code DataTable}
  * records. Clients of the code need to provide a custom
  * {@code JsonDocumentParser}, but do not have to handle the details of parsing
- * JSON.
+ * JSON. Parsers that extend {@link StreamingJsonDocumentParser} push records
+ * into a {@link DocumentSink}, such as a {@link TableWriterSink} that routes
+ * them to the writer for each table.
  */
 package edu.harvard.data.io;
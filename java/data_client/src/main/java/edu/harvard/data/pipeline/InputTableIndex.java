@@ -11,6 +11,7 @@ import com.amazonaws.services.s3.model.S3ObjectId;
 
 import edu.harvard.data.AwsUtils;
 import edu.harvard.data.generator.SchemaPhase;
+import edu.harvard.data.io.ContentChecksum;
 import edu.harvard.data.schema.DataSchemaTable;
 
 /**
@@ -25,11 +26,13 @@ public class InputTableIndex {
   private final Map<String, List<String>> tables;
   private final Map<String, Long> fileSizes;
   private final Map<String, Boolean> partial;
+  private final Map<String, ContentChecksum> checksums;
 
   public InputTableIndex() {
     this.tables = new HashMap<String, List<String>>();
     this.partial = new HashMap<String, Boolean>();
     this.fileSizes = new HashMap<String, Long>();
+    this.checksums = new HashMap<String, ContentChecksum>();
   }
 
   public String getSchemaVersion() {
@@ -61,6 +64,25 @@ public class InputTableIndex {
     fileSizes.put(AwsUtils.uri(file), sizeBytes);
   }
 
+  /**
+   * Add a new S3-based file to the index, recording its checksums and row
+   * count along with its size.
+   *
+   * @param table
+   *          the name of the data table to which this file belongs. The file
+   *          must be formatted in a manner that can be parsed into an instance
+   *          of that data table.
+   * @param file
+   *          a reference to the file stored on S3.
+   * @param checksum
+   *          the checksums of the file object, as computed when it was written
+   *          or uploaded.
+   */
+  public void addFile(final String table, final S3ObjectId file, final ContentChecksum checksum) {
+    addFile(table, file, checksum.getLength());
+    checksums.put(AwsUtils.uri(file), checksum);
+  }
+
   /**
    * Get the full set of tables that have been stored in the index.
    *
@@ -108,6 +130,7 @@ public class InputTableIndex {
    */
   public void addAll(final InputTableIndex data) {
     fileSizes.putAll(data.fileSizes);
+    checksums.putAll(data.checksums);
     for (final String table : data.tables.keySet()) {
       if (!tables.containsKey(table)) {
         tables.put(table, new ArrayList<String>());
@@ -135,6 +158,9 @@ public class InputTableIndex {
     tables.get(table).addAll(data.tables.get(table));
     for (final String file : data.tables.get(table)) {
       fileSizes.put(file, data.fileSizes.get(file));
+      if (data.checksums.containsKey(file)) {
+        checksums.put(file, data.checksums.get(file));
+      }
     }
   }
 
@@ -160,6 +186,29 @@ public class InputTableIndex {
     return fileSizes.get(AwsUtils.uri(file));
   }
 
+  /**
+   * Get the checksums of all files in the index for which they were recorded.
+   *
+   * @return a map from the S3 file identifier (formatted as a standard s3://
+   *         URL) to the file's checksums.
+   */
+  public Map<String, ContentChecksum> getChecksums() {
+    return checksums;
+  }
+
+  /**
+   * Get the checksums for a specific file stored on S3.
+   *
+   * @param file
+   *          a reference to the file stored on S3.
+   *
+   * @return the checksums of the file, or {@code null} if none were recorded
+   *         when the file was added to the index.
+   */
+  public ContentChecksum getChecksum(final S3ObjectId file) {
+    return checksums.get(AwsUtils.uri(file));
+  }
+
   @Override
   public String toString() {
     String s = "Schema: " + schemaVersion + "\n";
@@ -10,6 +10,12 @@ public abstract class DataSchemaColumn {
   @JsonIgnore
   protected boolean newlyGenerated;
 
+  // Set for string columns that repeat a small set of values, such as request
+  // methods or user agent fields. Generated bindings intern these values
+  // through a StringDictionary rather than allocating a new String per record.
+  @JsonIgnore
+  protected boolean lowCardinality;
+
   public abstract String getName();
 
   public abstract String getSourceName();
@@ -34,6 +40,14 @@ public abstract class DataSchemaColumn {
     this.newlyGenerated = newlyGenerated;
   }
 
+  public boolean getLowCardinality() {
+    return lowCardinality;
+  }
+
+  public void setLowCardinality(final boolean lowCardinality) {
+    this.lowCardinality = lowCardinality;
+  }
+
   protected String cleanColumnName(final String name) {
     if (name == null) {
       return null;
@@ -146,6 +146,16 @@ public class ExtensionSchema implements DataSchema {
         error(column, tableName, "is of type varchar but has zero length");
       }
     }
+    if (column.getLowCardinality()) {
+      switch (column.getType()) {
+      case Guid:
+      case Text:
+      case VarChar:
+        break;
+      default:
+        error(column, tableName, "is marked low_cardinality but is not a string type");
+      }
+    }
   }
 
   private static void error(final DataSchemaTable table, final String msg)
@@ -14,16 +14,23 @@ public class ExtensionSchemaColumn extends DataSchemaColumn {
   private final DataSchemaType type;
   private final Integer length;
 
+  public ExtensionSchemaColumn(final String name, final String description, final String type,
+      final Integer length) {
+    this(name, description, type, length, null);
+  }
+
   @JsonCreator
   public ExtensionSchemaColumn(@JsonProperty("name") final String name,
       @JsonProperty("description") final String description,
-      @JsonProperty("type") final String type, @JsonProperty("length") final Integer length) {
+      @JsonProperty("type") final String type, @JsonProperty("length") final Integer length,
+      @JsonProperty("low_cardinality") final Boolean lowCardinality) {
     super(false);
     this.sourceName = name;
     this.name = cleanColumnName(name);
     this.description = description;
     this.type = DataSchemaType.parse(type);
     this.length = length;
+    this.lowCardinality = lowCardinality != null && lowCardinality;
   }
 
   private ExtensionSchemaColumn(final ExtensionSchemaColumn original) {
@@ -33,6 +40,7 @@ public class ExtensionSchemaColumn extends DataSchemaColumn {
     this.description = original.description;
     this.type = original.type;
     this.length = original.length;
+    this.lowCardinality = original.lowCardinality;
   }
 
   @Override
@@ -19,13 +19,15 @@ public class ExtensionSchemaTable extends DataSchemaTable {
   private String tableName;
   private final Map<String, DataSchemaColumn> columnsByName;
   private final List<DataSchemaColumn> columns;
+  private final List<String> lowCardinalityColumns;
 
   @JsonCreator
   public ExtensionSchemaTable(@JsonProperty("like") final String like,
       @JsonProperty("description") final String description,
       @JsonProperty("columns") final List<ExtensionSchemaColumn> columnList,
       @JsonProperty("owner") final TableOwner owner,
-      @JsonProperty("expire_after_phase") final Integer expireAfterPhase) {
+      @JsonProperty("expire_after_phase") final Integer expireAfterPhase,
+      @JsonProperty("low_cardinality") final List<String> lowCardinalityColumns) {
     super(false, owner, expireAfterPhase);
     this.like = like;
     this.description = description;
@@ -37,6 +39,10 @@ public class ExtensionSchemaTable extends DataSchemaTable {
         this.columnsByName.put(column.getName(), column);
       }
     }
+    this.lowCardinalityColumns = new ArrayList<String>();
+    if (lowCardinalityColumns != null) {
+      this.lowCardinalityColumns.addAll(lowCardinalityColumns);
+    }
   }
 
   public ExtensionSchemaTable(final String name, final List<DataSchemaColumn> columns) {
@@ -46,6 +52,7 @@ public class ExtensionSchemaTable extends DataSchemaTable {
     this.description = null;
     this.columns = new ArrayList<DataSchemaColumn>();
     this.columnsByName = new HashMap<String, DataSchemaColumn>();
+    this.lowCardinalityColumns = new ArrayList<String>();
     for (final DataSchemaColumn column : columns) {
       final DataSchemaColumn columnCopy = column.copy();
       this.columns.add(column);
@@ -65,6 +72,7 @@ public class ExtensionSchemaTable extends DataSchemaTable {
       this.columns.add(columnCopy);
       this.columnsByName.put(columnCopy.getName(), columnCopy);
     }
+    this.lowCardinalityColumns = new ArrayList<String>(original.lowCardinalityColumns);
   }
 
   public void setTableName(final String tableName) {
@@ -75,6 +83,14 @@ public class ExtensionSchemaTable extends DataSchemaTable {
     this.expireAfterPhase = phase;
   }
 
+  // Names of existing columns to be marked as low cardinality without being
+  // redefined. This lets an overrides file flag columns of a third party
+  // schema, such as the Canvas Data requests table, whose definitions it would
+  // otherwise have to restate.
+  public List<String> getLowCardinalityColumns() {
+    return lowCardinalityColumns;
+  }
+
   @Override
   public String getTableName() {
     return tableName;
@@ -28,6 +28,7 @@ public class RedshiftColumn extends DataSchemaColumn {
     this.name = original.name;
     this.type = original.type;
     this.length = original.length;
+    this.lowCardinality = original.lowCardinality;
   }
 
   @Override
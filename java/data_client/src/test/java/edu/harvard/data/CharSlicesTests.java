@@ -0,0 +1,31 @@
+package edu.harvard.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CharSlicesTests {
+
+  // Slice hashes match String.hashCode, which the generated enum decoders rely
+  // on.
+  @Test
+  public void testHash() {
+    final char[] buf = "xxsubmittedxx".toCharArray();
+    assertEquals("submitted".hashCode(), CharSlices.hash(buf, 2, 9));
+    assertEquals("".hashCode(), CharSlices.hash(buf, 5, 0));
+    assertEquals("Aa".hashCode(), CharSlices.hash("BB".toCharArray(), 0, 2));
+  }
+
+  @Test
+  public void testMatches() {
+    final char[] buf = "xxsubmittedxx".toCharArray();
+    assertTrue(CharSlices.matches("submitted", buf, 2, 9));
+    assertTrue(CharSlices.matches("", buf, 4, 0));
+    assertFalse(CharSlices.matches("submitte", buf, 2, 9));
+    assertFalse(CharSlices.matches("submitted", buf, 2, 8));
+    assertFalse(CharSlices.matches("unsubmitted", buf, 0, 11));
+    assertFalse(CharSlices.matches("Aa", "BB".toCharArray(), 0, 2));
+  }
+}
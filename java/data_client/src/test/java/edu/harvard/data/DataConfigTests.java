@@ -0,0 +1,47 @@
+package edu.harvard.data;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class DataConfigTests {
+
+  private static final String REQUIRED = "scratch_dir=/tmp\n" + "redshift_port=5439\n"
+      + "aws_key_id=key\n" + "aws_secret_key=secret\n" + "data_source=test\n"
+      + "dataset_name=test\n";
+
+  private void load(final String properties) throws IOException, DataConfigurationException {
+    final InputStream in = new ByteArrayInputStream(
+        (REQUIRED + properties).getBytes(StandardCharsets.ISO_8859_1));
+    new DataConfig(Collections.singletonList(in), true);
+  }
+
+  // Parquet is not a text format, so the pipeline's Hadoop jobs and generated
+  // Hive and Redshift scripts cannot read it.
+  @Test
+  public void testParquetPipelineFormatRejected() throws IOException {
+    try {
+      load("pipeline_format=parquet\nfulltext_format=compressed_internal\n");
+      fail();
+    } catch (final DataConfigurationException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("pipeline_format"));
+    }
+  }
+
+  @Test
+  public void testParquetFullTextFormatRejected() throws IOException {
+    try {
+      load("pipeline_format=compressed_internal\nfulltext_format=parquet\n");
+      fail();
+    } catch (final DataConfigurationException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("fulltext_format"));
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package edu.harvard.data;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.QuoteMode;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+import edu.harvard.data.FormatLibrary.Format;
+
+public class DelimitedEncoderTests {
+
+  private static final Object[] VALUES = { null, "", " ", "plain", "tab\there", "new\nline",
+      "carriage\rreturn", "comma,here", "quote\"here", "slash/here", "back\\slash", "\\N",
+      "#comment", "!bang", "trailing ", " leading", "café", "中文", 0, -1, 42L,
+      Long.MIN_VALUE, 3.25, -0.5, Double.NaN, true, false };
+
+  private List<List<Object>> records() {
+    final List<List<Object>> records = new ArrayList<List<Object>>();
+    for (final Object value : VALUES) {
+      // Each value as the first, middle and last field.
+      records.add(Arrays.asList(value, "x", value, 1L, value));
+    }
+    records.add(Arrays.asList((Object) null));
+    records.add(Arrays.asList((Object) ""));
+    return records;
+  }
+
+  private String printWithCsvPrinter(final CSVFormat format, final List<Object> record)
+      throws IOException {
+    final StringBuilder out = new StringBuilder();
+    try (final CSVPrinter printer = new CSVPrinter(out, format)) {
+      printer.printRecord(record);
+    }
+    return out.toString();
+  }
+
+  private String printWithEncoder(final CSVFormat format, final List<Object> record)
+      throws IOException {
+    final DelimitedEncoder encoder = new DelimitedEncoder(format);
+    final StringBuilder out = new StringBuilder();
+    for (int i = 0; i < record.size(); i++) {
+      encoder.write(out, record.get(i), i == 0);
+    }
+    encoder.endRecord(out);
+    return out.toString();
+  }
+
+  private void checkFormat(final CSVFormat format) throws IOException {
+    for (final List<Object> record : records()) {
+      assertEquals(format + " " + record, printWithCsvPrinter(format, record),
+          printWithEncoder(format, record));
+    }
+  }
+
+  // Check that every library format produces the same output as CSVPrinter.
+  @Test
+  public void testLibraryFormats() throws IOException {
+    final FormatLibrary library = new FormatLibrary();
+    for (final Format format : Format.values()) {
+      checkFormat(library.getFormat(format).getCsvFormat());
+    }
+  }
+
+  // Check the quote modes that no library format currently uses.
+  @Test
+  public void testQuoteModes() throws IOException {
+    checkFormat(CSVFormat.DEFAULT.withQuoteMode(QuoteMode.ALL));
+    checkFormat(CSVFormat.DEFAULT.withQuoteMode(QuoteMode.NON_NUMERIC));
+    checkFormat(CSVFormat.DEFAULT.withEscape('\\').withQuoteMode(QuoteMode.NONE));
+    checkFormat(CSVFormat.TDF.withQuote(null).withEscape('\\').withNullString("\\N"));
+  }
+
+  // Check that numbers are written correctly when the output is not a
+  // StringBuilder.
+  @Test
+  public void testNumbersWithoutStringBuilder() throws IOException {
+    final DelimitedEncoder encoder = new DelimitedEncoder(CSVFormat.TDF);
+    final StringBuffer out = new StringBuffer();
+    encoder.write(out, (Number) 12L, true);
+    encoder.write(out, (Number) 1.5, false);
+    assertEquals("12\t1.5", out.toString());
+  }
+
+  // Check that DelimitedText removes line feeds and encodes as UTF-8.
+  @Test
+  public void testDelimitedText() throws IOException {
+    final TableFormat format = new FormatLibrary().getFormat(Format.DecompressedExcel);
+    final DelimitedText delimitedText = new DelimitedText();
+    final Text text = new Text("previous contents that are longer");
+    delimitedText.set(text, format, "a\nb", "café", "😀", 7);
+    assertEquals("\"ab\",café,😀,7", text.toString());
+  }
+
+}
@@ -0,0 +1,114 @@
+package edu.harvard.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import edu.harvard.data.FormatLibrary.Format;
+
+public class JsonFieldsTests {
+
+  private static final String JSON = "{\"string\":\"caf\u00e9\",\"int\":12,\"long\":12345678901,"
+      + "\"double\":1.5,\"exponent\":1e3,\"true\":true,\"false\":false,\"null\":null,"
+      + "\"object\":{\"a\":[1,\"b\",{\"c\":null}]},\"array\":[2.5,true],\"empty\":\"\","
+      + "\"timestamp\":\"2016-03-13T02:30:00.000Z\"}";
+
+  private TableFormat format;
+
+  @Before
+  public void setup() {
+    format = new FormatLibrary().getFormat(Format.Matterhorn);
+  }
+
+  // Returns a parser positioned on the value of a top-level field.
+  private JsonParser field(final String name) throws IOException {
+    final JsonParser parser = format.getJsonMapper().getFactory().createParser(JSON);
+    parser.nextToken();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      parser.nextToken();
+      if (parser.getCurrentName().equals(name)) {
+        return parser;
+      }
+      parser.skipChildren();
+    }
+    throw new IllegalArgumentException(name);
+  }
+
+  // String fields hold the same value as String.valueOf on the parsed map.
+  @Test
+  public void testReadStringMatchesMap() throws IOException {
+    final Map<String, Object> map = format.getJsonMapper().readValue(JSON,
+        new TypeReference<Map<String, Object>>() {
+        });
+    for (final String key : map.keySet()) {
+      final JsonParser parser = field(key);
+      assertEquals(key, String.valueOf(map.get(key)), JsonFields.readString(parser));
+      // The parser is left on the last token of the value.
+      final JsonToken next = parser.nextToken();
+      assertTrue(next == JsonToken.FIELD_NAME || next == JsonToken.END_OBJECT);
+    }
+    assertEquals("null", JsonFields.readString(field("null")));
+  }
+
+  @Test
+  public void testReadNumbers() throws IOException {
+    assertEquals(Long.valueOf(12), JsonFields.readLong(field("int")));
+    assertEquals(Long.valueOf(12345678901L), JsonFields.readLong(field("long")));
+    assertNull(JsonFields.readLong(field("null")));
+    assertEquals(Integer.valueOf(12), JsonFields.readInteger(field("int")));
+    assertNull(JsonFields.readInteger(field("null")));
+    assertEquals(Double.valueOf(1.5), JsonFields.readDouble(field("double")));
+    assertEquals(Double.valueOf(12), JsonFields.readDouble(field("int")));
+    assertNull(JsonFields.readDouble(field("null")));
+  }
+
+  @Test
+  public void testReadBoolean() throws IOException {
+    assertTrue(JsonFields.readBoolean(field("true")));
+    assertFalse(JsonFields.readBoolean(field("false")));
+    assertTrue(JsonFields.readBoolean(field("int")));
+    assertNull(JsonFields.readBoolean(field("null")));
+  }
+
+  @Test
+  public void testReadTimestamp() throws IOException, ParseException {
+    assertEquals(format.parseTimestamp("2016-03-13T02:30:00.000Z"),
+        JsonFields.readTimestamp(format, field("timestamp")));
+    assertNull(JsonFields.readTimestamp(format, field("empty")));
+    assertNull(JsonFields.readTimestamp(format, field("null")));
+  }
+
+  @Test
+  public void testStartObject() throws IOException {
+    assertTrue(JsonFields.startObject(field("object")));
+    assertFalse(JsonFields.startObject(field("null")));
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void testUnexpectedInteger() throws IOException {
+    JsonFields.readLong(field("string"));
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void testUnexpectedText() throws IOException {
+    JsonFields.readText(field("int"));
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void testUnexpectedObject() throws IOException {
+    JsonFields.startObject(field("array"));
+  }
+}
@@ -0,0 +1,155 @@
+package edu.harvard.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.Test;
+
+public class StringDictionaryTests {
+
+  // Repeated values are returned as the instance seen first.
+  @Test
+  public void testInternString() {
+    final StringDictionary dictionary = new StringDictionary("test.string");
+    final String first = new String("GET");
+    final String second = new String("GET");
+    assertTrue(first == dictionary.intern(first));
+    assertTrue(first == dictionary.intern(second));
+    assertEquals("POST", dictionary.intern("POST"));
+    assertNull(dictionary.intern(null));
+    assertEquals(1, dictionary.getHits());
+    assertEquals(2, dictionary.getMisses());
+  }
+
+  // Buffer slices find the same instances as strings.
+  @Test
+  public void testInternSlice() {
+    final StringDictionary dictionary = new StringDictionary("test.slice");
+    final char[] buf = "xxGETxxPOSTxxGETGE".toCharArray();
+    final String get = dictionary.intern(buf, 2, 3);
+    assertEquals("GET", get);
+    assertTrue(get == dictionary.intern(buf, 13, 3));
+    assertTrue(get == dictionary.intern("GET"));
+    assertEquals("POST", dictionary.intern(buf, 7, 4));
+    // A prefix of an existing value is a different value.
+    assertEquals("GE", dictionary.intern(buf, 16, 2));
+    assertEquals("", dictionary.intern(buf, 0, 0));
+    assertEquals(2, dictionary.getHits());
+    assertEquals(4, dictionary.getMisses());
+  }
+
+  // Once a dictionary is full, new values are returned but not retained.
+  @Test
+  public void testCapacity() {
+    final StringDictionary dictionary = new StringDictionary("test.capacity", 2);
+    final String a = dictionary.intern(new String("a"));
+    final String b = dictionary.intern(new String("b"));
+    final String c = dictionary.intern(new String("c"));
+    assertTrue(a == dictionary.intern(new String("a")));
+    assertTrue(b == dictionary.intern(new String("b")));
+    assertFalse(c == dictionary.intern(new String("c")));
+    assertEquals(2, dictionary.getHits());
+    assertEquals(4, dictionary.getMisses());
+  }
+
+  // Many distinct values with colliding hash codes are all found again.
+  @Test
+  public void testCollisions() {
+    final StringDictionary dictionary = new StringDictionary("test.collisions", 64);
+    final String[] values = new String[64];
+    for (int i = 0; i < values.length; i++) {
+      // "Aa" and "BB" have the same hash code, as do any strings built from
+      // them.
+      final StringBuilder s = new StringBuilder();
+      for (int bit = 0; bit < 6; bit++) {
+        s.append((i & (1 << bit)) == 0 ? "Aa" : "BB");
+      }
+      values[i] = dictionary.intern(s.toString());
+    }
+    for (int i = 0; i < values.length; i++) {
+      final char[] buf = values[i].toCharArray();
+      assertTrue(values[i] == dictionary.intern(buf, 0, buf.length));
+    }
+    assertEquals(64, dictionary.getHits());
+  }
+
+  // Each thread has its own values, and the counters cover all threads.
+  @Test
+  public void testThreads() throws InterruptedException {
+    final StringDictionary dictionary = new StringDictionary("test.threads");
+    final String main = dictionary.intern(new String("value"));
+    final String[] other = new String[1];
+    final Thread thread = new Thread() {
+      @Override
+      public void run() {
+        other[0] = dictionary.intern(new String("value"));
+        dictionary.intern(new String("value"));
+      }
+    };
+    thread.start();
+    thread.join();
+    assertFalse(main == other[0]);
+    assertEquals(1, dictionary.getHits());
+    assertEquals(2, dictionary.getMisses());
+    assertEquals(1.0 / 3, dictionary.getHitRate(), 0.0001);
+  }
+
+  @Test
+  public void testRegistry() {
+    final StringDictionary dictionary = new StringDictionary("test.registry");
+    assertTrue(StringDictionary.getDictionaries().contains(dictionary));
+    assertEquals(0.0, dictionary.getHitRate(), 0.0);
+    assertEquals("test.registry: 0 hits, 0 misses (-)", dictionary.toString());
+    dictionary.intern("a");
+    dictionary.intern("a");
+    assertEquals("test.registry: 1 hits, 1 misses (50.0%)", dictionary.toString());
+  }
+
+  // The tables of threads that have died are dropped, but their counts are
+  // kept.
+  @Test
+  public void testDeadThreads() throws InterruptedException {
+    final StringDictionary dictionary = new StringDictionary("test.dead_threads");
+    for (int i = 0; i < 20; i++) {
+      final Thread thread = new Thread() {
+        @Override
+        public void run() {
+          dictionary.intern("a");
+          dictionary.intern("a");
+        }
+      };
+      thread.start();
+      thread.join();
+    }
+    assertEquals(20, dictionary.getHits());
+    assertEquals(20, dictionary.getMisses());
+    assertEquals(0, dictionary.getThreadCount());
+    dictionary.intern("a");
+    assertEquals(1, dictionary.getThreadCount());
+    assertEquals(21, dictionary.getMisses());
+  }
+
+  // The registry does not keep unused dictionaries alive.
+  @Test
+  public void testRegistryCollected() throws InterruptedException {
+    final WeakReference<StringDictionary> ref = new WeakReference<StringDictionary>(
+        new StringDictionary("test.collected"));
+    for (int i = 0; i < 100 && ref.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull(ref.get());
+    for (final StringDictionary dictionary : StringDictionary.getDictionaries()) {
+      assertFalse(dictionary.getName().equals("test.collected"));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidCapacity() {
+    new StringDictionary("test.invalid", 0);
+  }
+}
@@ -0,0 +1,231 @@
+package edu.harvard.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.sql.Timestamp;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import edu.harvard.data.FormatLibrary.Format;
+
+public class TimestampCodecTests {
+
+  private static final String[] PATTERNS = { FormatLibrary.CANVAS_TIMESTAMP_FORMAT_STRING,
+      FormatLibrary.CANVAS_DATE_FORMAT_STRING, FormatLibrary.MATTERHORN_DATE_FORMAT_STRING,
+      "yyyy-MM-dd'T'HH:mm'Z'" };
+
+  private static final String[] ZONES = { "UTC", "America/New_York", "Asia/Kolkata" };
+
+  private static final String[] INPUTS = { "2016-03-13 02:30:05.123", "1970-01-01 00:00:00.000",
+      "9999-12-31 23:59:59.999", "2016-02-29 12:00:00.000", "2015-02-29 12:00:00.000",
+      "2016-13-01 00:00:00.000", "2016-03-13 24:00:00.000", "2016-03-13 02:30:05.5",
+      "2016-03-13 02:30:05.123 trailing", "1969-12-31 23:59:59.999", "0001-01-01 00:00:00.000",
+      "2016-03-13", "2016-3-13", "2016-03-32", "2016-03-13T02:30:05Z", "2016-03-13T02:30:05+05:30",
+      "2016-03-13T02:30:05-04:00", "2016-03-13T02:30:05-00:00", "2016-03-13T02:30:05+24:00",
+      "2016-03-13T02:30:05+05:60", "2016-03-13T02:30:05+0530", "2016-03-13T02:30:05+05",
+      "2016-03-13T02:30:05*05:30", "2016-03-13T24:00:00Z", "1970-01-01T00:30:00+01:00",
+      "2016-03-13T02:30:05.000Z", "2016-03-13T02:30:05Z trailing", "not a date", "" };
+
+  private DateFormat dateFormat(final String pattern, final String zone) {
+    final DateFormat format = new SimpleDateFormat(pattern);
+    format.setTimeZone(TimeZone.getTimeZone(zone));
+    return format;
+  }
+
+  private String parseResult(final DateFormat format, final String input) {
+    try {
+      return String.valueOf(format.parse(input).getTime());
+    } catch (final ParseException e) {
+      return "ParseException";
+    }
+  }
+
+  private String parseResult(final TimestampCodec codec, final String input) {
+    try {
+      return String.valueOf(codec.parse(input).getTime());
+    } catch (final ParseException e) {
+      return "ParseException";
+    }
+  }
+
+  // Check that formatting matches SimpleDateFormat over a wide range of
+  // instants, including daylight saving transitions and dates before 1970.
+  @Test
+  public void testFormatMatchesDateFormat() {
+    final Random random = new Random(20160313);
+    for (final String pattern : PATTERNS) {
+      for (final String zone : ZONES) {
+        final DateFormat format = dateFormat(pattern, zone);
+        final TimestampCodec codec = new TimestampCodec(format);
+        for (int i = 0; i < 20000; i++) {
+          final long millis;
+          if (i % 2 == 0) {
+            // Clustered values, as in a requests table, to exercise the cache.
+            millis = 1457836200000L + random.nextInt(3600 * 1000);
+          } else {
+            millis = (long) (random.nextDouble() * 300000000000000L) - 100000000000000L;
+          }
+          final Date date = new Date(millis);
+          assertEquals(pattern + " " + zone + " " + millis, format.format(date),
+              codec.format(date));
+        }
+      }
+    }
+  }
+
+  // Check that parsing matches SimpleDateFormat, including the lenient
+  // handling of out-of-range fields and the treatment of trailing text.
+  @Test
+  public void testParseMatchesDateFormat() {
+    for (final String pattern : PATTERNS) {
+      for (final String zone : ZONES) {
+        final DateFormat format = dateFormat(pattern, zone);
+        final TimestampCodec codec = new TimestampCodec(format);
+        for (final String input : INPUTS) {
+          assertEquals(pattern + " " + zone + " " + input, parseResult(format, input),
+              parseResult(codec, input));
+        }
+      }
+    }
+  }
+
+  // Check that values survive a round trip through the fast path.
+  @Test
+  public void testRoundTrip() throws ParseException {
+    final TimestampCodec codec = new TimestampCodec(
+        dateFormat(FormatLibrary.CANVAS_TIMESTAMP_FORMAT_STRING, "UTC"));
+    final Random random = new Random(42);
+    for (int i = 0; i < 10000; i++) {
+      final long millis = (long) (random.nextDouble() * 253402300799999L);
+      assertEquals(millis, codec.parse(codec.format(new Date(millis))).getTime());
+    }
+  }
+
+  // Matterhorn values carry their own offset, so they round trip through the
+  // fast path whatever the template's time zone.
+  @Test
+  public void testIsoOffsetRoundTrip() throws ParseException {
+    for (final String zone : ZONES) {
+      final DateFormat format = dateFormat(FormatLibrary.MATTERHORN_DATE_FORMAT_STRING, zone);
+      final TimestampCodec codec = new TimestampCodec(format);
+      final Random random = new Random(42);
+      for (int i = 0; i < 10000; i++) {
+        final long millis = (long) (random.nextDouble() * 253402200000L) * 1000;
+        final String text = codec.format(new Date(millis));
+        assertEquals(format.format(new Date(millis)), text);
+        assertEquals(millis, codec.parse(text).getTime());
+      }
+    }
+  }
+
+  // Check that changes to the template after construction are ignored.
+  @Test
+  public void testTemplateCopied() {
+    final DateFormat format = dateFormat(FormatLibrary.CANVAS_DATE_FORMAT_STRING, "UTC");
+    final TimestampCodec codec = new TimestampCodec(format);
+    format.setTimeZone(TimeZone.getTimeZone("Asia/Kolkata"));
+    assertEquals("1970-01-01", codec.format(new Date(23 * 3600 * 1000L)));
+  }
+
+  // Check that one codec can be shared by several threads, by comparing its
+  // results with a private SimpleDateFormat in each thread.
+  @Test
+  public void testConcurrentUse() throws InterruptedException, ExecutionException {
+    for (final String zone : new String[] { "UTC", "America/New_York" }) {
+      final String[] patterns = { FormatLibrary.CANVAS_TIMESTAMP_FORMAT_STRING,
+          FormatLibrary.MATTERHORN_DATE_FORMAT_STRING };
+      final TimestampCodec[] codecs = { new TimestampCodec(dateFormat(patterns[0], zone)),
+          new TimestampCodec(dateFormat(patterns[1], zone)) };
+      final ExecutorService exec = Executors.newFixedThreadPool(4);
+      try {
+        final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (int t = 0; t < 8; t++) {
+          final int seed = t;
+          futures.add(exec.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+              final DateFormat[] references = { dateFormat(patterns[0], zone),
+                  dateFormat(patterns[1], zone) };
+              final Random random = new Random(seed);
+              for (int i = 0; i < 20000; i++) {
+                final Date date = new Date((long) (random.nextDouble() * 2000000000000L));
+                final String expected = references[i % 2].format(date);
+                assertEquals(expected, codecs[i % 2].format(date));
+                assertEquals(parseResult(references[i % 2], expected),
+                    parseResult(codecs[i % 2], expected));
+              }
+              return null;
+            }
+          }));
+        }
+        for (final Future<Void> future : futures) {
+          future.get();
+        }
+      } finally {
+        exec.shutdown();
+      }
+    }
+  }
+
+  // Check that a zero fraction is dropped from formatted values and from
+  // strings before they are parsed, and that other fractions are kept.
+  @Test
+  public void testTrimZeroFraction() throws ParseException {
+    final TimestampCodec millis = new TimestampCodec(
+        dateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", "UTC"), true);
+    assertEquals("1970-01-01T00:00:05Z", millis.format(new Date(5000)));
+    assertEquals("1970-01-01T00:00:05.001Z", millis.format(new Date(5001)));
+    final TimestampCodec seconds = new TimestampCodec(
+        dateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", "UTC"), true);
+    assertEquals(5000, seconds.parse("1970-01-01T00:00:05.000Z").getTime());
+    final TimestampCodec tenths = new TimestampCodec(
+        dateFormat("yyyy-MM-dd HH:mm:ss.S", "UTC"), true);
+    assertEquals("1970-01-01 00:00:05", tenths.format(new Date(5000)));
+    assertEquals("1970-01-01 00:00:05.1", tenths.format(new Date(5001)));
+    final TimestampCodec canvas = new TimestampCodec(
+        dateFormat(FormatLibrary.CANVAS_TIMESTAMP_FORMAT_STRING, "UTC"), true);
+    assertEquals("1970-01-01 00:00:05.000", canvas.format(new Date(5000)));
+    assertEquals(5000, canvas.parse("1970-01-01 00:00:05.000").getTime());
+  }
+
+  // Check the TableFormat methods that use the codecs.
+  @Test
+  public void testTableFormat() throws ParseException {
+    final TableFormat format = new FormatLibrary().getFormat(Format.DecompressedCanvasDataFlatFiles);
+    final String timestamp = "2016-03-13 02:30:05.000";
+    final Timestamp parsed = format.parseTimestamp(timestamp);
+    assertEquals(format.getTimstampFormat().parse(timestamp).getTime(), parsed.getTime());
+    assertEquals(timestamp, format.formatTimestamp(parsed));
+    final Date date = format.parseDate("2016-02-29");
+    assertEquals(format.getDateFormat().parse("2016-02-29"), date);
+    assertEquals("2016-02-29", format.formatTimestamp(date));
+  }
+
+  // The DateFormat getters return private copies, so changes made by one
+  // caller are not seen by the format or by other callers.
+  @Test
+  public void testTableFormatGettersCopy() {
+    final TableFormat format = new FormatLibrary().getFormat(Format.DecompressedCanvasDataFlatFiles);
+    assertNotSame(format.getDateFormat(), format.getDateFormat());
+    assertNotSame(format.getTimstampFormat(), format.getTimstampFormat());
+    final Date date = new Date(23 * 3600 * 1000L);
+    final String expected = format.formatTimestamp(date);
+    format.getDateFormat().setTimeZone(TimeZone.getTimeZone("Asia/Kolkata"));
+    assertEquals(expected, format.formatTimestamp(date));
+    assertEquals(expected, format.getDateFormat().format(date));
+  }
+}
@@ -0,0 +1,40 @@
+package edu.harvard.data;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class WritableFieldsTests {
+
+  private Timestamp roundTrip(final Timestamp timestamp) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    WritableFields.writeTimestamp(new DataOutputStream(bytes), timestamp);
+    return WritableFields.readTimestamp(
+        new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+  }
+
+  // Timestamps keep their nanoseconds, including those before the epoch.
+  @Test
+  public void testTimestampRoundTrip() throws IOException {
+    final Random random = new Random(1);
+    final long[] millis = { 0, 1, -1, 999, -999, 1000, -1000, Long.MAX_VALUE / 1000,
+        Long.MIN_VALUE / 1000 };
+    for (final long m : millis) {
+      for (int i = 0; i < 20; i++) {
+        final Timestamp timestamp = new Timestamp(m);
+        timestamp.setNanos(i == 0 ? 0 : random.nextInt(1000000000));
+        final Timestamp read = roundTrip(timestamp);
+        assertEquals(timestamp, read);
+        assertEquals(timestamp.getNanos(), read.getNanos());
+      }
+    }
+  }
+}
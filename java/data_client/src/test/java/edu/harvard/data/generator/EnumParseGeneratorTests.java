@@ -0,0 +1,140 @@
+package edu.harvard.data.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.harvard.data.VerificationException;
+
+// Check the parse methods generated for enum columns against the behavior of
+// the map-based lookup that they replaced: a value is mapped to the constant
+// with that string value, and anything else is passed to valueOf, which
+// accepts constant names and throws for unknown values. The grade_code column
+// has values whose hash codes collide, as do some of the unknown inputs.
+public class EnumParseGeneratorTests {
+
+  private static final String SCHEMA = "test_schemas/enum_columns.json";
+  private static final String[] ENUMS = { "SubmissionTypeEnum", "WorkflowStateEnum",
+      "GradeCodeEnum" };
+
+  @ClassRule
+  public static TemporaryFolder folder = new TemporaryFolder();
+
+  private static GeneratedBindings bindings;
+
+  @BeforeClass
+  public static void setup() throws IOException, VerificationException {
+    bindings = new GeneratedBindings(SCHEMA, folder.getRoot());
+  }
+
+  @AfterClass
+  public static void tearDown() throws IOException {
+    bindings.close();
+  }
+
+  @SuppressWarnings("unchecked")
+  private Class<? extends Enum<?>> enumClass(final String name) throws ClassNotFoundException {
+    for (final Class<?> cls : bindings.getBinding("submission").getDeclaredClasses()) {
+      if (cls.getSimpleName().equals(name)) {
+        return (Class<? extends Enum<?>>) cls;
+      }
+    }
+    throw new ClassNotFoundException(name);
+  }
+
+  // The constant name, or the class of the exception thrown.
+  private String invoke(final Method method, final Object... args)
+      throws IllegalAccessException {
+    try {
+      return ((Enum<?>) method.invoke(null, args)).name();
+    } catch (final InvocationTargetException e) {
+      return e.getCause().getClass().getName();
+    }
+  }
+
+  private String expected(final Class<? extends Enum<?>> cls, final String str)
+      throws ReflectiveOperationException {
+    final Map<String, Enum<?>> values = new HashMap<String, Enum<?>>();
+    for (final Enum<?> constant : cls.getEnumConstants()) {
+      values.put(constant.toString(), constant);
+    }
+    if (values.containsKey(str)) {
+      return values.get(str).name();
+    }
+    return invoke(cls.getMethod("valueOf", String.class), str);
+  }
+
+  private List<String> inputs(final Class<? extends Enum<?>> cls) {
+    final List<String> inputs = new ArrayList<String>();
+    for (final Enum<?> constant : cls.getEnumConstants()) {
+      final String value = constant.toString();
+      inputs.add(value);
+      inputs.add(constant.name());
+      inputs.add(value.toUpperCase());
+      inputs.add(" " + value);
+      inputs.add(value + " ");
+      inputs.add(value.substring(0, value.length() - 1));
+      inputs.add(value + value);
+    }
+    for (final String value : new String[] { "", "unknown", "AaAa", "BBBB", "aA", "bb",
+        "valueOf", "é", "graded\u0000" }) {
+      inputs.add(value);
+    }
+    return inputs;
+  }
+
+  @Test
+  public void parseString() throws Exception {
+    int checked = 0;
+    for (final String name : ENUMS) {
+      final Class<? extends Enum<?>> cls = enumClass(name);
+      final Method parse = cls.getMethod("parse", String.class);
+      for (final String input : inputs(cls)) {
+        assertEquals(name + " " + input, expected(cls, input), invoke(parse, input));
+        checked++;
+      }
+      assertEquals(NullPointerException.class.getName(), invoke(parse, (String) null));
+    }
+    assertTrue(checked > 100);
+  }
+
+  // The slice is taken from the middle of a larger buffer, as it is when the
+  // tokenizer decodes a field.
+  @Test
+  public void parseSlice() throws Exception {
+    for (final String name : ENUMS) {
+      final Class<? extends Enum<?>> cls = enumClass(name);
+      final Method parse = cls.getMethod("parse", char[].class, int.class, int.class);
+      for (final String input : inputs(cls)) {
+        final char[] buf = ("graded\t" + input + "\tAa").toCharArray();
+        assertEquals(name + " " + input, expected(cls, input),
+            invoke(parse, buf, 7, input.length()));
+      }
+    }
+  }
+
+  @Test
+  public void collidingValues() throws Exception {
+    final Class<? extends Enum<?>> cls = enumClass("GradeCodeEnum");
+    assertEquals("AaBB".hashCode(), "BBAa".hashCode());
+    final Method parse = cls.getMethod("parse", String.class);
+    final Method slice = cls.getMethod("parse", char[].class, int.class, int.class);
+    for (final String value : new String[] { "Aa", "BB", "AaBB", "BBAa" }) {
+      assertEquals(value, invoke(parse, value));
+      assertEquals(value, invoke(slice, value.toCharArray(), 0, value.length()));
+    }
+  }
+}
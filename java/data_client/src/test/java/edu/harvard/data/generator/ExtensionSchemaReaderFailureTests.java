@@ -36,6 +36,7 @@ public class ExtensionSchemaReaderFailureTests {
     data.add(new Object[] { "duplicate_column" });
     data.add(new Object[] { "negative_table_expiration" });
     data.add(new Object[] { "large_table_expiration" });
+    data.add(new Object[] { "low_cardinality_integer_column" });
     return data;
   }
 
@@ -1,6 +1,7 @@
 package edu.harvard.data.generator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -44,4 +45,31 @@ public class ExtensionSchemaReaderTest {
     assertEquals(table.getExpirationPhase().intValue(), 1);
   }
 
+  @Test
+  public void lowCardinalityColumn() throws IOException, VerificationException {
+    final DataSchema schema = read("low_cardinality_column");
+    final DataSchemaTable table = schema.getTableByName("tableName");
+    assertTrue(table.getColumn("method").getLowCardinality());
+    assertFalse(table.getColumn("url").getLowCardinality());
+    // The hint must survive the copies made as the schema is transformed for
+    // each phase.
+    final DataSchemaTable copy = schema.copy().getTableByName("tableName");
+    assertTrue(copy.getColumn("method").getLowCardinality());
+    assertFalse(copy.getColumn("url").getLowCardinality());
+  }
+
+  @Test
+  public void lowCardinalityExistingColumn() throws IOException, VerificationException {
+    final DataSchema base = read("low_cardinality_column");
+    final DataSchema schema = new SchemaTransformer().transform(base,
+        read("low_cardinality_existing_column"), true);
+    final DataSchemaTable table = schema.getTableByName("tableName");
+    assertTrue(table.getColumn("method").getLowCardinality());
+    assertTrue(table.getColumn("url").getLowCardinality());
+    // The rest of the column definition is left as it was.
+    assertEquals(2, table.getColumns().size());
+    assertEquals(255, table.getColumn("url").getLength().intValue());
+    assertFalse(base.getTableByName("tableName").getColumn("url").getLowCardinality());
+  }
+
 }
@@ -0,0 +1,111 @@
+package edu.harvard.data.generator;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import edu.harvard.data.DataTable;
+import edu.harvard.data.VerificationException;
+import edu.harvard.data.schema.DataSchema;
+import edu.harvard.data.schema.DataSchemaTable;
+import edu.harvard.data.schema.extension.ExtensionSchema;
+
+/**
+ * Generates the phase 0 Java bindings for a schema in the test resources, and
+ * compiles and loads them. Tests use the loaded classes to check the code that
+ * the generator emits against the behavior it has to reproduce, such as the
+ * {@code (TableFormat, Map)} constructor or the lookup of enum values. The
+ * benchmarks in other packages use them to time the generated code.
+ */
+public class GeneratedBindings implements Closeable {
+
+  static final String PACKAGE = "edu.harvard.data.generated.test";
+
+  private final URLClassLoader classLoader;
+
+  /**
+   * Generate, compile and load the bindings for every table in a schema.
+   *
+   * @param schemaResource
+   *          the classpath resource holding the schema, in the extension
+   *          schema format.
+   * @param dir
+   *          a scratch directory for the generated sources and classes.
+   */
+  public GeneratedBindings(final String schemaResource, final File dir)
+      throws IOException, VerificationException {
+    final DataSchema schema = ExtensionSchema.readExtensionSchema(schemaResource);
+    final SchemaPhase phase = new SchemaPhase();
+    phase.setSchema(schema);
+    phase.setPrefix("Phase0");
+    phase.setJavaBindingPackage(PACKAGE);
+    final File srcDir = new File(dir, "src/" + PACKAGE.replace('.', '/'));
+    final File classDir = new File(dir, "classes");
+    srcDir.mkdirs();
+    classDir.mkdirs();
+    final List<File> sources = new ArrayList<File>();
+    for (final DataSchemaTable table : schema.getTables().values()) {
+      final File source = new File(srcDir,
+          JavaBindingGenerator.javaClass(table.getTableName(), "Phase0") + ".java");
+      try (PrintStream out = new PrintStream(new FileOutputStream(source), false, "UTF-8")) {
+        new JavaModelClassGenerator("1", phase, null, table).generate(out);
+      }
+      sources.add(source);
+    }
+    compile(sources, classDir);
+    this.classLoader = new URLClassLoader(new URL[] { classDir.toURI().toURL() },
+        getClass().getClassLoader());
+  }
+
+  // Compile at the same source level as the generated code is built with, on
+  // the classpath that the tests are running with.
+  private static void compile(final List<File> sources, final File classDir) throws IOException {
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      throw new IOException("No Java compiler available; tests must run on a JDK");
+    }
+    final StringWriter errors = new StringWriter();
+    try (StandardJavaFileManager files = compiler.getStandardFileManager(null, null, null)) {
+      final Iterable<? extends JavaFileObject> units = files.getJavaFileObjectsFromFiles(sources);
+      final List<String> options = Arrays.asList("-source", "1.7", "-target", "1.7", "-nowarn",
+          "-encoding", "UTF-8", "-classpath", System.getProperty("java.class.path"), "-d",
+          classDir.getPath());
+      if (!compiler.getTask(errors, files, null, options, null, units).call()) {
+        throw new IOException("Generated bindings failed to compile:\n" + errors);
+      }
+    }
+  }
+
+  /**
+   * Load the binding class generated for a table.
+   *
+   * @param tableName
+   *          the table's name in the schema.
+   *
+   * @return the compiled binding class.
+   */
+  @SuppressWarnings("unchecked")
+  public Class<? extends DataTable> getBinding(final String tableName)
+      throws ClassNotFoundException {
+    return (Class<? extends DataTable>) classLoader
+        .loadClass(PACKAGE + "." + JavaBindingGenerator.javaClass(tableName, "Phase0"));
+  }
+
+  @Override
+  public void close() throws IOException {
+    classLoader.close();
+  }
+}
@@ -0,0 +1,151 @@
+package edu.harvard.data.generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.harvard.data.DataTable;
+import edu.harvard.data.FormatLibrary;
+import edu.harvard.data.FormatLibrary.Format;
+import edu.harvard.data.TableFormat;
+import edu.harvard.data.VerificationException;
+import edu.harvard.data.io.JsonRecordDecoder;
+
+// Check that the JSON_DECODER generated for each binding produces the same
+// records as the binding's (TableFormat, Map) constructor. The bindings are
+// generated from the Matterhorn schema, and the sample events have the same
+// shape as the Matterhorn input: nested objects, missing, null and empty
+// values, non-ASCII text, and fields that no binding uses.
+public class JsonDecoderGeneratorTests {
+
+  private static final String SCHEMA = "json_decoder/matterhorn_schema.json";
+  private static final String EVENTS = "json_decoder/matterhorn_events.json";
+  private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {
+  };
+
+  @ClassRule
+  public static TemporaryFolder folder = new TemporaryFolder();
+
+  private static GeneratedBindings bindings;
+  private static List<String> events;
+  private final TableFormat format = new FormatLibrary().getFormat(Format.Matterhorn);
+  private final ObjectMapper mapper = format.getJsonMapper();
+
+  @BeforeClass
+  public static void setup() throws IOException, VerificationException {
+    bindings = new GeneratedBindings(SCHEMA, folder.getRoot());
+    events = new ArrayList<String>();
+    try (InputStream in = JsonDecoderGeneratorTests.class.getClassLoader()
+        .getResourceAsStream(EVENTS);
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        events.add(line);
+      }
+    }
+  }
+
+  @AfterClass
+  public static void tearDown() throws IOException {
+    bindings.close();
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T extends DataTable> JsonRecordDecoder<T> decoder(final Class<T> cls)
+      throws ReflectiveOperationException {
+    return (JsonRecordDecoder<T>) cls.getField("JSON_DECODER").get(null);
+  }
+
+  private DataTable construct(final Class<? extends DataTable> cls,
+      final Map<String, Object> values) throws ReflectiveOperationException {
+    final Constructor<? extends DataTable> constructor = cls.getConstructor(TableFormat.class,
+        Map.class);
+    try {
+      return constructor.newInstance(format, values);
+    } catch (final InvocationTargetException e) {
+      throw new AssertionError("Map constructor failed: " + e.getCause());
+    }
+  }
+
+  // Decode the value of a top-level field, or the whole document if the field
+  // is null. Returns null if the field is missing or not an object.
+  private DataTable decode(final Class<? extends DataTable> cls, final String json,
+      final String field) throws IOException, ReflectiveOperationException, ParseException {
+    final JsonRecordDecoder<? extends DataTable> decoder = decoder(cls);
+    try (JsonParser parser = mapper.getFactory().createParser(json)) {
+      parser.nextToken();
+      if (field == null) {
+        final DataTable record = decoder.decode(format, parser);
+        assertEquals(JsonToken.END_OBJECT, parser.getCurrentToken());
+        assertNull(parser.nextToken());
+        return record;
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String name = parser.getCurrentName();
+        if (parser.nextToken() == JsonToken.START_OBJECT && name.equals(field)) {
+          final DataTable record = decoder.decode(format, parser);
+          assertEquals(JsonToken.END_OBJECT, parser.getCurrentToken());
+          return record;
+        }
+        parser.skipChildren();
+      }
+      return null;
+    }
+  }
+
+  // Compare the decoder with the map constructor for every sample event that
+  // has a non-empty value for the field, returning the number compared.
+  @SuppressWarnings("unchecked")
+  private int compare(final String tableName, final String field) throws Exception {
+    final Class<? extends DataTable> cls = bindings.getBinding(tableName);
+    int compared = 0;
+    for (final String json : events) {
+      Map<String, Object> values = mapper.readValue(json, MAP_TYPE);
+      if (field != null) {
+        values = (Map<String, Object>) values.get(field);
+        if (values == null || values.isEmpty()) {
+          continue;
+        }
+      }
+      final DataTable expected = construct(cls, values);
+      final DataTable actual = decode(cls, json, field);
+      assertEquals(json, expected.getFieldsAsList(format), actual.getFieldsAsList(format));
+      compared++;
+    }
+    return compared;
+  }
+
+  @Test
+  public void topLevelRecord() throws Exception {
+    assertEquals(events.size(), compare("event", null));
+  }
+
+  @Test
+  public void nestedRecords() throws Exception {
+    assertEquals(32, compare("video", "episode"));
+    assertEquals(33, compare("geo_ip", "geoip"));
+  }
+}
@@ -35,6 +35,8 @@ public class SchemaTransformerFailureTest {
     final List<Object[]> data = new ArrayList<Object[]>();
     data.add(new Object[] { "empty_table", "like_fake_table" });
     data.add(new Object[] { "one_column_table", "one_column_table" });
+    data.add(new Object[] { "one_column_table", "low_cardinality_unknown_column" });
+    data.add(new Object[] { "one_column_table", "low_cardinality_existing_integer_column" });
     return data;
   }
 
@@ -0,0 +1,60 @@
+package edu.harvard.data.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.junit.Test;
+
+public class HadoopIdentityKeyTests {
+
+  private static IdentityMap identity(final String xid, final Long canvasDataId,
+      final String name) {
+    final IdentityMap id = new IdentityMap();
+    id.set(IdentifierType.XID, xid);
+    id.set(IdentifierType.CanvasDataID, canvasDataId);
+    id.set(IdentifierType.Name, name);
+    return id;
+  }
+
+  private static byte[] serialize(final IdentityMap id) throws IOException {
+    final DataOutputBuffer out = new DataOutputBuffer();
+    new HadoopIdentityKey(id).write(out);
+    final byte[] bytes = new byte[out.getLength()];
+    System.arraycopy(out.getData(), 0, bytes, 0, bytes.length);
+    return bytes;
+  }
+
+  @Test
+  public void roundTrip() throws IOException {
+    final IdentityMap id = identity("xid12345", -42L, "Ñamé 😀");
+    id.set(IdentifierType.ResearchUUID, "research_id");
+    id.set(IdentifierType.HUID, "12345678");
+    id.set(IdentifierType.CanvasID, Long.MAX_VALUE);
+    final byte[] bytes = serialize(id);
+    final DataInputBuffer in = new DataInputBuffer();
+    in.reset(bytes, bytes.length);
+    final HadoopIdentityKey key = new HadoopIdentityKey();
+    key.readFields(in);
+    assertEquals(id, key.getIdentityMap());
+  }
+
+  // Reading into an existing key reuses its map and drops stale identifiers.
+  @Test
+  public void readFieldsReusesMap() throws IOException {
+    final DataOutputBuffer out = new DataOutputBuffer();
+    new HadoopIdentityKey(identity("xid1", 1L, "name")).write(out);
+    new HadoopIdentityKey(identity(null, 2L, null)).write(out);
+    final DataInputBuffer in = new DataInputBuffer();
+    in.reset(out.getData(), out.getLength());
+    final HadoopIdentityKey key = new HadoopIdentityKey();
+    key.readFields(in);
+    final IdentityMap first = key.getIdentityMap();
+    key.readFields(in);
+    assertSame(first, key.getIdentityMap());
+    assertEquals(identity(null, 2L, null), key.getIdentityMap());
+  }
+}
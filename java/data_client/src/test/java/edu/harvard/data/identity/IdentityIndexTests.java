@@ -0,0 +1,203 @@
+package edu.harvard.data.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.harvard.data.FormatLibrary;
+import edu.harvard.data.FormatLibrary.Format;
+import edu.harvard.data.TableFormat;
+import edu.harvard.data.io.TableWriter;
+
+public class IdentityIndexTests {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final TableFormat format = new FormatLibrary().getFormat(Format.DecompressedInternal);
+
+  private static IdentityMap identity(final int i) {
+    final IdentityMap id = new IdentityMap();
+    id.set(IdentifierType.ResearchUUID, "research_id" + i);
+    id.set(IdentifierType.XID, "xid" + i);
+    id.set(IdentifierType.CanvasDataID, 1000L * i);
+    if (i % 3 == 0) {
+      id.set(IdentifierType.HUID, "huid" + i);
+      id.set(IdentifierType.CanvasID, -7L * i);
+      id.set(IdentifierType.Name, "Nämé " + i);
+    }
+    return id;
+  }
+
+  private static List<IdentityMap> identities(final int count) {
+    final List<IdentityMap> ids = new ArrayList<IdentityMap>();
+    for (int i = 0; i < count; i++) {
+      ids.add(identity(i));
+    }
+    return ids;
+  }
+
+  // The delimited identity map files don't carry the name columns.
+  private File writeTable(final List<IdentityMap> ids) throws IOException {
+    final File file = folder.newFile("identitymap");
+    try (TableWriter<IdentityMap> out = new TableWriter<IdentityMap>(IdentityMap.class, format,
+        file)) {
+      for (final IdentityMap id : ids) {
+        id.set(IdentifierType.Name, null);
+        out.add(id);
+      }
+    }
+    return file;
+  }
+
+  private File write(final List<IdentityMap> ids, final IdentifierType mainIdentifier)
+      throws IOException {
+    final File file = folder.newFile("identity" + IdentityIndex.EXTENSION);
+    try (OutputStream out = new FileOutputStream(file)) {
+      IdentityIndex.write(ids, mainIdentifier, out);
+    }
+    return file;
+  }
+
+  @Test
+  public void lookupLongKeys() throws IOException {
+    final List<IdentityMap> ids = identities(500);
+    try (IdentityIndex<Long> index = IdentityIndex.open(write(ids,
+        IdentifierType.CanvasDataID))) {
+      assertEquals(IdentifierType.CanvasDataID, index.getMainIdentifier());
+      assertEquals(500, index.size());
+      for (final IdentityMap id : ids) {
+        assertEquals(id, index.get(id.get(IdentifierType.CanvasDataID)));
+      }
+      assertNull(index.get(1L));
+      assertNull(index.get("xid1"));
+      assertNull(index.get(null));
+      assertFalse(index.containsKey(-1000L));
+      assertTrue(index.containsKey(1000L));
+    }
+  }
+
+  @Test
+  public void lookupStringKeys() throws IOException {
+    final List<IdentityMap> ids = identities(500);
+    try (IdentityIndex<String> index = IdentityIndex.open(write(ids, IdentifierType.XID))) {
+      for (final IdentityMap id : ids) {
+        assertEquals(id, index.get(id.get(IdentifierType.XID)));
+      }
+      assertEquals("Nämé 3", index.get("xid3").get(IdentifierType.Name));
+      assertNull(index.get("xid500"));
+      assertNull(index.get(1000L));
+    }
+  }
+
+  // Identities without a main identifier can't be looked up, and are left out.
+  // When an identifier appears twice, the last identity wins.
+  @Test
+  public void missingAndDuplicateKeys() throws IOException {
+    final List<IdentityMap> ids = identities(10);
+    ids.get(4).set(IdentifierType.XID, null);
+    final IdentityMap replacement = identity(7);
+    replacement.set(IdentifierType.EPPN, "eppn7");
+    ids.add(replacement);
+    try (IdentityIndex<String> index = IdentityIndex.open(write(ids, IdentifierType.XID))) {
+      assertEquals(10, index.size());
+      assertNull(index.get("xid4"));
+      assertEquals("eppn7", index.get("xid7").get(IdentifierType.EPPN));
+    }
+  }
+
+  @Test
+  public void entrySet() throws IOException {
+    final List<IdentityMap> ids = identities(50);
+    final Map<Long, IdentityMap> expected = new HashMap<Long, IdentityMap>();
+    for (final IdentityMap id : ids) {
+      expected.put((Long) id.get(IdentifierType.CanvasDataID), id);
+    }
+    try (IdentityIndex<Long> index = IdentityIndex.open(write(ids,
+        IdentifierType.CanvasDataID))) {
+      assertEquals(expected, new HashMap<Long, IdentityMap>(index));
+    }
+  }
+
+  // Map the file in small segments to check lookups across segment boundaries.
+  @Test
+  public void segmentedMapping() throws IOException {
+    final List<IdentityMap> ids = identities(2000);
+    final File file = write(ids, IdentifierType.XID);
+    assertTrue(file.length() > 4096 * 8);
+    try (IdentityIndex<String> index = new IdentityIndex<String>(file, 4096)) {
+      for (final IdentityMap id : ids) {
+        assertEquals(id, index.get(id.get(IdentifierType.XID)));
+      }
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void notAnIndex() throws IOException {
+    final File file = folder.newFile("other" + IdentityIndex.EXTENSION);
+    Files.write(file.toPath(), "research_id\thuid\txid\t1\t2\t\\N\t\\N\n".getBytes("UTF-8"));
+    IdentityIndex.open(file);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unsupportedKey() throws IOException {
+    write(identities(1), IdentifierType.Other);
+  }
+
+  // An index built from delimited files is found among the cache files.
+  @Test
+  public void buildAndLoad() throws IOException {
+    final List<IdentityMap> ids = identities(100);
+    final File input = writeTable(ids);
+    final Configuration conf = new Configuration();
+    final List<Path> inputs = new ArrayList<Path>();
+    inputs.add(new Path(input.toURI()));
+    final Path output = new Path(new File(folder.getRoot(), "phase_1.idx").toURI());
+    IdentityIndex.build(conf, inputs, format, IdentifierType.XID, output);
+
+    final Map<String, IdentityMap> loaded = IdentityIndex.load(conf,
+        new URI[] { input.toURI(), output.toUri() }, format, IdentifierType.XID);
+    assertTrue(loaded instanceof IdentityIndex);
+    for (final IdentityMap id : ids) {
+      assertEquals(id, loaded.get(id.get(IdentifierType.XID)));
+    }
+  }
+
+  // Without an index, the delimited cache files are read into memory.
+  @Test
+  public void loadWithoutIndex() throws IOException {
+    final List<IdentityMap> ids = identities(4);
+    final File input = writeTable(ids);
+    final Map<Long, IdentityMap> loaded = IdentityIndex.load(new Configuration(),
+        new URI[] { input.toURI() }, format, IdentifierType.CanvasDataID);
+    assertFalse(loaded instanceof IdentityIndex);
+    assertEquals(ids.get(3), loaded.get(3000L));
+    assertTrue(IdentityIndex.load(new Configuration(), null, format, IdentifierType.XID)
+        .isEmpty());
+  }
+
+  @Test(expected = IOException.class)
+  public void loadWrongKey() throws IOException {
+    final File file = write(identities(5), IdentifierType.XID);
+    IdentityIndex.load(new Configuration(), new URI[] { file.toURI() }, format,
+        IdentifierType.HUID);
+  }
+}
@@ -2,8 +2,11 @@ package edu.harvard.data.identity;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -24,23 +27,37 @@ import org.apache.hadoop.mapreduce.Mapper;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import edu.harvard.data.FormatLibrary;
 import edu.harvard.data.FormatLibrary.Format;
 import edu.harvard.data.HadoopConfigurationException;
+import edu.harvard.data.TableFormat;
+import edu.harvard.data.io.DelimitedTokenizer;
 
 public class IdentityMapperTests {
 
   private Configuration config;
   private Mapper<Object, Text, LongWritable, HadoopIdentityKey>.Context context;
+  private List<Long> writtenKeys;
 
   @Before
   @SuppressWarnings("unchecked")
-  public void beforeTest() throws IOException {
+  public void beforeTest() throws IOException, InterruptedException {
     config = mock(Configuration.class);
     when(config.get("format")).thenReturn(Format.DecompressedInternal.toString());
     context = mock(Mapper.Context.class);
     when(context.getConfiguration()).thenReturn(config);
+    // The mapper reuses its output key, so record each value as it is written.
+    writtenKeys = new ArrayList<Long>();
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(final InvocationOnMock invocation) {
+        writtenKeys.add(((LongWritable) invocation.getArguments()[0]).get());
+        return null;
+      }
+    }).when(context).write(any(LongWritable.class), any(HadoopIdentityKey.class));
   }
 
   private List<IdentityMap> getWrittenMaps() throws IOException, InterruptedException {
@@ -56,15 +73,8 @@ public class IdentityMapperTests {
   }
 
   private List<Long> getWrittenKeys(final int times) throws IOException, InterruptedException {
-    final ArgumentCaptor<LongWritable> key = ArgumentCaptor.forClass(LongWritable.class);
-    final ArgumentCaptor<HadoopIdentityKey> value = ArgumentCaptor
-        .forClass(HadoopIdentityKey.class);
-    verify(context, times(times)).write(key.capture(), value.capture());
-    final List<Long> keys = new ArrayList<Long>();
-    for (final LongWritable longWritable : key.getAllValues()) {
-      keys.add(longWritable.get());
-    }
-    return keys;
+    verify(context, times(times)).write((LongWritable) any(), (HadoopIdentityKey) any());
+    return writtenKeys;
   }
 
   @Test(expected = HadoopConfigurationException.class)
@@ -89,6 +99,36 @@ public class IdentityMapperTests {
     assertNotNull(mapper.passedRecord);
   }
 
+  @Test
+  // Once set up with a format that the tokenizer supports, records are read
+  // from the tokenizer rather than parsed into CSVRecords.
+  public void tokenizedRecord() throws IOException, InterruptedException {
+    final TestIdentityMapper mapper = new TestIdentityMapper();
+    mapper.setup(context);
+    mapper.map(null, new Text("a\tb"), context);
+    assertNull(mapper.passedRecord);
+    assertEquals("b", mapper.passedFields.get(1));
+  }
+
+  @Test
+  // Map two records with one key each. Check that the output key and identity
+  // objects are reused rather than allocated per record.
+  public void outputReused() throws IOException, InterruptedException {
+    final TestIdentityMapper mapper = new TestIdentityMapper();
+    mapper.setup(context);
+    mapper.addKey("Key1", 123L);
+    mapper.map(null, new Text("value"), context);
+    mapper.addKey("Key1", 456L);
+    mapper.map(null, new Text("value"), context);
+    final ArgumentCaptor<LongWritable> key = ArgumentCaptor.forClass(LongWritable.class);
+    final ArgumentCaptor<HadoopIdentityKey> value = ArgumentCaptor
+        .forClass(HadoopIdentityKey.class);
+    verify(context, times(2)).write(key.capture(), value.capture());
+    assertSame(key.getAllValues().get(0), key.getAllValues().get(1));
+    assertSame(value.getAllValues().get(0), value.getAllValues().get(1));
+    assertSame(mapper.passedIds.get(0), mapper.passedIds.get(1));
+  }
+
   @Test
   // Reduce with one key. Check that populate was called with the right value.
   public void oneKeyPopulate() throws IOException, InterruptedException {
@@ -166,6 +206,7 @@ class TestIdentityMapper extends LongIdentityMapper {
   Map<String, Long> keys;
   boolean populated;
   CSVRecord passedRecord;
+  List<String> passedFields;
   List<IdentityMap> passedIds;
   List<IdentityMap> idValues;
 
@@ -195,10 +236,18 @@ class TestIdentityMapper extends LongIdentityMapper {
   }
 
   @Override
-  public void readRecord(final CSVRecord csvRecord) {
+  public void readRecord(final TableFormat format, final CSVRecord csvRecord) {
     passedRecord = csvRecord;
   }
 
+  @Override
+  public void readRecord(final TableFormat format, final DelimitedTokenizer fields) {
+    passedFields = new ArrayList<String>();
+    for (int i = 0; i < fields.size(); i++) {
+      passedFields.add(fields.get(i));
+    }
+  }
+
   @Override
   public Map<String, Long> getMainIdentifiers() {
     return keys;
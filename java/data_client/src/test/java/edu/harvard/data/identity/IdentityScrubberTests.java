@@ -27,6 +27,7 @@ import edu.harvard.data.DataTable;
 import edu.harvard.data.FormatLibrary.Format;
 import edu.harvard.data.HadoopCacheFileMocker;
 import edu.harvard.data.HadoopConfigurationException;
+import edu.harvard.data.io.DelimitedTokenizer;
 
 @RunWith(PowerMockRunner.class)
 @PowerMockIgnore("javax.management.*")
@@ -136,4 +137,9 @@ class TestIdentityScrubber extends IdentityScrubber<String> {
     return null;
   }
 
+  @Override
+  protected DataTable populateRecord(final DelimitedTokenizer fields) {
+    return null;
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,209 @@
+package edu.harvard.data.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.harvard.data.FormatLibrary;
+import edu.harvard.data.FormatLibrary.Format;
+import edu.harvard.data.TableFormat;
+
+public class AsyncTableWriterTests {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private TableFormat format;
+  private ByteArrayOutputStream out;
+
+  @Before
+  public void setup() {
+    format = new FormatLibrary().getFormat(Format.DecompressedInternal);
+    out = new ByteArrayOutputStream();
+  }
+
+  private String expectedOutput(final List<DataTableStub> records) {
+    final StringBuilder expected = new StringBuilder();
+    for (final DataTableStub record : records) {
+      expected.append(record.recordString() + "\n");
+    }
+    return expected.toString();
+  }
+
+  // Check that many buffers' worth of records are written in order.
+  @Test
+  public void testRecordsWrittenInOrder() throws IOException {
+    final List<DataTableStub> records = DataTableStub.generateRecords(5000, format);
+    try (final AsyncTableWriter<DataTableStub> writer = new AsyncTableWriter<DataTableStub>(
+        DataTableStub.class, format, out, 3)) {
+      writer.resizeBuffer(7);
+      for (final DataTableStub record : records) {
+        writer.add(record);
+      }
+    }
+    assertEquals(expectedOutput(records), out.toString());
+  }
+
+  // Check that the output matches that of the synchronous writer.
+  @Test
+  public void testMatchesTableWriter() throws IOException {
+    final List<DataTableStub> records = DataTableStub.generateRecords(1500, format);
+    final ByteArrayOutputStream syncOut = new ByteArrayOutputStream();
+    try (
+        final TableWriter<DataTableStub> sync = new TableWriter<DataTableStub>(DataTableStub.class,
+            format, syncOut);
+        final TableWriter<DataTableStub> async = new AsyncTableWriter<DataTableStub>(
+            DataTableStub.class, format, out)) {
+      for (final DataTableStub record : records) {
+        sync.add(record);
+        async.add(record);
+      }
+    }
+    assertEquals(syncOut.toString(), out.toString());
+  }
+
+  // Check that records written on the writer thread are counted, and that the
+  // checksums match those of the synchronous writer.
+  @Test
+  public void testChecksumMatchesTableWriter() throws IOException {
+    final List<DataTableStub> records = DataTableStub.generateRecords(1500, format);
+    final TableWriter<DataTableStub> sync = new TableWriter<DataTableStub>(DataTableStub.class,
+        format, new ByteArrayOutputStream());
+    final TableWriter<DataTableStub> async = new AsyncTableWriter<DataTableStub>(
+        DataTableStub.class, format, out);
+    for (final DataTableStub record : records) {
+      sync.add(record);
+      async.add(record);
+    }
+    sync.close();
+    async.close();
+    assertEquals(1500, async.getChecksum().getRows());
+    assertEquals(out.size(), async.getChecksum().getLength());
+    assertEquals(sync.getChecksum(), async.getChecksum());
+  }
+
+  // Check that required headers are written even if there are no records.
+  @Test
+  public void testHeadersWrittenWithoutRecords() throws IOException {
+    final TableFormat mockFormat = mock(TableFormat.class);
+    when(mockFormat.includeHeaders()).thenReturn(true);
+    when(mockFormat.getCsvFormat()).thenReturn(format.getCsvFormat());
+    when(mockFormat.getDelimitedEncoder()).thenReturn(format.getDelimitedEncoder());
+    when(mockFormat.getEncoding()).thenReturn(format.getEncoding());
+    final AsyncTableWriter<DataTableStub> writer = new AsyncTableWriter<DataTableStub>(
+        DataTableStub.class, mockFormat, out);
+    writer.close();
+    assertEquals(DataTableStub.headerString() + "\n", out.toString());
+  }
+
+  // Check that an error on the writer thread is reported to the caller, and
+  // that the caller does not block waiting for a buffer that will never be
+  // freed.
+  @Test
+  public void testWriteFailureReported() throws IOException {
+    final boolean[] closed = new boolean[1];
+    final OutputStream failing = new OutputStream() {
+      @Override
+      public void write(final int b) throws IOException {
+        throw new IOException("Disk full");
+      }
+
+      @Override
+      public void close() {
+        closed[0] = true;
+      }
+    };
+    final AsyncTableWriter<DataTableStub> writer = new AsyncTableWriter<DataTableStub>(
+        DataTableStub.class, format, failing);
+    writer.resizeBuffer(1);
+    try {
+      for (final DataTableStub record : DataTableStub.generateRecords(10000, format)) {
+        writer.add(record);
+      }
+      writer.close();
+      fail("Expected IOException");
+    } catch (final IOException e) {
+      assertEquals("Disk full", e.getMessage());
+    }
+    // Closing reports the error again, and closes the stream.
+    try {
+      writer.close();
+      fail("Expected IOException");
+    } catch (final IOException e) {
+      assertEquals("Disk full", e.getMessage());
+    }
+    assertTrue(closed[0]);
+  }
+
+  // Check that a failed writer still closes the codec stream, so that a
+  // ParallelGzipOutputStream returns its pending blocks for use by other
+  // streams. The bad record is in the same batch as several blocks' worth of
+  // records, so the codec has blocks pending when the writer thread fails.
+  @Test
+  public void testFailureReleasesGzipBlocks() throws IOException {
+    format = new FormatLibrary().getFormat(Format.CompressedInternal);
+    final File file = new File(folder.getRoot(), "table.gz");
+    final List<DataTableStub> records = DataTableStub.generateRecords(100000, format);
+    records.add(new DataTableStub(format) {
+      @Override
+      public void writeDelimited(final TableFormat format, final Appendable out)
+          throws IOException {
+        throw new IOException("Bad record");
+      }
+    });
+    final int permits = ParallelGzipOutputStream.pendingBlocks.availablePermits();
+    final AsyncTableWriter<DataTableStub> writer = new AsyncTableWriter<DataTableStub>(
+        DataTableStub.class, format, file);
+    writer.resizeBuffer(records.size());
+    try {
+      for (final DataTableStub record : records) {
+        writer.add(record);
+      }
+      writer.close();
+      fail("Expected IOException");
+    } catch (final IOException e) {
+      assertEquals("Bad record", e.getMessage());
+    }
+    writer.close();
+    assertEquals(permits, ParallelGzipOutputStream.pendingBlocks.availablePermits());
+  }
+
+  // Check that the writer rejects records once it has been closed.
+  @Test(expected = IOException.class)
+  public void testAddAfterClose() throws IOException {
+    final AsyncTableWriter<DataTableStub> writer = new AsyncTableWriter<DataTableStub>(
+        DataTableStub.class, format, out);
+    writer.close();
+    writer.add(new DataTableStub(format));
+  }
+
+  // Check that the stall time is reported.
+  @Test
+  public void testStallTime() throws IOException {
+    final AsyncTableWriter<DataTableStub> writer = new AsyncTableWriter<DataTableStub>(
+        DataTableStub.class, format, out);
+    writer.add(new DataTableStub(format));
+    writer.close();
+    assertTrue(writer.getStallTimeMillis() >= 0);
+  }
+
+  // Check that an invalid buffer count is rejected.
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBufferCount() {
+    new AsyncTableWriter<DataTableStub>(DataTableStub.class, format, out, 1);
+  }
+
+}
@@ -0,0 +1,270 @@
+package edu.harvard.data.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.input.LineRecordReader;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.harvard.data.FormatLibrary;
+import edu.harvard.data.FormatLibrary.Format;
+import edu.harvard.data.TableFormat;
+import edu.harvard.data.TableFormat.Compression;
+
+public class BlockGzipTests {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  // Builds lines of varying lengths, including some that span several blocks.
+  private List<String> lines(final int count, final long seed) {
+    final Random random = new Random(seed);
+    final List<String> lines = new ArrayList<String>();
+    for (int i = 0; i < count; i++) {
+      final int length = i % 97 == 0 ? 70000 + random.nextInt(70000) : random.nextInt(300);
+      final StringBuilder line = new StringBuilder(i + "\t");
+      for (int j = 0; j < length; j++) {
+        // Mostly random characters, so that the blocks don't compress too well.
+        line.append((char) ('a' + random.nextInt(26)));
+      }
+      lines.add(line.toString());
+    }
+    return lines;
+  }
+
+  private byte[] join(final List<String> lines) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (final String line : lines) {
+      out.write(line.getBytes("UTF-8"));
+      out.write('\n');
+    }
+    return out.toByteArray();
+  }
+
+  private byte[] compress(final byte[] data, final Compression compression) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (OutputStream out = compression.compress(bytes)) {
+      out.write(data);
+    }
+    return bytes.toByteArray();
+  }
+
+  // Returns data in small pieces and always reports that nothing is available,
+  // as a network stream might.
+  private static class TrickleInputStream extends FilterInputStream {
+    TrickleInputStream(final InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      return super.read(b, off, Math.min(len, 7));
+    }
+
+    @Override
+    public int available() {
+      return 0;
+    }
+  }
+
+  // Check that block gzip data can be read both by BlockGzipInputStream and by
+  // the JDK's gzip reader.
+  @Test
+  public void testRoundTrip() throws IOException {
+    final byte[] data = join(lines(1000, 1));
+    final byte[] compressed = compress(data, Compression.BlockGzip);
+    assertTrue(BlockGzipInputStream.isBlockHeader(compressed, 0));
+    assertArrayEquals(data, IOUtils.toByteArray(
+        new BlockGzipInputStream(new TrickleInputStream(new ByteArrayInputStream(compressed)))));
+    assertArrayEquals(data,
+        IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+  }
+
+  // Check small writes, block-sized data and an empty stream.
+  @Test
+  public void testBlockSizes() throws IOException {
+    for (final int size : new int[] { 0, 1, BlockGzipOutputStream.MAX_BLOCK_DATA - 1,
+        BlockGzipOutputStream.MAX_BLOCK_DATA, BlockGzipOutputStream.MAX_BLOCK_DATA + 1,
+        3 * BlockGzipOutputStream.MAX_BLOCK_DATA }) {
+      final byte[] data = new byte[size];
+      new Random(size).nextBytes(data);
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (OutputStream out = new BlockGzipOutputStream(bytes)) {
+        for (int i = 0; i < size; i += 3) {
+          out.write(data[i]);
+          out.write(data, i + 1, Math.min(2, size - i - 1));
+        }
+      }
+      final byte[] compressed = bytes.toByteArray();
+      assertArrayEquals(data,
+          IOUtils.toByteArray(new BlockGzipInputStream(new ByteArrayInputStream(compressed))));
+      assertArrayEquals(data,
+          IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+    }
+  }
+
+  // Check that ordinary and multi-member gzip files are read completely, even
+  // when the input never reports any available data.
+  @Test
+  public void testMultiMemberGzip() throws IOException {
+    final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    for (int i = 0; i < 5; i++) {
+      final byte[] data = join(lines(50, i));
+      expected.write(data);
+      compressed.write(compress(data, i % 2 == 0 ? Compression.Gzip : Compression.FastGzip));
+    }
+    assertArrayEquals(expected.toByteArray(), IOUtils.toByteArray(new BlockGzipInputStream(
+        new TrickleInputStream(new ByteArrayInputStream(compressed.toByteArray())))));
+  }
+
+  // Check that errors are reported as they are by GZIPInputStream.
+  @Test
+  public void testCorruptInput() throws IOException {
+    final byte[] compressed = compress(join(lines(10, 2)), Compression.BlockGzip);
+    compressed[compressed.length - BlockGzipOutputStream.EOF_BLOCK.length - 5] ^= 1;
+    try {
+      IOUtils.toByteArray(new BlockGzipInputStream(new ByteArrayInputStream(compressed)));
+      fail();
+    } catch (final ZipException e) {
+      // Expected
+    }
+    try {
+      IOUtils.toByteArray(new BlockGzipInputStream(new ByteArrayInputStream("text".getBytes())));
+      fail();
+    } catch (final ZipException e) {
+      // Expected
+    }
+    try {
+      IOUtils.toByteArray(new BlockGzipInputStream(new ByteArrayInputStream(new byte[0])));
+      fail();
+    } catch (final EOFException e) {
+      // Expected
+    }
+  }
+
+  // Check that the new formats write files that can be read back.
+  @Test
+  public void testFormats() throws IOException {
+    final byte[] data = join(lines(200, 3));
+    for (final Format formatName : new Format[] { Format.FastCompressedInternal,
+        Format.BlockCompressedInternal }) {
+      final TableFormat format = new FormatLibrary().getFormat(formatName);
+      assertEquals(formatName, Format.fromLabel(formatName.getLabel()));
+      assertEquals(".gz", format.getExtension());
+      final File file = folder.newFile(formatName + format.getExtension());
+      try (OutputStream out = format.getOutputStream(file)) {
+        out.write(data);
+      }
+      try (InputStream in = format.getInputStream(file)) {
+        assertArrayEquals(data, IOUtils.toByteArray(in));
+      }
+    }
+  }
+
+  // Check that every line of a file is read exactly once, in order, when the
+  // file is divided into splits of various sizes.
+  @Test
+  public void testSplits() throws IOException, InterruptedException {
+    // The first two lines end exactly at the end of the first block and one
+    // byte into the third block.
+    final List<String> lines = new ArrayList<String>();
+    lines.add(repeat('x', BlockGzipOutputStream.MAX_BLOCK_DATA - 1));
+    lines.add(repeat('y', BlockGzipOutputStream.MAX_BLOCK_DATA));
+    lines.addAll(lines(500, 4));
+    final byte[] data = join(lines);
+    for (final Compression compression : new Compression[] { Compression.BlockGzip,
+        Compression.Gzip }) {
+      final File file = folder.newFile(compression + ".gz");
+      try (OutputStream out = new FileOutputStream(file)) {
+        out.write(compress(data, compression));
+      }
+      for (final long splitSize : new long[] { 1000, 65536, 100000, 1 << 30 }) {
+        // Compare without printing the (very long) lines on failure.
+        final List<String> read = readSplits(file, splitSize);
+        assertEquals(compression + " " + splitSize, lines.size(), read.size());
+        assertTrue(compression + " " + splitSize, lines.equals(read));
+      }
+    }
+  }
+
+  private String repeat(final char c, final int count) {
+    final char[] chars = new char[count];
+    Arrays.fill(chars, c);
+    return new String(chars);
+  }
+
+  private List<String> readSplits(final File file, final long splitSize)
+      throws IOException, InterruptedException {
+    final Configuration conf = new Configuration();
+    BlockGzipCodec.register(conf);
+    final Path path = new Path(file.toURI());
+    assertEquals(BlockGzipCodec.class,
+        new CompressionCodecFactory(conf).getCodec(path).getClass());
+    final List<String> read = new ArrayList<String>();
+    for (long start = 0; start < file.length(); start += splitSize) {
+      final FileSplit split = new FileSplit(path, start,
+          Math.min(splitSize, file.length() - start), null);
+      try (LineRecordReader reader = new LineRecordReader()) {
+        reader.initialize(split, new TaskAttemptContextImpl(conf, new TaskAttemptID()));
+        while (reader.nextKeyValue()) {
+          final Text value = reader.getCurrentValue();
+          read.add(value.toString());
+        }
+      }
+    }
+    return read;
+  }
+
+  // Check that registering the codec keeps the existing codecs.
+  @Test
+  public void testRegister() {
+    final Configuration conf = new Configuration();
+    conf.set("io.compression.codecs", "org.apache.hadoop.io.compress.GzipCodec");
+    BlockGzipCodec.register(conf);
+    BlockGzipCodec.register(conf);
+    assertEquals("org.apache.hadoop.io.compress.GzipCodec," + BlockGzipCodec.class.getName(),
+        conf.get("io.compression.codecs"));
+  }
+
+  // Check that the JDK stream can't be used in place of BlockGzipInputStream
+  // for network streams, which is why the formats don't use it.
+  @Test
+  public void testGzipInputStreamStopsEarly() throws IOException {
+    final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    final byte[] data = join(lines(20, 5));
+    compressed.write(compress(data, Compression.Gzip));
+    compressed.write(compress(data, Compression.Gzip));
+    final byte[] read = IOUtils.toByteArray(new GZIPInputStream(
+        new TrickleInputStream(new ByteArrayInputStream(compressed.toByteArray()))));
+    assertEquals(data.length, read.length);
+  }
+}
@@ -6,16 +6,10 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 import org.junit.Test;
 
-import edu.harvard.data.DataTable;
-import edu.harvard.data.FormatLibrary;
-import edu.harvard.data.FormatLibrary.Format;
-import edu.harvard.data.TableFormat;
-
 public class CombinedTableIteratorTests {
 
   private List<TableReader<DataTableStub>> getReaders(final Integer... sizes) {
@@ -103,58 +97,3 @@ public class CombinedTableIteratorTests {
     }
   }
 }
-
-class TableReaderStub<T extends DataTable> implements TableReader<T> {
-
-  final TableReaderIteratorStub<T> iterator;
-  boolean closed;
-
-  public TableReaderStub(final int items, final String name) {
-    this.iterator = new TableReaderIteratorStub<T>(items, name);
-    this.closed = false;
-  }
-
-  @Override
-  public Iterator<T> iterator() {
-    return iterator;
-  }
-
-  @Override
-  public void close() throws IOException {
-    closed = true;
-  }
-
-}
-
-class TableReaderIteratorStub<T extends DataTable> implements Iterator<T> {
-
-  List<DataTableStub> items;
-  int current;
-
-  public TableReaderIteratorStub(final int count, final String name) {
-    this.items = new ArrayList<DataTableStub>();
-    final TableFormat format = new FormatLibrary()
-        .getFormat(Format.DecompressedInternal);
-    final DataTableStub base = new DataTableStub(format);
-    for (int i = 0; i < count; i++) {
-      items.add(new DataTableStub(format, i, name, "123", base.timestamp, base.date));
-    }
-    this.current = 0;
-  }
-
-  @Override
-  public boolean hasNext() {
-    return current < items.size();
-  }
-
-  @SuppressWarnings("unchecked")
-  @Override
-  public T next() {
-    return (T) items.get(current++);
-  }
-
-  @Override
-  public void remove() {
-  }
-
-}
\ No newline at end of file
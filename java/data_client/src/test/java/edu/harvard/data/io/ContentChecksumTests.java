@@ -0,0 +1,71 @@
+package edu.harvard.data.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.services.s3.model.S3ObjectId;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.harvard.data.AwsUtils;
+import edu.harvard.data.pipeline.InputTableIndex;
+
+public class ContentChecksumTests {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  // Known values for the ASCII string "123456789".
+  @Test
+  public void testForFile() throws IOException {
+    final File file = folder.newFile();
+    Files.write(file.toPath(), "123456789".getBytes(StandardCharsets.US_ASCII));
+    final ContentChecksum checksum = ContentChecksum.forFile(file);
+    assertEquals("25f9e794323b453885f5181f1b624d0b", checksum.getMd5());
+    assertEquals("JfnnlDI7RTiF9RgfG2JNCw==", checksum.getMd5Base64());
+    assertEquals(0xe3069283L, checksum.getCrc32c());
+    assertEquals(9, checksum.getLength());
+    assertEquals(ContentChecksum.UNKNOWN_ROWS, checksum.getRows());
+  }
+
+  @Test
+  public void testEmptyFile() throws IOException {
+    final ContentChecksum checksum = ContentChecksum.forFile(folder.newFile());
+    assertEquals("d41d8cd98f00b204e9800998ecf8427e", checksum.getMd5());
+    assertEquals(0, checksum.getCrc32c());
+    assertEquals(0, checksum.getLength());
+  }
+
+  // Checksums survive the JSON round trip that the InputTableIndex makes
+  // through S3, and are carried along when indices are merged.
+  @Test
+  public void testInputTableIndex() throws IOException {
+    final S3ObjectId withChecksum = AwsUtils.key("bucket", "table", "file1.gz");
+    final S3ObjectId withoutChecksum = AwsUtils.key("bucket", "table", "file2.gz");
+    final ContentChecksum checksum = new ContentChecksum("25f9e794323b453885f5181f1b624d0b",
+        0xe3069283L, 9, 2);
+    final InputTableIndex index = new InputTableIndex();
+    index.addFile("table", withChecksum, checksum);
+    index.addFile("table", withoutChecksum, 100);
+    index.setPartial("table", false);
+
+    final ObjectMapper mapper = new ObjectMapper();
+    final InputTableIndex read = mapper.readValue(mapper.writeValueAsString(index),
+        InputTableIndex.class);
+    assertEquals(checksum, read.getChecksum(withChecksum));
+    assertEquals(Long.valueOf(9), read.getFileSize(withChecksum));
+    assertNull(read.getChecksum(withoutChecksum));
+
+    final InputTableIndex merged = new InputTableIndex();
+    merged.addTable("table", read);
+    assertEquals(checksum, merged.getChecksum(withChecksum));
+  }
+}
@@ -0,0 +1,174 @@
+package edu.harvard.data.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.harvard.data.FormatLibrary;
+import edu.harvard.data.FormatLibrary.Format;
+import edu.harvard.data.HadoopConfigurationException;
+import edu.harvard.data.TableFormat;
+
+public class DataTableInputFormatTests {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private TableFormat format;
+  private Job job;
+  private DataTableInputFormat<DataTableStub> inputFormat;
+  private List<DataTableStub> instances;
+
+  @Before
+  public void setup() throws IOException {
+    format = new FormatLibrary().getFormat(Format.DecompressedInternal);
+    job = Job.getInstance();
+    job.getConfiguration().set("format", Format.DecompressedInternal.toString());
+    DataTableInputFormat.setTableType(job, DataTableStub.class);
+    inputFormat = new DataTableInputFormat<DataTableStub>();
+    instances = new ArrayList<DataTableStub>();
+  }
+
+  private File writeRecords(final List<DataTableStub> records) throws IOException {
+    final File file = new File(folder.getRoot(), "table" + format.getExtension());
+    try (TableWriter<DataTableStub> writer = new TableWriter<DataTableStub>(DataTableStub.class,
+        format, file)) {
+      for (final DataTableStub record : records) {
+        writer.add(record);
+      }
+    }
+    return file;
+  }
+
+  // Read the records in a byte range of a file, returning the value of each
+  // field. The record objects themselves are kept in instances.
+  private List<List<Object>> read(final File file, final long start, final long length)
+      throws IOException, InterruptedException {
+    final FileSplit split = new FileSplit(new Path(file.toURI()), start, length, null);
+    final TaskAttemptContext context = new TaskAttemptContextImpl(job.getConfiguration(),
+        new TaskAttemptID());
+    final List<List<Object>> values = new ArrayList<List<Object>>();
+    try (RecordReader<LongWritable, DataTableStub> reader = inputFormat.createRecordReader(split,
+        context)) {
+      reader.initialize(split, context);
+      long lastKey = -1;
+      while (reader.nextKeyValue()) {
+        assertTrue(reader.getCurrentKey().get() > lastKey);
+        lastKey = reader.getCurrentKey().get();
+        instances.add(reader.getCurrentValue());
+        values.add(reader.getCurrentValue().getFieldsAsList(format));
+      }
+    }
+    return values;
+  }
+
+  private List<List<Object>> expectedValues(final List<DataTableStub> records) {
+    final List<List<Object>> values = new ArrayList<List<Object>>();
+    for (final DataTableStub record : records) {
+      values.add(record.getFieldsAsList(format));
+    }
+    return values;
+  }
+
+  // Check that every record is decoded into the same reused instance.
+  @Test
+  public void testReadRecords() throws IOException, InterruptedException {
+    final List<DataTableStub> records = DataTableStub.generateRecords(1000, format);
+    records.add(new DataTableStub(format, 7, null, "café\ttab", null, null));
+    final File file = writeRecords(records);
+    assertEquals(expectedValues(records), read(file, 0, file.length()));
+    for (final DataTableStub instance : instances) {
+      assertSame(instances.get(0), instance);
+    }
+  }
+
+  // Check that splitting a file between readers neither loses nor repeats
+  // records.
+  @Test
+  public void testSplits() throws IOException, InterruptedException {
+    final List<DataTableStub> records = DataTableStub.generateRecords(2000, format);
+    final File file = writeRecords(records);
+    final List<List<Object>> values = new ArrayList<List<Object>>();
+    final long splitSize = 4096;
+    for (long start = 0; start < file.length(); start += splitSize) {
+      values.addAll(read(file, start, Math.min(splitSize, file.length() - start)));
+    }
+    assertTrue(file.length() > splitSize * 4);
+    assertEquals(expectedValues(records), values);
+  }
+
+  // Formats that use quoting are parsed with CSVParser, and headers are skipped.
+  @Test
+  public void testQuotedFormat() throws IOException, InterruptedException {
+    job.getConfiguration().set("format", Format.DecompressedExcel.toString());
+    final File file = folder.newFile("table.csv");
+    Files.write(file.toPath(), ("int_1,string_1,string_2,timestamp,date\r\n"
+        + "1,\"a,b\",x,,\r\n" + "2,plain,\"q\"\"uote\",,\r\n").getBytes(StandardCharsets.UTF_8));
+    final List<List<Object>> values = read(file, 0, file.length());
+    assertEquals(2, values.size());
+    assertEquals("a,b", instances.get(0).string1);
+    assertEquals(Integer.valueOf(2), instances.get(1).int1);
+    assertEquals("q\"uote", instances.get(1).string2);
+    assertNotSame(instances.get(0), instances.get(1));
+  }
+
+  @Test
+  public void testSplitable() {
+    assertTrue(inputFormat.isSplitable(job, new Path("table.tsv")));
+    assertTrue(inputFormat.isSplitable(job, new Path("table.bz2")));
+    assertFalse(inputFormat.isSplitable(job, new Path("table.gz")));
+  }
+
+  // With BlockGzipCodec registered, block gzip files are split but ordinary
+  // gzip files still get a single split, rather than one that reads the file
+  // and several that read nothing.
+  @Test
+  public void testBlockGzipSplits() throws IOException, InterruptedException {
+    BlockGzipCodec.register(job.getConfiguration());
+    FileInputFormat.setMaxInputSplitSize(job, 4096);
+    final List<DataTableStub> records = DataTableStub.generateRecords(5000, format);
+    for (final Format gzipFormat : new Format[] { Format.BlockCompressedInternal,
+        Format.CompressedInternal }) {
+      format = new FormatLibrary().getFormat(gzipFormat);
+      final File file = writeRecords(records);
+      assertTrue(file.length() > 4096 * 4);
+      final Job gzipJob = Job.getInstance(job.getConfiguration());
+      FileInputFormat.addInputPath(gzipJob, new Path(file.toURI()));
+      final List<InputSplit> splits = inputFormat.getSplits(gzipJob);
+      assertEquals(gzipFormat.toString(), gzipFormat == Format.BlockCompressedInternal,
+          splits.size() > 1);
+      assertTrue(file.delete());
+    }
+  }
+
+  @Test(expected = HadoopConfigurationException.class)
+  public void testMissingTableType() throws IOException {
+    final Job unconfigured = Job.getInstance();
+    inputFormat.createRecordReader(null,
+        new TaskAttemptContextImpl(unconfigured.getConfiguration(), new TaskAttemptID()));
+  }
+}
@@ -1,5 +1,6 @@
 package edu.harvard.data.io;
 
+import java.io.IOException;
 import java.sql.Timestamp;
 import java.text.ParseException;
 import java.util.ArrayList;
@@ -13,9 +14,11 @@ import java.util.Map;
 import org.apache.commons.csv.CSVRecord;
 
 import edu.harvard.data.DataTable;
+import edu.harvard.data.DelimitedEncoder;
 import edu.harvard.data.TableFormat;
+import edu.harvard.data.schema.DataSchemaType;
 
-class DataTableStub implements DataTable {
+class DataTableStub implements DataTable, ReusableRecord {
 
   static final List<String> fieldNames;
 
@@ -28,6 +31,31 @@ class DataTableStub implements DataTable {
     fieldNames.add("date");
   }
 
+  public static final ColumnarCodec<DataTableStub> COLUMNAR = new ColumnarCodec<DataTableStub>(
+      new String[] { "int_1", "string_1", "string_2", "timestamp", "date" },
+      new DataSchemaType[] { DataSchemaType.Integer, DataSchemaType.VarChar,
+          DataSchemaType.VarChar, DataSchemaType.Timestamp, DataSchemaType.Date }) {
+    @Override
+    public void getValues(final DataTableStub record, final Object[] values) {
+      values[0] = record.int1;
+      values[1] = record.string1;
+      values[2] = record.string2;
+      values[3] = record.timestamp;
+      values[4] = record.date;
+    }
+
+    @Override
+    public DataTableStub create(final Object[] values) {
+      final DataTableStub record = new DataTableStub();
+      record.int1 = (Integer) values[0];
+      record.string1 = (String) values[1];
+      record.string2 = (String) values[2];
+      record.timestamp = (Timestamp) values[3];
+      record.date = (Date) values[4];
+      return record;
+    }
+  };
+
   public static List<DataTableStub> generateRecords(final int count, final TableFormat format) {
     final DataTableStub base = new DataTableStub(format);
     final List<DataTableStub> lst = new ArrayList<DataTableStub>();
@@ -64,6 +92,28 @@ class DataTableStub implements DataTable {
     }
   }
 
+  public DataTableStub(final TableFormat format, final DelimitedTokenizer fields)
+      throws ParseException {
+    reset(format, fields);
+  }
+
+  @Override
+  public void reset(final TableFormat format, final DelimitedTokenizer fields)
+      throws ParseException {
+    this.int1 = fields.getInteger(0);
+    this.string1 = fields.get(1);
+    this.string2 = fields.get(2);
+    this.timestamp = null;
+    final String timestamp = fields.get(3);
+    if (timestamp != null && timestamp.length() > 0) {
+      this.timestamp = Timestamp.valueOf(timestamp);
+    }
+    this.date = null;
+    final String date = fields.get(4);
+    if (date != null && date.length() > 0) {
+      this.date = format.getDateFormat().parse(date);
+    }
+  }
 
   public DataTableStub(final TableFormat format) {
     this.format = format;
@@ -96,6 +146,16 @@ class DataTableStub implements DataTable {
     return lst;
   }
 
+  @Override
+  public void writeDelimited(final TableFormat format, final Appendable out) throws IOException {
+    final DelimitedEncoder encoder = format.getDelimitedEncoder();
+    encoder.write(out, int1, true);
+    encoder.write(out, string1, false);
+    encoder.write(out, string2, false);
+    encoder.write(out, format.formatTimestamp(timestamp), false);
+    encoder.write(out, format.formatTimestamp(date), false);
+  }
+
   @Override
   public List<String> getFieldNames() {
     return fieldNames;
@@ -2,6 +2,9 @@ package edu.harvard.data.io;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -13,11 +16,13 @@ import java.io.OutputStreamWriter;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.io.PrintWriter;
+import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
+import org.apache.commons.csv.CSVRecord;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -167,4 +172,175 @@ public class DelimitedFileIteratorTests {
       }
     }
   }
+
+  // Check that records are created by the decoder passed to the constructor.
+  @Test
+  public void testExplicitDecoder() throws IOException {
+    final List<CSVRecord> decoded = new ArrayList<CSVRecord>();
+    final RecordDecoder<DataTableStub> decoder = new RecordDecoder<DataTableStub>() {
+      @Override
+      public DataTableStub decode(final TableFormat format, final CSVRecord record)
+          throws ParseException {
+        decoded.add(record);
+        return new DataTableStub(format, record);
+      }
+    };
+    try (final DelimitedFileIterator<DataTableStub> it = new DelimitedFileIterator<DataTableStub>(
+        DataTableStub.class, decoder, format, file);) {
+      final List<DataTableStub> records = writeRecords(5);
+      final List<DataTableStub> read = new ArrayList<DataTableStub>();
+      while (it.hasNext()) {
+        read.add(it.next());
+      }
+      assertEquals(5, decoded.size());
+      assertEquals(records, read);
+    }
+  }
+
+  // Check that a decoding failure is reported as an IterationException that
+  // wraps the original cause.
+  @Test
+  public void testDecoderException() throws IOException {
+    final ParseException cause = new ParseException("bad date", 0);
+    final RecordDecoder<DataTableStub> decoder = new RecordDecoder<DataTableStub>() {
+      @Override
+      public DataTableStub decode(final TableFormat format, final CSVRecord record)
+          throws ParseException {
+        throw cause;
+      }
+    };
+    try (final DelimitedFileIterator<DataTableStub> it = new DelimitedFileIterator<DataTableStub>(
+        DataTableStub.class, decoder, format, file);) {
+      writeRecords(1);
+      assertTrue(it.hasNext());
+      it.next();
+      fail();
+    } catch (final IterationException e) {
+      assertEquals(cause, e.getCause());
+    }
+  }
+
+  // Check that a TokenizedRecordDecoder reads records through the tokenizer
+  // when the format does not use quoting.
+  @Test
+  public void testTokenizedDecoder() throws IOException {
+    when(format.includeHeaders()).thenReturn(true);
+    final List<DelimitedTokenizer> tokenized = new ArrayList<DelimitedTokenizer>();
+    final TokenizedRecordDecoder<DataTableStub> decoder = new TokenizedRecordDecoder<DataTableStub>() {
+      @Override
+      public DataTableStub decode(final TableFormat format, final CSVRecord record)
+          throws ParseException {
+        throw new ParseException("Should use tokenizer", 0);
+      }
+
+      @Override
+      public DataTableStub decode(final TableFormat format, final DelimitedTokenizer fields)
+          throws ParseException {
+        tokenized.add(fields);
+        return new DataTableStub(format, fields);
+      }
+    };
+    try (final DelimitedFileIterator<DataTableStub> it = new DelimitedFileIterator<DataTableStub>(
+        DataTableStub.class, decoder, format, file);) {
+      final List<DataTableStub> records = writeRecords(5);
+      final List<DataTableStub> read = new ArrayList<DataTableStub>();
+      assertTrue(it.hasNext());
+      assertTrue(it.hasNext());
+      while (it.hasNext()) {
+        read.add(it.next());
+      }
+      assertEquals(4, tokenized.size());
+      assertEquals(records.subList(1, 5), read);
+    }
+  }
+
+  // Check that a projected decoder only receives the requested columns, and
+  // that it is used through the tokenizer like any other decoder.
+  @Test
+  public void testProjectedDecoder() throws IOException {
+    final List<ColumnProjection> projections = new ArrayList<ColumnProjection>();
+    final ProjectedRecordDecoder<DataTableStub> decoder = new ProjectedRecordDecoder<DataTableStub>() {
+      @Override
+      public DataTableStub decode(final TableFormat format, final CSVRecord record)
+          throws ParseException {
+        return new DataTableStub(format, record);
+      }
+
+      @Override
+      public DataTableStub decode(final TableFormat format, final DelimitedTokenizer fields)
+          throws ParseException {
+        return new DataTableStub(format, fields);
+      }
+
+      @Override
+      public ColumnProjection project(final String... columnNames) {
+        return new ColumnProjection(DataTableStub.fieldNames, columnNames);
+      }
+
+      @Override
+      public DataTableStub decode(final TableFormat format, final CSVRecord record,
+          final ColumnProjection projection) throws ParseException {
+        throw new ParseException("Should use tokenizer", 0);
+      }
+
+      @Override
+      public DataTableStub decode(final TableFormat format, final DelimitedTokenizer fields,
+          final ColumnProjection projection) throws ParseException {
+        projections.add(projection);
+        final DataTableStub record = new DataTableStub();
+        if (projection.includes(0)) {
+          record.int1 = fields.getInteger(0);
+        }
+        if (projection.includes(1)) {
+          record.string1 = fields.get(1);
+        }
+        if (projection.includes(2)) {
+          record.string2 = fields.get(2);
+        }
+        return record;
+      }
+    };
+    try (final DelimitedFileIterator<DataTableStub> it = new DelimitedFileIterator<DataTableStub>(
+        DataTableStub.class, RecordDecoders.project(decoder, "string_2", "int_1"), format, file);) {
+      final List<DataTableStub> records = writeRecords(3);
+      final List<DataTableStub> read = new ArrayList<DataTableStub>();
+      while (it.hasNext()) {
+        read.add(it.next());
+      }
+      assertEquals(3, read.size());
+      for (int i = 0; i < read.size(); i++) {
+        assertEquals(records.get(i).int1, read.get(i).int1);
+        assertEquals(records.get(i).string2, read.get(i).string2);
+        assertNull(read.get(i).string1);
+      }
+      // The projection is resolved once rather than for every record.
+      assertTrue(projections.get(0) == projections.get(2));
+    }
+  }
+
+  @Test
+  public void testColumnProjection() {
+    final ColumnProjection projection = new ColumnProjection(DataTableStub.fieldNames, "date",
+        "string_1");
+    assertFalse(projection.includes(0));
+    assertTrue(projection.includes(1));
+    assertFalse(projection.includes(2));
+    assertFalse(projection.includes(3));
+    assertTrue(projection.includes(4));
+    assertFalse(projection.includes(5));
+    assertTrue(ColumnProjection.ALL.includes(5));
+    assertFalse(new ColumnProjection(DataTableStub.fieldNames).includes(0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownProjectedColumn() {
+    new ColumnProjection(DataTableStub.fieldNames, "int_1", "no_such_column");
+  }
+
+  // Check that the reflective fallback decoder is cached per class.
+  @Test
+  public void testFallbackDecoderCached() {
+    final RecordDecoder<DataTableStub> decoder = RecordDecoders.forClass(DataTableStub.class);
+    assertTrue(decoder == RecordDecoders.forClass(DataTableStub.class));
+  }
 }
@@ -0,0 +1,87 @@
+package edu.harvard.data.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import edu.harvard.data.FormatLibrary;
+import edu.harvard.data.FormatLibrary.Format;
+import edu.harvard.data.TableFormat;
+
+// Compares the throughput of DelimitedTokenizer against CSVParser when reading
+// a data file, such as a Canvas Data requests dump. Not run as part of the
+// test suite; invoke it manually with the test classpath:
+//
+// java edu.harvard.data.io.DelimitedTokenizerBenchmark <file> [format] [iterations]
+//
+// The format defaults to CanvasDataFlatFiles (gzipped TSV with \N nulls). Each
+// iteration reads the whole file with both readers, touching every field so
+// that the CSVParser path pays for the Strings it creates.
+public class DelimitedTokenizerBenchmark {
+
+  public static void main(final String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: DelimitedTokenizerBenchmark <file> [format] [iterations]");
+      System.exit(1);
+    }
+    final File file = new File(args[0]);
+    final Format formatName = args.length > 1 ? Format.valueOf(args[1])
+        : Format.CanvasDataFlatFiles;
+    final int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+    final TableFormat format = new FormatLibrary().getFormat(formatName);
+    if (!DelimitedTokenizer.supports(format.getCsvFormat())) {
+      System.err.println("Format " + formatName + " uses quoting; tokenizer not applicable");
+      System.exit(1);
+    }
+
+    // The first iteration warms up the JIT and the file cache.
+    for (int i = 0; i <= iterations; i++) {
+      final long csvStart = System.nanoTime();
+      final long csvChecksum = readWithCsvParser(format, file);
+      final long csvNanos = System.nanoTime() - csvStart;
+      final long tokenizerStart = System.nanoTime();
+      final long tokenizerChecksum = readWithTokenizer(format, file);
+      final long tokenizerNanos = System.nanoTime() - tokenizerStart;
+      if (csvChecksum != tokenizerChecksum) {
+        throw new IllegalStateException(
+            "Checksum mismatch: " + csvChecksum + " != " + tokenizerChecksum);
+      }
+      System.out.println((i == 0 ? "warmup" : "run " + i) + ": CSVParser " + csvNanos / 1000000
+          + " ms, DelimitedTokenizer " + tokenizerNanos / 1000000 + " ms, speedup "
+          + String.format("%.2f", (double) csvNanos / tokenizerNanos) + "x");
+    }
+  }
+
+  private static long readWithCsvParser(final TableFormat format, final File file)
+      throws IOException {
+    long checksum = 0;
+    try (Reader in = new InputStreamReader(format.getInputStream(file), format.getEncoding());
+        CSVParser parser = new CSVParser(in, format.getCsvFormat())) {
+      for (final CSVRecord record : parser) {
+        for (int i = 0; i < record.size(); i++) {
+          final String value = record.get(i);
+          checksum = checksum * 31 + (value == null ? -1 : value.length());
+        }
+      }
+    }
+    return checksum;
+  }
+
+  private static long readWithTokenizer(final TableFormat format, final File file)
+      throws IOException {
+    long checksum = 0;
+    try (Reader in = new InputStreamReader(format.getInputStream(file), format.getEncoding())) {
+      final DelimitedTokenizer tokenizer = new DelimitedTokenizer(format.getCsvFormat(), in);
+      while (tokenizer.next()) {
+        for (int i = 0; i < tokenizer.size(); i++) {
+          checksum = checksum * 31 + (tokenizer.isNull(i) ? -1 : tokenizer.getLength(i));
+        }
+      }
+    }
+    return checksum;
+  }
+}
@@ -0,0 +1,435 @@
+package edu.harvard.data.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+import edu.harvard.data.FormatLibrary;
+import edu.harvard.data.FormatLibrary.Format;
+import edu.harvard.data.StringDictionary;
+
+public class DelimitedTokenizerTests {
+
+  private static final String[] INPUTS = { "", "\n", "\n\n", "a", "a\n", "a\tb\tc\n",
+      "a\tb\r\nc\td\r\n", "a\rb\r", "\ta\t\n", "\t\n\t\t\n", "a\t\\N\tb\n", "\\n\t\\N\n",
+      "x\n\ny\n\n\nz", "\r\n\r\nx", "one/\ttwo\n", "esc//slash\n", "esc/ttab/nline/rret\n",
+      "esc/xother\n", "esc/\nline\n", "esc/\r\nline\n", "a\\tb\\\\c\n", "caf\u00e9\t\u4e2d\u6587\n",
+      "trailing \t leading\n", " \t \n", "  spaced  \t\t x \n", "esc/ \t/t\n", " \\N \n",
+      "a,b\tc,d\n", "null\tNULL\n" };
+
+  private static final String[] NUMBERS = { "0", "-0", "+0", "7", "-7", "+7", "0042",
+      "2147483647", "2147483648", "-2147483648", "-2147483649", "9223372036854775807",
+      "9223372036854775808", "-9223372036854775808", "-9223372036854775809",
+      "99999999999999999999", "-", "+", "1-", "--1", "1.5", " 1", "1 ", "abc", "\u0661" };
+  private static final String[] DOUBLES = { "0", "-0", "0.0", "-0.0", "+1.5", "1.", ".5", "-.5",
+      "0.1", "0.3", "3.14159", "1234567.891", "9007199254740992", "9007199254740993",
+      "0.0000000000000000000001", "0.00000000000000000000001", "123456789012345678901234", "1e10",
+      "1.5E-3", "NaN", "-Infinity", "1d", "2f", " 1.5", "1.5 ", ".", "-", "-.", "1..5", "1.5.",
+      "0x10", "abc", "\u0661", "Infinity", "+Infinity", "-NaN", "+NaN", "infinity", "1e", "1e+",
+      "-1E-10", "+1e+10", "1e400", "-1e400", "4.9e-324", "2.4e-324", "1.7976931348623157e308",
+      "0.12345678901234567", "1.2345678901234567", "12345678901234567.0", "0.1234567890123456789",
+      "9007199254740991.5", "900719925474099.15", "-0.00000000000000000000012",
+      "0.0000000000000000000000", "00000000000000000000000000001.5", "0x1p3", "1_000", "+-1", "-+1",
+      "1-", "1+" };
+
+  private List<CSVFormat> formats() {
+    final List<CSVFormat> formats = new ArrayList<CSVFormat>();
+    final FormatLibrary library = new FormatLibrary();
+    for (final Format format : Format.values()) {
+      final CSVFormat csvFormat = library.getFormat(format).getCsvFormat();
+      if (DelimitedTokenizer.supports(csvFormat)) {
+        formats.add(csvFormat);
+      }
+    }
+    final CSVFormat base = CSVFormat.TDF.withQuote(null);
+    formats.add(base);
+    formats.add(base.withIgnoreSurroundingSpaces(false));
+    formats.add(base.withEscape('/').withIgnoreSurroundingSpaces(false));
+    formats.add(base.withEscape('\\').withNullString("\\N"));
+    formats.add(base.withEscape('/').withNullString("null"));
+    formats.add(base.withIgnoreEmptyLines(false));
+    formats.add(base.withDelimiter(',').withEscape('\\').withIgnoreEmptyLines(false));
+    return formats;
+  }
+
+  private List<List<String>> parseWithCsvParser(final CSVFormat format, final String input)
+      throws IOException {
+    final List<List<String>> records = new ArrayList<List<String>>();
+    try (final CSVParser parser = new CSVParser(new StringReader(input), format)) {
+      for (final CSVRecord record : parser) {
+        final List<String> fields = new ArrayList<String>();
+        for (final String field : record) {
+          fields.add(field);
+        }
+        records.add(fields);
+      }
+    }
+    return records;
+  }
+
+  private List<List<String>> parseWithTokenizer(final CSVFormat format, final String input,
+      final int bufferSize) throws IOException {
+    final List<List<String>> records = new ArrayList<List<String>>();
+    final DelimitedTokenizer tokenizer = new DelimitedTokenizer(format, new StringReader(input),
+        bufferSize);
+    while (tokenizer.next()) {
+      final List<String> fields = new ArrayList<String>();
+      for (int i = 0; i < tokenizer.size(); i++) {
+        fields.add(tokenizer.get(i));
+      }
+      records.add(fields);
+    }
+    return records;
+  }
+
+  private void checkInput(final CSVFormat format, final String input) throws IOException {
+    List<List<String>> expected;
+    try {
+      expected = parseWithCsvParser(format, input);
+    } catch (final IOException | RuntimeException e) {
+      // Malformed input must also be rejected by the tokenizer.
+      for (final int bufferSize : new int[] { 1, 3, 1024 }) {
+        try {
+          parseWithTokenizer(format, input, bufferSize);
+          fail("Expected exception for " + format + " " + input);
+        } catch (final IOException | RuntimeException e2) {
+          // Expected
+        }
+      }
+      return;
+    }
+    // A one-character buffer forces a refill at every possible position.
+    for (final int bufferSize : new int[] { 1, 2, 3, 7, 1024 }) {
+      assertEquals(format + " " + bufferSize + " " + input, expected,
+          parseWithTokenizer(format, input, bufferSize));
+    }
+  }
+
+  // Check that the tokenizer produces the same fields as CSVParser for every
+  // supported format.
+  @Test
+  public void testMatchesCsvParser() throws IOException {
+    for (final CSVFormat format : formats()) {
+      for (final String input : INPUTS) {
+        checkInput(format, input);
+      }
+    }
+  }
+
+  // Check random inputs made up of the characters that the tokenizer treats
+  // specially.
+  @Test
+  public void testRandomInputsMatchCsvParser() throws IOException {
+    final char[] alphabet = { 'a', 'N', 'n', 't', '1', '-', ' ', '\t', ',', '\n', '\r', '\\',
+        '/' };
+    final Random random = new Random(20160313);
+    for (int i = 0; i < 2000; i++) {
+      final char[] input = new char[random.nextInt(30)];
+      for (int j = 0; j < input.length; j++) {
+        input[j] = alphabet[random.nextInt(alphabet.length)];
+      }
+      for (final CSVFormat format : formats()) {
+        checkInput(format, new String(input));
+      }
+    }
+  }
+
+  // Parse only the first record of input, so that errors later in the input
+  // are not reported.
+  private List<String> parseFirstWithCsvParser(final CSVFormat format, final String input)
+      throws IOException {
+    try (final CSVParser parser = new CSVParser(new StringReader(input), format)) {
+      final Iterator<CSVRecord> records = parser.iterator();
+      if (!records.hasNext()) {
+        return null;
+      }
+      final List<String> fields = new ArrayList<String>();
+      for (final String field : records.next()) {
+        fields.add(field);
+      }
+      return fields;
+    }
+  }
+
+  // Tokenize the UTF-8 encoding of input with reset, from the middle of a
+  // larger array.
+  private List<String> resetWithBytes(final DelimitedTokenizer tokenizer, final String input)
+      throws IOException {
+    final byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+    final byte[] padded = new byte[bytes.length + 6];
+    System.arraycopy(bytes, 0, padded, 3, bytes.length);
+    if (!tokenizer.reset(padded, 3, bytes.length)) {
+      return null;
+    }
+    final List<String> fields = new ArrayList<String>();
+    for (int i = 0; i < tokenizer.size(); i++) {
+      fields.add(tokenizer.get(i));
+    }
+    return fields;
+  }
+
+  // Check that reset produces the first record that CSVParser finds in the
+  // same input, reusing one tokenizer for every input.
+  @Test
+  public void testResetMatchesCsvParser() throws IOException {
+    final Random random = new Random(20160313);
+    final List<String> inputs = new ArrayList<String>();
+    for (final String input : INPUTS) {
+      inputs.add(input);
+    }
+    final char[] alphabet = { 'a', 'N', 't', ' ', '\t', '\n', '\r', '\\', '/', '\u00e9' };
+    for (int i = 0; i < 500; i++) {
+      final char[] input = new char[random.nextInt(20)];
+      for (int j = 0; j < input.length; j++) {
+        input[j] = alphabet[random.nextInt(alphabet.length)];
+      }
+      inputs.add(new String(input));
+    }
+    for (final CSVFormat format : formats()) {
+      final DelimitedTokenizer tokenizer = new DelimitedTokenizer(format);
+      for (final String input : inputs) {
+        List<String> expected;
+        try {
+          expected = parseFirstWithCsvParser(format, input);
+        } catch (final IOException | RuntimeException e) {
+          try {
+            resetWithBytes(tokenizer, input);
+            fail("Expected exception for " + format + " " + input);
+          } catch (final IOException e2) {
+            // Expected
+          }
+          continue;
+        }
+        assertEquals(format + " " + input, expected, resetWithBytes(tokenizer, input));
+        assertFalse(tokenizer.next());
+      }
+    }
+  }
+
+  // Check that malformed UTF-8 is decoded as Hadoop's Text decodes it.
+  @Test
+  public void testResetMalformedBytes() throws IOException {
+    final byte[] bytes = { 'a', (byte) 0xc3, '\t', (byte) 0xe4, (byte) 0xb8, 'b', (byte) 0xff,
+        (byte) 0xc3, (byte) 0xa9 };
+    final DelimitedTokenizer tokenizer = new DelimitedTokenizer(CSVFormat.TDF.withQuote(null));
+    assertTrue(tokenizer.reset(bytes, 0, bytes.length));
+    final String[] expected = new Text(bytes).toString().split("\t");
+    assertEquals(2, tokenizer.size());
+    assertEquals(expected[0], tokenizer.get(0));
+    assertEquals(expected[1], tokenizer.get(1));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testResetStreamTokenizer() throws IOException {
+    final DelimitedTokenizer tokenizer = new DelimitedTokenizer(CSVFormat.TDF.withQuote(null),
+        new StringReader("a\n"));
+    tokenizer.reset(new byte[] { 'b' }, 0, 1);
+  }
+
+  // Check that the field slices refer to the unescaped value.
+  @Test
+  public void testSlices() throws IOException {
+    final CSVFormat format = CSVFormat.TDF.withQuote(null).withEscape('\\');
+    final DelimitedTokenizer tokenizer = new DelimitedTokenizer(format,
+        new StringReader("ab\\tc\tdef\n"));
+    assertTrue(tokenizer.next());
+    assertEquals(2, tokenizer.size());
+    assertEquals("ab\tc",
+        new String(tokenizer.getBuffer(), tokenizer.getOffset(0), tokenizer.getLength(0)));
+    assertEquals("def",
+        new String(tokenizer.getBuffer(), tokenizer.getOffset(1), tokenizer.getLength(1)));
+    assertFalse(tokenizer.next());
+  }
+
+  // Check that fields read through a dictionary share instances across records.
+  @Test
+  public void testDictionaryFields() throws IOException {
+    final CSVFormat format = CSVFormat.TDF.withQuote(null).withNullString("\\N");
+    final DelimitedTokenizer tokenizer = new DelimitedTokenizer(format,
+        new StringReader("GET\t\\N\nGET\tPOST\n"));
+    final StringDictionary dictionary = new StringDictionary("tokenizer.method");
+    assertTrue(tokenizer.next());
+    final String get = tokenizer.get(0, dictionary);
+    assertEquals("GET", get);
+    assertNull(tokenizer.get(1, dictionary));
+    assertTrue(tokenizer.next());
+    assertTrue(get == tokenizer.get(0, dictionary));
+    assertEquals("POST", tokenizer.get(1, dictionary));
+    assertEquals(1, dictionary.getHits());
+    assertEquals(2, dictionary.getMisses());
+  }
+
+  // Check that numbers parsed from the buffer match the JDK's valueOf methods.
+  @Test
+  public void testNumberParsing() throws IOException {
+    final CSVFormat format = CSVFormat.TDF.withQuote(null).withIgnoreSurroundingSpaces(false)
+        .withNullString("\\N");
+    final StringBuilder input = new StringBuilder("\\N\t\t");
+    for (final String number : NUMBERS) {
+      input.append(number).append('\t');
+    }
+    final DelimitedTokenizer tokenizer = new DelimitedTokenizer(format,
+        new StringReader(input.toString()));
+    assertTrue(tokenizer.next());
+    for (int i = 0; i < 2; i++) {
+      assertTrue(tokenizer.isNullOrEmpty(i));
+      assertEquals(null, tokenizer.getLong(i));
+      assertEquals(null, tokenizer.getInteger(i));
+      assertEquals(null, tokenizer.getDouble(i));
+      assertEquals(null, tokenizer.getBoolean(i));
+    }
+    for (int i = 0; i < NUMBERS.length; i++) {
+      final String number = NUMBERS[i];
+      final int field = i + 2;
+      assertEquals(number, expectedLong(number), actualLong(tokenizer, field));
+      assertEquals(number, expectedInteger(number), actualInteger(tokenizer, field));
+    }
+  }
+
+  // Check that doubles parsed from the buffer match Double.valueOf, both for
+  // the values that take the fast path and for those handed to the JDK.
+  @Test
+  public void testDoubleParsing() throws IOException {
+    final List<String> values = new ArrayList<String>();
+    for (final String value : DOUBLES) {
+      values.add(value);
+    }
+    final Random random = new Random(18);
+    for (int i = 0; i < 10000; i++) {
+      final String digits = Long.toString(random.nextLong() >>> random.nextInt(64));
+      final int point = random.nextInt(digits.length() + 1);
+      values.add((random.nextBoolean() ? "-" : "") + digits.substring(0, point) + "."
+          + digits.substring(point));
+    }
+    // More significant digits than a double holds, on both sides of the limit
+    // of the fast path, and with exponents.
+    for (int i = 0; i < 5000; i++) {
+      final StringBuilder digits = new StringBuilder();
+      final int length = 15 + random.nextInt(12);
+      for (int j = 0; j < length; j++) {
+        digits.append((char) ('0' + random.nextInt(10)));
+      }
+      final int point = random.nextInt(length + 1);
+      digits.insert(point, '.');
+      if (i % 4 == 0) {
+        digits.append(random.nextBoolean() ? 'e' : 'E').append(random.nextInt(40) - 20);
+      }
+      values.add((random.nextBoolean() ? "+" : "-") + digits);
+    }
+    final StringBuilder input = new StringBuilder();
+    for (final String value : values) {
+      input.append(value).append('\t');
+    }
+    final DelimitedTokenizer tokenizer = new DelimitedTokenizer(CSVFormat.TDF.withQuote(null)
+        .withIgnoreSurroundingSpaces(false), new StringReader(input.toString()));
+    assertTrue(tokenizer.next());
+    for (int i = 0; i < values.size(); i++) {
+      final String value = values.get(i);
+      assertEquals(value, expectedDouble(value), actualDouble(tokenizer, i));
+    }
+  }
+
+  // Check that booleans parsed from the buffer match Boolean.valueOf.
+  @Test
+  public void testBooleanParsing() throws IOException {
+    final String[] values = { "true", "TRUE", "True", "tRuE", "false", "t", "1", "yes", "truer" };
+    final StringBuilder input = new StringBuilder();
+    for (final String value : values) {
+      input.append(value).append('\t');
+    }
+    final DelimitedTokenizer tokenizer = new DelimitedTokenizer(CSVFormat.TDF.withQuote(null),
+        new StringReader(input.toString()));
+    assertTrue(tokenizer.next());
+    for (int i = 0; i < values.length; i++) {
+      assertEquals(values[i], Boolean.valueOf(values[i]), tokenizer.getBoolean(i));
+    }
+  }
+
+  // Check that formats that need a full CSV parser are rejected.
+  @Test
+  public void testUnsupportedFormats() {
+    assertFalse(DelimitedTokenizer.supports(CSVFormat.DEFAULT));
+    assertFalse(DelimitedTokenizer.supports(CSVFormat.TDF));
+    assertFalse(DelimitedTokenizer.supports(CSVFormat.TDF.withQuote(null).withCommentMarker('#')));
+    assertTrue(DelimitedTokenizer.supports(CSVFormat.TDF.withQuote(null)));
+    try {
+      new DelimitedTokenizer(CSVFormat.DEFAULT, new StringReader(""));
+      fail();
+    } catch (final IllegalArgumentException e) {
+      // Expected
+    }
+  }
+
+  // Check that reading a missing field fails as CSVRecord.get would.
+  @Test(expected = ArrayIndexOutOfBoundsException.class)
+  public void testMissingField() throws IOException {
+    final DelimitedTokenizer tokenizer = new DelimitedTokenizer(CSVFormat.TDF.withQuote(null),
+        new StringReader("a\tb\n"));
+    assertTrue(tokenizer.next());
+    tokenizer.get(2);
+  }
+
+  private String expectedLong(final String value) {
+    try {
+      return String.valueOf(Long.valueOf(value));
+    } catch (final NumberFormatException e) {
+      return "NumberFormatException";
+    }
+  }
+
+  private String actualLong(final DelimitedTokenizer tokenizer, final int field) {
+    try {
+      return String.valueOf(tokenizer.getLong(field));
+    } catch (final NumberFormatException e) {
+      return "NumberFormatException";
+    }
+  }
+
+  private String expectedDouble(final String value) {
+    try {
+      return String.valueOf(Double.valueOf(value));
+    } catch (final NumberFormatException e) {
+      return "NumberFormatException";
+    }
+  }
+
+  private String actualDouble(final DelimitedTokenizer tokenizer, final int field) {
+    try {
+      return String.valueOf(tokenizer.getDouble(field));
+    } catch (final NumberFormatException e) {
+      return "NumberFormatException";
+    }
+  }
+
+  private String expectedInteger(final String value) {
+    try {
+      return String.valueOf(Integer.valueOf(value));
+    } catch (final NumberFormatException e) {
+      return "NumberFormatException";
+    }
+  }
+
+  private String actualInteger(final DelimitedTokenizer tokenizer, final int field) {
+    try {
+      return String.valueOf(tokenizer.getInteger(field));
+    } catch (final NumberFormatException e) {
+      return "NumberFormatException";
+    }
+  }
+}
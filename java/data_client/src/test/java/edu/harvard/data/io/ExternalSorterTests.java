@@ -0,0 +1,247 @@
+package edu.harvard.data.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.harvard.data.DataTable;
+import edu.harvard.data.TableFormat;
+
+public class ExternalSorterTests {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File scratch;
+  private int runFiles;
+
+  @Before
+  public void setup() throws IOException {
+    scratch = folder.newFolder();
+  }
+
+  private static final Comparator<SortRecord> BY_KEY = ExternalSorter
+      .byKey(new ExternalSorter.KeyExtractor<SortRecord, Integer>() {
+        @Override
+        public Integer getKey(final SortRecord record) {
+          return record.key;
+        }
+      });
+
+  // Random keys with many duplicates; the sequence number records input order.
+  private List<SortRecord> generateRecords(final int count, final int keys) {
+    final Random random = new Random(21);
+    final List<SortRecord> records = new ArrayList<SortRecord>();
+    for (int i = 0; i < count; i++) {
+      records.add(new SortRecord(random.nextInt(keys), i, "value " + random.nextInt()));
+    }
+    return records;
+  }
+
+  private List<SortRecord> sort(final ExternalSorter<SortRecord> sorter,
+      final List<SortRecord> records) throws IOException {
+    final List<SortRecord> sorted = new ArrayList<SortRecord>();
+    try (TableReader<SortRecord> in = sorter.sort(new ListTableReader(records))) {
+      runFiles = scratch.list().length;
+      for (final SortRecord record : in) {
+        sorted.add(record);
+      }
+    }
+    assertEquals(0, scratch.list().length);
+    return sorted;
+  }
+
+  // The expected output is a stable sort of the input.
+  private void assertSorted(final List<SortRecord> records, final List<SortRecord> sorted) {
+    final List<SortRecord> expected = new ArrayList<SortRecord>(records);
+    Collections.sort(expected, BY_KEY);
+    assertEquals(expected, sorted);
+  }
+
+  // Small inputs are sorted without touching the disk.
+  @Test
+  public void testInMemory() throws IOException {
+    final List<SortRecord> records = generateRecords(1000, 50);
+    final ExternalSorter<SortRecord> sorter = new ExternalSorter<SortRecord>(SortRecord.class,
+        BY_KEY, 64 * 1024 * 1024, scratch);
+    assertSorted(records, sort(sorter, records));
+    assertEquals(0, runFiles);
+  }
+
+  // Larger inputs are spilled to runs and merged back in order.
+  @Test
+  public void testSpill() throws IOException {
+    final List<SortRecord> records = generateRecords(20000, 500);
+    final ExternalSorter<SortRecord> sorter = new ExternalSorter<SortRecord>(SortRecord.class,
+        BY_KEY, 64 * 1024, scratch);
+    assertSorted(records, sort(sorter, records));
+    assertTrue(runFiles > ExternalSorter.MAX_MERGE_WIDTH / 4);
+    assertTrue(runFiles <= ExternalSorter.MAX_MERGE_WIDTH);
+  }
+
+  // When there are too many runs to merge at once they are merged in passes.
+  @Test
+  public void testMultiPassMerge() throws IOException {
+    final List<SortRecord> records = generateRecords(20000, 500);
+    final ExternalSorter<SortRecord> sorter = new ExternalSorter<SortRecord>(SortRecord.class,
+        BY_KEY, 64 * 1024, scratch);
+    sorter.setMergeWidth(3);
+    assertSorted(records, sort(sorter, records));
+    assertTrue(runFiles >= 1);
+    assertTrue(runFiles <= 2);
+  }
+
+  // Null keys sort first, and fields survive the round trip through a run.
+  @Test
+  public void testNullKeys() throws IOException {
+    final List<SortRecord> records = Arrays.asList(new SortRecord(3, 0, "c"),
+        new SortRecord(null, 1, null), new SortRecord(1, 2, "a"), new SortRecord(null, 3, "n"));
+    final ExternalSorter<SortRecord> sorter = new ExternalSorter<SortRecord>(SortRecord.class,
+        new ExternalSorter.KeyExtractor<SortRecord, Integer>() {
+          @Override
+          public Integer getKey(final SortRecord record) {
+            return record.key;
+          }
+        }, 1, scratch);
+    final List<SortRecord> sorted = sort(sorter, records);
+    // With a one-byte budget every record is spilled to its own run.
+    assertEquals(4, runFiles);
+    assertNull(sorted.get(0).key);
+    assertNull(sorted.get(0).value);
+    assertEquals(1, sorted.get(0).sequence);
+    assertEquals(3, sorted.get(1).sequence);
+    assertEquals("a", sorted.get(2).value);
+    assertEquals("c", sorted.get(3).value);
+  }
+
+  @Test
+  public void testEmptyInput() throws IOException {
+    final ExternalSorter<SortRecord> sorter = new ExternalSorter<SortRecord>(SortRecord.class,
+        BY_KEY, 1, scratch);
+    assertTrue(sort(sorter, new ArrayList<SortRecord>()).isEmpty());
+    assertEquals(0, runFiles);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBudget() {
+    new ExternalSorter<SortRecord>(SortRecord.class, BY_KEY, 0, scratch);
+  }
+
+  private static class ListTableReader implements TableReader<SortRecord> {
+    private final List<SortRecord> records;
+
+    ListTableReader(final List<SortRecord> records) {
+      this.records = records;
+    }
+
+    @Override
+    public Iterator<SortRecord> iterator() {
+      return records.iterator();
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  public static class SortRecord implements DataTable, Writable {
+    Integer key;
+    int sequence;
+    String value;
+
+    public SortRecord() {
+    }
+
+    SortRecord(final Integer key, final int sequence, final String value) {
+      this.key = key;
+      this.sequence = sequence;
+      this.value = value;
+    }
+
+    @Override
+    public void write(final DataOutput out) throws IOException {
+      out.writeByte((key == null ? 0 : 1) | (value == null ? 0 : 2));
+      if (key != null) {
+        out.writeInt(key);
+      }
+      out.writeInt(sequence);
+      if (value != null) {
+        Text.writeString(out, value);
+      }
+    }
+
+    @Override
+    public void readFields(final DataInput in) throws IOException {
+      final int present = in.readUnsignedByte();
+      key = (present & 1) == 0 ? null : in.readInt();
+      sequence = in.readInt();
+      value = (present & 2) == 0 ? null : Text.readString(in);
+    }
+
+    @Override
+    public List<Object> getFieldsAsList(final TableFormat format) {
+      return Arrays.<Object> asList(key, sequence, value);
+    }
+
+    @Override
+    public List<String> getFieldNames() {
+      return Arrays.asList("key", "sequence", "value");
+    }
+
+    @Override
+    public Map<String, Object> getFieldsAsMap() {
+      final Map<String, Object> map = new HashMap<String, Object>();
+      map.put("key", key);
+      map.put("sequence", sequence);
+      map.put("value", value);
+      return map;
+    }
+
+    @Override
+    public void writeDelimited(final TableFormat format, final Appendable out)
+        throws IOException {
+      out.append(key + "\t" + sequence + "\t" + value);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (!(obj instanceof SortRecord)) {
+        return false;
+      }
+      final SortRecord other = (SortRecord) obj;
+      return sequence == other.sequence && (key == null ? other.key == null : key.equals(other.key))
+          && (value == null ? other.value == null : value.equals(other.value));
+    }
+
+    @Override
+    public int hashCode() {
+      return sequence;
+    }
+
+    @Override
+    public String toString() {
+      return getFieldsAsMap().toString();
+    }
+  }
+}
@@ -1,7 +1,11 @@
 package edu.harvard.data.io;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -9,8 +13,10 @@ import java.io.OutputStreamWriter;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -20,10 +26,12 @@ import java.util.UUID;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import edu.harvard.data.DataTable;
 import edu.harvard.data.FormatLibrary;
+import edu.harvard.data.JsonFields;
 import edu.harvard.data.FormatLibrary.Format;
 import edu.harvard.data.TableFormat;
 import edu.harvard.data.VerificationException;
@@ -117,6 +125,163 @@ public class JsonFileIteratorTests {
     reader.close();
   }
 
+  // Check that multi-byte UTF-8 characters are decoded correctly, and that
+  // blank lines between objects are ignored.
+  @Test
+  public void testUtf8AndBlankLines() throws IOException {
+    out.write("{\"name\":\"caf\u00e9 \u4e2d\u6587 \ud83d\ude00\"}\n\n{\"name\":\"x\"}\n"
+        .getBytes(StandardCharsets.UTF_8));
+    out.close();
+    for (final Map<String, List<? extends DataTable>> r : reader) {
+      assertEquals(0, r.size());
+    }
+    reader.close();
+    assertEquals(2, parser.seen.size());
+    assertEquals("caf\u00e9 \u4e2d\u6587 \ud83d\ude00", parser.seen.get(0).get("name"));
+    assertEquals("x", parser.seen.get(1).get("name"));
+  }
+
+  // Check that a malformed object is reported with its line in the file.
+  @Test
+  public void testErrorLineNumber() throws IOException {
+    out.write("{\"a\":1}\n{\"a\":2}\n{\"a\":}\n".getBytes(StandardCharsets.UTF_8));
+    out.close();
+    final Iterator<Map<String, List<? extends DataTable>>> it = reader.iterator();
+    it.next();
+    it.next();
+    try {
+      it.next();
+      fail();
+    } catch (final IterationException e) {
+      assertTrue(e.getCause() instanceof JsonProcessingException);
+      assertEquals(3,
+          ((JsonProcessingException) e.getCause()).getLocation().getLineNr());
+    }
+    reader.close();
+  }
+
+  private void writeNumbers(final int count) throws IOException {
+    for (int i = 0; i < count; i++) {
+      out.write(("{\"i\":" + i + "}\n").getBytes(StandardCharsets.UTF_8));
+    }
+    out.close();
+  }
+
+  // Check that a streaming parser pushes records into the sink in order.
+  @Test
+  public void testStreamingParserSink() throws IOException {
+    writeNumbers(5);
+    reader = new JsonFileReader(format, in, new NumberDocumentParser(format));
+    final List<String> emitted = new ArrayList<String>();
+    reader.parse(new DocumentSink() {
+      @Override
+      public void emit(final String tableName, final DataTable record) {
+        emitted.add(tableName + ((DataTableStub) record).int1);
+      }
+    });
+    reader.close();
+    assertEquals(Arrays.asList("even0", "all0", "all1", "even2", "all2", "all3", "even4", "all4"),
+        emitted);
+  }
+
+  // Check that a streaming parser still works with the iterator API.
+  @Test
+  public void testStreamingParserIterator() throws IOException {
+    writeNumbers(2);
+    reader = new JsonFileReader(format, in, new NumberDocumentParser(format));
+    final Iterator<Map<String, List<? extends DataTable>>> it = reader.iterator();
+    final Map<String, List<? extends DataTable>> first = it.next();
+    assertEquals(2, first.size());
+    assertEquals(1, first.get("even").size());
+    assertEquals(Integer.valueOf(0), ((DataTableStub) first.get("all").get(0)).int1);
+    final Map<String, List<? extends DataTable>> second = it.next();
+    assertEquals(1, second.size());
+    assertEquals(Integer.valueOf(1), ((DataTableStub) second.get("all").get(0)).int1);
+    assertFalse(it.hasNext());
+    reader.close();
+  }
+
+  // Check that a parser that returns maps is adapted to the sink API.
+  @Test
+  public void testMapParserSink() throws IOException {
+    writeObjects(3);
+    final List<DataTable> emitted = new ArrayList<DataTable>();
+    reader.parse(new DocumentSink() {
+      @Override
+      public void emit(final String tableName, final DataTable record) {
+        emitted.add(record);
+      }
+    });
+    reader.close();
+    assertEquals(3, parser.seen.size());
+    assertEquals(0, emitted.size());
+  }
+
+  // Check that records are routed to the writer for their table, and that
+  // closing the sink closes the writers.
+  @Test
+  public void testTableWriterSink() throws IOException {
+    writeNumbers(5);
+    reader = new JsonFileReader(format, in, new NumberDocumentParser(format));
+    final ByteArrayOutputStream even = new ByteArrayOutputStream();
+    final ByteArrayOutputStream all = new ByteArrayOutputStream();
+    try (TableWriterSink sink = new TableWriterSink()) {
+      sink.add("even", new TableWriter<DataTableStub>(DataTableStub.class, format, even));
+      sink.add("all", new TableWriter<DataTableStub>(DataTableStub.class, format, all));
+      reader.parse(sink);
+    }
+    reader.close();
+    assertEquals(3, even.toString("UTF-8").split("\n").length);
+    assertEquals(5, all.toString("UTF-8").split("\n").length);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTableWriterSinkUnknownTable() throws IOException {
+    try (TableWriterSink sink = new TableWriterSink()) {
+      sink.emit("missing", new DataTableStub(format));
+    }
+  }
+
+  // Check that a parser that reads tokens directly skips unknown fields and
+  // leaves the stream positioned for the next object.
+  @Test
+  public void testTokenParserSink() throws IOException {
+    out.write(("{\"x\":{\"i\":[1,{\"i\":2}]},\"i\":3,\"s\":\"a\"}\n{\"i\":4}\n")
+        .getBytes(StandardCharsets.UTF_8));
+    out.close();
+    reader = new JsonFileReader(format, in, new NumberTokenParser(format));
+    final List<String> emitted = new ArrayList<String>();
+    reader.parse(new DocumentSink() {
+      @Override
+      public void emit(final String tableName, final DataTable record) {
+        emitted.add(tableName + ((DataTableStub) record).int1 + ((DataTableStub) record).string1);
+      }
+    });
+    reader.close();
+    assertEquals(Arrays.asList("all3a", "even4null"), emitted);
+  }
+
+  @Test
+  public void testTokenParserRejectsNonObject() throws IOException {
+    out.write("{\"i\":1}\n[2]\n".getBytes(StandardCharsets.UTF_8));
+    out.close();
+    reader = new JsonFileReader(format, in, new NumberTokenParser(format));
+    final List<DataTable> emitted = new ArrayList<DataTable>();
+    try {
+      reader.parse(new DocumentSink() {
+        @Override
+        public void emit(final String tableName, final DataTable record) {
+          emitted.add(record);
+        }
+      });
+      fail();
+    } catch (final IterationException e) {
+      assertTrue(e.getCause() instanceof JsonProcessingException);
+    }
+    reader.close();
+    assertEquals(1, emitted.size());
+  }
+
   // Check that input stream is closed after close method called
   @Test(expected = IOException.class)
   public void testInputStreamClosed() throws IOException {
@@ -143,4 +308,72 @@ class DataTableStubDocumentParser implements JsonDocumentParser {
     return new HashMap<String, List<? extends DataTable>>();
   }
 
-}
\ No newline at end of file
+}
+
+// Emits every number to the "all" table, and even numbers to the "even" table
+// first.
+class NumberDocumentParser extends StreamingJsonDocumentParser {
+
+  private final TableFormat format;
+
+  public NumberDocumentParser(final TableFormat format) {
+    this.format = format;
+  }
+
+  @Override
+  public void parse(final Map<String, Object> values, final DocumentSink sink)
+      throws IOException {
+    final int i = (Integer) values.get("i");
+    final DataTableStub record = new DataTableStub(format);
+    record.int1 = i;
+    if (i % 2 == 0) {
+      sink.emit("even", record);
+    }
+    sink.emit("all", record);
+  }
+
+}
+
+// Reads the "i" and "s" fields of each object straight from the parser, and
+// emits the record to the "even" or "all" table.
+class NumberTokenParser extends NumberDocumentParser {
+
+  private static final JsonRecordDecoder<DataTableStub> DECODER = new JsonRecordDecoder<DataTableStub>() {
+    @Override
+    public DataTableStub create() {
+      final DataTableStub record = new DataTableStub();
+      record.string1 = "null";
+      return record;
+    }
+
+    @Override
+    public boolean decodeField(final TableFormat format, final JsonParser parser,
+        final String name, final DataTableStub record) throws IOException {
+      switch (name) {
+      case "i":
+        record.int1 = JsonFields.readInteger(parser);
+        return true;
+      case "s":
+        record.string1 = JsonFields.readString(parser);
+        return true;
+      default:
+        return false;
+      }
+    }
+  };
+
+  private final TableFormat format;
+
+  public NumberTokenParser(final TableFormat format) {
+    super(format);
+    this.format = format;
+  }
+
+  @Override
+  public void parse(final JsonParser parser, final DocumentSink sink)
+      throws ParseException, IOException {
+    final DataTableStub record = DECODER.decode(format, parser);
+    sink.emit(record.int1 % 2 == 0 ? "even" : "all", record);
+  }
+
+}
@@ -0,0 +1,159 @@
+package edu.harvard.data.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.harvard.data.FormatLibrary;
+import edu.harvard.data.FormatLibrary.Format;
+import edu.harvard.data.TableFormat;
+
+public class LocalFileInputStreamTests {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File file(final byte[] data) throws IOException {
+    final File file = folder.newFile();
+    try (OutputStream out = new FileOutputStream(file)) {
+      out.write(data);
+    }
+    return file;
+  }
+
+  private byte[] data(final int length) {
+    final byte[] data = new byte[length];
+    new Random(length).nextBytes(data);
+    return data;
+  }
+
+  // Reads with a mix of single bytes and odd-sized arrays, so that reads
+  // straddle window and block boundaries.
+  private byte[] readAll(final InputStream in) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final byte[] buf = new byte[777];
+    int i = 0;
+    while (true) {
+      if (i++ % 5 == 0) {
+        final int b = in.read();
+        if (b < 0) {
+          break;
+        }
+        out.write(b);
+      } else {
+        final int n = in.read(buf, 0, buf.length);
+        if (n < 0) {
+          break;
+        }
+        out.write(buf, 0, n);
+      }
+    }
+    assertEquals(-1, in.read());
+    assertEquals(-1, in.read(buf, 0, buf.length));
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testMappedWindows() throws IOException {
+    final byte[] data = data(100000);
+    try (InputStream in = new MappedFileInputStream(file(data), 4096)) {
+      assertEquals(data.length, in.available());
+      assertArrayEquals(data, readAll(in));
+      assertEquals(0, in.available());
+    }
+  }
+
+  @Test
+  public void testMappedSkip() throws IOException {
+    final byte[] data = data(10000);
+    try (InputStream in = new MappedFileInputStream(file(data), 1000)) {
+      assertEquals(data[0], (byte) in.read());
+      assertEquals(500, in.skip(500));
+      assertEquals(data[501], (byte) in.read());
+      assertEquals(3000, in.skip(3000));
+      assertEquals(data[3502], (byte) in.read());
+      assertEquals(data.length - 3503, in.skip(Long.MAX_VALUE));
+      assertEquals(-1, in.read());
+    }
+  }
+
+  @Test
+  public void testReadAheadBlocks() throws IOException {
+    final byte[] data = data(100000);
+    try (InputStream in = new ReadAheadFileInputStream(file(data), 4096, 3)) {
+      assertArrayEquals(data, readAll(in));
+    }
+  }
+
+  @Test
+  public void testEmptyFiles() throws IOException {
+    final File file = file(new byte[0]);
+    try (InputStream in = new MappedFileInputStream(file)) {
+      assertEquals(-1, in.read());
+    }
+    try (InputStream in = new ReadAheadFileInputStream(file)) {
+      assertEquals(-1, in.read());
+    }
+  }
+
+  // Closing a stream before the end of the file stops the background thread.
+  @Test
+  public void testReadAheadEarlyClose() throws IOException, InterruptedException {
+    final byte[] data = data(100000);
+    final int threads = Thread.activeCount();
+    for (int i = 0; i < 20; i++) {
+      final InputStream in = new ReadAheadFileInputStream(file(data), 1024, 2);
+      assertEquals(data[0], (byte) in.read());
+      in.close();
+    }
+    for (int i = 0; i < 100 && Thread.activeCount() > threads; i++) {
+      Thread.sleep(10);
+    }
+    assertTrue(Thread.activeCount() <= threads);
+  }
+
+  @Test(expected = IOException.class)
+  public void testReadAfterClose() throws IOException {
+    final InputStream in = new MappedFileInputStream(file(data(10)));
+    in.close();
+    in.read();
+  }
+
+  @Test(expected = FileNotFoundException.class)
+  public void testMissingFile() throws IOException {
+    new MappedFileInputStream(new File(folder.getRoot(), "missing"));
+  }
+
+  // Both the mapped and read-ahead paths return the same contents as the
+  // stream that was written.
+  @Test
+  public void testFormatStreams() throws IOException {
+    final byte[] data = data(300000);
+    final FormatLibrary formats = new FormatLibrary();
+    for (final Format name : new Format[] { Format.DecompressedInternal,
+        Format.CompressedInternal }) {
+      final TableFormat format = formats.getFormat(name);
+      final File file = folder.newFile("data" + name + format.getExtension());
+      try (OutputStream out = format.getOutputStream(file)) {
+        out.write(data);
+      }
+      try (InputStream in = format.getInputStream(file)) {
+        assertArrayEquals(data, IOUtils.toByteArray(in));
+      }
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package edu.harvard.data.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import edu.harvard.data.FormatLibrary;
+import edu.harvard.data.FormatLibrary.Format;
+import edu.harvard.data.TableFormat;
+
+// Compares the throughput of TableFormat.getInputStream (memory-mapped for
+// uncompressed files, read-ahead for compressed ones) against the previous
+// FileInputStream stack when reading a local file through the same
+// InputStreamReader and BufferedReader chain that the verifiers use. Not run as
+// part of the test suite; invoke it manually with the test classpath:
+//
+// java edu.harvard.data.io.LocalReadBenchmark <file> [format] [iterations]
+//
+// The format defaults to DecompressedCanvasDataFlatFiles; use
+// CanvasDataFlatFiles for a gzipped file. Each iteration reads the whole file
+// with both stacks and checks that they saw the same characters.
+public class LocalReadBenchmark {
+
+  public static void main(final String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: LocalReadBenchmark <file> [format] [iterations]");
+      System.exit(1);
+    }
+    final File file = new File(args[0]);
+    final Format formatName = args.length > 1 ? Format.valueOf(args[1])
+        : Format.DecompressedCanvasDataFlatFiles;
+    final int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+    final TableFormat format = new FormatLibrary().getFormat(formatName);
+
+    // The first iteration warms up the JIT and the file cache.
+    for (int i = 0; i <= iterations; i++) {
+      final long streamStart = System.nanoTime();
+      final long streamChecksum = read(format,
+          format.getCodec().decompress(new FileInputStream(file)));
+      final long streamNanos = System.nanoTime() - streamStart;
+      final long localStart = System.nanoTime();
+      final long localChecksum = read(format, format.getInputStream(file));
+      final long localNanos = System.nanoTime() - localStart;
+      if (streamChecksum != localChecksum) {
+        throw new IllegalStateException(
+            "Checksum mismatch: " + streamChecksum + " != " + localChecksum);
+      }
+      final double megabytes = file.length() / (1024.0 * 1024.0);
+      System.out.println((i == 0 ? "warmup" : "run " + i) + ": FileInputStream "
+          + streamNanos / 1000000 + " ms (" + rate(megabytes, streamNanos) + " MB/s), "
+          + "getInputStream " + localNanos / 1000000 + " ms (" + rate(megabytes, localNanos)
+          + " MB/s), speedup " + String.format("%.2f", (double) streamNanos / localNanos) + "x");
+    }
+  }
+
+  private static String rate(final double megabytes, final long nanos) {
+    return String.format("%.0f", megabytes / (nanos / 1e9));
+  }
+
+  private static long read(final TableFormat format, final InputStream stream)
+      throws IOException {
+    long checksum = 0;
+    long position = 0;
+    try (Reader in = new BufferedReader(new InputStreamReader(stream, format.getEncoding()))) {
+      final char[] buf = new char[8192];
+      int n = in.read(buf);
+      while (n >= 0) {
+        // Sample every 64th character rather than summing them all, so that
+        // the benchmark measures the read path rather than the checksum.
+        for (int i = (int) ((64 - position % 64) % 64); i < n; i += 64) {
+          checksum = checksum * 31 + buf[i];
+        }
+        position += n;
+        n = in.read(buf);
+      }
+    }
+    return checksum * 31 + position;
+  }
+}
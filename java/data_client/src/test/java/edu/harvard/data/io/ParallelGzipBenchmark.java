@@ -0,0 +1,89 @@
+package edu.harvard.data.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+
+// Compares the throughput and compression ratio of ParallelGzipOutputStream
+// against a single GZIPOutputStream when compressing a file held in memory. Not
+// run as part of the test suite; invoke it manually with the test classpath:
+//
+// java edu.harvard.data.io.ParallelGzipBenchmark <file> [iterations]
+//
+// The first iteration also checks that the parallel output decompresses to the
+// original file.
+public class ParallelGzipBenchmark {
+
+  public static void main(final String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: ParallelGzipBenchmark <file> [iterations]");
+      System.exit(1);
+    }
+    final File file = new File(args[0]);
+    final int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+    final byte[] data = Files.readAllBytes(file.toPath());
+    final double megabytes = data.length / (1024.0 * 1024.0);
+    System.out.println(Runtime.getRuntime().availableProcessors() + " processors, "
+        + String.format("%.0f", megabytes) + " MB");
+
+    verify(data);
+    // The first iteration warms up the JIT.
+    for (int i = 0; i <= iterations; i++) {
+      final CountingOutputStream jdkBytes = new CountingOutputStream(new NullOutputStream());
+      final long jdkStart = System.nanoTime();
+      write(new GZIPOutputStream(jdkBytes, 64 * 1024), data);
+      final long jdkNanos = System.nanoTime() - jdkStart;
+      final CountingOutputStream parallelBytes = new CountingOutputStream(new NullOutputStream());
+      final long parallelStart = System.nanoTime();
+      write(new ParallelGzipOutputStream(parallelBytes), data);
+      final long parallelNanos = System.nanoTime() - parallelStart;
+      System.out.println((i == 0 ? "warmup" : "run " + i) + ": GZIPOutputStream "
+          + jdkNanos / 1000000 + " ms (" + rate(megabytes, jdkNanos) + " MB/s, "
+          + ratio(jdkBytes, data) + "), ParallelGzipOutputStream " + parallelNanos / 1000000
+          + " ms (" + rate(megabytes, parallelNanos) + " MB/s, " + ratio(parallelBytes, data)
+          + "), speedup " + String.format("%.2f", (double) jdkNanos / parallelNanos) + "x");
+    }
+  }
+
+  // Write in 8KB chunks, as a BufferedWriter would.
+  private static void write(final OutputStream out, final byte[] data) throws IOException {
+    try {
+      for (int offset = 0; offset < data.length; offset += 8192) {
+        out.write(data, offset, Math.min(8192, data.length - offset));
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  private static void verify(final byte[] data) throws IOException {
+    final File temp = File.createTempFile("parallel", ".gz");
+    try {
+      write(new ParallelGzipOutputStream(Files.newOutputStream(temp.toPath())), data);
+      try (InputStream in = new GZIPInputStream(Files.newInputStream(temp.toPath()))) {
+        if (!IOUtils.contentEquals(in, new ByteArrayInputStream(data))) {
+          throw new IllegalStateException("Parallel output does not match the input");
+        }
+      }
+    } finally {
+      temp.delete();
+    }
+  }
+
+  private static String rate(final double megabytes, final long nanos) {
+    return String.format("%.0f", megabytes / (nanos / 1e9));
+  }
+
+  private static String ratio(final CountingOutputStream out, final byte[] data) {
+    return String.format("%.2f%%", 100.0 * out.getByteCount() / data.length);
+  }
+}
@@ -0,0 +1,248 @@
+package edu.harvard.data.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.compress.GzipCodec;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import edu.harvard.data.TableFormat.Compression;
+
+public class ParallelGzipTests {
+
+  private final ExecutorService exec = Executors.newFixedThreadPool(3);
+
+  @After
+  public void shutdown() {
+    exec.shutdownNow();
+  }
+
+  // Text-like data, so that the compression ratio is realistic.
+  private byte[] data(final int length) {
+    final Random random = new Random(length);
+    final byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) (i % 80 == 79 ? '\n' : 'a' + random.nextInt(8));
+    }
+    return data;
+  }
+
+  // Writes with a mix of single bytes and odd-sized arrays, so that writes
+  // straddle block boundaries.
+  private byte[] compress(final byte[] data, final int blockSize) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (OutputStream out = new ParallelGzipOutputStream(bytes, exec, blockSize,
+        Deflater.DEFAULT_COMPRESSION)) {
+      int offset = 0;
+      int i = 0;
+      while (offset < data.length) {
+        if (i++ % 5 == 0) {
+          out.write(data[offset++]);
+        } else {
+          final int n = Math.min(777, data.length - offset);
+          out.write(data, offset, n);
+          offset += n;
+        }
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testGzipInputStream() throws IOException {
+    final byte[] data = data(100000);
+    for (final int blockSize : new int[] { 1, 1000, 4096, 100000, 1000000 }) {
+      final byte[] compressed = compress(data, blockSize);
+      try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+        assertArrayEquals(data, IOUtils.toByteArray(in));
+      }
+    }
+  }
+
+  @Test
+  public void testBlockGzipInputStream() throws IOException {
+    final byte[] data = data(300000);
+    final byte[] compressed = compress(data, 10000);
+    try (InputStream in = new BlockGzipInputStream(new ByteArrayInputStream(compressed))) {
+      assertArrayEquals(data, IOUtils.toByteArray(in));
+    }
+  }
+
+  // Hadoop's built-in gzip decompressor reads every member of the file.
+  @Test
+  public void testHadoopGzipCodec() throws IOException {
+    final byte[] data = data(300000);
+    final byte[] compressed = compress(data, 10000);
+    final GzipCodec codec = ReflectionUtils.newInstance(GzipCodec.class, new Configuration());
+    try (InputStream in = codec.createInputStream(new ByteArrayInputStream(compressed))) {
+      assertArrayEquals(data, IOUtils.toByteArray(in));
+    }
+  }
+
+  @Test
+  public void testEmptyStream() throws IOException {
+    final byte[] compressed = compress(new byte[0], 1000);
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+      assertEquals(-1, in.read());
+    }
+  }
+
+  // Incompressible data grows slightly, which must not overflow the member
+  // buffer.
+  @Test
+  public void testIncompressibleData() throws IOException {
+    final byte[] data = new byte[500000];
+    new Random(0).nextBytes(data);
+    final byte[] compressed = compress(data, 200000);
+    assertTrue(compressed.length > data.length);
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+      assertArrayEquals(data, IOUtils.toByteArray(in));
+    }
+  }
+
+  // Large blocks compress almost as well as a single member.
+  @Test
+  public void testCompressionRatio() throws IOException {
+    final byte[] data = data(4 * 1024 * 1024);
+    final ByteArrayOutputStream single = new ByteArrayOutputStream();
+    try (OutputStream out = new GZIPOutputStream(single)) {
+      out.write(data);
+    }
+    final int parallel = compress(data, ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE).length;
+    assertTrue(parallel < single.size() * 1.01);
+  }
+
+  @Test
+  public void testCompressionFormat() throws IOException {
+    final byte[] data = data(3 * ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE + 17);
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (OutputStream out = Compression.Gzip.compress(bytes)) {
+      assertEquals(ParallelGzipOutputStream.class, out.getClass());
+      out.write(data);
+    }
+    try (InputStream in = Compression.Gzip.decompress(new ByteArrayInputStream(bytes.toByteArray()))) {
+      assertArrayEquals(data, IOUtils.toByteArray(in));
+    }
+  }
+
+  // A failure in the underlying stream is reported to the writer, and the
+  // stream is still closed.
+  @Test
+  public void testWriteError() throws IOException {
+    final boolean[] closed = new boolean[1];
+    final OutputStream broken = new OutputStream() {
+      @Override
+      public void write(final int b) throws IOException {
+        throw new IOException("broken");
+      }
+
+      @Override
+      public void close() {
+        closed[0] = true;
+      }
+    };
+    final OutputStream out = new ParallelGzipOutputStream(broken, exec, 10000,
+        Deflater.DEFAULT_COMPRESSION);
+    out.write(data(1000));
+    try {
+      out.close();
+      fail("Expected an IOException");
+    } catch (final IOException e) {
+      assertEquals("broken", e.getMessage());
+    }
+    assertTrue(closed[0]);
+  }
+
+  // Streams share a limit on pending blocks. Once it is reached, a stream
+  // with nothing pending compresses its block itself rather than wait on the
+  // others, whose blocks here are stuck until the latch is released.
+  @Test
+  public void testSharedPendingLimit() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicInteger submitted = new AtomicInteger();
+    final ExecutorService blocked = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 1,
+        TimeUnit.SECONDS, new SynchronousQueue<Runnable>()) {
+      @Override
+      public <T> Future<T> submit(final Callable<T> task) {
+        submitted.incrementAndGet();
+        return super.submit(task);
+      }
+
+      @Override
+      protected void beforeExecute(final Thread t, final Runnable r) {
+        try {
+          latch.await();
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+    assertEquals(ParallelGzipOutputStream.MAX_PENDING_BLOCKS,
+        ParallelGzipOutputStream.pendingBlocks.availablePermits());
+    final int streams = ParallelGzipOutputStream.MAX_PENDING_BLOCKS + 3;
+    final byte[] data = data(2500);
+    final List<ByteArrayOutputStream> outputs = new ArrayList<ByteArrayOutputStream>();
+    final List<OutputStream> gzips = new ArrayList<OutputStream>();
+    try {
+      for (int i = 0; i < streams; i++) {
+        outputs.add(new ByteArrayOutputStream());
+        gzips.add(new ParallelGzipOutputStream(outputs.get(i), blocked, 1000,
+            Deflater.DEFAULT_COMPRESSION));
+        gzips.get(i).write(data, 0, 1000);
+      }
+      assertEquals(ParallelGzipOutputStream.MAX_PENDING_BLOCKS, submitted.get());
+      assertEquals(0, ParallelGzipOutputStream.pendingBlocks.availablePermits());
+      // The blocks compressed on this thread did not leave a Deflater behind.
+      assertNull(ParallelGzipOutputStream.deflaters.get());
+      latch.countDown();
+      for (int i = 0; i < streams; i++) {
+        gzips.get(i).write(data, 1000, 1500);
+        gzips.get(i).close();
+        try (InputStream in = new GZIPInputStream(
+            new ByteArrayInputStream(outputs.get(i).toByteArray()))) {
+          assertArrayEquals(data, IOUtils.toByteArray(in));
+        }
+      }
+      assertEquals(ParallelGzipOutputStream.MAX_PENDING_BLOCKS,
+          ParallelGzipOutputStream.pendingBlocks.availablePermits());
+    } finally {
+      latch.countDown();
+      blocked.shutdownNow();
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testWriteAfterClose() throws IOException {
+    final OutputStream out = new ParallelGzipOutputStream(new ByteArrayOutputStream());
+    out.close();
+    out.write(1);
+  }
+}
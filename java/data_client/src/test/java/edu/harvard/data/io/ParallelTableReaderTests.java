@@ -0,0 +1,353 @@
+package edu.harvard.data.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelTableReaderTests {
+
+  private ExecutorService exec;
+
+  @Before
+  public void setup() {
+    exec = Executors.newFixedThreadPool(4);
+  }
+
+  @After
+  public void tearDown() {
+    exec.shutdownNow();
+  }
+
+  private List<TableReader<DataTableStub>> getReaders(final Integer... sizes) {
+    final List<TableReader<DataTableStub>> readers = new ArrayList<TableReader<DataTableStub>>();
+    for (int i = 0; i < sizes.length; i++) {
+      readers.add(new TableReaderStub<DataTableStub>(sizes[i], "t" + i));
+    }
+    return readers;
+  }
+
+  // Check that the ordered iterator returns records in the same order as a
+  // CombinedTableReader, with more tables than the read-ahead window and more
+  // records than the buffer size.
+  @Test
+  public void testOrderedIterator() throws IOException {
+    try (final ParallelTableReader<DataTableStub> in = new ParallelTableReader<DataTableStub>(
+        getReaders(100, 0, 100, 100, 5, 100, 100, 100), exec, 3, 7)) {
+      final List<DataTableStub> read = new ArrayList<DataTableStub>();
+      for (final DataTableStub record : in) {
+        read.add(record);
+      }
+      assertEquals(605, read.size());
+      final Integer[] sizes = { 100, 0, 100, 100, 5, 100, 100, 100 };
+      for (int table = 0; table < sizes.length; table++) {
+        for (int i = 0; i < sizes[table]; i++) {
+          final DataTableStub record = read.remove(0);
+          assertEquals("t" + table, record.string1);
+          assertEquals(i, record.int1.intValue());
+        }
+      }
+    }
+  }
+
+  // Check behavior with no input readers.
+  @Test
+  public void testWithNoReaders() throws IOException {
+    final List<TableReader<DataTableStub>> readers = new ArrayList<TableReader<DataTableStub>>();
+    try (final ParallelTableReader<DataTableStub> in = new ParallelTableReader<DataTableStub>(
+        readers, exec)) {
+      assertFalse(in.iterator().hasNext());
+      assertEquals(0, in.forEach(new RecordHandler<DataTableStub>() {
+        @Override
+        public void handle(final DataTableStub record) {
+          fail();
+        }
+      }));
+    }
+  }
+
+  // Check that forEach sees every record, and that records from a single
+  // table are handled in order.
+  @Test
+  public void testForEach() throws IOException {
+    final Map<String, List<Integer>> seen = Collections
+        .synchronizedMap(new HashMap<String, List<Integer>>());
+    try (final ParallelTableReader<DataTableStub> in = new ParallelTableReader<DataTableStub>(
+        getReaders(50, 50, 0, 50, 50, 50), exec)) {
+      final long count = in.forEach(new RecordHandler<DataTableStub>() {
+        @Override
+        public void handle(final DataTableStub record) {
+          List<Integer> lst;
+          synchronized (seen) {
+            if (!seen.containsKey(record.string1)) {
+              seen.put(record.string1, new ArrayList<Integer>());
+            }
+            lst = seen.get(record.string1);
+          }
+          lst.add(record.int1);
+        }
+      });
+      assertEquals(250, count);
+      assertEquals(5, seen.size());
+      for (final List<Integer> lst : seen.values()) {
+        for (int i = 0; i < lst.size(); i++) {
+          assertEquals(i, lst.get(i).intValue());
+        }
+      }
+    }
+  }
+
+  // Check that an exception thrown by a handler is passed back to the caller.
+  @Test(expected = IOException.class)
+  public void testForEachHandlerException() throws IOException {
+    try (final ParallelTableReader<DataTableStub> in = new ParallelTableReader<DataTableStub>(
+        getReaders(10, 10), exec)) {
+      in.forEach(new RecordHandler<DataTableStub>() {
+        @Override
+        public void handle(final DataTableStub record) throws IOException {
+          throw new IOException();
+        }
+      });
+    }
+  }
+
+  // Check that forEach throws a failure as soon as it happens, even if a table
+  // submitted before the failing one is still being read, and that the
+  // unfinished table is cancelled.
+  @Test(timeout = 10000)
+  public void testForEachFirstFailure() throws IOException, InterruptedException {
+    final List<TableReader<DataTableStub>> readers = new ArrayList<TableReader<DataTableStub>>();
+    readers.add(new BlockingTableReader());
+    final IOException cause = new IOException();
+    readers.add(new FailingTableReader(cause));
+    try (final ParallelTableReader<DataTableStub> in = new ParallelTableReader<DataTableStub>(
+        readers, exec)) {
+      in.forEach(new RecordHandler<DataTableStub>() {
+        @Override
+        public void handle(final DataTableStub record) {
+        }
+      });
+      fail();
+    } catch (final IOException e) {
+      assertEquals(cause, e);
+    }
+    // The blocking table either never started or was interrupted.
+    exec.shutdown();
+    assertTrue(exec.awaitTermination(5, TimeUnit.SECONDS));
+  }
+
+  // Check that an exception thrown while reading a table on a background
+  // thread is rethrown by the iterator as an IterationException.
+  @Test
+  public void testIteratorReaderException() throws IOException {
+    final List<TableReader<DataTableStub>> readers = getReaders(10);
+    final IOException cause = new IOException();
+    readers.add(new FailingTableReader(cause));
+    try (final ParallelTableReader<DataTableStub> in = new ParallelTableReader<DataTableStub>(
+        readers, exec)) {
+      int count = 0;
+      try {
+        for (@SuppressWarnings("unused")
+        final DataTableStub record : in) {
+          count++;
+        }
+        fail();
+      } catch (final IterationException e) {
+        assertEquals(cause, e.getCause());
+      }
+      assertEquals(10, count);
+    }
+  }
+
+  // Check that all readers are closed after being read in either mode.
+  @Test
+  public void testExhaustedReadersClosed() throws IOException {
+    final List<TableReader<DataTableStub>> ordered = getReaders(10, 10, 10, 10, 10);
+    final ParallelTableReader<DataTableStub> in = new ParallelTableReader<DataTableStub>(ordered,
+        exec, 2, 3);
+    final Iterator<DataTableStub> it = in.iterator();
+    while (it.hasNext()) {
+      it.next();
+    }
+    for (final TableReader<DataTableStub> reader : ordered) {
+      assertTrue(((TableReaderStub<DataTableStub>) reader).closed);
+    }
+
+    final List<TableReader<DataTableStub>> unordered = getReaders(10, 10, 10, 10, 10);
+    new ParallelTableReader<DataTableStub>(unordered, exec)
+    .forEach(new RecordHandler<DataTableStub>() {
+      @Override
+      public void handle(final DataTableStub record) {
+      }
+    });
+    for (final TableReader<DataTableStub> reader : unordered) {
+      assertTrue(((TableReaderStub<DataTableStub>) reader).closed);
+    }
+  }
+
+  // Check that closing a partially-read reader stops the background tasks and
+  // closes all readers.
+  @Test
+  public void testCloseBeforeExhausted() throws IOException {
+    final List<TableReader<DataTableStub>> readers = getReaders(100, 100, 100);
+    final ParallelTableReader<DataTableStub> in = new ParallelTableReader<DataTableStub>(readers,
+        exec, 3, 2);
+    assertTrue(in.iterator().hasNext());
+    in.iterator().next();
+    in.close();
+    for (final TableReader<DataTableStub> reader : readers) {
+      assertTrue(((TableReaderStub<DataTableStub>) reader).closed);
+    }
+  }
+
+  // Check that close waits for a forEach task that is still reading a
+  // cancelled table before closing it.
+  @Test(timeout = 10000)
+  public void testCloseWaitsForForEachTasks() throws IOException, InterruptedException {
+    final BlockingTableReader blocking = new BlockingTableReader();
+    final List<TableReader<DataTableStub>> readers = new ArrayList<TableReader<DataTableStub>>();
+    readers.add(blocking);
+    readers.add(new FailingTableReader(new IOException(), blocking.started));
+    final ParallelTableReader<DataTableStub> in = new ParallelTableReader<DataTableStub>(readers,
+        exec);
+    try {
+      in.forEach(new RecordHandler<DataTableStub>() {
+        @Override
+        public void handle(final DataTableStub record) {
+        }
+      });
+      fail();
+    } catch (final IOException e) {
+      // Expected
+    }
+    in.close();
+    assertTrue(blocking.closed);
+    blocking.stopped.await();
+    assertFalse(blocking.closedWhileReading);
+  }
+
+  // Check that close waits for an iterator task that is still reading a table
+  // before closing it.
+  @Test(timeout = 10000)
+  public void testCloseWaitsForIteratorTasks() throws IOException, InterruptedException {
+    final BlockingTableReader blocking = new BlockingTableReader();
+    final List<TableReader<DataTableStub>> readers = getReaders(1);
+    readers.add(blocking);
+    final ParallelTableReader<DataTableStub> in = new ParallelTableReader<DataTableStub>(readers,
+        exec, 2, 2);
+    in.iterator().next();
+    blocking.started.await();
+    in.close();
+    assertTrue(blocking.closed);
+    blocking.stopped.await();
+    assertFalse(blocking.closedWhileReading);
+  }
+
+  // A table that never returns a record, blocking until its thread is
+  // interrupted. Like a reader in the middle of a network read, it takes a
+  // little while to notice the interrupt, and records whether it was closed
+  // during that time.
+  private static class BlockingTableReader implements TableReader<DataTableStub> {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch stopped = new CountDownLatch(1);
+    volatile boolean closed;
+    volatile boolean closedWhileReading;
+
+    @Override
+    public Iterator<DataTableStub> iterator() {
+      return new Iterator<DataTableStub>() {
+        @Override
+        public boolean hasNext() {
+          started.countDown();
+          try {
+            new CountDownLatch(1).await();
+          } catch (final InterruptedException e) {
+            final long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+            while (System.nanoTime() < end) {
+              LockSupport.parkNanos(end - System.nanoTime());
+            }
+            closedWhileReading = closed;
+            stopped.countDown();
+            Thread.currentThread().interrupt();
+          }
+          return false;
+        }
+
+        @Override
+        public DataTableStub next() {
+          throw new NoSuchElementException();
+        }
+
+        @Override
+        public void remove() {
+        }
+      };
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+
+  private static class FailingTableReader implements TableReader<DataTableStub> {
+    private final IOException cause;
+    private final CountDownLatch before;
+
+    FailingTableReader(final IOException cause) {
+      this(cause, new CountDownLatch(0));
+    }
+
+    // Fail only once the latch has been released.
+    FailingTableReader(final IOException cause, final CountDownLatch before) {
+      this.cause = cause;
+      this.before = before;
+    }
+
+    @Override
+    public Iterator<DataTableStub> iterator() {
+      return new Iterator<DataTableStub>() {
+        @Override
+        public boolean hasNext() {
+          try {
+            before.await();
+          } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          throw new IterationException(cause);
+        }
+
+        @Override
+        public DataTableStub next() {
+          throw new IterationException(cause);
+        }
+
+        @Override
+        public void remove() {
+        }
+      };
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
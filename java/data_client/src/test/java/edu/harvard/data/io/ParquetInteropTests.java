@@ -0,0 +1,228 @@
+package edu.harvard.data.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.column.ParquetProperties.WriterVersion;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.NanoTime;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.hadoop.example.GroupWriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.harvard.data.FormatLibrary;
+import edu.harvard.data.FormatLibrary.Format;
+import edu.harvard.data.TableFormat;
+import edu.harvard.data.TableFormat.Compression;
+
+// Check TableWriter and FileTableReader against parquet-mr's example Group
+// API, which is independent of the write and read support that they use:
+// files written by TableWriter must be readable as Groups, and files written
+// from Groups with dictionary encoding must be readable by FileTableReader.
+public class ParquetInteropTests {
+
+  private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+  private static final int JULIAN_EPOCH_DAY = 2440588;
+  private static final MessageType SCHEMA = MessageTypeParser.parseMessageType(
+      "message DataTableStub {\n"
+          + "  optional int32 int_1;\n"
+          + "  optional binary string_1 (UTF8);\n"
+          + "  optional binary string_2 (UTF8);\n"
+          + "  optional int96 timestamp;\n"
+          + "  optional int32 date (DATE);\n"
+          + "}");
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final TableFormat format = new FormatLibrary().getFormat(Format.Parquet);
+  private final Configuration conf = new Configuration();
+
+  // Records with nulls in every column, non-ASCII text, timestamps either side
+  // of the epoch with nanosecond fractions, and dates at midnight in the
+  // format's time zone.
+  private List<DataTableStub> records(final int count) {
+    final Random random = new Random(count);
+    final Calendar calendar = new GregorianCalendar(format.getDateFormat().getTimeZone());
+    final List<DataTableStub> records = new ArrayList<DataTableStub>();
+    for (int i = 0; i < count; i++) {
+      final DataTableStub record = new DataTableStub();
+      if (i % 7 != 0) {
+        record.int1 = random.nextInt();
+      }
+      if (i % 11 != 0) {
+        record.string1 = "value " + i + " é中 " + random.nextInt(1000);
+      }
+      record.string2 = i % 3 == 0 ? "" : Integer.toString(i);
+      if (i % 13 != 0) {
+        final Timestamp timestamp = new Timestamp(
+            (random.nextLong() % (80L * 365 * MILLIS_PER_DAY)) / 1000 * 1000);
+        timestamp.setNanos(random.nextInt(1000000000));
+        record.timestamp = timestamp;
+      }
+      if (i % 17 != 0) {
+        calendar.clear();
+        calendar.set(1940 + random.nextInt(100), random.nextInt(12), 1 + random.nextInt(28));
+        record.date = calendar.getTime();
+      }
+      records.add(record);
+    }
+    return records;
+  }
+
+  private static long floorDay(final long millis) {
+    final long day = millis / MILLIS_PER_DAY;
+    return millis % MILLIS_PER_DAY < 0 ? day - 1 : day;
+  }
+
+  // Hive and Impala store a timestamp as the Julian day and the nanoseconds
+  // within that day, in UTC.
+  private NanoTime nanoTime(final Timestamp timestamp) {
+    final long day = floorDay(timestamp.getTime());
+    final long seconds = (timestamp.getTime() - day * MILLIS_PER_DAY) / 1000;
+    return new NanoTime((int) day + JULIAN_EPOCH_DAY,
+        seconds * 1000000000L + timestamp.getNanos());
+  }
+
+  // Dates are stored as days since the epoch, in the format's time zone.
+  private int day(final Date date) {
+    final long millis = date.getTime();
+    return (int) floorDay(millis + format.getDateFormat().getTimeZone().getOffset(millis));
+  }
+
+  private File write(final List<DataTableStub> records) throws IOException {
+    final File file = new File(folder.getRoot(), "table" + format.getExtension());
+    try (TableWriter<DataTableStub> writer = new TableWriter<DataTableStub>(DataTableStub.class,
+        format, file)) {
+      for (final DataTableStub record : records) {
+        writer.add(record);
+      }
+    }
+    return file;
+  }
+
+  private void checkParquetMrRead(final List<DataTableStub> records, final File file)
+      throws IOException {
+    final Path path = new Path(file.toURI());
+    final MessageType schema = ParquetFileReader.readFooter(conf, path).getFileMetaData()
+        .getSchema();
+    assertEquals(SCHEMA.getFieldCount(), schema.getFieldCount());
+    for (int i = 0; i < SCHEMA.getFieldCount(); i++) {
+      assertEquals(SCHEMA.getType(i), schema.getType(i));
+    }
+    try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(), path)
+        .withConf(conf).build()) {
+      for (final DataTableStub record : records) {
+        final Group group = reader.read();
+        if (record.int1 == null) {
+          assertEquals(0, group.getFieldRepetitionCount("int_1"));
+        } else {
+          assertEquals((int) record.int1, group.getInteger("int_1", 0));
+        }
+        if (record.string1 == null) {
+          assertEquals(0, group.getFieldRepetitionCount("string_1"));
+        } else {
+          assertEquals(record.string1, group.getString("string_1", 0));
+        }
+        assertEquals(record.string2, group.getString("string_2", 0));
+        if (record.timestamp == null) {
+          assertEquals(0, group.getFieldRepetitionCount("timestamp"));
+        } else {
+          final NanoTime expected = nanoTime(record.timestamp);
+          final NanoTime actual = NanoTime.fromBinary(group.getInt96("timestamp", 0));
+          assertEquals(expected.getJulianDay(), actual.getJulianDay());
+          assertEquals(expected.getTimeOfDayNanos(), actual.getTimeOfDayNanos());
+        }
+        if (record.date == null) {
+          assertEquals(0, group.getFieldRepetitionCount("date"));
+        } else {
+          assertEquals(day(record.date), group.getInteger("date", 0));
+        }
+      }
+      assertNull(reader.read());
+    }
+  }
+
+  @Test
+  public void readByParquetMr() throws IOException {
+    final List<DataTableStub> records = records(20000);
+    checkParquetMrRead(records, write(records));
+  }
+
+  @Test
+  public void uncompressedReadByParquetMr() throws IOException {
+    format.setCompression(Compression.None);
+    final List<DataTableStub> records = records(1000);
+    checkParquetMrRead(records, write(records));
+  }
+
+  // parquet-mr writes several pages per column chunk here, with statistics in
+  // the page headers and dictionary-encoded columns.
+  private void checkReadParquetMrFile(final CompressionCodecName compression)
+      throws IOException {
+    final List<DataTableStub> records = records(20000);
+    final File file = new File(folder.getRoot(), "parquet-mr" + format.getExtension());
+    GroupWriteSupport.setSchema(SCHEMA, conf);
+    final SimpleGroupFactory groups = new SimpleGroupFactory(SCHEMA);
+    try (ParquetWriter<Group> writer = new ParquetWriter<Group>(new Path(file.toURI()),
+        new GroupWriteSupport(), compression, 256 * 1024, 16 * 1024, 16 * 1024, true, true,
+        WriterVersion.PARQUET_1_0, conf)) {
+      for (final DataTableStub record : records) {
+        final Group group = groups.newGroup();
+        if (record.int1 != null) {
+          group.append("int_1", record.int1);
+        }
+        if (record.string1 != null) {
+          group.append("string_1", record.string1);
+        }
+        group.append("string_2", record.string2);
+        if (record.timestamp != null) {
+          group.append("timestamp", nanoTime(record.timestamp));
+        }
+        if (record.date != null) {
+          group.append("date", day(record.date));
+        }
+        writer.write(group);
+      }
+    }
+    final List<DataTableStub> read = new ArrayList<DataTableStub>();
+    try (FileTableReader<DataTableStub> reader = new FileTableReader<DataTableStub>(
+        DataTableStub.class, format, file)) {
+      for (final DataTableStub record : reader) {
+        read.add(record);
+      }
+    }
+    assertEquals(records, read);
+  }
+
+  @Test
+  public void readParquetMrFile() throws IOException {
+    checkReadParquetMrFile(CompressionCodecName.GZIP);
+  }
+
+  @Test
+  public void readUncompressedParquetMrFile() throws IOException {
+    checkReadParquetMrFile(CompressionCodecName.UNCOMPRESSED);
+  }
+}
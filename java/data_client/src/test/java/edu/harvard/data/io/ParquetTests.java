@@ -0,0 +1,264 @@
+package edu.harvard.data.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.OriginalType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type.Repetition;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.harvard.data.DataTable;
+import edu.harvard.data.FormatLibrary;
+import edu.harvard.data.FormatLibrary.Format;
+import edu.harvard.data.TableFormat;
+import edu.harvard.data.TableFormat.Compression;
+import edu.harvard.data.schema.DataSchemaType;
+
+public class ParquetTests {
+
+  private static final byte[] MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final TableFormat format = new FormatLibrary().getFormat(Format.Parquet);
+
+  // Records with varied values, including nulls in every column and a run of
+  // records that are entirely null.
+  private List<DataTableStub> records(final int count, final long seed) {
+    final Random random = new Random(seed);
+    final List<DataTableStub> records = new ArrayList<DataTableStub>();
+    for (int i = 0; i < count; i++) {
+      final DataTableStub record = new DataTableStub();
+      if (i < 10 || i % 50 == 0) {
+        records.add(record);
+        continue;
+      }
+      if (i % 7 != 0) {
+        record.int1 = random.nextInt() - 1;
+      }
+      if (i % 11 != 0) {
+        record.string1 = "value " + i + " é中 " + random.nextInt(1000);
+      }
+      record.string2 = i % 3 == 0 ? "" : Integer.toString(i);
+      if (i % 13 != 0) {
+        final Timestamp timestamp = new Timestamp(
+            (random.nextLong() % (80L * 365 * 24 * 60 * 60 * 1000)) / 1000 * 1000);
+        timestamp.setNanos(random.nextInt(1000000000));
+        record.timestamp = timestamp;
+      }
+      if (i % 17 != 0) {
+        record.date = new GregorianCalendar(1940 + random.nextInt(100), random.nextInt(12),
+            1 + random.nextInt(28)).getTime();
+      }
+      records.add(record);
+    }
+    return records;
+  }
+
+  private File write(final TableFormat format, final List<DataTableStub> records)
+      throws IOException {
+    final File file = new File(folder.getRoot(), "table" + format.getExtension());
+    try (TableWriter<DataTableStub> writer = new TableWriter<DataTableStub>(DataTableStub.class,
+        format, file)) {
+      for (final DataTableStub record : records) {
+        writer.add(record);
+      }
+    }
+    return file;
+  }
+
+  private List<DataTableStub> read(final TableFormat format, final File file) throws IOException {
+    final List<DataTableStub> records = new ArrayList<DataTableStub>();
+    try (FileTableReader<DataTableStub> reader = new FileTableReader<DataTableStub>(
+        DataTableStub.class, format, file)) {
+      for (final DataTableStub record : reader) {
+        records.add(record);
+      }
+    }
+    return records;
+  }
+
+  @Test
+  public void testParquetFormat() {
+    assertEquals(Format.Parquet, Format.fromLabel("parquet"));
+    assertTrue(format.isColumnar());
+    assertEquals(".parquet", format.getExtension());
+    assertFalse(new FormatLibrary().getFormat(Format.CompressedInternal).isColumnar());
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    final List<DataTableStub> records = records(5000, 1);
+    final File file = write(format, records);
+    final byte[] bytes = Files.readAllBytes(file.toPath());
+    assertArrayEquals(MAGIC, Arrays.copyOfRange(bytes, 0, 4));
+    assertArrayEquals(MAGIC, Arrays.copyOfRange(bytes, bytes.length - 4, bytes.length));
+    assertEquals(records, read(format, file));
+    // The temporary file has been removed.
+    assertArrayEquals(new String[] { file.getName() }, folder.getRoot().list());
+  }
+
+  @Test
+  public void testUncompressed() throws IOException {
+    format.setCompression(Compression.None);
+    final List<DataTableStub> records = records(5000, 2);
+    final File uncompressed = write(format, records);
+    assertEquals(records, read(format, uncompressed));
+  }
+
+  @Test
+  public void testEmptyTable() throws IOException {
+    final File file = write(format, new ArrayList<DataTableStub>());
+    assertTrue(read(format, file).isEmpty());
+  }
+
+  // Enough data for several pages per column chunk, and several row groups.
+  @Test
+  public void testPagesAndRowGroups() throws IOException {
+    final List<DataTableStub> records = records(200000, 3);
+    final File file = new File(folder.getRoot(), "large.parquet");
+    try (ParquetEncoder<DataTableStub> encoder = new ParquetEncoder<DataTableStub>(
+        DataTableStub.COLUMNAR, format, new FileOutputStream(file), folder.getRoot(),
+        4 * 1024 * 1024)) {
+      for (final DataTableStub record : records) {
+        encoder.add(record);
+      }
+    }
+    final List<BlockMetaData> rowGroups = readFooter(file).getBlocks();
+    assertTrue(rowGroups.size() > 1);
+    long rows = 0;
+    for (final BlockMetaData rowGroup : rowGroups) {
+      rows += rowGroup.getRowCount();
+    }
+    assertEquals(200000L, rows);
+    assertEquals(records, read(format, file));
+  }
+
+  @Test
+  public void testFileSchema() throws IOException {
+    final File file = write(format, records(10, 4));
+    final MessageType schema = readFooter(file).getFileMetaData().getSchema();
+    assertEquals(5, schema.getFieldCount());
+    final String[] names = { "int_1", "string_1", "string_2", "timestamp", "date" };
+    final PrimitiveTypeName[] types = { PrimitiveTypeName.INT32, PrimitiveTypeName.BINARY,
+        PrimitiveTypeName.BINARY, PrimitiveTypeName.INT96, PrimitiveTypeName.INT32 };
+    final OriginalType[] originalTypes = { null, OriginalType.UTF8, OriginalType.UTF8, null,
+        OriginalType.DATE };
+    for (int i = 0; i < names.length; i++) {
+      final PrimitiveType type = schema.getType(i).asPrimitiveType();
+      assertEquals(names[i], type.getName());
+      assertEquals(types[i], type.getPrimitiveTypeName());
+      assertEquals(Repetition.OPTIONAL, type.getRepetition());
+      assertEquals(originalTypes[i], type.getOriginalType());
+    }
+  }
+
+  // An aborted encoder writes nothing and removes its temporary file.
+  @Test
+  public void testAbort() throws IOException {
+    final File file = new File(folder.getRoot(), "aborted.parquet");
+    final ParquetEncoder<DataTableStub> encoder = new ParquetEncoder<DataTableStub>(
+        DataTableStub.COLUMNAR, format, new FileOutputStream(file), folder.getRoot());
+    for (final DataTableStub record : records(100, 6)) {
+      encoder.add(record);
+    }
+    encoder.abort();
+    assertEquals(0, file.length());
+    assertArrayEquals(new String[] { file.getName() }, folder.getRoot().list());
+  }
+
+  // Dates are stored as the day in the format's time zone, whatever the
+  // default time zone of the JVM.
+  @Test
+  public void testDateDays() throws IOException {
+    final Calendar calendar = new GregorianCalendar(format.getDateFormat().getTimeZone());
+    calendar.clear();
+    calendar.set(1969, Calendar.DECEMBER, 31);
+    final DataTableStub record = new DataTableStub();
+    record.date = calendar.getTime();
+    final File file = write(format, Arrays.asList(record));
+    final DataTableStub read = read(format, file).get(0);
+    assertEquals(record.date, read.date);
+    assertNull(read.timestamp);
+  }
+
+  // Table columns that are not in the file are read as nulls.
+  @Test
+  public void testMissingColumns() throws IOException {
+    final File file = write(format, records(100, 5));
+    final ColumnarCodec<DataTableStub> subset = new ColumnarCodec<DataTableStub>(
+        new String[] { "string_2", "new_column" },
+        new DataSchemaType[] { DataSchemaType.VarChar, DataSchemaType.BigInt }) {
+      @Override
+      public void getValues(final DataTableStub record, final Object[] values) {
+        fail();
+      }
+
+      @Override
+      public DataTableStub create(final Object[] values) {
+        assertNull(values[1]);
+        final DataTableStub record = new DataTableStub();
+        record.string2 = (String) values[0];
+        return record;
+      }
+    };
+    final List<DataTableStub> expected = records(100, 5);
+    try (ParquetFileIterator<DataTableStub> iterator = new ParquetFileIterator<DataTableStub>(
+        subset, format, file)) {
+      for (final DataTableStub record : expected) {
+        assertEquals(record.string2, iterator.next().string2);
+      }
+      assertFalse(iterator.hasNext());
+    }
+  }
+
+  @Test(expected = IterationException.class)
+  public void testNotParquet() throws IOException {
+    final File file = folder.newFile("table.tsv");
+    try (OutputStream out = new FileOutputStream(file)) {
+      out.write("1\ta\tb\t\t\n".getBytes("UTF-8"));
+    }
+    read(format, file);
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testNoCodec() throws IOException {
+    try (TableWriter<DataTable> writer = new TableWriter<DataTable>(DataTable.class, format,
+        folder.newFile("table.parquet"))) {
+      writer.add(new DataTableStub());
+    }
+  }
+
+  private ParquetMetadata readFooter(final File file) throws IOException {
+    return ParquetFileReader.readFooter(ParquetEncoder.getConfiguration(),
+        new Path(file.toURI()));
+  }
+}
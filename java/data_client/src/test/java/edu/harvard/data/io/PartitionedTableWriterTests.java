@@ -0,0 +1,167 @@
+package edu.harvard.data.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.harvard.data.FormatLibrary;
+import edu.harvard.data.FormatLibrary.Format;
+import edu.harvard.data.TableFormat;
+
+public class PartitionedTableWriterTests {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private TableFormat format;
+  private File dir;
+
+  @Before
+  public void setup() throws IOException {
+    format = new FormatLibrary().getFormat(Format.DecompressedInternal);
+    dir = folder.newFolder();
+  }
+
+  private PartitionedTableWriter<DataTableStub> makeWriter(final int partitions,
+      final long targetSize, final PartitionedTableWriter.Partitioner<DataTableStub> partitioner) {
+    return new PartitionedTableWriter<DataTableStub>(DataTableStub.class, format, dir, "table",
+        partitions, targetSize, partitioner);
+  }
+
+  private List<String> readLines(final File file) throws IOException {
+    return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+  }
+
+  // Check that records are dealt to each partition in turn, in order.
+  @Test
+  public void testRoundRobin() throws IOException {
+    final List<DataTableStub> records = DataTableStub.generateRecords(10, format);
+    final PartitionedTableWriter<DataTableStub> writer = makeWriter(3, 0,
+        PartitionedTableWriter.<DataTableStub> roundRobin());
+    for (final DataTableStub record : records) {
+      writer.add(record);
+    }
+    writer.close();
+    final Map<File, ContentChecksum> checksums = writer.getChecksums();
+    assertEquals(3, checksums.size());
+    for (int p = 0; p < 3; p++) {
+      final File file = new File(dir,
+          String.format("table-%05d-00000", p) + format.getExtension());
+      final List<String> lines = readLines(file);
+      assertEquals(p == 0 ? 4 : 3, lines.size());
+      for (int i = 0; i < lines.size(); i++) {
+        assertEquals(records.get(p + i * 3).recordString(), lines.get(i));
+      }
+      assertEquals(lines.size(), checksums.get(file).getRows());
+      assertEquals(ContentChecksum.forFile(file).getMd5(), checksums.get(file).getMd5());
+    }
+  }
+
+  // Check that all records with the same column value go to the same file.
+  @Test
+  public void testHashColumn() throws IOException {
+    final PartitionedTableWriter<DataTableStub> writer = makeWriter(4, 0,
+        PartitionedTableWriter.hashColumn(DataTableStub.class, "string_2"));
+    for (int i = 0; i < 200; i++) {
+      writer.add(new DataTableStub(format, i, "" + i, "key" + (i % 7), null, null));
+    }
+    writer.close();
+    final Map<String, File> keys = new HashMap<String, File>();
+    int rows = 0;
+    for (final File file : writer.getChecksums().keySet()) {
+      for (final String line : readLines(file)) {
+        final String key = line.split("\t")[2];
+        if (keys.containsKey(key)) {
+          assertEquals(keys.get(key), file);
+        }
+        keys.put(key, file);
+        rows++;
+      }
+    }
+    assertEquals(7, keys.size());
+    assertEquals(200, rows);
+    assertEquals(PartitionedTableWriter.hashPartition("key3", 4),
+        PartitionedTableWriter.hashPartition("key3", 4));
+    assertEquals(0, PartitionedTableWriter.hashPartition(null, 4));
+  }
+
+  // Check that a partition rolls to a new file once the target size is reached,
+  // and that files overshoot the target by no more than one batch of records.
+  @Test
+  public void testRollover() throws IOException {
+    final long target = 20 * 1000;
+    final int batch = 32;
+    final PartitionedTableWriter<DataTableStub> writer = makeWriter(2, target,
+        PartitionedTableWriter.<DataTableStub> roundRobin());
+    writer.resizeBuffer(batch);
+    final List<DataTableStub> records = DataTableStub.generateRecords(10000, format);
+    int maxLine = 0;
+    for (final DataTableStub record : records) {
+      maxLine = Math.max(maxLine, record.recordString().length() + 1);
+      writer.add(record);
+    }
+    writer.close();
+    final List<File> files = new ArrayList<File>(writer.getChecksums().keySet());
+    assertTrue(files.size() > 4);
+    long rows = 0;
+    for (final File file : files) {
+      final ContentChecksum checksum = writer.getChecksums().get(file);
+      assertEquals(file.length(), checksum.getLength());
+      assertEquals(readLines(file).size(), checksum.getRows());
+      rows += checksum.getRows();
+      // All but the last file of each partition reach the target size.
+      final String[] name = file.getName().split("-");
+      final int sequence = Integer.parseInt(name[2].substring(0, 5));
+      if (new File(dir, String.format("table-%s-%05d", name[1], sequence + 1)
+          + format.getExtension()).exists()) {
+        assertTrue(file.length() >= target);
+        assertTrue(file.length() < target + batch * maxLine);
+      }
+    }
+    assertEquals(records.size(), rows);
+  }
+
+  // Check that a table with no records still produces a file.
+  @Test
+  public void testEmptyTable() throws IOException {
+    final PartitionedTableWriter<DataTableStub> writer = makeWriter(4, 0,
+        PartitionedTableWriter.<DataTableStub> roundRobin());
+    writer.close();
+    final File file = new File(dir, "table-00000-00000" + format.getExtension());
+    assertEquals(1, writer.getChecksums().size());
+    assertTrue(file.exists());
+    assertEquals(0, writer.getChecksums().get(file).getRows());
+    assertEquals(0, writer.getChecksums().get(file).getLength());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownColumn() {
+    PartitionedTableWriter.hashColumn(DataTableStub.class, "no_such_column");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPartitionCount() {
+    makeWriter(0, 0, PartitionedTableWriter.<DataTableStub> roundRobin());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testChecksumsBeforeClose() throws IOException {
+    final PartitionedTableWriter<DataTableStub> writer = makeWriter(2, 0,
+        PartitionedTableWriter.<DataTableStub> roundRobin());
+    writer.add(new DataTableStub(format));
+    writer.getChecksums();
+  }
+}
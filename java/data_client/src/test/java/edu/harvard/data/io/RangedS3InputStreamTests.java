@@ -0,0 +1,287 @@
+package edu.harvard.data.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.methods.HttpGet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectId;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+
+import edu.harvard.data.AwsUtils;
+
+public class RangedS3InputStreamTests {
+
+  private static final S3ObjectId OBJ = AwsUtils.key("bucket", "key");
+
+  private ExecutorService exec;
+  private List<long[]> requests;
+  private List<List<String>> eTagConstraints;
+  private int failuresRemaining;
+  private int failAfter;
+  private String eTag;
+
+  @Before
+  public void setup() {
+    exec = Executors.newSingleThreadExecutor();
+    requests = new ArrayList<long[]>();
+    eTagConstraints = new ArrayList<List<String>>();
+    failuresRemaining = 0;
+    eTag = "etag-1";
+  }
+
+  @After
+  public void tearDown() {
+    exec.shutdownNow();
+  }
+
+  private byte[] data(final int size) {
+    final byte[] data = new byte[size];
+    for (int i = 0; i < size; i++) {
+      data[i] = (byte) i;
+    }
+    return data;
+  }
+
+  // Mock an S3 client that serves ranged requests from a byte array. The first
+  // failuresRemaining requests throw an IOException after returning failAfter
+  // bytes. As with the real client, a request whose ETag constraint does not
+  // match the current eTag returns null.
+  private AmazonS3 mockClient(final byte[] data) {
+    final AmazonS3 client = mock(AmazonS3.class);
+    final ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentLength(data.length);
+    metadata.setHeader(Headers.ETAG, eTag);
+    when(client.getObjectMetadata(OBJ.getBucket(), OBJ.getKey())).thenReturn(metadata);
+    when(client.getObject(any(GetObjectRequest.class))).thenAnswer(new Answer<S3Object>() {
+      @Override
+      public S3Object answer(final InvocationOnMock invocation) {
+        final GetObjectRequest request = (GetObjectRequest) invocation.getArguments()[0];
+        final long[] range = request.getRange();
+        requests.add(range);
+        final List<String> matching = request.getMatchingETagConstraints();
+        eTagConstraints.add(matching);
+        if (!matching.isEmpty() && !matching.contains(eTag)) {
+          return null;
+        }
+        if (data.length == 0) {
+          // S3 rejects ranged requests on empty objects.
+          throw new AmazonS3Exception("The requested range is not satisfiable");
+        }
+        final int start = (int) range[0];
+        final int end = (int) Math.min(range[1], data.length - 1);
+        InputStream in = new ByteArrayInputStream(data, start, end - start + 1);
+        if (failuresRemaining > 0) {
+          failuresRemaining--;
+          in = new FailingInputStream(in, failAfter);
+        }
+        final S3Object object = new S3Object();
+        object.setObjectContent(new S3ObjectInputStream(in, new HttpGet()));
+        object.getObjectMetadata().setHeader(Headers.CONTENT_RANGE,
+            "bytes " + start + "-" + end + "/" + data.length);
+        object.getObjectMetadata().setHeader(Headers.ETAG, eTag);
+        return object;
+      }
+    });
+    return client;
+  }
+
+  // Check that the whole object is read with a single request.
+  @Test
+  public void testReadObject() throws IOException {
+    final byte[] data = data(10000);
+    try (final RangedS3InputStream in = new RangedS3InputStream(mockClient(data), OBJ)) {
+      assertArrayEquals(data, IOUtils.toByteArray(in));
+      assertEquals(10000, in.getPosition());
+    }
+    assertEquals(1, requests.size());
+    assertEquals(0, requests.get(0)[0]);
+  }
+
+  // Check that an empty object does not issue a GET request, since a ranged
+  // request on an empty object is invalid.
+  @Test
+  public void testEmptyObject() throws IOException {
+    final AmazonS3 client = mockClient(new byte[0]);
+    try (final RangedS3InputStream in = new RangedS3InputStream(client, OBJ)) {
+      assertEquals(-1, in.read());
+    }
+    verify(client, never()).getObject(any(GetObjectRequest.class));
+  }
+
+  // Check that a failed request is resumed from the last byte read.
+  @Test
+  public void testResumeAfterFailure() throws IOException {
+    final byte[] data = data(10000);
+    failuresRemaining = 2;
+    failAfter = 3000;
+    try (final RangedS3InputStream in = new RangedS3InputStream(mockClient(data), OBJ)) {
+      assertArrayEquals(data, IOUtils.toByteArray(in));
+    }
+    assertEquals(3, requests.size());
+    assertEquals(0, requests.get(0)[0]);
+    assertEquals(3000, requests.get(1)[0]);
+    assertEquals(6000, requests.get(2)[0]);
+    for (final List<String> constraints : eTagConstraints) {
+      assertEquals(Arrays.asList("etag-1"), constraints);
+    }
+  }
+
+  // Check that the stream fails, without retrying, if the object is replaced
+  // while it is being read.
+  @Test
+  public void testObjectChanged() throws IOException {
+    final byte[] data = data(10000);
+    failuresRemaining = 1;
+    failAfter = 3000;
+    final byte[] buf = new byte[10000];
+    try (final RangedS3InputStream in = new RangedS3InputStream(mockClient(data), OBJ)) {
+      assertEquals(3000, IOUtils.read(in, buf, 0, 3000));
+      eTag = "etag-2";
+      try {
+        in.read(buf);
+        fail();
+      } catch (final IOException e) {
+        assertTrue(e.getMessage().contains("etag-1"));
+      }
+      assertEquals(3000, in.getPosition());
+    }
+    assertEquals(2, requests.size());
+    assertEquals(3000, requests.get(1)[0]);
+  }
+
+  // Check that the ETag is taken from the first response if the metadata
+  // request did not return one.
+  @Test
+  public void testETagFromFirstResponse() throws IOException {
+    final byte[] data = data(10000);
+    final AmazonS3 client = mockClient(data);
+    final ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentLength(data.length);
+    when(client.getObjectMetadata(OBJ.getBucket(), OBJ.getKey())).thenReturn(metadata);
+    failuresRemaining = 1;
+    failAfter = 3000;
+    try (final RangedS3InputStream in = new RangedS3InputStream(client, OBJ)) {
+      assertArrayEquals(data, IOUtils.toByteArray(in));
+    }
+    assertEquals(2, requests.size());
+    assertTrue(eTagConstraints.get(0).isEmpty());
+    assertEquals(Arrays.asList("etag-1"), eTagConstraints.get(1));
+  }
+
+  // Check that the stream gives up once the retry limit is reached.
+  @Test(expected = IOException.class)
+  public void testRetryLimit() throws IOException {
+    failuresRemaining = 10;
+    failAfter = 0;
+    try (final RangedS3InputStream in = new RangedS3InputStream(mockClient(data(100)), OBJ,
+        null, 2)) {
+      IOUtils.toByteArray(in);
+    }
+  }
+
+  // Check that a prefetched head is served from memory and that the remainder
+  // of the object is requested from the end of the head.
+  @Test
+  public void testPrefetchedHead() throws IOException {
+    final byte[] data = data(10000);
+    final AmazonS3 client = mockClient(data);
+    final S3Prefetcher prefetcher = new S3Prefetcher(client, exec, 4096, 8192);
+    final S3Prefetcher.Head head = prefetcher.prefetch(OBJ);
+    try (final RangedS3InputStream in = new RangedS3InputStream(client, OBJ, head, 3)) {
+      assertArrayEquals(data, IOUtils.toByteArray(in));
+    }
+    assertEquals(2, requests.size());
+    assertEquals(0, requests.get(0)[0]);
+    assertEquals(4096, requests.get(1)[0]);
+    assertEquals(Arrays.asList("etag-1"), eTagConstraints.get(1));
+    assertEquals(0, prefetcher.getInFlightBytes());
+    verify(client, never()).getObjectMetadata(OBJ.getBucket(), OBJ.getKey());
+  }
+
+  // Check that a prefetched head that covers the whole object does not cause
+  // any further requests.
+  @Test
+  public void testPrefetchedWholeObject() throws IOException {
+    final byte[] data = data(100);
+    final AmazonS3 client = mockClient(data);
+    final S3Prefetcher prefetcher = new S3Prefetcher(client, exec, 4096, 8192);
+    try (final RangedS3InputStream in = new RangedS3InputStream(client, OBJ,
+        prefetcher.prefetch(OBJ), 3)) {
+      assertArrayEquals(data, IOUtils.toByteArray(in));
+    }
+    assertEquals(1, requests.size());
+  }
+
+  // Check that the prefetcher does not exceed its byte budget, and that
+  // releasing a head returns its reservation.
+  @Test
+  public void testPrefetchBudget() throws IOException {
+    final AmazonS3 client = mockClient(data(100));
+    final S3Prefetcher prefetcher = new S3Prefetcher(client, exec, 4096, 8192);
+    final S3Prefetcher.Head h1 = prefetcher.prefetch(OBJ);
+    final S3Prefetcher.Head h2 = prefetcher.prefetch(OBJ);
+    assertNull(prefetcher.prefetch(OBJ));
+    assertEquals(8192, prefetcher.getInFlightBytes());
+    h1.release();
+    h1.release();
+    assertEquals(4096, prefetcher.getInFlightBytes());
+    assertTrue(prefetcher.prefetch(OBJ) != null);
+    h2.release();
+  }
+
+  private static class FailingInputStream extends FilterInputStream {
+    private int remaining;
+
+    FailingInputStream(final InputStream in, final int remaining) {
+      super(in);
+      this.remaining = remaining;
+    }
+
+    @Override
+    public int read() throws IOException {
+      final byte[] b = new byte[1];
+      return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      if (remaining == 0) {
+        throw new IOException("Connection reset");
+      }
+      final int n = super.read(b, off, Math.min(len, remaining));
+      remaining -= n;
+      return n;
+    }
+  }
+}
@@ -0,0 +1,199 @@
+package edu.harvard.data.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Constructor;
+import java.nio.file.Files;
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.FileUtils;
+
+import edu.harvard.data.DataTable;
+import edu.harvard.data.FormatLibrary;
+import edu.harvard.data.FormatLibrary.Format;
+import edu.harvard.data.TableFormat;
+import edu.harvard.data.VerificationException;
+import edu.harvard.data.generator.GeneratedBindings;
+import edu.harvard.data.schema.DataSchemaColumn;
+import edu.harvard.data.schema.DataSchemaTable;
+import edu.harvard.data.schema.extension.ExtensionSchema;
+
+// Compares the cost of building records from parsed CSVRecords through the
+// generated DECODER against the reflective construction that
+// DelimitedFileIterator used before, and against a constructor that is looked
+// up once and invoked reflectively (the RecordDecoders fallback). Not run as
+// part of the test suite; invoke it manually with the test classpath, on a JDK:
+//
+// java edu.harvard.data.io.RecordDecoderBenchmark [records] [iterations]
+//
+// The bindings are generated from test_schemas/requests_benchmark.json, which
+// has the columns of the Canvas Data requests table, and the records are
+// random values of the right types. Lines are parsed into CSVRecords before
+// timing starts, so each run measures only record construction. The default of
+// 200000 records needs a heap of around 2 GB.
+public class RecordDecoderBenchmark {
+
+  private static final String SCHEMA = "test_schemas/requests_benchmark.json";
+  private static final String TABLE = "requests";
+
+  public static void main(final String[] args) throws Exception {
+    final int count = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    final int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+    final TableFormat format = new FormatLibrary()
+        .getFormat(Format.DecompressedCanvasDataFlatFiles);
+    final File dir = Files.createTempDirectory("decoder-benchmark").toFile();
+    try (GeneratedBindings bindings = new GeneratedBindings(SCHEMA, dir)) {
+      run(bindings.getBinding(TABLE), format, count, iterations);
+    } finally {
+      FileUtils.deleteDirectory(dir);
+    }
+  }
+
+  private static <T extends DataTable> void run(final Class<T> cls, final TableFormat format,
+      final int count, final int iterations) throws Exception {
+    @SuppressWarnings("unchecked")
+    final RecordDecoder<T> decoder = (RecordDecoder<T>) cls
+        .getField(RecordDecoders.DECODER_FIELD).get(null);
+    final Constructor<T> constructor = cls.getConstructor(TableFormat.class, CSVRecord.class);
+    final List<CSVRecord> records = records(format, count);
+    check(constructor, decoder, format, records);
+
+    // The first iteration warms up the JIT.
+    for (int i = 0; i <= iterations; i++) {
+      final long reflectionStart = System.nanoTime();
+      final long reflectionSum = decodeWithReflection(cls, format, records);
+      final long reflectionNanos = System.nanoTime() - reflectionStart;
+      final long cachedStart = System.nanoTime();
+      final long cachedSum = decodeWithConstructor(constructor, format, records);
+      final long cachedNanos = System.nanoTime() - cachedStart;
+      final long decoderStart = System.nanoTime();
+      final long decoderSum = decodeWithDecoder(decoder, format, records);
+      final long decoderNanos = System.nanoTime() - decoderStart;
+      if (reflectionSum != decoderSum || cachedSum != decoderSum) {
+        throw new IllegalStateException("Record count mismatch");
+      }
+      System.out.println((i == 0 ? "warmup" : "run " + i) + ": reflection "
+          + reflectionNanos / 1000000 + " ms, cached constructor " + cachedNanos / 1000000
+          + " ms, DECODER " + decoderNanos / 1000000 + " ms ("
+          + String.format("%.0f", (double) decoderNanos / records.size()) + " ns/record), speedup "
+          + String.format("%.2f", (double) reflectionNanos / decoderNanos) + "x");
+    }
+  }
+
+  // Every path must produce the same records.
+  private static <T extends DataTable> void check(final Constructor<T> constructor,
+      final RecordDecoder<T> decoder, final TableFormat format, final List<CSVRecord> records)
+          throws Exception {
+    for (final CSVRecord record : records) {
+      final List<Object> expected = constructor.newInstance(format, record)
+          .getFieldsAsList(format);
+      if (!expected.equals(decoder.decode(format, record).getFieldsAsList(format))) {
+        throw new IllegalStateException("DECODER differs from constructor at " + record);
+      }
+    }
+  }
+
+  private static <T extends DataTable> long decodeWithReflection(final Class<T> cls,
+      final TableFormat format, final List<CSVRecord> records) throws Exception {
+    long count = 0;
+    for (final CSVRecord record : records) {
+      if (cls.getConstructor(TableFormat.class, CSVRecord.class).newInstance(format,
+          record) != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static <T extends DataTable> long decodeWithConstructor(
+      final Constructor<T> constructor, final TableFormat format, final List<CSVRecord> records)
+          throws Exception {
+    long count = 0;
+    for (final CSVRecord record : records) {
+      if (constructor.newInstance(format, record) != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static <T extends DataTable> long decodeWithDecoder(final RecordDecoder<T> decoder,
+      final TableFormat format, final List<CSVRecord> records) throws ParseException {
+    long count = 0;
+    for (final CSVRecord record : records) {
+      if (decoder.decode(format, record) != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  // Random values for each column, with about one in ten missing. The
+  // low-cardinality columns take a handful of values, as they do in the real
+  // requests table.
+  private static List<CSVRecord> records(final TableFormat format, final int count)
+      throws IOException, VerificationException {
+    final DataSchemaTable table = ExtensionSchema.readExtensionSchema(SCHEMA)
+        .getTableByName(TABLE);
+    final Random random = new Random(count);
+    final StringBuilder lines = new StringBuilder();
+    try (CSVPrinter printer = new CSVPrinter(lines, format.getCsvFormat())) {
+      for (int i = 0; i < count; i++) {
+        final List<Object> values = new ArrayList<Object>();
+        for (final DataSchemaColumn column : table.getColumns()) {
+          values.add(random.nextInt(10) == 0 ? null : value(column, format, random));
+        }
+        printer.printRecord(values);
+      }
+    }
+    final List<CSVRecord> records = new ArrayList<CSVRecord>(count);
+    try (CSVParser parser = new CSVParser(new StringReader(lines.toString()),
+        format.getCsvFormat())) {
+      for (final CSVRecord record : parser) {
+        records.add(record);
+      }
+    }
+    return records;
+  }
+
+  private static Object value(final DataSchemaColumn column, final TableFormat format,
+      final Random random) {
+    switch (column.getType()) {
+    case BigInt:
+      return random.nextLong() >>> 12;
+    case Integer:
+      return random.nextInt();
+    case Boolean:
+      return random.nextBoolean();
+    case DoublePrecision:
+      return random.nextDouble() * 1000;
+    case Date:
+      return format.formatTimestamp(new Date(random.nextLong() >>> 23));
+    case DateTime:
+    case Timestamp:
+      return format.formatTimestamp(new Timestamp(random.nextLong() >>> 23));
+    case Guid:
+      return new UUID(random.nextLong(), random.nextLong()).toString();
+    default:
+      if (column.getLowCardinality()) {
+        return column.getName() + "_" + random.nextInt(20);
+      }
+      final StringBuilder s = new StringBuilder();
+      final int length = 8 + random.nextInt(column.getName().startsWith("u") ? 120 : 24);
+      for (int i = 0; i < length; i++) {
+        s.append((char) ('a' + random.nextInt(26)));
+      }
+      return s.toString();
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package edu.harvard.data.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.http.client.methods.HttpGet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectId;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+
+import edu.harvard.data.AwsUtils;
+import edu.harvard.data.FormatLibrary;
+import edu.harvard.data.FormatLibrary.Format;
+import edu.harvard.data.TableFormat;
+
+public class StreamingS3TableReaderTests {
+
+  private ExecutorService exec;
+  private TableFormat format;
+  private Map<String, byte[]> objects;
+  private List<DataTableStub> expected;
+  private AmazonS3 client;
+
+  @Before
+  public void setup() {
+    exec = Executors.newSingleThreadExecutor();
+    format = new FormatLibrary().getFormat(Format.DecompressedInternal);
+    objects = new HashMap<String, byte[]>();
+    expected = new ArrayList<DataTableStub>();
+    client = mock(AmazonS3.class);
+    when(client.getObject(any(GetObjectRequest.class))).thenAnswer(new Answer<S3Object>() {
+      @Override
+      public S3Object answer(final InvocationOnMock invocation) {
+        final GetObjectRequest request = (GetObjectRequest) invocation.getArguments()[0];
+        final byte[] data = objects.get(request.getKey());
+        if (data.length == 0) {
+          // S3 rejects ranged requests on empty objects.
+          throw new AmazonS3Exception("The requested range is not satisfiable");
+        }
+        final int start = (int) request.getRange()[0];
+        final int end = (int) Math.min(request.getRange()[1], data.length - 1);
+        final S3Object object = new S3Object();
+        object.setObjectContent(new S3ObjectInputStream(
+            new ByteArrayInputStream(data, start, end - start + 1), new HttpGet()));
+        object.getObjectMetadata().setHeader(Headers.CONTENT_RANGE,
+            "bytes " + start + "-" + end + "/" + data.length);
+        return object;
+      }
+    });
+  }
+
+  @After
+  public void tearDown() {
+    exec.shutdownNow();
+  }
+
+  private S3ObjectId addObject(final String key, final int records) {
+    final StringBuilder content = new StringBuilder();
+    final DataTableStub base = new DataTableStub(format);
+    for (int i = 0; i < records; i++) {
+      final DataTableStub record = new DataTableStub(format, i, key, base.string2 + i,
+          base.timestamp, base.date);
+      content.append(record.recordString() + "\n");
+      expected.add(record);
+    }
+    final byte[] bytes = content.toString().getBytes();
+    objects.put(key, bytes);
+    final ObjectMetadata metadata = new ObjectMetadata();
+    metadata.setContentLength(bytes.length);
+    when(client.getObjectMetadata("bucket", key)).thenReturn(metadata);
+    return AwsUtils.key("bucket", key);
+  }
+
+  // Check that records are parsed directly from a single object.
+  @Test
+  public void testSingleObject() throws IOException {
+    final S3ObjectId obj = addObject("t0", 100);
+    final List<DataTableStub> read = new ArrayList<DataTableStub>();
+    try (final StreamingS3TableReader<DataTableStub> in = new StreamingS3TableReader<DataTableStub>(
+        client, DataTableStub.class, RecordDecoders.forClass(DataTableStub.class), format, obj,
+        null)) {
+      for (final DataTableStub record : in) {
+        read.add(record);
+      }
+    }
+    assertEquals(expected, read);
+  }
+
+  // Check that a combined set of objects is read in order with prefetching,
+  // and that the prefetch budget is returned once reading is complete.
+  @Test
+  public void testCombinedWithPrefetch() throws IOException {
+    final List<S3ObjectId> objs = new ArrayList<S3ObjectId>();
+    objs.add(addObject("t0", 50));
+    objs.add(addObject("t1", 0));
+    objs.add(addObject("t2", 50));
+    objs.add(addObject("t3", 50));
+    final S3Prefetcher prefetcher = new S3Prefetcher(client, exec, 1024, 2048);
+    final List<DataTableStub> read = new ArrayList<DataTableStub>();
+    try (final CombinedTableReader<DataTableStub> in = StreamingS3TableReader.combine(client,
+        DataTableStub.class, RecordDecoders.forClass(DataTableStub.class), format, objs,
+        prefetcher)) {
+      for (final DataTableStub record : in) {
+        read.add(record);
+      }
+    }
+    assertEquals(expected, read);
+    assertEquals(0, prefetcher.getInFlightBytes());
+  }
+}
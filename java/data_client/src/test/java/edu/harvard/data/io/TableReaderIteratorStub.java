@@ -0,0 +1,43 @@
+package edu.harvard.data.io;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import edu.harvard.data.DataTable;
+import edu.harvard.data.FormatLibrary;
+import edu.harvard.data.FormatLibrary.Format;
+import edu.harvard.data.TableFormat;
+
+class TableReaderIteratorStub<T extends DataTable> implements Iterator<T> {
+
+  List<DataTableStub> items;
+  int current;
+
+  public TableReaderIteratorStub(final int count, final String name) {
+    this.items = new ArrayList<DataTableStub>();
+    final TableFormat format = new FormatLibrary()
+        .getFormat(Format.DecompressedInternal);
+    final DataTableStub base = new DataTableStub(format);
+    for (int i = 0; i < count; i++) {
+      items.add(new DataTableStub(format, i, name, "123", base.timestamp, base.date));
+    }
+    this.current = 0;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return current < items.size();
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public T next() {
+    return (T) items.get(current++);
+  }
+
+  @Override
+  public void remove() {
+  }
+
+}
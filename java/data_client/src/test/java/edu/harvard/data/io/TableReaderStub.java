@@ -0,0 +1,28 @@
+package edu.harvard.data.io;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import edu.harvard.data.DataTable;
+
+class TableReaderStub<T extends DataTable> implements TableReader<T> {
+
+  final TableReaderIteratorStub<T> iterator;
+  boolean closed;
+
+  public TableReaderStub(final int items, final String name) {
+    this.iterator = new TableReaderIteratorStub<T>(items, name);
+    this.closed = false;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return iterator;
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+  }
+
+}
@@ -1,22 +1,35 @@
 package edu.harvard.data.io;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.hadoop.util.PureJavaCrc32C;
 
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.amazonaws.util.BinaryUtils;
 
 import edu.harvard.data.FormatLibrary;
 import edu.harvard.data.FormatLibrary.Format;
@@ -24,6 +37,9 @@ import edu.harvard.data.TableFormat;
 
 public class TableWriterTests {
 
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
   private OutputStream out;
   private TableFormat format;
   private TableFormat mockFormat;
@@ -46,6 +62,8 @@ public class TableWriterTests {
     when(mockFormat.getOutputStream(file)).thenReturn(out);
     when(mockFormat.includeHeaders()).thenReturn(false);
     when(mockFormat.getCsvFormat()).thenReturn(format.getCsvFormat());
+    when(mockFormat.getDelimitedEncoder()).thenReturn(format.getDelimitedEncoder());
+    when(mockFormat.getEncoding()).thenReturn(format.getEncoding());
   }
 
   @After
@@ -96,14 +114,87 @@ public class TableWriterTests {
     verify(parentFile, times(1)).mkdirs();
   }
 
-  // Check that an output stream is created for a file
+  // Check that an output stream is created for a file, with the format's codec
+  // applied above the checksum.
   @Test
   public void testFileOutputStream() throws IOException {
+    when(mockFormat.getOutputStream(any(OutputStream.class))).thenReturn(out);
     final TableWriter<DataTableStub> writer = new TableWriter<DataTableStub>(DataTableStub.class,
-        mockFormat, file);
+        mockFormat, folder.newFile());
     writer.add(new DataTableStub(mockFormat));
     writer.close();
-    verify(mockFormat, times(1)).getOutputStream(file);
+    verify(mockFormat, times(1)).getOutputStream(any(ChecksumOutputStream.class));
+  }
+
+  // Check that text is written in the format's encoding rather than the
+  // platform default, since readers always decode the format's encoding.
+  @Test
+  public void testOutputEncoding() throws IOException {
+    final File outFile = folder.newFile();
+    try (TableWriter<DataTableStub> writer = makeWriter(outFile)) {
+      writer.add(new DataTableStub(format, 1, "caf\u00e9 \u2603", null, null, null));
+    }
+    final byte[] expected = "caf\u00e9 \u2603".getBytes(StandardCharsets.UTF_8);
+    final String text = new String(Files.readAllBytes(outFile.toPath()),
+        StandardCharsets.ISO_8859_1);
+    assertTrue(text.contains(new String(expected, StandardCharsets.ISO_8859_1)));
+  }
+
+  // Check that the checksums describe the compressed bytes in the file.
+  @Test
+  public void testFileChecksum() throws IOException {
+    final TableFormat compressed = new FormatLibrary().getFormat(Format.CompressedInternal);
+    final File outFile = folder.newFile();
+    final TableWriter<DataTableStub> writer = new TableWriter<DataTableStub>(DataTableStub.class,
+        compressed, outFile);
+    for (int i = 0; i < 1000; i++) {
+      writer.add(new DataTableStub(compressed, i, "S" + i, null, null, null));
+    }
+    writer.close();
+    final ContentChecksum checksum = writer.getChecksum();
+    final byte[] bytes = Files.readAllBytes(outFile.toPath());
+    assertEquals(1000, checksum.getRows());
+    assertEquals(bytes.length, checksum.getLength());
+    assertChecksum(bytes, checksum);
+    assertEquals(new ContentChecksum(checksum.getMd5(), checksum.getCrc32c(), bytes.length,
+        ContentChecksum.UNKNOWN_ROWS), ContentChecksum.forFile(outFile));
+  }
+
+  // Check that the checksums describe the bytes written to an output stream,
+  // and that headers are not counted as rows.
+  @Test
+  public void testStreamChecksum() throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    when(mockFormat.includeHeaders()).thenReturn(true);
+    final TableWriter<DataTableStub> writer = new TableWriter<DataTableStub>(DataTableStub.class,
+        mockFormat, bytes);
+    writer.add(new DataTableStub(mockFormat, 123, "S1", "S2", null, null));
+    writer.add(new DataTableStub(mockFormat, 456, "S3", "S4", null, null));
+    writer.close();
+    assertEquals(2, writer.getChecksum().getRows());
+    assertEquals(bytes.size(), writer.getChecksum().getLength());
+    assertChecksum(bytes.toByteArray(), writer.getChecksum());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testChecksumBeforeClose() throws IOException {
+    final TableWriter<DataTableStub> writer = makeWriter(out);
+    writer.add(new DataTableStub(format));
+    writer.getChecksum();
+  }
+
+  private void assertChecksum(final byte[] bytes, final ContentChecksum checksum)
+      throws IOException {
+    try {
+      final byte[] md5 = MessageDigest.getInstance("MD5").digest(bytes);
+      assertEquals(BinaryUtils.toHex(md5), checksum.getMd5());
+      assertEquals(BinaryUtils.toBase64(md5), checksum.getMd5Base64());
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+    final PureJavaCrc32C crc = new PureJavaCrc32C();
+    crc.update(bytes, 0, bytes.length);
+    assertEquals(crc.getValue(), checksum.getCrc32c());
   }
 
   // Check that records are written in order
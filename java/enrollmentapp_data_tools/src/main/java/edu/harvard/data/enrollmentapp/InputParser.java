@@ -18,6 +18,8 @@ import edu.harvard.data.FormatLibrary;
 import edu.harvard.data.FormatLibrary.Format;
 import edu.harvard.data.TableFormat;
 import edu.harvard.data.TableFormat.Compression;
+import edu.harvard.data.io.AsyncTableWriter;
+import edu.harvard.data.io.ContentChecksum;
 import edu.harvard.data.io.FileTableReader;
 import edu.harvard.data.io.JsonFileReader;
 import edu.harvard.data.io.TableWriter;
@@ -90,9 +92,9 @@ public class InputParser {
       parse();
       verify();
       // Add product check here
-      aws.putFile(dataproductOutputObj, dataproductFile);
+      final ContentChecksum checksum = aws.putFile(dataproductOutputObj, dataproductFile);
       // Add product check here
-      dataIndex.addFile(currentDataProduct, dataproductOutputObj, dataproductFile.length());
+      dataIndex.addFile(currentDataProduct, dataproductOutputObj, checksum);
     } finally {
       cleanup();
     }
@@ -134,7 +136,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0CourseCatalog> catalogs = new TableWriter<Phase0CourseCatalog>(Phase0CourseCatalog.class, outFormat,
+    	    	TableWriter<Phase0CourseCatalog> catalogs = new AsyncTableWriter<Phase0CourseCatalog>(Phase0CourseCatalog.class, outFormat,
     	            dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     	              catalogs.add((Phase0CourseCatalog) tables.get("CourseCatalog").get(0));
@@ -145,7 +147,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0Classes> classes = new TableWriter<Phase0Classes>(Phase0Classes.class, outFormat,
+    	    	TableWriter<Phase0Classes> classes = new AsyncTableWriter<Phase0Classes>(Phase0Classes.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  classes.add((Phase0Classes) tables.get("Classes").get(0));
@@ -156,7 +158,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0CourseMap> coursemap = new TableWriter<Phase0CourseMap>(Phase0CourseMap.class, outFormat,
+    	    	TableWriter<Phase0CourseMap> coursemap = new AsyncTableWriter<Phase0CourseMap>(Phase0CourseMap.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			coursemap.add((Phase0CourseMap) tables.get("CourseMap").get(0));
@@ -167,7 +169,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0PrimeCourseEnroll> primeenroll = new TableWriter<Phase0PrimeCourseEnroll>(Phase0PrimeCourseEnroll.class, outFormat,
+    	    	TableWriter<Phase0PrimeCourseEnroll> primeenroll = new AsyncTableWriter<Phase0PrimeCourseEnroll>(Phase0PrimeCourseEnroll.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  primeenroll.add((Phase0PrimeCourseEnroll) tables.get("PrimeCourseEnroll").get(0));
@@ -178,7 +180,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0CourseEnroll> enroll = new TableWriter<Phase0CourseEnroll>(Phase0CourseEnroll.class, outFormat,
+    	    	TableWriter<Phase0CourseEnroll> enroll = new AsyncTableWriter<Phase0CourseEnroll>(Phase0CourseEnroll.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     		      enroll.add((Phase0CourseEnroll) tables.get("CourseEnroll").get(0));
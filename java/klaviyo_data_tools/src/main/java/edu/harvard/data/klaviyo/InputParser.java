@@ -18,6 +18,8 @@ import edu.harvard.data.FormatLibrary;
 import edu.harvard.data.FormatLibrary.Format;
 import edu.harvard.data.TableFormat;
 import edu.harvard.data.TableFormat.Compression;
+import edu.harvard.data.io.AsyncTableWriter;
+import edu.harvard.data.io.ContentChecksum;
 import edu.harvard.data.io.FileTableReader;
 import edu.harvard.data.io.JsonFileReader;
 import edu.harvard.data.io.TableWriter;
@@ -78,9 +80,9 @@ public class InputParser {
       parse();
       verify();
       // Add product check here
-      aws.putFile(dataproductOutputObj, dataproductFile);
+      final ContentChecksum checksum = aws.putFile(dataproductOutputObj, dataproductFile);
       // Add product check here
-      dataIndex.addFile(currentDataProduct, dataproductOutputObj, dataproductFile.length());
+      dataIndex.addFile(currentDataProduct, dataproductOutputObj, checksum);
     } finally {
       cleanup();
     }
@@ -114,7 +116,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0Activities> activities = new TableWriter<Phase0Activities>(Phase0Activities.class, outFormat,
+    	    	TableWriter<Phase0Activities> activities = new AsyncTableWriter<Phase0Activities>(Phase0Activities.class, outFormat,
     	            dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  activities.add((Phase0Activities) tables.get("Activities").get(0));
@@ -18,6 +18,8 @@ import edu.harvard.data.FormatLibrary;
 import edu.harvard.data.FormatLibrary.Format;
 import edu.harvard.data.TableFormat;
 import edu.harvard.data.TableFormat.Compression;
+import edu.harvard.data.io.AsyncTableWriter;
+import edu.harvard.data.io.ContentChecksum;
 import edu.harvard.data.io.FileTableReader;
 import edu.harvard.data.io.JsonFileReader;
 import edu.harvard.data.io.TableWriter;
@@ -108,9 +110,9 @@ public class InputParser {
       parse();
       verify();
       // Add product check here
-      aws.putFile(dataproductOutputObj, dataproductFile);
+      final ContentChecksum checksum = aws.putFile(dataproductOutputObj, dataproductFile);
       // Add product check here
-      dataIndex.addFile(currentDataProduct, dataproductOutputObj, dataproductFile.length());
+      dataIndex.addFile(currentDataProduct, dataproductOutputObj, checksum);
     } finally {
       cleanup();
     }
@@ -164,7 +166,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0ScraperText> scraped = new TableWriter<Phase0ScraperText>(Phase0ScraperText.class, outFormat,
+    	    	TableWriter<Phase0ScraperText> scraped = new AsyncTableWriter<Phase0ScraperText>(Phase0ScraperText.class, outFormat,
     	            dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  scraped.add((Phase0ScraperText) tables.get("ScraperText").get(0));
@@ -175,7 +177,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0ScraperTextEntity> entities = new TableWriter<Phase0ScraperTextEntity>(Phase0ScraperTextEntity.class, outFormat,
+    	    	TableWriter<Phase0ScraperTextEntity> entities = new AsyncTableWriter<Phase0ScraperTextEntity>(Phase0ScraperTextEntity.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  entities.add((Phase0ScraperTextEntity) tables.get("ScraperTextEntity").get(0));
@@ -186,7 +188,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0ScraperCitations> citations = new TableWriter<Phase0ScraperCitations>(Phase0ScraperCitations.class, outFormat,
+    	    	TableWriter<Phase0ScraperCitations> citations = new AsyncTableWriter<Phase0ScraperCitations>(Phase0ScraperCitations.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  citations.add((Phase0ScraperCitations) tables.get("ScraperCitations").get(0));
@@ -197,7 +199,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0ScraperCitationsCatalyst> citations = new TableWriter<Phase0ScraperCitationsCatalyst>(Phase0ScraperCitationsCatalyst.class, outFormat,
+    	    	TableWriter<Phase0ScraperCitationsCatalyst> citations = new AsyncTableWriter<Phase0ScraperCitationsCatalyst>(Phase0ScraperCitationsCatalyst.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  citations.add((Phase0ScraperCitationsCatalyst) tables.get("ScraperCitationsCatalyst").get(0));
@@ -208,7 +210,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0OpenScholarMapping> citations = new TableWriter<Phase0OpenScholarMapping>(Phase0OpenScholarMapping.class, outFormat,
+    	    	TableWriter<Phase0OpenScholarMapping> citations = new AsyncTableWriter<Phase0OpenScholarMapping>(Phase0OpenScholarMapping.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  citations.add((Phase0OpenScholarMapping) tables.get("OpenScholarMapping").get(0));
@@ -219,7 +221,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0OpenScholarBiblioTitles> citations = new TableWriter<Phase0OpenScholarBiblioTitles>(Phase0OpenScholarBiblioTitles.class, outFormat,
+    	    	TableWriter<Phase0OpenScholarBiblioTitles> citations = new AsyncTableWriter<Phase0OpenScholarBiblioTitles>(Phase0OpenScholarBiblioTitles.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  citations.add((Phase0OpenScholarBiblioTitles) tables.get("OpenScholarBiblioTitles").get(0));
@@ -230,7 +232,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0OpenScholarPages> citations = new TableWriter<Phase0OpenScholarPages>(Phase0OpenScholarPages.class, outFormat,
+    	    	TableWriter<Phase0OpenScholarPages> citations = new AsyncTableWriter<Phase0OpenScholarPages>(Phase0OpenScholarPages.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  citations.add((Phase0OpenScholarPages) tables.get("OpenScholarPages").get(0));
@@ -241,7 +243,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0Gazette> articles = new TableWriter<Phase0Gazette>(Phase0Gazette.class, outFormat,
+    	    	TableWriter<Phase0Gazette> articles = new AsyncTableWriter<Phase0Gazette>(Phase0Gazette.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  articles.add((Phase0Gazette) tables.get("Gazette").get(0));
@@ -252,7 +254,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0GazetteEvents> gevents = new TableWriter<Phase0GazetteEvents>(Phase0GazetteEvents.class, outFormat,
+    	    	TableWriter<Phase0GazetteEvents> gevents = new AsyncTableWriter<Phase0GazetteEvents>(Phase0GazetteEvents.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  gevents.add((Phase0GazetteEvents) tables.get("GazetteEvents").get(0));
@@ -263,7 +265,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0Rss> rssfeeds = new TableWriter<Phase0Rss>(Phase0Rss.class, outFormat,
+    	    	TableWriter<Phase0Rss> rssfeeds = new AsyncTableWriter<Phase0Rss>(Phase0Rss.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  rssfeeds.add((Phase0Rss) tables.get("Rss").get(0));
@@ -274,7 +276,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0HiltIntoPractice> hiltips = new TableWriter<Phase0HiltIntoPractice>(Phase0HiltIntoPractice.class, outFormat,
+    	    	TableWriter<Phase0HiltIntoPractice> hiltips = new AsyncTableWriter<Phase0HiltIntoPractice>(Phase0HiltIntoPractice.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  hiltips.add((Phase0HiltIntoPractice) tables.get("HiltIntoPractice").get(0));
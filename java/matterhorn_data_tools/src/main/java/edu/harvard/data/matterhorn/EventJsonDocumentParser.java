@@ -1,27 +1,36 @@
 package edu.harvard.data.matterhorn;
 
+import java.io.IOException;
 import java.sql.Timestamp;
 import java.text.ParseException;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
 import edu.harvard.data.DataTable;
+import edu.harvard.data.JsonFields;
 import edu.harvard.data.TableFormat;
 import edu.harvard.data.VerificationException;
-import edu.harvard.data.io.JsonDocumentParser;
+import edu.harvard.data.io.DocumentSink;
+import edu.harvard.data.io.JsonRecordDecoder;
+import edu.harvard.data.io.StreamingJsonDocumentParser;
 import edu.harvard.data.matterhorn.bindings.phase0.Phase0Event;
 import edu.harvard.data.matterhorn.bindings.phase0.Phase0GeoIp;
 import edu.harvard.data.matterhorn.bindings.phase0.Phase0Video;
 
-public class EventJsonDocumentParser implements JsonDocumentParser {
+public class EventJsonDocumentParser extends StreamingJsonDocumentParser {
   private static final Logger log = LogManager.getLogger();
 
+  private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {
+  };
+
   private final TableFormat format;
   private final boolean verify;
 
@@ -32,49 +41,116 @@ public class EventJsonDocumentParser implements JsonDocumentParser {
 
   @SuppressWarnings("unchecked")
   @Override
-  public Map<String, List<? extends DataTable>> getDocuments(final Map<String, Object> values)
-      throws ParseException, VerificationException {
-    final Map<String, List<? extends DataTable>> tables = new HashMap<String, List<? extends DataTable>>();
+  public void parse(final Map<String, Object> values, final DocumentSink sink)
+      throws ParseException, VerificationException, IOException {
     final Phase0Event event = new Phase0Event(format, values);
+    Phase0Video video = null;
+    Phase0GeoIp geoip = null;
     if (values.containsKey("episode") && ((Map<String, Object>) values.get("episode")).size() > 0) {
       final Map<String, Object> fields = (Map<String, Object>) values.get("episode");
-      final Phase0Video video = new Phase0Video(format, fields);
+      video = new Phase0Video(format, fields);
       video.setId(event.getMpid());
       video.setTitle( cleanValue(video.getTitle()) );
-      final List<Phase0Video> videos = new ArrayList<Phase0Video>();
-      videos.add(video);
-      tables.put("video", videos);
     }
     if (values.containsKey("geoip") && ((Map<String, Object>) values.get("geoip")).size() > 0) {
       final Map<String, Object> fields = (Map<String, Object>) values.get("geoip");
       fields.remove("location"); // Location is redundant, and typed as a list
-      final Phase0GeoIp geoip = new Phase0GeoIp(format, fields);
-      final List<Phase0GeoIp> geoips = new ArrayList<Phase0GeoIp>();
-      geoips.add(geoip);
-      tables.put("geo_ip", geoips);
-    }
-    final List<Phase0Event> events = new ArrayList<Phase0Event>();
-    events.add(event);
-    tables.put("event", events);
+      geoip = new Phase0GeoIp(format, fields);
+    }
     if (verify) {
-      verifyParser(values, tables);
+      verifyParser(values, event, video, geoip);
+    }
+    sink.emit("event", event);
+    if (video != null) {
+      sink.emit("video", video);
+    }
+    if (geoip != null) {
+      sink.emit("geo_ip", geoip);
     }
-    return tables;
   }
 
-  public void verifyParser(final Map<String, Object> values,
-      final Map<String, List<? extends DataTable>> tables) throws VerificationException {
+  // Records are always decoded straight from the parser's tokens by the
+  // generated JSON decoders. Verification compares the records against the
+  // original map, so when it is on the object's tokens are buffered and read
+  // twice: once by the decoders and once into the map.
+  @Override
+  public void parse(final JsonParser parser, final DocumentSink sink)
+      throws ParseException, VerificationException, IOException {
+    if (!verify) {
+      decode(parser).emit(sink);
+      return;
+    }
+    final TokenBuffer buffer = new TokenBuffer(parser);
+    buffer.copyCurrentStructure(parser);
+    final Records records;
+    try (JsonParser tokens = buffer.asParser(parser.getCodec())) {
+      tokens.nextToken();
+      records = decode(tokens);
+    }
+    final Map<String, Object> values;
+    try (JsonParser tokens = buffer.asParser(parser.getCodec())) {
+      values = tokens.readValueAs(MAP_TYPE);
+    }
+    verifyParser(values, records.event, records.video, records.geoip);
+    records.emit(sink);
+  }
+
+  private Records decode(final JsonParser parser)
+      throws IOException, ParseException, VerificationException {
+    final Records records = new Records();
+    records.event = Phase0Event.JSON_DECODER.create();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String name = parser.getCurrentName();
+      parser.nextToken();
+      if (name.equals("episode")) {
+        records.video = decodeNested(Phase0Video.JSON_DECODER, parser);
+      } else if (name.equals("geoip")) {
+        records.geoip = decodeNested(Phase0GeoIp.JSON_DECODER, parser);
+      } else if (!Phase0Event.JSON_DECODER.decodeField(format, parser, name, records.event)) {
+        parser.skipChildren();
+      }
+    }
+    if (records.video != null) {
+      records.video.setId(records.event.getMpid());
+      records.video.setTitle( cleanValue(records.video.getTitle()) );
+    }
+    return records;
+  }
+
+  // Decode a nested object into a record, returning null if the object is null
+  // or empty (matching the size() check on the map above).
+  private <T extends DataTable> T decodeNested(final JsonRecordDecoder<T> decoder,
+      final JsonParser parser) throws IOException, ParseException {
+    if (!JsonFields.startObject(parser)) {
+      return null;
+    }
+    T record = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String name = parser.getCurrentName();
+      parser.nextToken();
+      if (record == null) {
+        record = decoder.create();
+      }
+      if (!decoder.decodeField(format, parser, name, record)) {
+        parser.skipChildren();
+      }
+    }
+    return record;
+  }
+
+  public void verifyParser(final Map<String, Object> values, final DataTable event,
+      final DataTable video, final DataTable geoip) throws VerificationException {
     values.remove("_meta");
     values.remove("useragent");
-    final List<? extends DataTable> events = tables.get("event");
-    final List<? extends DataTable> videos = tables.get("video");
-    final List<? extends DataTable> geoips = tables.get("geo_ip");
-    final Map<String, Object> parsed = events.get(0).getFieldsAsMap();
-    if (videos != null && !videos.isEmpty()) {
-      parsed.put("episode", videos.get(0).getFieldsAsMap());
+    if (values.get("geoip") instanceof Map) {
+      ((Map<?, ?>) values.get("geoip")).remove("location"); // Not part of the GeoIp table
     }
-    if (geoips != null && !geoips.isEmpty()) {
-      parsed.put("geoip", geoips.get(0).getFieldsAsMap());
+    final Map<String, Object> parsed = event.getFieldsAsMap();
+    if (video != null) {
+      parsed.put("episode", video.getFieldsAsMap());
+    }
+    if (geoip != null) {
+      parsed.put("geoip", geoip.getFieldsAsMap());
     }
     try {
       if (values.containsKey("geoip") && ((Map<?,?>)values.get("geoip")).isEmpty()) {
@@ -185,4 +261,21 @@ public class EventJsonDocumentParser implements JsonDocumentParser {
     return object.toString();
   }
 
+  // The records decoded from a single event document.
+  private static class Records {
+    Phase0Event event;
+    Phase0Video video;
+    Phase0GeoIp geoip;
+
+    void emit(final DocumentSink sink) throws IOException {
+      sink.emit("event", event);
+      if (video != null) {
+        sink.emit("video", video);
+      }
+      if (geoip != null) {
+        sink.emit("geo_ip", geoip);
+      }
+    }
+  }
+
 }
@@ -2,13 +2,12 @@ package edu.harvard.data.matterhorn;
 
 import java.io.IOException;
 
-import org.apache.commons.csv.CSVParser;
+import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
-import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 
 import edu.harvard.data.DataConfig;
@@ -19,6 +18,7 @@ import edu.harvard.data.HadoopJob;
 import edu.harvard.data.HadoopUtilities;
 import edu.harvard.data.NoInputDataException;
 import edu.harvard.data.TableFormat;
+import edu.harvard.data.io.DataTableInputFormat;
 import edu.harvard.data.matterhorn.MatterhornDataConfig;
 import edu.harvard.data.matterhorn.bindings.phase1.Phase1GeoIp;
 import edu.harvard.data.matterhorn.bindings.phase2.Phase2GeoIp;
@@ -40,10 +40,13 @@ public class GeoIpJob extends HadoopJob {
   @Override
   public Job getJob() throws IOException, NoInputDataException {
     final Job job = Job.getInstance(hadoopConf, "geoip-hadoop");
-    job.setInputFormatClass(TextInputFormat.class);
+    // Mappers receive records already parsed from the input lines.
+    job.setInputFormatClass(DataTableInputFormat.class);
+    DataTableInputFormat.setTableType(job, Phase1GeoIp.class);
     job.setMapperClass(GeoIpMapper.class);
     job.setMapOutputKeyClass(Text.class);
-    job.setMapOutputValueClass(Text.class);
+    // Records are shuffled in their binary Writable form.
+    job.setMapOutputValueClass(Phase1GeoIp.class);
 
     job.setReducerClass(GeoIpReducer.class);
     job.setOutputKeyClass(Text.class);
@@ -56,31 +59,16 @@ public class GeoIpJob extends HadoopJob {
   }
 }
 
-class GeoIpMapper extends Mapper<Object, Text, Text, Text> {
-
-  private TableFormat format;
-  private final HadoopUtilities hadoopUtils;
-
-  public GeoIpMapper() {
-    this.hadoopUtils = new HadoopUtilities();
-  }
-
-  @Override
-  protected void setup(final Context context) {
-    final Format formatName = Format.valueOf(context.getConfiguration().get("format"));
-    this.format = new FormatLibrary().getFormat(formatName);
-  }
+class GeoIpMapper extends Mapper<LongWritable, Phase1GeoIp, Text, Phase1GeoIp> {
 
   @Override
-  public void map(final Object key, final Text value, final Context context)
+  public void map(final LongWritable key, final Phase1GeoIp geoIp, final Context context)
       throws IOException, InterruptedException {
-    final CSVParser parser = CSVParser.parse(value.toString(), format.getCsvFormat());
-    final Phase1GeoIp geoIp = new Phase1GeoIp(format, parser.getRecords().get(0));
-    context.write(new Text(geoIp.getIp()), hadoopUtils.convertToText(geoIp, format));
+    context.write(new Text(geoIp.getIp()), geoIp);
   }
 }
 
-class GeoIpReducer extends Reducer<Text, Text, Text, NullWritable> {
+class GeoIpReducer extends Reducer<Text, Phase1GeoIp, Text, NullWritable> {
 
   private TableFormat format;
   private final HadoopUtilities hadoopUtils;
@@ -96,13 +84,11 @@ class GeoIpReducer extends Reducer<Text, Text, Text, NullWritable> {
   }
 
   @Override
-  public void reduce(final Text key, final Iterable<Text> values, final Context context)
+  public void reduce(final Text key, final Iterable<Phase1GeoIp> values, final Context context)
       throws IOException, InterruptedException {
     final Phase2GeoIp geoIp = new Phase2GeoIp();
     geoIp.setIp(key.toString());
-    for (final Text value : values) {
-      final CSVParser parser = CSVParser.parse(value.toString(), format.getCsvFormat());
-      final Phase1GeoIp g = new Phase1GeoIp(format, parser.getRecords().get(0));
+    for (final Phase1GeoIp g : values) {
       if (geoIp.getAreaCode() == null && g.getAreaCode() != null) {
         geoIp.setAreaCode(g.getAreaCode());
       }
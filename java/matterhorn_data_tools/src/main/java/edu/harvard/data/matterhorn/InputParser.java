@@ -2,7 +2,6 @@ package edu.harvard.data.matterhorn;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
 import java.util.Map;
 
 import org.apache.logging.log4j.LogManager;
@@ -11,14 +10,18 @@ import org.apache.logging.log4j.Logger;
 import com.amazonaws.services.s3.model.S3ObjectId;
 
 import edu.harvard.data.AwsUtils;
-import edu.harvard.data.DataTable;
 import edu.harvard.data.FormatLibrary;
 import edu.harvard.data.FormatLibrary.Format;
+import edu.harvard.data.StringDictionary;
 import edu.harvard.data.TableFormat;
 import edu.harvard.data.TableFormat.Compression;
+import edu.harvard.data.io.AsyncTableWriter;
+import edu.harvard.data.io.ContentChecksum;
 import edu.harvard.data.io.FileTableReader;
 import edu.harvard.data.io.JsonFileReader;
+import edu.harvard.data.io.PartitionedTableWriter;
 import edu.harvard.data.io.TableWriter;
+import edu.harvard.data.io.TableWriterSink;
 import edu.harvard.data.matterhorn.MatterhornDataConfig;
 import edu.harvard.data.matterhorn.bindings.phase0.Phase0Event;
 import edu.harvard.data.matterhorn.bindings.phase0.Phase0GeoIp;
@@ -33,12 +36,15 @@ public class InputParser {
   private final AwsUtils aws;
   private final S3ObjectId inputObj;
   private File originalFile;
-  private File eventFile;
+  private File eventDir;
+  private String eventPrefix;
   private File videoFile;
   private File geoipFile;
-  private S3ObjectId eventOutputObj;
   private S3ObjectId videoOutputObj;
   private S3ObjectId geoipOutputObj;
+  private Map<File, ContentChecksum> eventChecksums;
+  private ContentChecksum videoChecksum;
+  private ContentChecksum geoipChecksum;
   private final TableFormat inFormat;
   private final TableFormat outFormat;
   private final S3ObjectId videoOutputDir;
@@ -66,12 +72,15 @@ public class InputParser {
       aws.getFile(inputObj, originalFile);
       parse();
       verify();
-      aws.putFile(eventOutputObj, eventFile);
-      aws.putFile(videoOutputObj, videoFile);
-      aws.putFile(geoipOutputObj, geoipFile);
-      dataIndex.addFile("event", eventOutputObj, eventFile.length());
-      dataIndex.addFile("video", videoOutputObj, videoFile.length());
-      dataIndex.addFile("geo_ip", geoipOutputObj, geoipFile.length());
+      for (final Map.Entry<File, ContentChecksum> entry : eventChecksums.entrySet()) {
+        final S3ObjectId eventOutputObj = AwsUtils.key(eventOutputDir, entry.getKey().getName());
+        aws.putFile(eventOutputObj, entry.getKey(), entry.getValue());
+        dataIndex.addFile("event", eventOutputObj, entry.getValue());
+      }
+      aws.putFile(videoOutputObj, videoFile, videoChecksum);
+      aws.putFile(geoipOutputObj, geoipFile, geoipChecksum);
+      dataIndex.addFile("video", videoOutputObj, videoChecksum);
+      dataIndex.addFile("geo_ip", geoipOutputObj, geoipChecksum);
     } finally {
       cleanup();
     }
@@ -83,51 +92,64 @@ public class InputParser {
     final String filename = key.substring(key.lastIndexOf("/") + 1);
     final String date = filename.substring(filename.indexOf(".") + 1, filename.indexOf(".json"));
     originalFile = new File(config.getScratchDir(), filename);
-    final String eventFileName = "event-" + date + ".gz";
+    eventPrefix = "event-" + date;
     final String videoFileName = "video-" + date + ".gz";
     final String geoipFileName = "geoip-" + date + ".gz";
-    eventFile = new File(config.getScratchDir(), eventFileName);
+    eventDir = new File(config.getScratchDir(), eventPrefix);
     videoFile = new File(config.getScratchDir(), videoFileName);
     geoipFile = new File(config.getScratchDir(), geoipFileName);
-    eventOutputObj = AwsUtils.key(eventOutputDir, eventFileName);
     videoOutputObj = AwsUtils.key(videoOutputDir, videoFileName);
     geoipOutputObj = AwsUtils.key(geoipOutputDir, geoipFileName);
-    log.info("Parsing " + filename + " to " + eventFile + ", " + videoFile + ", " + geoipFile);
-    log.info("Event key: " + eventOutputObj);
+    log.info("Parsing " + filename + " to " + eventDir + ", " + videoFile + ", " + geoipFile);
+    log.info("Event keys: " + eventOutputDir);
     log.info("Video key: " + videoOutputObj);
     log.info("GeoIp key: " + geoipOutputObj);
   }
 
+  // The writers checksum the files as they are written, so the uploads do not
+  // need to read them again. Events are by far the largest table, so they are
+  // split into as many files as the configuration asks for, letting each
+  // Redshift slice and mapper take an even share of the load.
   private void parse() throws IOException {
     log.info("Parsing file " + originalFile);
+    final PartitionedTableWriter<Phase0Event> events;
+    final TableWriter<Phase0Video> videos;
+    final TableWriter<Phase0GeoIp> geoips;
     try (
         final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
             new EventJsonDocumentParser(inFormat, true));
-        TableWriter<Phase0Event> events = new TableWriter<Phase0Event>(Phase0Event.class, outFormat,
-            eventFile);
-        TableWriter<Phase0Video> videos = new TableWriter<Phase0Video>(Phase0Video.class, outFormat,
-            videoFile);
-        TableWriter<Phase0GeoIp> geoips = new TableWriter<Phase0GeoIp>(Phase0GeoIp.class, outFormat,
-            geoipFile);) {
-      for (final Map<String, List<? extends DataTable>> tables : in) {
-        events.add((Phase0Event) tables.get("event").get(0));
-        if (tables.containsKey("video") && !tables.get("video").isEmpty()) {
-          videos.add((Phase0Video) tables.get("video").get(0));
-        }
-        if (tables.containsKey("geo_ip") && !tables.get("geo_ip").isEmpty()) {
-          geoips.add((Phase0GeoIp) tables.get("geo_ip").get(0));
-        }
-      }
+        TableWriterSink tables = new TableWriterSink()) {
+      events = new PartitionedTableWriter<Phase0Event>(Phase0Event.class, outFormat, eventDir,
+          eventPrefix, config, PartitionedTableWriter.<Phase0Event> roundRobin());
+      tables.add("event", events);
+      videos = new AsyncTableWriter<Phase0Video>(Phase0Video.class, outFormat, videoFile);
+      tables.add("video", videos);
+      geoips = new AsyncTableWriter<Phase0GeoIp>(Phase0GeoIp.class, outFormat, geoipFile);
+      tables.add("geo_ip", geoips);
+      in.parse(tables);
+    }
+    eventChecksums = events.getChecksums();
+    videoChecksum = videos.getChecksum();
+    geoipChecksum = geoips.getChecksum();
+    for (final Map.Entry<File, ContentChecksum> entry : eventChecksums.entrySet()) {
+      log.info("Event file " + entry.getKey().getName() + ": " + entry.getValue());
+    }
+    log.info("Video file: " + videoChecksum);
+    log.info("GeoIp file: " + geoipChecksum);
+    for (final StringDictionary dictionary : StringDictionary.getDictionaries()) {
+      log.info("Dictionary " + dictionary);
     }
   }
 
   @SuppressWarnings("unused") // We run through each table's iterator, but don't
   // need the values.
   private void verify() throws IOException {
-    try (FileTableReader<Phase0Event> in = new FileTableReader<Phase0Event>(Phase0Event.class,
-        outFormat, eventFile)) {
-      log.info("Verifying file " + eventFile);
-      for (final Phase0Event i : in) {
+    for (final File eventFile : eventChecksums.keySet()) {
+      try (FileTableReader<Phase0Event> in = new FileTableReader<Phase0Event>(Phase0Event.class,
+          outFormat, eventFile)) {
+        log.info("Verifying file " + eventFile);
+        for (final Phase0Event i : in) {
+        }
       }
     }
     try (FileTableReader<Phase0Video> in = new FileTableReader<Phase0Video>(Phase0Video.class,
@@ -148,8 +170,11 @@ public class InputParser {
     if (originalFile != null && originalFile.exists()) {
       originalFile.delete();
     }
-    if (eventFile != null && eventFile.exists()) {
-      eventFile.delete();
+    if (eventDir != null && eventDir.exists()) {
+      for (final File eventFile : eventDir.listFiles()) {
+        eventFile.delete();
+      }
+      eventDir.delete();
     }
     if (videoFile != null && videoFile.exists()) {
       videoFile.delete();
@@ -2,13 +2,12 @@ package edu.harvard.data.matterhorn;
 
 import java.io.IOException;
 
-import org.apache.commons.csv.CSVParser;
+import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
-import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 
 import edu.harvard.data.DataConfig;
@@ -19,6 +18,7 @@ import edu.harvard.data.HadoopJob;
 import edu.harvard.data.HadoopUtilities;
 import edu.harvard.data.NoInputDataException;
 import edu.harvard.data.TableFormat;
+import edu.harvard.data.io.DataTableInputFormat;
 import edu.harvard.data.matterhorn.MatterhornDataConfig;
 import edu.harvard.data.matterhorn.bindings.phase1.Phase1Video;
 import edu.harvard.data.matterhorn.bindings.phase2.Phase2Video;
@@ -40,10 +40,13 @@ public class VideoJob extends HadoopJob {
   @Override
   public Job getJob() throws IOException, NoInputDataException {
     final Job job = Job.getInstance(hadoopConf, "video-hadoop");
-    job.setInputFormatClass(TextInputFormat.class);
+    // Mappers receive records already parsed from the input lines.
+    job.setInputFormatClass(DataTableInputFormat.class);
+    DataTableInputFormat.setTableType(job, Phase1Video.class);
     job.setMapperClass(VideoFileMapper.class);
     job.setMapOutputKeyClass(Text.class);
-    job.setMapOutputValueClass(Text.class);
+    // Records are shuffled in their binary Writable form.
+    job.setMapOutputValueClass(Phase1Video.class);
 
     job.setReducerClass(VideoFileReducer.class);
     job.setOutputKeyClass(Text.class);
@@ -56,31 +59,16 @@ public class VideoJob extends HadoopJob {
   }
 }
 
-class VideoFileMapper extends Mapper<Object, Text, Text, Text> {
-
-  private TableFormat format;
-  private final HadoopUtilities hadoopUtils;
-
-  public VideoFileMapper() {
-    this.hadoopUtils = new HadoopUtilities();
-  }
+class VideoFileMapper extends Mapper<LongWritable, Phase1Video, Text, Phase1Video> {
 
   @Override
-  protected void setup(final Context context) {
-    final Format formatName = Format.valueOf(context.getConfiguration().get("format"));
-    this.format = new FormatLibrary().getFormat(formatName);
-  }
-
-  @Override
-  public void map(final Object key, final Text value, final Context context)
+  public void map(final LongWritable key, final Phase1Video video, final Context context)
       throws IOException, InterruptedException {
-    final CSVParser parser = CSVParser.parse(value.toString(), format.getCsvFormat());
-    final Phase1Video video = new Phase1Video(format, parser.getRecords().get(0));
-    context.write(new Text(video.getId()), hadoopUtils.convertToText(video, format));
+    context.write(new Text(video.getId()), video);
   }
 }
 
-class VideoFileReducer extends Reducer<Text, Text, Text, NullWritable> {
+class VideoFileReducer extends Reducer<Text, Phase1Video, Text, NullWritable> {
 
   private TableFormat format;
   private final HadoopUtilities hadoopUtils;
@@ -96,14 +84,11 @@ class VideoFileReducer extends Reducer<Text, Text, Text, NullWritable> {
   }
 
   @Override
-  public void reduce(final Text key, final Iterable<Text> values, final Context context)
+  public void reduce(final Text key, final Iterable<Phase1Video> values, final Context context)
       throws IOException, InterruptedException {
     final Phase2Video video = new Phase2Video();
     video.setId(key.toString());
-    for (final Text value : values) {
-      final CSVParser parser = CSVParser.parse(value.toString(), format.getCsvFormat());
-      final Phase1Video v = new Phase1Video(format, parser.getRecords().get(0));
-
+    for (final Phase1Video v : values) {
       if (video.getCdn() == null && v.getCdn() != null) {
         video.setCdn(v.getCdn());
       }
@@ -16,6 +16,8 @@ import edu.harvard.data.FormatLibrary;
 import edu.harvard.data.FormatLibrary.Format;
 import edu.harvard.data.TableFormat;
 import edu.harvard.data.TableFormat.Compression;
+import edu.harvard.data.io.AsyncTableWriter;
+import edu.harvard.data.io.ContentChecksum;
 import edu.harvard.data.io.FileTableReader;
 import edu.harvard.data.io.JsonFileReader;
 import edu.harvard.data.io.TableWriter;
@@ -86,9 +88,9 @@ public class InputParser {
       parse();
       verify();
       // Add product check here
-      aws.putFile(dataproductOutputObj, dataproductFile);
+      final ContentChecksum checksum = aws.putFile(dataproductOutputObj, dataproductFile);
       // Add product check here
-      dataIndex.addFile(currentDataProduct, dataproductOutputObj, dataproductFile.length());
+      dataIndex.addFile(currentDataProduct, dataproductOutputObj, checksum);
     } finally {
       cleanup();
     }
@@ -127,7 +129,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0Presentations> presentations = new TableWriter<Phase0Presentations>(Phase0Presentations.class, outFormat,
+    	    	TableWriter<Phase0Presentations> presentations = new AsyncTableWriter<Phase0Presentations>(Phase0Presentations.class, outFormat,
     	            dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     	              presentations.add((Phase0Presentations) tables.get("Presentations").get(0));
@@ -138,7 +140,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0ViewingTrends> vtrends = new TableWriter<Phase0ViewingTrends>(Phase0ViewingTrends.class, outFormat,
+    	    	TableWriter<Phase0ViewingTrends> vtrends = new AsyncTableWriter<Phase0ViewingTrends>(Phase0ViewingTrends.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     				vtrends.add((Phase0ViewingTrends) tables.get("ViewingTrends").get(0));
@@ -149,7 +151,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    			TableWriter<Phase0ViewingTrendsUsers> vtrendsusers = new TableWriter<Phase0ViewingTrendsUsers>(Phase0ViewingTrendsUsers.class, outFormat,
+    			TableWriter<Phase0ViewingTrendsUsers> vtrendsusers = new AsyncTableWriter<Phase0ViewingTrendsUsers>(Phase0ViewingTrendsUsers.class, outFormat,
     		            dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     				vtrendsusers.add((Phase0ViewingTrendsUsers) tables.get("ViewingTrendsUsers").get(0));
@@ -160,7 +162,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    			TableWriter<Phase0ViewingSessions> vsessions = new TableWriter<Phase0ViewingSessions>(Phase0ViewingSessions.class, outFormat,
+    			TableWriter<Phase0ViewingSessions> vsessions = new AsyncTableWriter<Phase0ViewingSessions>(Phase0ViewingSessions.class, outFormat,
     		            dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     				vsessions.add((Phase0ViewingSessions) tables.get("ViewingSessions").get(0));
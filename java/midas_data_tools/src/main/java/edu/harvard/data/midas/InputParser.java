@@ -18,6 +18,8 @@ import edu.harvard.data.FormatLibrary;
 import edu.harvard.data.FormatLibrary.Format;
 import edu.harvard.data.TableFormat;
 import edu.harvard.data.TableFormat.Compression;
+import edu.harvard.data.io.AsyncTableWriter;
+import edu.harvard.data.io.ContentChecksum;
 import edu.harvard.data.io.FileTableReader;
 import edu.harvard.data.io.JsonFileReader;
 import edu.harvard.data.io.TableWriter;
@@ -78,9 +80,9 @@ public class InputParser {
       parse();
       verify();
       // Add product check here
-      aws.putFile(dataproductOutputObj, dataproductFile);
+      final ContentChecksum checksum = aws.putFile(dataproductOutputObj, dataproductFile);
       // Add product check here
-      dataIndex.addFile(currentDataProduct, dataproductOutputObj, dataproductFile.length());
+      dataIndex.addFile(currentDataProduct, dataproductOutputObj, checksum);
     } finally {
       cleanup();
     }
@@ -113,7 +115,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0PrimaryRoles> primaryroles = new TableWriter<Phase0PrimaryRoles>(Phase0PrimaryRoles.class, outFormat,
+    	    	TableWriter<Phase0PrimaryRoles> primaryroles = new AsyncTableWriter<Phase0PrimaryRoles>(Phase0PrimaryRoles.class, outFormat,
     	            dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  primaryroles.add((Phase0PrimaryRoles) tables.get("PrimaryRoles").get(0));
@@ -18,6 +18,8 @@ import edu.harvard.data.FormatLibrary;
 import edu.harvard.data.FormatLibrary.Format;
 import edu.harvard.data.TableFormat;
 import edu.harvard.data.TableFormat.Compression;
+import edu.harvard.data.io.AsyncTableWriter;
+import edu.harvard.data.io.ContentChecksum;
 import edu.harvard.data.io.FileTableReader;
 import edu.harvard.data.io.JsonFileReader;
 import edu.harvard.data.io.TableWriter;
@@ -84,9 +86,9 @@ public class InputParser {
       parse();
       verify();
       // Add product check here
-      aws.putFile(dataproductOutputObj, dataproductFile);
+      final ContentChecksum checksum = aws.putFile(dataproductOutputObj, dataproductFile);
       // Add product check here
-      dataIndex.addFile(currentDataProduct, dataproductOutputObj, dataproductFile.length());
+      dataIndex.addFile(currentDataProduct, dataproductOutputObj, checksum);
     } finally {
       cleanup();
     }
@@ -124,7 +126,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0Appointments> appointments = new TableWriter<Phase0Appointments>(Phase0Appointments.class, outFormat,
+    	    	TableWriter<Phase0Appointments> appointments = new AsyncTableWriter<Phase0Appointments>(Phase0Appointments.class, outFormat,
     	            dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  appointments.add((Phase0Appointments) tables.get("Appointments").get(0));
@@ -135,7 +137,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0CurrentActive> currentactive = new TableWriter<Phase0CurrentActive>(Phase0CurrentActive.class, outFormat,
+    	    	TableWriter<Phase0CurrentActive> currentactive = new AsyncTableWriter<Phase0CurrentActive>(Phase0CurrentActive.class, outFormat,
     	            dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  currentactive.add((Phase0CurrentActive) tables.get("CurrentActive").get(0));
@@ -146,7 +148,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0HistoricActive> currentactive = new TableWriter<Phase0HistoricActive>(Phase0HistoricActive.class, outFormat,
+    	    	TableWriter<Phase0HistoricActive> currentactive = new AsyncTableWriter<Phase0HistoricActive>(Phase0HistoricActive.class, outFormat,
     	            dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  currentactive.add((Phase0HistoricActive) tables.get("HistoricActive").get(0));
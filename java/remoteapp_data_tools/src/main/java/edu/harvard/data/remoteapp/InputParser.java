@@ -18,6 +18,8 @@ import edu.harvard.data.FormatLibrary;
 import edu.harvard.data.FormatLibrary.Format;
 import edu.harvard.data.TableFormat;
 import edu.harvard.data.TableFormat.Compression;
+import edu.harvard.data.io.AsyncTableWriter;
+import edu.harvard.data.io.ContentChecksum;
 import edu.harvard.data.io.FileTableReader;
 import edu.harvard.data.io.JsonFileReader;
 import edu.harvard.data.io.TableWriter;
@@ -88,9 +90,9 @@ public class InputParser {
       parse();
       verify();
       // Add product check here
-      aws.putFile(dataproductOutputObj, dataproductFile);
+      final ContentChecksum checksum = aws.putFile(dataproductOutputObj, dataproductFile);
       // Add product check here
-      dataIndex.addFile(currentDataProduct, dataproductOutputObj, dataproductFile.length());
+      dataIndex.addFile(currentDataProduct, dataproductOutputObj, checksum);
     } finally {
       cleanup();
     }
@@ -133,7 +135,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0Meetings> meetings = new TableWriter<Phase0Meetings>(Phase0Meetings.class, outFormat,
+    	    	TableWriter<Phase0Meetings> meetings = new AsyncTableWriter<Phase0Meetings>(Phase0Meetings.class, outFormat,
     	            dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  meetings.add((Phase0Meetings) tables.get("Meetings").get(0));
@@ -144,7 +146,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0Activities> activities = new TableWriter<Phase0Activities>(Phase0Activities.class, outFormat,
+    	    	TableWriter<Phase0Activities> activities = new AsyncTableWriter<Phase0Activities>(Phase0Activities.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  activities.add((Phase0Activities) tables.get("Activities").get(0));
@@ -155,7 +157,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0Participants> participants = new TableWriter<Phase0Participants>(Phase0Participants.class, outFormat,
+    	    	TableWriter<Phase0Participants> participants = new AsyncTableWriter<Phase0Participants>(Phase0Participants.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  participants.add((Phase0Participants) tables.get("Participants").get(0));
@@ -166,7 +168,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0Quality> participants = new TableWriter<Phase0Quality>(Phase0Quality.class, outFormat,
+    	    	TableWriter<Phase0Quality> participants = new AsyncTableWriter<Phase0Quality>(Phase0Quality.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  participants.add((Phase0Quality) tables.get("Quality").get(0));
@@ -18,6 +18,8 @@ import edu.harvard.data.FormatLibrary;
 import edu.harvard.data.FormatLibrary.Format;
 import edu.harvard.data.TableFormat;
 import edu.harvard.data.TableFormat.Compression;
+import edu.harvard.data.io.AsyncTableWriter;
+import edu.harvard.data.io.ContentChecksum;
 import edu.harvard.data.io.FileTableReader;
 import edu.harvard.data.io.JsonFileReader;
 import edu.harvard.data.io.TableWriter;
@@ -93,9 +95,9 @@ public class InputParser {
       parse();
       verify();
       // Add product check here
-      aws.putFile(dataproductOutputObj, dataproductFile);
+      final ContentChecksum checksum = aws.putFile(dataproductOutputObj, dataproductFile);
       // Add product check here
-      dataIndex.addFile(currentDataProduct, dataproductOutputObj, dataproductFile.length());
+      dataIndex.addFile(currentDataProduct, dataproductOutputObj, checksum);
     } finally {
       cleanup();
     }
@@ -139,7 +141,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0Syllabus> syllabi = new TableWriter<Phase0Syllabus>(Phase0Syllabus.class, outFormat,
+    	    	TableWriter<Phase0Syllabus> syllabi = new AsyncTableWriter<Phase0Syllabus>(Phase0Syllabus.class, outFormat,
     	            dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  syllabi.add((Phase0Syllabus) tables.get("Syllabus").get(0));
@@ -150,7 +152,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0SyllabusBody> sylbody = new TableWriter<Phase0SyllabusBody>(Phase0SyllabusBody.class, outFormat,
+    	    	TableWriter<Phase0SyllabusBody> sylbody = new AsyncTableWriter<Phase0SyllabusBody>(Phase0SyllabusBody.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  sylbody.add((Phase0SyllabusBody) tables.get("SyllabusBody").get(0));
@@ -161,7 +163,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0SyllabusLink> syllink = new TableWriter<Phase0SyllabusLink>(Phase0SyllabusLink.class, outFormat,
+    	    	TableWriter<Phase0SyllabusLink> syllink = new AsyncTableWriter<Phase0SyllabusLink>(Phase0SyllabusLink.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  syllink.add((Phase0SyllabusLink) tables.get("SyllabusLink").get(0));
@@ -172,7 +174,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0SyllabusNameLookup> sylnamelookup = new TableWriter<Phase0SyllabusNameLookup>(Phase0SyllabusNameLookup.class, outFormat,
+    	    	TableWriter<Phase0SyllabusNameLookup> sylnamelookup = new AsyncTableWriter<Phase0SyllabusNameLookup>(Phase0SyllabusNameLookup.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  sylnamelookup.add((Phase0SyllabusNameLookup) tables.get("SyllabusNameLookup").get(0));
@@ -183,7 +185,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0SyllabusDelta> syldelta = new TableWriter<Phase0SyllabusDelta>(Phase0SyllabusDelta.class, outFormat,
+    	    	TableWriter<Phase0SyllabusDelta> syldelta = new AsyncTableWriter<Phase0SyllabusDelta>(Phase0SyllabusDelta.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     		      syldelta.add((Phase0SyllabusDelta) tables.get("SyllabusDelta").get(0));
@@ -194,7 +196,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0SyllabusFiles> sylfiles = new TableWriter<Phase0SyllabusFiles>(Phase0SyllabusFiles.class, outFormat,
+    	    	TableWriter<Phase0SyllabusFiles> sylfiles = new AsyncTableWriter<Phase0SyllabusFiles>(Phase0SyllabusFiles.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     		      sylfiles.add((Phase0SyllabusFiles) tables.get("SyllabusFiles").get(0));
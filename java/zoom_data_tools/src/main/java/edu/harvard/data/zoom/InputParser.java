@@ -18,6 +18,8 @@ import edu.harvard.data.FormatLibrary;
 import edu.harvard.data.FormatLibrary.Format;
 import edu.harvard.data.TableFormat;
 import edu.harvard.data.TableFormat.Compression;
+import edu.harvard.data.io.AsyncTableWriter;
+import edu.harvard.data.io.ContentChecksum;
 import edu.harvard.data.io.FileTableReader;
 import edu.harvard.data.io.JsonFileReader;
 import edu.harvard.data.io.TableWriter;
@@ -91,9 +93,9 @@ public class InputParser {
       parse();
       verify();
       // Add product check here
-      aws.putFile(dataproductOutputObj, dataproductFile);
+      final ContentChecksum checksum = aws.putFile(dataproductOutputObj, dataproductFile);
       // Add product check here
-      dataIndex.addFile(currentDataProduct, dataproductOutputObj, dataproductFile.length());
+      dataIndex.addFile(currentDataProduct, dataproductOutputObj, checksum);
     } finally {
       cleanup();
     }
@@ -139,7 +141,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0Meetings> meetings = new TableWriter<Phase0Meetings>(Phase0Meetings.class, outFormat,
+    	    	TableWriter<Phase0Meetings> meetings = new AsyncTableWriter<Phase0Meetings>(Phase0Meetings.class, outFormat,
     	            dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  meetings.add((Phase0Meetings) tables.get("Meetings").get(0));
@@ -150,7 +152,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0Activities> activities = new TableWriter<Phase0Activities>(Phase0Activities.class, outFormat,
+    	    	TableWriter<Phase0Activities> activities = new AsyncTableWriter<Phase0Activities>(Phase0Activities.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  activities.add((Phase0Activities) tables.get("Activities").get(0));
@@ -161,7 +163,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0Participants> participants = new TableWriter<Phase0Participants>(Phase0Participants.class, outFormat,
+    	    	TableWriter<Phase0Participants> participants = new AsyncTableWriter<Phase0Participants>(Phase0Participants.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  participants.add((Phase0Participants) tables.get("Participants").get(0));
@@ -172,7 +174,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0Quality> quality = new TableWriter<Phase0Quality>(Phase0Quality.class, outFormat,
+    	    	TableWriter<Phase0Quality> quality = new AsyncTableWriter<Phase0Quality>(Phase0Quality.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  quality.add((Phase0Quality) tables.get("Quality").get(0));
@@ -183,7 +185,7 @@ public class InputParser {
     	try (
     	        final JsonFileReader in = new JsonFileReader(inFormat, originalFile,
     	            new EventJsonDocumentParser(inFormat, true, currentDataProduct));
-    	    	TableWriter<Phase0Users> users = new TableWriter<Phase0Users>(Phase0Users.class, outFormat,
+    	    	TableWriter<Phase0Users> users = new AsyncTableWriter<Phase0Users>(Phase0Users.class, outFormat,
     	                dataproductFile);) {
     		for (final Map<String, List<? extends DataTable>> tables : in) {
     			  users.add((Phase0Users) tables.get("Users").get(0));